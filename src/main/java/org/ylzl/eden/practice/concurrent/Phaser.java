@@ -0,0 +1,668 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 可复用的阶段屏障
+ *
+ * <p>参与方可以随时注册、注销。大量参与方时用 {@link #newTree} 构建分层屏障：参与方只在所属叶子上计数，
+ * 叶子到齐后才向父节点到达一次，根节点的计数竞争从 N 降到 N / leafParties。
+ * 根节点记录每个阶段的耗时和最后到达的线程，用于定位拖慢整体的参与方。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class Phaser {
+
+	/*
+	 * state 按位划分：
+	 * unarrived  -- 尚未到达的参与方数量，bits 0-15
+	 * parties    -- 注册的参与方数量，bits 16-31
+	 * phase      -- 阶段号，bits 32-62
+	 * terminated -- 终止标记，bit 63
+	 *
+	 * 没有参与方时用 EMPTY 表示，避免与“全部到达”混淆。子屏障的阶段号可能落后于根节点，读取时先与根节点对齐。
+	 */
+	private volatile long state;
+
+	private static final AtomicLongFieldUpdater<Phaser> STATE =
+		AtomicLongFieldUpdater.newUpdater(Phaser.class, "state");
+
+	private static final int MAX_PARTIES = 0xffff;
+	private static final int MAX_PHASE = Integer.MAX_VALUE;
+	private static final int PARTIES_SHIFT = 16;
+	private static final int PHASE_SHIFT = 32;
+	private static final int UNARRIVED_MASK = 0xffff;
+	private static final long PARTIES_MASK = 0xffff0000L;
+	private static final long COUNTS_MASK = 0xffffffffL;
+	private static final long TERMINATION_BIT = 1L << 63;
+
+	private static final int ONE_ARRIVAL = 1;
+	private static final int ONE_PARTY = 1 << PARTIES_SHIFT;
+	private static final int ONE_DEREGISTER = ONE_ARRIVAL | ONE_PARTY;
+	private static final int EMPTY = 1;
+
+	private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+	static final int SPINS_PER_ARRIVAL = (NCPU < 2) ? 1 : 1 << 8; // 挂起前每个新到达的参与方追加的自旋次数
+
+	private static int unarrivedOf(long s) {
+		int counts = (int) s;
+		return (counts == EMPTY) ? 0 : (counts & UNARRIVED_MASK);
+	}
+
+	private static int partiesOf(long s) {
+		return (int) s >>> PARTIES_SHIFT;
+	}
+
+	private static int phaseOf(long s) {
+		return (int) (s >>> PHASE_SHIFT);
+	}
+
+	private static int arrivedOf(long s) {
+		int counts = (int) s;
+		return (counts == EMPTY) ? 0 : (counts >>> PARTIES_SHIFT) - (counts & UNARRIVED_MASK);
+	}
+
+	private final Phaser parent;
+
+	private final Phaser root;
+
+	// 等待者按阶段奇偶分两个栈，避免新阶段的等待者与正在释放的旧阶段等待者混在一起，只有根节点持有
+	private final AtomicReference<QNode> evenQ;
+
+	private final AtomicReference<QNode> oddQ;
+
+	// 以下计时字段只在根节点使用
+	private volatile long phaseStartNanos;
+
+	private volatile PhaseTiming lastTiming;
+
+	public Phaser() {
+		this(null, 0);
+	}
+
+	public Phaser(int parties) {
+		this(null, parties);
+	}
+
+	public Phaser(Phaser parent) {
+		this(parent, 0);
+	}
+
+	public Phaser(Phaser parent, int parties) {
+		if (parties >>> PARTIES_SHIFT != 0) {
+			throw new IllegalArgumentException("Illegal number of parties");
+		}
+		int phase = 0;
+		this.parent = parent;
+		if (parent != null) {
+			final Phaser root = parent.root;
+			this.root = root;
+			this.evenQ = root.evenQ;
+			this.oddQ = root.oddQ;
+			if (parties != 0) {
+				phase = parent.doRegister(1);
+			}
+		} else {
+			this.root = this;
+			this.evenQ = new AtomicReference<QNode>();
+			this.oddQ = new AtomicReference<QNode>();
+			this.phaseStartNanos = System.nanoTime();
+		}
+		this.state = (parties == 0) ? (long) EMPTY :
+			((long) phase << PHASE_SHIFT) | ((long) parties << PARTIES_SHIFT) | ((long) parties);
+	}
+
+	/**
+	 * 构建分层屏障，返回叶子节点
+	 *
+	 * <p>第 i 个参与方使用 {@code leaves[i / leafParties]}，每个叶子最多 leafParties 个参与方；
+	 * 叶子数超过 leafParties 时继续向上分组，直到挂在 root 下。
+	 *
+	 * @param root        根节点，通常为 {@code new Phaser()}
+	 * @param parties     参与方总数
+	 * @param leafParties 每个节点的最大扇出
+	 */
+	public static Phaser[] newTree(Phaser root, int parties, int leafParties) {
+		if (parties <= 0 || leafParties < 2 || leafParties > MAX_PARTIES) {
+			throw new IllegalArgumentException();
+		}
+		int leafCount = (parties + leafParties - 1) / leafParties;
+		Phaser[] parents = parentsFor(root, leafCount, leafParties);
+		Phaser[] leaves = new Phaser[leafCount];
+		for (int i = 0; i < leafCount; i++) {
+			int n = Math.min(leafParties, parties - i * leafParties);
+			leaves[i] = new Phaser(parents[i / leafParties], n);
+		}
+		return leaves;
+	}
+
+	// 为 count 个子节点准备父节点，每个父节点最多 fanout 个子节点
+	private static Phaser[] parentsFor(Phaser root, int count, int fanout) {
+		if (count <= fanout) {
+			return new Phaser[]{root};
+		}
+		int parentCount = (count + fanout - 1) / fanout;
+		Phaser[] grandParents = parentsFor(root, parentCount, fanout);
+		Phaser[] parents = new Phaser[parentCount];
+		for (int i = 0; i < parentCount; i++) {
+			parents[i] = new Phaser(grandParents[i / fanout]); // 子节点注册时再向上注册
+		}
+		return parents;
+	}
+
+	private int doArrive(int adjust) {
+		final Phaser root = this.root;
+		for (;;) {
+			long s = (root == this) ? state : reconcileState();
+			int phase = (int) (s >>> PHASE_SHIFT);
+			if (phase < 0) {
+				return phase;
+			}
+			int counts = (int) s;
+			int unarrived = (counts == EMPTY) ? 0 : (counts & UNARRIVED_MASK);
+			if (unarrived <= 0) {
+				throw new IllegalStateException(badArrive(s));
+			}
+			if (STATE.compareAndSet(this, s, s -= adjust)) {
+				if (unarrived == 1) { // 本节点到齐
+					long n = s & PARTIES_MASK;
+					int nextUnarrived = (int) n >>> PARTIES_SHIFT;
+					if (root == this) {
+						STATE.compareAndSet(this, s, nextState(phase, n, nextUnarrived));
+						releaseWaiters(phase);
+					} else if (nextUnarrived == 0) { // 全部注销，父节点也注销本节点
+						phase = parent.doArrive(ONE_DEREGISTER);
+						STATE.compareAndSet(this, s, s | EMPTY);
+					} else {
+						phase = parent.doArrive(ONE_ARRIVAL);
+					}
+				}
+				return phase;
+			}
+		}
+	}
+
+	private int doRegister(int registrations) {
+		long adjust = ((long) registrations << PARTIES_SHIFT) | registrations;
+		final Phaser parent = this.parent;
+		int phase;
+		for (;;) {
+			long s = (parent == null) ? state : reconcileState();
+			int counts = (int) s;
+			int parties = counts >>> PARTIES_SHIFT;
+			int unarrived = counts & UNARRIVED_MASK;
+			if (registrations > MAX_PARTIES - parties) {
+				throw new IllegalStateException(badRegister(s));
+			}
+			phase = (int) (s >>> PHASE_SHIFT);
+			if (phase < 0) {
+				break;
+			}
+			if (counts != EMPTY) {
+				if (parent == null || reconcileState() == s) {
+					if (unarrived == 0) { // 正在进入下一阶段，等它完成
+						root.internalAwaitAdvance(phase, null);
+					} else if (STATE.compareAndSet(this, s, s + adjust)) {
+						break;
+					}
+				}
+			} else if (parent == null) { // 根节点首次注册
+				long next = ((long) phase << PHASE_SHIFT) | adjust;
+				if (STATE.compareAndSet(this, s, next)) {
+					break;
+				}
+			} else {
+				synchronized (this) { // 子节点首次注册，需要同时在父节点注册
+					if (state == s) {
+						phase = parent.doRegister(1);
+						if (phase < 0) {
+							break;
+						}
+						// 父节点已注册成功，即使与终止并发也要完成本节点的注册
+						while (!STATE.compareAndSet(this, s, ((long) phase << PHASE_SHIFT) | adjust)) {
+							s = state;
+							phase = (int) (root.state >>> PHASE_SHIFT);
+						}
+						break;
+					}
+				}
+			}
+		}
+		return phase;
+	}
+
+	// 子节点的阶段号落后于根节点时，对齐阶段号并重置未到达数
+	private long reconcileState() {
+		final Phaser root = this.root;
+		long s = state;
+		if (root != this) {
+			int phase, p;
+			while ((phase = (int) (root.state >>> PHASE_SHIFT)) != (int) (s >>> PHASE_SHIFT)
+				&& !STATE.compareAndSet(this, s,
+				s = (((long) phase << PHASE_SHIFT)
+					| ((phase < 0) ? (s & COUNTS_MASK)
+					: (((p = (int) s >>> PARTIES_SHIFT) == 0) ? EMPTY : ((s & PARTIES_MASK) | p)))))) {
+				s = state;
+			}
+		}
+		return s;
+	}
+
+	// 根节点进入下一阶段，计时在发布新状态之前完成，被唤醒的等待者可以读到本阶段的计时
+	private long nextState(int phase, long n, int nextUnarrived) {
+		if (onAdvance(phase, nextUnarrived)) {
+			n |= TERMINATION_BIT;
+		} else if (nextUnarrived == 0) {
+			n |= EMPTY;
+		} else {
+			n |= nextUnarrived;
+		}
+		int nextPhase = (phase + 1) & MAX_PHASE;
+		long now = System.nanoTime();
+		PhaseTiming timing = new PhaseTiming(phase, now - phaseStartNanos, Thread.currentThread().getName());
+		lastTiming = timing;
+		phaseStartNanos = now;
+		onPhaseTiming(timing);
+		return n | (long) nextPhase << PHASE_SHIFT;
+	}
+
+	public int register() {
+		return doRegister(1);
+	}
+
+	public int bulkRegister(int parties) {
+		if (parties < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (parties == 0) {
+			return getPhase();
+		}
+		return doRegister(parties);
+	}
+
+	public int arrive() {
+		return doArrive(ONE_ARRIVAL);
+	}
+
+	public int arriveAndDeregister() {
+		return doArrive(ONE_DEREGISTER);
+	}
+
+	public int arriveAndAwaitAdvance() {
+		final Phaser root = this.root;
+		for (;;) {
+			long s = (root == this) ? state : reconcileState();
+			int phase = (int) (s >>> PHASE_SHIFT);
+			if (phase < 0) {
+				return phase;
+			}
+			int counts = (int) s;
+			int unarrived = (counts == EMPTY) ? 0 : (counts & UNARRIVED_MASK);
+			if (unarrived <= 0) {
+				throw new IllegalStateException(badArrive(s));
+			}
+			if (STATE.compareAndSet(this, s, s -= ONE_ARRIVAL)) {
+				if (unarrived > 1) {
+					return root.internalAwaitAdvance(phase, null);
+				}
+				if (root != this) {
+					return parent.arriveAndAwaitAdvance();
+				}
+				long n = s & PARTIES_MASK;
+				int nextUnarrived = (int) n >>> PARTIES_SHIFT;
+				n = nextState(phase, n, nextUnarrived);
+				if (!STATE.compareAndSet(this, s, n)) {
+					return (int) (state >>> PHASE_SHIFT); // 已终止
+				}
+				releaseWaiters(phase);
+				return (phase + 1) & MAX_PHASE;
+			}
+		}
+	}
+
+	/**
+	 * 到达并最多等待指定时间
+	 *
+	 * @throws TimeoutException 超时，本次到达仍然有效
+	 */
+	public int arriveAndAwaitAdvance(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		return awaitAdvanceInterruptibly(arrive(), timeout, unit);
+	}
+
+	public int awaitAdvance(int phase) {
+		final Phaser root = this.root;
+		long s = (root == this) ? state : reconcileState();
+		int p = (int) (s >>> PHASE_SHIFT);
+		if (phase < 0) {
+			return phase;
+		}
+		if (p == phase) {
+			return root.internalAwaitAdvance(phase, null);
+		}
+		return p;
+	}
+
+	public int awaitAdvanceInterruptibly(int phase) throws InterruptedException {
+		final Phaser root = this.root;
+		long s = (root == this) ? state : reconcileState();
+		int p = (int) (s >>> PHASE_SHIFT);
+		if (phase < 0) {
+			return phase;
+		}
+		if (p == phase) {
+			QNode node = new QNode(this, phase, true, false, 0L);
+			p = root.internalAwaitAdvance(phase, node);
+			if (node.wasInterrupted) {
+				throw new InterruptedException();
+			}
+		}
+		return p;
+	}
+
+	public int awaitAdvanceInterruptibly(int phase, long timeout, TimeUnit unit)
+		throws InterruptedException, TimeoutException {
+		long nanos = unit.toNanos(timeout);
+		final Phaser root = this.root;
+		long s = (root == this) ? state : reconcileState();
+		int p = (int) (s >>> PHASE_SHIFT);
+		if (phase < 0) {
+			return phase;
+		}
+		if (p == phase) {
+			QNode node = new QNode(this, phase, true, true, nanos);
+			p = root.internalAwaitAdvance(phase, node);
+			if (node.wasInterrupted) {
+				throw new InterruptedException();
+			} else if (p == phase) {
+				throw new TimeoutException();
+			}
+		}
+		return p;
+	}
+
+	public void forceTermination() {
+		final Phaser root = this.root;
+		long s;
+		while ((s = root.state) >= 0) {
+			if (STATE.compareAndSet(root, s, s | TERMINATION_BIT)) {
+				releaseWaiters(0);
+				releaseWaiters(1);
+				return;
+			}
+		}
+	}
+
+	public final int getPhase() {
+		return (int) (root.state >>> PHASE_SHIFT);
+	}
+
+	public int getRegisteredParties() {
+		return partiesOf(state);
+	}
+
+	public int getArrivedParties() {
+		return arrivedOf(reconcileState());
+	}
+
+	public int getUnarrivedParties() {
+		return unarrivedOf(reconcileState());
+	}
+
+	public Phaser getParent() {
+		return parent;
+	}
+
+	public Phaser getRoot() {
+		return root;
+	}
+
+	public boolean isTerminated() {
+		return root.state < 0L;
+	}
+
+	/**
+	 * 最近一个已完成阶段的计时，尚无完成的阶段时返回 null
+	 */
+	public PhaseTiming getLastPhaseTiming() {
+		return root.lastTiming;
+	}
+
+	/**
+	 * 阶段推进前调用，返回 true 时终止屏障
+	 */
+	protected boolean onAdvance(int phase, int registeredParties) {
+		return registeredParties == 0;
+	}
+
+	/**
+	 * 根节点每完成一个阶段调用一次，由最后到达的线程执行，默认不处理
+	 */
+	protected void onPhaseTiming(PhaseTiming timing) {
+	}
+
+	@Override
+	public String toString() {
+		long s = reconcileState();
+		return super.toString() + "[phase = " + phaseOf(s) + " parties = " + partiesOf(s)
+			+ " arrived = " + arrivedOf(s) + "]";
+	}
+
+	private String badArrive(long s) {
+		return "Attempted arrival of unregistered party for " + this;
+	}
+
+	private String badRegister(long s) {
+		return "Attempt to register more than " + MAX_PARTIES + " parties for " + this;
+	}
+
+	// 唤醒上一阶段的等待者
+	private void releaseWaiters(int phase) {
+		QNode q;
+		Thread t;
+		AtomicReference<QNode> head = (phase & 1) == 0 ? evenQ : oddQ;
+		while ((q = head.get()) != null && q.phase != (int) (root.state >>> PHASE_SHIFT)) {
+			if (head.compareAndSet(q, q.next) && (t = q.thread) != null) {
+				q.thread = null;
+				LockSupport.unpark(t);
+			}
+		}
+	}
+
+	// 超时或中断放弃等待时，顺带清理栈顶已失效的节点
+	private int abortWait(int phase) {
+		AtomicReference<QNode> head = (phase & 1) == 0 ? evenQ : oddQ;
+		for (;;) {
+			Thread t;
+			QNode q = head.get();
+			int p = (int) (root.state >>> PHASE_SHIFT);
+			if (q == null || ((t = q.thread) != null && q.phase == p)) {
+				return p;
+			}
+			if (head.compareAndSet(q, q.next) && t != null) {
+				q.thread = null;
+				LockSupport.unpark(t);
+			}
+		}
+	}
+
+	// 只在根节点调用：先自旋，每有新的参与方到达就追加自旋次数，仍未推进再入栈挂起
+	private int internalAwaitAdvance(int phase, QNode node) {
+		releaseWaiters(phase - 1);
+		boolean queued = false;
+		int lastUnarrived = 0;
+		int spins = SPINS_PER_ARRIVAL;
+		long s;
+		int p;
+		while ((p = (int) ((s = state) >>> PHASE_SHIFT)) == phase) {
+			if (node == null) {
+				int unarrived = (int) s & UNARRIVED_MASK;
+				if (unarrived != lastUnarrived && (lastUnarrived = unarrived) < NCPU) {
+					spins += SPINS_PER_ARRIVAL;
+				}
+				boolean interrupted = Thread.interrupted();
+				if (interrupted || --spins < 0) {
+					node = new QNode(this, phase, false, false, 0L);
+					node.wasInterrupted = interrupted;
+				}
+			} else if (node.isReleasable()) {
+				break;
+			} else if (!queued) {
+				AtomicReference<QNode> head = (phase & 1) == 0 ? evenQ : oddQ;
+				QNode q = node.next = head.get();
+				if ((q == null || q.phase == phase) && (int) (state >>> PHASE_SHIFT) == phase) { // 避免入栈到已过期的阶段
+					queued = head.compareAndSet(q, node);
+				}
+			} else {
+				node.block();
+			}
+		}
+
+		if (node != null) {
+			if (node.thread != null) {
+				node.thread = null;
+			}
+			if (node.wasInterrupted && !node.interruptible) {
+				Thread.currentThread().interrupt();
+			}
+			if (p == phase && (p = (int) (state >>> PHASE_SHIFT)) == phase) {
+				return abortWait(phase);
+			}
+		}
+		releaseWaiters(phase);
+		return p;
+	}
+
+	static final class QNode {
+
+		final Phaser phaser;
+
+		final int phase;
+
+		final boolean interruptible;
+
+		final boolean timed;
+
+		boolean wasInterrupted;
+
+		long nanos;
+
+		final long deadline;
+
+		volatile Thread thread; // 置 null 表示放弃等待
+
+		QNode next;
+
+		QNode(Phaser phaser, int phase, boolean interruptible, boolean timed, long nanos) {
+			this.phaser = phaser;
+			this.phase = phase;
+			this.interruptible = interruptible;
+			this.nanos = nanos;
+			this.timed = timed;
+			this.deadline = timed ? System.nanoTime() + nanos : 0L;
+			thread = Thread.currentThread();
+		}
+
+		boolean isReleasable() {
+			if (thread == null) {
+				return true;
+			}
+			if (phaser.getPhase() != phase) {
+				thread = null;
+				return true;
+			}
+			if (Thread.interrupted()) {
+				wasInterrupted = true;
+			}
+			if (wasInterrupted && interruptible) {
+				thread = null;
+				return true;
+			}
+			if (timed) {
+				if (nanos > 0L) {
+					nanos = deadline - System.nanoTime();
+				}
+				if (nanos <= 0L) {
+					thread = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void block() {
+			if (isReleasable()) {
+				return;
+			}
+			if (!timed) {
+				LockSupport.park(this);
+			} else if (nanos > 0L) {
+				LockSupport.parkNanos(this, nanos);
+			}
+		}
+	}
+
+	/**
+	 * 一个阶段的计时
+	 */
+	public static final class PhaseTiming {
+
+		private final int phase;
+
+		private final long durationNanos;
+
+		private final String straggler;
+
+		PhaseTiming(int phase, long durationNanos, String straggler) {
+			this.phase = phase;
+			this.durationNanos = durationNanos;
+			this.straggler = straggler;
+		}
+
+		public int getPhase() {
+			return phase;
+		}
+
+		/**
+		 * 从上一阶段完成到本阶段全部到达的耗时
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * 最后到达的线程名
+		 */
+		public String getStraggler() {
+			return straggler;
+		}
+
+		@Override
+		public String toString() {
+			return "PhaseTiming[phase = " + phase + ", duration = " + TimeUnit.NANOSECONDS.toMicros(durationNanos)
+				+ "us, straggler = " + straggler + "]";
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.atomic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 并发频次统计，每个 key 对应一个 {@link LongAdder}
+ *
+ * <p>热点 key 的计数分散到多个 Cell 上；key 已存在时只做一次无锁的 get，
+ * 不会像 {@link ConcurrentHashMap#computeIfAbsent} 那样进入桶锁。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ConcurrentFrequencyMap<K> {
+
+	private final ConcurrentHashMap<K, LongAdder> counters;
+
+	public ConcurrentFrequencyMap() {
+		this.counters = new ConcurrentHashMap<K, LongAdder>();
+	}
+
+	public ConcurrentFrequencyMap(int initialCapacity) {
+		this.counters = new ConcurrentHashMap<K, LongAdder>(initialCapacity);
+	}
+
+	public void increment(K key) {
+		counter(key).increment();
+	}
+
+	public void add(K key, long delta) {
+		counter(key).add(delta);
+	}
+
+	public long get(K key) {
+		LongAdder adder = counters.get(key);
+		return adder == null ? 0L : adder.sum();
+	}
+
+	public long remove(K key) {
+		LongAdder adder = counters.remove(key);
+		return adder == null ? 0L : adder.sum();
+	}
+
+	public long sum() {
+		long sum = 0L;
+		for (LongAdder adder : counters.values()) {
+			sum += adder.sum();
+		}
+		return sum;
+	}
+
+	public int size() {
+		return counters.size();
+	}
+
+	public Set<K> keySet() {
+		return counters.keySet();
+	}
+
+	public Map<K, Long> snapshot() { // 非原子快照
+		Map<K, Long> snapshot = new HashMap<K, Long>(counters.size() * 4 / 3 + 1);
+		for (Map.Entry<K, LongAdder> entry : counters.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().sum());
+		}
+		return snapshot;
+	}
+
+	public Map<K, Long> snapshotThenReset() { // 按周期上报时使用，计数器对象保留复用
+		Map<K, Long> snapshot = new HashMap<K, Long>(counters.size() * 4 / 3 + 1);
+		for (Map.Entry<K, LongAdder> entry : counters.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().sumThenReset());
+		}
+		return snapshot;
+	}
+
+	public List<Map.Entry<K, Long>> top(int n) {
+		List<Map.Entry<K, Long>> entries = new ArrayList<Map.Entry<K, Long>>(snapshot().entrySet());
+		Collections.sort(entries, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+		return entries.size() > n ? entries.subList(0, n) : entries;
+	}
+
+	public void clear() {
+		counters.clear();
+	}
+
+	private LongAdder counter(K key) {
+		LongAdder adder = counters.get(key);
+		if (adder == null) {
+			LongAdder created = new LongAdder();
+			adder = counters.putIfAbsent(key, created);
+			if (adder == null) {
+				adder = created;
+			}
+		}
+		return adder;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
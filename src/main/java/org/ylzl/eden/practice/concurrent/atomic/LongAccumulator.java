@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.atomic;
+
+import java.io.Serializable;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * 分段累加器，支持自定义累加函数，如最大值、最小值
+ *
+ * <p>累加函数必须满足交换律和结合律，且没有副作用，因为 CAS 失败时会被重复调用。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class LongAccumulator extends Striped64 implements Serializable {
+
+	private static final long serialVersionUID = 7249069246863182398L;
+
+	private final LongBinaryOperator function;
+
+	private final long identity;
+
+	public LongAccumulator(LongBinaryOperator accumulatorFunction, long identity) {
+		this.function = accumulatorFunction;
+		base = this.identity = identity;
+	}
+
+	public void accumulate(long x) {
+		Cell[] as;
+		long b, v, r;
+		int m;
+		Cell a;
+		if ((as = cells) != null ||
+			(r = function.applyAsLong(b = base, x)) != b && !casBase(b, r)) {
+			boolean uncontended = true;
+			if (as == null || (m = as.length - 1) < 0 ||
+				(a = as[getProbe() & m]) == null ||
+				!(uncontended = (r = function.applyAsLong(v = a.value, x)) == v || a.cas(v, r))) { // 结果不变时不写，减少缓存行失效
+				longAccumulate(x, function, uncontended);
+			}
+		}
+	}
+
+	public long get() {
+		Cell[] as = cells;
+		long result = base;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					result = function.applyAsLong(result, a.value);
+				}
+			}
+		}
+		return result;
+	}
+
+	public void reset() {
+		Cell[] as = cells;
+		base = identity;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					a.value = identity;
+				}
+			}
+		}
+	}
+
+	public long getThenReset() {
+		Cell[] as = cells;
+		long result = base;
+		base = identity;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					long v = a.value;
+					a.value = identity;
+					result = function.applyAsLong(result, v);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(get());
+	}
+
+	@Override
+	public long longValue() {
+		return get();
+	}
+
+	@Override
+	public int intValue() {
+		return (int) get();
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) get();
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) get();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.atomic;
+
+import java.io.Serializable;
+
+/**
+ * 分段计数器，高并发累加时替代 AtomicLong
+ *
+ * <p>{@link #sum()} 不是原子快照，并发更新期间读到的是近似值，适合统计类场景。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class LongAdder extends Striped64 implements Serializable {
+
+	private static final long serialVersionUID = 7249069246863182397L;
+
+	public LongAdder() {
+	}
+
+	public void add(long x) {
+		Cell[] as;
+		long b, v;
+		int m;
+		Cell a;
+		if ((as = cells) != null || !casBase(b = base, b + x)) { // 已经出现过竞争，或者 base 上 CAS 失败
+			boolean uncontended = true;
+			if (as == null || (m = as.length - 1) < 0 ||
+				(a = as[getProbe() & m]) == null ||
+				!(uncontended = a.cas(v = a.value, v + x))) {
+				longAccumulate(x, null, uncontended);
+			}
+		}
+	}
+
+	public void increment() {
+		add(1L);
+	}
+
+	public void decrement() {
+		add(-1L);
+	}
+
+	public long sum() {
+		Cell[] as = cells;
+		long sum = base;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					sum += a.value;
+				}
+			}
+		}
+		return sum;
+	}
+
+	public void reset() {
+		Cell[] as = cells;
+		base = 0L;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					a.value = 0L;
+				}
+			}
+		}
+	}
+
+	public long sumThenReset() {
+		Cell[] as = cells;
+		long sum = base;
+		base = 0L;
+		if (as != null) {
+			for (Cell a : as) {
+				if (a != null) {
+					sum += a.value;
+					a.value = 0L;
+				}
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+	@Override
+	public long longValue() {
+		return sum();
+	}
+
+	@Override
+	public int intValue() {
+		return (int) sum();
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) sum();
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) sum();
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.atomic;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * 分段累加的基类，参考 JDK 的 Striped64
+ *
+ * <p>无竞争时只更新 base；CAS 失败说明出现竞争，按线程探针值把更新分散到 cells 数组，
+ * cells 按需扩容到不小于 CPU 核数的 2 的幂。每个 Cell 填充到独占缓存行，避免伪共享。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+abstract class Striped64 extends Number {
+
+	private static final long serialVersionUID = -3288244312478962516L;
+
+	static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+	/* 缓存行左侧填充，通过继承关系保证 JVM 不会重排填充字段 */
+	abstract static class LhsPadding {
+		long p01, p02, p03, p04, p05, p06, p07;
+	}
+
+	abstract static class CellValue extends LhsPadding {
+		volatile long value;
+	}
+
+	abstract static class RhsPadding extends CellValue {
+		long p11, p12, p13, p14, p15, p16, p17;
+	}
+
+	static final class Cell extends RhsPadding {
+
+		Cell(long x) {
+			value = x;
+		}
+
+		final boolean cas(long cmp, long val) {
+			return UNSAFE.compareAndSwapLong(this, VALUE, cmp, val);
+		}
+	}
+
+	transient volatile Cell[] cells; // 大小为 2 的幂
+
+	transient volatile long base; // 无竞争时的累加值
+
+	transient volatile int cellsBusy; // 扩容或创建 Cell 时的自旋锁
+
+	Striped64() {
+	}
+
+	final boolean casBase(long cmp, long val) {
+		return UNSAFE.compareAndSwapLong(this, BASE, cmp, val);
+	}
+
+	final boolean casCellsBusy() {
+		return UNSAFE.compareAndSwapInt(this, CELLSBUSY, 0, 1);
+	}
+
+	static final int getProbe() { // 复用 ThreadLocalRandom 的线程探针，不需要额外的 ThreadLocal 查找
+		return UNSAFE.getInt(Thread.currentThread(), PROBE);
+	}
+
+	static final int advanceProbe(int probe) { // xorshift 重新散列，换一个 Cell
+		probe ^= probe << 13;
+		probe ^= probe >>> 17;
+		probe ^= probe << 5;
+		UNSAFE.putInt(Thread.currentThread(), PROBE, probe);
+		return probe;
+	}
+
+	final void longAccumulate(long x, LongBinaryOperator fn, boolean wasUncontended) {
+		int h;
+		if ((h = getProbe()) == 0) {
+			ThreadLocalRandom.current(); // 初始化探针
+			h = getProbe();
+			wasUncontended = true;
+		}
+		boolean collide = false; // 上一次选中的槽位是否非空
+		for (; ; ) {
+			Cell[] as;
+			Cell a;
+			int n;
+			long v;
+			if ((as = cells) != null && (n = as.length) > 0) {
+				if ((a = as[(n - 1) & h]) == null) {
+					if (cellsBusy == 0) { // 槽位为空，尝试挂上新的 Cell
+						Cell r = new Cell(x);
+						if (cellsBusy == 0 && casCellsBusy()) {
+							boolean created = false;
+							try {
+								Cell[] rs;
+								int m, j;
+								if ((rs = cells) != null && (m = rs.length) > 0 && rs[j = (m - 1) & h] == null) {
+									rs[j] = r;
+									created = true;
+								}
+							} finally {
+								cellsBusy = 0;
+							}
+							if (created) {
+								break;
+							}
+							continue;
+						}
+					}
+					collide = false;
+				} else if (!wasUncontended) { // 调用方 CAS 已失败，先换探针再重试
+					wasUncontended = true;
+				} else if (a.cas(v = a.value, ((fn == null) ? v + x : fn.applyAsLong(v, x)))) {
+					break;
+				} else if (n >= NCPU || cells != as) { // 已达上限或已被扩容，不再扩容
+					collide = false;
+				} else if (!collide) {
+					collide = true;
+				} else if (cellsBusy == 0 && casCellsBusy()) { // 连续冲突，扩容一倍
+					try {
+						if (cells == as) {
+							Cell[] rs = new Cell[n << 1];
+							System.arraycopy(as, 0, rs, 0, n);
+							cells = rs;
+						}
+					} finally {
+						cellsBusy = 0;
+					}
+					collide = false;
+					continue;
+				}
+				h = advanceProbe(h);
+			} else if (cellsBusy == 0 && cells == as && casCellsBusy()) { // 首次竞争，初始化 2 个 Cell
+				boolean init = false;
+				try {
+					if (cells == as) {
+						Cell[] rs = new Cell[2];
+						rs[h & 1] = new Cell(x);
+						cells = rs;
+						init = true;
+					}
+				} finally {
+					cellsBusy = 0;
+				}
+				if (init) {
+					break;
+				}
+			} else if (casBase(v = base, ((fn == null) ? v + x : fn.applyAsLong(v, x)))) { // 初始化竞争失败，退回 base
+				break;
+			}
+		}
+	}
+
+	static final Unsafe UNSAFE;
+
+	private static final long BASE;
+
+	private static final long CELLSBUSY;
+
+	private static final long PROBE;
+
+	private static final long VALUE;
+
+	static {
+		try {
+			Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			UNSAFE = (Unsafe) theUnsafe.get(null);
+			BASE = UNSAFE.objectFieldOffset(Striped64.class.getDeclaredField("base"));
+			CELLSBUSY = UNSAFE.objectFieldOffset(Striped64.class.getDeclaredField("cellsBusy"));
+			PROBE = UNSAFE.objectFieldOffset(Thread.class.getDeclaredField("threadLocalRandomProbe"));
+			VALUE = UNSAFE.objectFieldOffset(CellValue.class.getDeclaredField("value"));
+		} catch (Exception e) {
+			throw new Error(e);
+		}
+	}
+}
@@ -0,0 +1,811 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.future;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 可组合的非阻塞 Future
+ *
+ * <p>结果和回调栈都通过 CAS 更新，不使用锁。回调在完成时由完成线程执行，
+ * 指定 {@link Executor} 的 *Async 方法则把回调提交到该线程池。超时由共享的单线程定时器驱动，
+ * 不会为每个等待占用一个线程。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class CompletableFuture<V> implements Future<V> {
+
+	private static final Executor ASYNC_POOL = ForkJoinPool.commonPool();
+
+	@SuppressWarnings("rawtypes") // newUpdater 只能得到原始类型的更新器
+	private static final AtomicReferenceFieldUpdater<CompletableFuture, Object> RESULT =
+		AtomicReferenceFieldUpdater.newUpdater(CompletableFuture.class, Object.class, "result");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<CompletableFuture, Completion> STACK =
+		AtomicReferenceFieldUpdater.newUpdater(CompletableFuture.class, Completion.class, "stack");
+
+	private static final AltResult NIL = new AltResult(null); // 结果为 null 时的占位
+
+	volatile Object result; // null 表示未完成
+
+	volatile Completion stack; // 回调栈（Treiber 栈）
+
+	static final class AltResult {
+
+		final Throwable ex;
+
+		AltResult(Throwable ex) {
+			this.ex = ex;
+		}
+	}
+
+	/**
+	 * 回调节点，未指定线程池时由完成线程直接执行
+	 */
+	abstract static class Completion implements Runnable {
+
+		static final AtomicReferenceFieldUpdater<Completion, Completion> NEXT =
+			AtomicReferenceFieldUpdater.newUpdater(Completion.class, Completion.class, "next");
+
+		volatile Completion next;
+
+		final Executor executor;
+
+		final CompletableFuture<?> dep; // 下游，线程池拒绝时用于传递异常
+
+		boolean nested; // 由 postComplete 同步执行，完成下游时只设置结果，不递归执行下游的回调
+
+		CompletableFuture<?> completedDep; // nested 模式下本回调完成的下游，由 postComplete 接着处理它的回调
+
+		Completion(Executor executor, CompletableFuture<?> dep) {
+			this.executor = executor;
+			this.dep = dep;
+		}
+
+		final void fire() {
+			if (executor == null) {
+				run();
+				return;
+			}
+			try {
+				executor.execute(this);
+			} catch (Throwable ex) {
+				if (dep != null) {
+					dep.completeThrowable(ex);
+				}
+			}
+		}
+
+		// postComplete 调用，返回本回调同步完成的下游，没有则返回 null
+		final CompletableFuture<?> fireNested() {
+			if (executor != null) {
+				fire();
+				return null;
+			}
+			nested = true;
+			run();
+			CompletableFuture<?> d = completedDep;
+			completedDep = null;
+			return d;
+		}
+
+		// 在回调内同步触发另一个回调，沿用本回调的 nested 模式
+		final void fireInline(Completion c) {
+			if (!nested || c.executor != null) {
+				c.fire();
+				return;
+			}
+			completedDep = c.fireNested();
+		}
+
+		final void completeDep(CompletableFuture<?> d, Object r) {
+			if (!nested) {
+				d.completeValue(r);
+			} else if (RESULT.compareAndSet(d, null, r)) {
+				completedDep = d;
+			}
+		}
+
+		boolean isLive() {
+			return true;
+		}
+	}
+
+	static final class Signaller extends Completion { // get() 的等待线程
+
+		volatile Thread thread;
+
+		Signaller() {
+			super(null, null);
+			this.thread = Thread.currentThread();
+		}
+
+		@Override
+		public void run() {
+			Thread t = thread;
+			if (t != null) {
+				thread = null;
+				LockSupport.unpark(t);
+			}
+		}
+
+		@Override
+		boolean isLive() {
+			return thread != null;
+		}
+	}
+
+	public CompletableFuture() {
+	}
+
+	private CompletableFuture(Object r) {
+		this.result = r;
+	}
+
+	public static <U> CompletableFuture<U> supplyAsync(Supplier<U> supplier) {
+		return supplyAsync(supplier, ASYNC_POOL);
+	}
+
+	public static <U> CompletableFuture<U> supplyAsync(Supplier<U> supplier, Executor executor) {
+		CompletableFuture<U> d = new CompletableFuture<U>();
+		try {
+			executor.execute(() -> {
+				try {
+					d.complete(supplier.get());
+				} catch (Throwable ex) {
+					d.completeThrowable(ex);
+				}
+			});
+		} catch (Throwable ex) {
+			d.completeThrowable(ex);
+		}
+		return d;
+	}
+
+	public static CompletableFuture<Void> runAsync(Runnable runnable) {
+		return runAsync(runnable, ASYNC_POOL);
+	}
+
+	public static CompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+		return supplyAsync(() -> {
+			runnable.run();
+			return null;
+		}, executor);
+	}
+
+	public static <U> CompletableFuture<U> completedFuture(U value) {
+		return new CompletableFuture<U>(value == null ? NIL : value);
+	}
+
+	public static <U> CompletableFuture<U> failedFuture(Throwable ex) {
+		if (ex == null) {
+			throw new NullPointerException();
+		}
+		return new CompletableFuture<U>(new AltResult(wrap(ex)));
+	}
+
+	/* ---------------- 完成 ---------------- */
+
+	public boolean complete(V value) {
+		return completeValue(value == null ? NIL : value);
+	}
+
+	public boolean completeExceptionally(Throwable ex) {
+		if (ex == null) {
+			throw new NullPointerException();
+		}
+		return completeValue(new AltResult(ex));
+	}
+
+	@Override
+	public void set(V data) {
+		complete(data);
+	}
+
+	public boolean cancel() {
+		return completeValue(new AltResult(new CancellationException()));
+	}
+
+	final boolean completeThrowable(Throwable ex) {
+		return completeValue(new AltResult(wrap(ex)));
+	}
+
+	private boolean completeValue(Object r) {
+		if (RESULT.compareAndSet(this, null, r)) {
+			postComplete();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 逐个弹出回调执行，CAS 弹栈保证每个回调只执行一次。同步回调完成的下游不递归 postComplete，
+	 * 而是把下游的回调移到本栈上由这个循环执行，长的同步回调链不会耗尽线程栈
+	 */
+	private void postComplete() {
+		CompletableFuture<?> f = this;
+		Completion h;
+		while ((h = f.stack) != null || (f != this && (h = (f = this).stack) != null)) {
+			Completion t = h.next;
+			if (STACK.compareAndSet(f, h, t)) {
+				if (t != null) {
+					if (f != this) {
+						pushStack(h);
+						continue;
+					}
+					Completion.NEXT.compareAndSet(h, t, null);
+				}
+				CompletableFuture<?> d = h.fireNested();
+				f = d == null ? this : d;
+			}
+		}
+	}
+
+	// 不检查是否已完成，只由 postComplete 转移回调时使用
+	private void pushStack(Completion c) {
+		Completion h;
+		do {
+			h = stack;
+			c.next = h;
+		} while (!STACK.compareAndSet(this, h, c));
+	}
+
+	// 等待线程超时或中断后调用，摘除失效的等待节点，避免反复超时等待使回调栈无限增长
+	private void cleanStack() {
+		Completion p = stack;
+		for (boolean unlinked = false; ; ) { // 先保证栈顶有效
+			if (p == null) {
+				return;
+			} else if (p.isLive()) {
+				if (unlinked) {
+					return;
+				}
+				break;
+			} else if (STACK.compareAndSet(this, p, (p = p.next))) {
+				unlinked = true;
+			} else {
+				p = stack;
+			}
+		}
+		for (Completion q = p.next; q != null; ) { // 再摘除之后第一个失效节点
+			Completion s = q.next;
+			if (q.isLive()) {
+				p = q;
+				q = s;
+			} else if (Completion.NEXT.compareAndSet(p, q, s)) {
+				break;
+			} else {
+				q = p.next;
+			}
+		}
+	}
+
+	final void push(Completion c) {
+		Completion h;
+		do {
+			if (result != null) {
+				c.fire();
+				return;
+			}
+			c.next = h = stack;
+		} while (!STACK.compareAndSet(this, h, c));
+		if (result != null) { // 入栈期间已完成，补偿执行
+			postComplete();
+		}
+	}
+
+	/* ---------------- 组合 ---------------- */
+
+	public <U> CompletableFuture<U> thenApply(Function<? super V, ? extends U> fn) {
+		return uniApply(null, fn);
+	}
+
+	public <U> CompletableFuture<U> thenApplyAsync(Function<? super V, ? extends U> fn) {
+		return uniApply(ASYNC_POOL, fn);
+	}
+
+	public <U> CompletableFuture<U> thenApplyAsync(Function<? super V, ? extends U> fn, Executor executor) {
+		return uniApply(executor, fn);
+	}
+
+	public CompletableFuture<Void> thenAccept(Consumer<? super V> action) {
+		return uniApply(null, v -> {
+			action.accept(v);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> thenAcceptAsync(Consumer<? super V> action, Executor executor) {
+		return uniApply(executor, v -> {
+			action.accept(v);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> thenRun(Runnable action) {
+		return uniApply(null, v -> {
+			action.run();
+			return null;
+		});
+	}
+
+	public <U> CompletableFuture<U> thenCompose(Function<? super V, ? extends CompletableFuture<U>> fn) {
+		return uniCompose(null, fn);
+	}
+
+	public <U> CompletableFuture<U> thenComposeAsync(Function<? super V, ? extends CompletableFuture<U>> fn,
+																									 Executor executor) {
+		return uniCompose(executor, fn);
+	}
+
+	public <U, R> CompletableFuture<R> thenCombine(CompletableFuture<? extends U> other,
+																								 BiFunction<? super V, ? super U, ? extends R> fn) {
+		return biApply(other, null, fn);
+	}
+
+	public <U, R> CompletableFuture<R> thenCombineAsync(CompletableFuture<? extends U> other,
+																											BiFunction<? super V, ? super U, ? extends R> fn,
+																											Executor executor) {
+		return biApply(other, executor, fn);
+	}
+
+	public CompletableFuture<V> whenComplete(BiConsumer<? super V, ? super Throwable> action) {
+		return whenCompleteAsync(action, null);
+	}
+
+	public CompletableFuture<V> whenCompleteAsync(BiConsumer<? super V, ? super Throwable> action,
+																							 Executor executor) {
+		CompletableFuture<V> d = new CompletableFuture<V>();
+		push(new Completion(executor, d) {
+			@Override
+			public void run() {
+				Object r = result;
+				Throwable ex = (r instanceof AltResult) ? ((AltResult) r).ex : null;
+				try {
+					action.accept(ex == null ? CompletableFuture.<V>decode(r) : null, unwrap(ex));
+				} catch (Throwable x) {
+					if (ex == null) {
+						completeDep(d, encodeThrowable(x));
+						return;
+					}
+				}
+				completeDep(d, encodeRelay(r));
+			}
+		});
+		return d;
+	}
+
+	public <U> CompletableFuture<U> handle(BiFunction<? super V, Throwable, ? extends U> fn) {
+		CompletableFuture<U> d = new CompletableFuture<U>();
+		push(new Completion(null, d) {
+			@Override
+			public void run() {
+				Object r = result;
+				Throwable ex = (r instanceof AltResult) ? ((AltResult) r).ex : null;
+				try {
+					completeDep(d, encode(fn.apply(ex == null ? CompletableFuture.<V>decode(r) : null, unwrap(ex))));
+				} catch (Throwable x) {
+					completeDep(d, encodeThrowable(x));
+				}
+			}
+		});
+		return d;
+	}
+
+	public CompletableFuture<V> exceptionally(Function<Throwable, ? extends V> fn) {
+		CompletableFuture<V> d = new CompletableFuture<V>();
+		push(new Completion(null, d) {
+			@Override
+			public void run() {
+				Object r = result;
+				Throwable ex = (r instanceof AltResult) ? ((AltResult) r).ex : null;
+				if (ex == null) {
+					completeDep(d, r);
+					return;
+				}
+				try {
+					completeDep(d, encode(fn.apply(unwrap(ex))));
+				} catch (Throwable x) {
+					completeDep(d, encodeThrowable(x));
+				}
+			}
+		});
+		return d;
+	}
+
+	public static CompletableFuture<Void> allOf(CompletableFuture<?>... cfs) {
+		CompletableFuture<Void> d = new CompletableFuture<Void>();
+		if (cfs.length == 0) {
+			d.complete(null);
+			return d;
+		}
+		AtomicInteger remaining = new AtomicInteger(cfs.length);
+		AtomicReference<Throwable> firstFailure = new AtomicReference<Throwable>();
+		for (CompletableFuture<?> cf : cfs) {
+			cf.push(new Completion(null, d) {
+				@Override
+				public void run() {
+					Object r = cf.result;
+					if (r instanceof AltResult && ((AltResult) r).ex != null) {
+						firstFailure.compareAndSet(null, ((AltResult) r).ex);
+					}
+					if (remaining.decrementAndGet() == 0) { // 全部完成后才结束，有失败则以第一个失败结束
+						Throwable ex = firstFailure.get();
+						if (ex == null) {
+							completeDep(d, NIL);
+						} else {
+							completeDep(d, encodeThrowable(ex));
+						}
+					}
+				}
+			});
+		}
+		return d;
+	}
+
+	public static CompletableFuture<Object> anyOf(CompletableFuture<?>... cfs) {
+		CompletableFuture<Object> d = new CompletableFuture<Object>();
+		for (CompletableFuture<?> cf : cfs) {
+			if (d.result != null) {
+				break;
+			}
+			cf.push(new Completion(null, d) {
+				@Override
+				public void run() {
+					completeDep(d, encodeRelay(cf.result));
+				}
+			});
+		}
+		return d;
+	}
+
+	/* ---------------- 超时 ---------------- */
+
+	public CompletableFuture<V> orTimeout(long timeout, TimeUnit unit) {
+		if (result == null) {
+			ScheduledFuture<?> f = Delayer.delay(() -> completeValue(new AltResult(new CompletionException(new TimeoutException()))),
+				timeout, unit);
+			push(new Canceller(f));
+		}
+		return this;
+	}
+
+	public CompletableFuture<V> completeOnTimeout(V value, long timeout, TimeUnit unit) {
+		if (result == null) {
+			ScheduledFuture<?> f = Delayer.delay(() -> complete(value), timeout, unit);
+			push(new Canceller(f));
+		}
+		return this;
+	}
+
+	static final class Canceller extends Completion { // 提前完成时取消定时任务，避免定时器持有大量引用
+
+		final ScheduledFuture<?> f;
+
+		Canceller(ScheduledFuture<?> f) {
+			super(null, null);
+			this.f = f;
+		}
+
+		@Override
+		public void run() {
+			if (!f.isDone()) {
+				f.cancel(false);
+			}
+		}
+	}
+
+	static final class Delayer { // 共享的单线程定时器
+
+		static final ScheduledThreadPoolExecutor DELAYER;
+
+		static {
+			DELAYER = new ScheduledThreadPoolExecutor(1, r -> {
+				Thread t = new Thread(r, "CompletableFutureDelayScheduler");
+				t.setDaemon(true);
+				return t;
+			});
+			DELAYER.setRemoveOnCancelPolicy(true);
+		}
+
+		static ScheduledFuture<?> delay(Runnable command, long delay, TimeUnit unit) {
+			return DELAYER.schedule(command, delay, unit);
+		}
+	}
+
+	/* ---------------- 获取结果 ---------------- */
+
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		Object r = result;
+		if (r == null) { // 已完成时不分配等待节点
+			r = waitingGet();
+		}
+		return reportGet(r);
+	}
+
+	public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		Object r = result;
+		if (r == null) {
+			r = timedGet(unit.toNanos(timeout));
+		}
+		return reportGet(r);
+	}
+
+	public V join() {
+		Object r = result;
+		if (r == null) {
+			boolean interrupted = false;
+			for (; ; ) {
+				try {
+					r = waitingGet();
+					break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return reportJoin(r);
+	}
+
+	public V getNow(V valueIfAbsent) {
+		Object r = result;
+		return r == null ? valueIfAbsent : reportJoin(r);
+	}
+
+	public boolean isDone() {
+		return result != null;
+	}
+
+	public boolean isCompletedExceptionally() {
+		Object r = result;
+		return r instanceof AltResult && r != NIL;
+	}
+
+	public boolean isCancelled() {
+		Object r = result;
+		return r instanceof AltResult && ((AltResult) r).ex instanceof CancellationException;
+	}
+
+	private Object waitingGet() throws InterruptedException {
+		Signaller q = null;
+		Object r;
+		while ((r = result) == null) {
+			if (q == null) {
+				q = new Signaller();
+				push(q);
+			} else if (Thread.interrupted()) {
+				q.thread = null;
+				cleanStack();
+				throw new InterruptedException();
+			} else if (q.thread != null) {
+				LockSupport.park(this);
+			}
+		}
+		return r;
+	}
+
+	private Object timedGet(long nanos) throws InterruptedException, TimeoutException {
+		long deadline = System.nanoTime() + nanos;
+		Signaller q = null;
+		Object r;
+		while ((r = result) == null) {
+			if (q == null) {
+				q = new Signaller();
+				push(q);
+			} else if (Thread.interrupted()) {
+				q.thread = null;
+				cleanStack();
+				throw new InterruptedException();
+			} else if ((nanos = deadline - System.nanoTime()) <= 0L) {
+				q.thread = null;
+				cleanStack();
+				throw new TimeoutException();
+			} else if (q.thread != null) {
+				LockSupport.parkNanos(this, nanos);
+			}
+		}
+		return r;
+	}
+
+	/* ---------------- 内部实现 ---------------- */
+
+	private <U> CompletableFuture<U> uniApply(Executor executor, Function<? super V, ? extends U> fn) {
+		CompletableFuture<U> d = new CompletableFuture<U>();
+		push(new Completion(executor, d) {
+			@Override
+			public void run() {
+				Object r = result;
+				if (r instanceof AltResult && ((AltResult) r).ex != null) {
+					completeDep(d, encodeRelay(r)); // 异常直接向下游传递
+					return;
+				}
+				try {
+					completeDep(d, encode(fn.apply(CompletableFuture.<V>decode(r))));
+				} catch (Throwable ex) {
+					completeDep(d, encodeThrowable(ex));
+				}
+			}
+		});
+		return d;
+	}
+
+	private <U> CompletableFuture<U> uniCompose(Executor executor,
+																						 Function<? super V, ? extends CompletableFuture<U>> fn) {
+		CompletableFuture<U> d = new CompletableFuture<U>();
+		push(new Completion(executor, d) {
+			@Override
+			public void run() {
+				Object r = result;
+				if (r instanceof AltResult && ((AltResult) r).ex != null) {
+					completeDep(d, encodeRelay(r));
+					return;
+				}
+				try {
+					CompletableFuture<U> g = fn.apply(CompletableFuture.<V>decode(r));
+					if (g.result != null) { // 已完成时直接传递，不经 push 递归
+						completeDep(d, encodeRelay(g.result));
+						return;
+					}
+					g.push(new Completion(null, d) {
+						@Override
+						public void run() {
+							completeDep(d, encodeRelay(g.result));
+						}
+					});
+				} catch (Throwable ex) {
+					completeDep(d, encodeThrowable(ex));
+				}
+			}
+		});
+		return d;
+	}
+
+	private <U, R> CompletableFuture<R> biApply(CompletableFuture<? extends U> other, Executor executor,
+																							BiFunction<? super V, ? super U, ? extends R> fn) {
+		CompletableFuture<R> d = new CompletableFuture<R>();
+		AtomicInteger remaining = new AtomicInteger(2);
+		Completion both = new Completion(executor, d) {
+			@Override
+			public void run() {
+				Object r = result, s = other.result;
+				if (r instanceof AltResult && ((AltResult) r).ex != null) {
+					completeDep(d, encodeRelay(r));
+					return;
+				}
+				if (s instanceof AltResult && ((AltResult) s).ex != null) {
+					completeDep(d, encodeRelay(s));
+					return;
+				}
+				try {
+					completeDep(d, encode(fn.apply(CompletableFuture.<V>decode(r), CompletableFuture.<U>decode(s))));
+				} catch (Throwable ex) {
+					completeDep(d, encodeThrowable(ex));
+				}
+			}
+		};
+		push(new Completion(null, d) {
+			@Override
+			public void run() {
+				if (remaining.decrementAndGet() == 0) { // 两个来源都完成后才触发
+					fireInline(both);
+				}
+			}
+		});
+		other.push(new Completion(null, d) {
+			@Override
+			public void run() {
+				if (remaining.decrementAndGet() == 0) {
+					fireInline(both);
+				}
+			}
+		});
+		return d;
+	}
+
+	private static Object encode(Object value) {
+		return value == null ? NIL : value;
+	}
+
+	private static Object encodeThrowable(Throwable ex) {
+		return new AltResult(wrap(ex));
+	}
+
+	// 把来源的结果传给下游，异常包装为 CompletionException，来源被取消时下游是异常完成而不是被取消
+	private static Object encodeRelay(Object r) {
+		Throwable ex;
+		if (r instanceof AltResult && (ex = ((AltResult) r).ex) != null && !(ex instanceof CompletionException)) {
+			return new AltResult(new CompletionException(ex));
+		}
+		return r;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T decode(Object r) {
+		return r == NIL ? null : (T) r;
+	}
+
+	// get：取消时抛出 CancellationException，其他异常解开 CompletionException 后包装为 ExecutionException
+	private V reportGet(Object r) throws ExecutionException {
+		if (r instanceof AltResult) {
+			Throwable ex = ((AltResult) r).ex;
+			if (ex == null) {
+				return null;
+			}
+			if (ex instanceof CancellationException) {
+				throw (CancellationException) ex;
+			}
+			throw new ExecutionException(unwrap(ex));
+		}
+		return CompletableFuture.<V>decode(r);
+	}
+
+	// join、getNow：取消时抛出 CancellationException，其他异常包装为 CompletionException
+	private V reportJoin(Object r) {
+		if (r instanceof AltResult) {
+			Throwable ex = ((AltResult) r).ex;
+			if (ex == null) {
+				return null;
+			}
+			if (ex instanceof CancellationException) {
+				throw (CancellationException) ex;
+			}
+			throw (ex instanceof CompletionException) ? (CompletionException) ex : new CompletionException(ex);
+		}
+		return CompletableFuture.<V>decode(r);
+	}
+
+	private static Throwable wrap(Throwable ex) {
+		return (ex instanceof CompletionException) ? ex : new CompletionException(ex);
+	}
+
+	private static Throwable unwrap(Throwable ex) {
+		return (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+	}
+
+	@Override
+	public String toString() {
+		Object r = result;
+		String status = r == null ? "[Incomplete]" :
+			(r instanceof AltResult && r != NIL) ? "[Completed exceptionally: " + ((AltResult) r).ex + "]" :
+				"[Completed normally]";
+		return super.toString() + status;
+	}
+}
@@ -17,6 +17,8 @@
 
 package org.ylzl.eden.practice.concurrent.future;
 
+import java.util.concurrent.ExecutionException;
+
 /**
  * 自定义 Future
  *
@@ -25,7 +27,7 @@ package org.ylzl.eden.practice.concurrent.future;
  */
 public interface Future<V> {
 
-	V get() throws InterruptedException;
+	V get() throws InterruptedException, ExecutionException;
 
 	void set(V data);
 }
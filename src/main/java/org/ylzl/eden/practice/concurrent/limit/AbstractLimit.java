@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+/**
+ * 上限算法的公共部分，样本串行处理，上限在 [minLimit, maxLimit] 之间
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public abstract class AbstractLimit implements Limit {
+
+	protected final int minLimit;
+
+	protected final int maxLimit;
+
+	private volatile int limit;
+
+	protected AbstractLimit(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException();
+		}
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+	}
+
+	@Override
+	public final int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public final synchronized void onSample(long rttNanos, int inflight, boolean didDrop) {
+		int newLimit = update(limit, rttNanos, inflight, didDrop);
+		limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+	}
+
+	/**
+	 * 计算新的上限，已持有锁
+	 */
+	protected abstract int update(int limit, long rttNanos, int inflight, boolean didDrop);
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[limit = " + limit + "]";
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+import org.ylzl.eden.practice.concurrent.atomic.LongAdder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限制器
+ *
+ * <p>许可数不再固定：每个请求结束时把耗时交给 {@link Limit}，上限变化后按差值释放或收回信号量许可。
+ * 并发数达到上限时 {@link #tryAcquire()} 直接返回 null，由调用方快速失败，不排队。
+ * <pre>
+ * AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+ * if (permit == null) { 拒绝 }
+ * try { 调用下游; permit.onSuccess(); } catch (TimeoutException e) { permit.onDropped(); }
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AdaptiveLimiter {
+
+	private final Limit limit;
+
+	private final AdjustableSemaphore semaphore;
+
+	private final AtomicInteger inflight = new AtomicInteger();
+
+	private volatile int permits; // 已发放给信号量的许可总数，持有 this 锁修改
+
+	private final LongAdder accepted = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	public AdaptiveLimiter() {
+		this(new GradientLimit());
+	}
+
+	public AdaptiveLimiter(Limit limit) {
+		this.limit = limit;
+		this.permits = limit.getLimit();
+		this.semaphore = new AdjustableSemaphore(permits);
+	}
+
+	/**
+	 * 获取许可，并发数已达上限时返回 null
+	 */
+	public Permit tryAcquire() {
+		if (!semaphore.tryAcquire()) {
+			rejected.increment();
+			return null;
+		}
+		return newPermit();
+	}
+
+	/**
+	 * 最多等待指定时间，超时返回 null
+	 */
+	public Permit tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!semaphore.tryAcquire(timeout, unit)) {
+			rejected.increment();
+			return null;
+		}
+		return newPermit();
+	}
+
+	/**
+	 * 在许可内执行任务，抛出异常按丢弃计入样本
+	 *
+	 * @throws LimitExceededException 并发数已达上限
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		Permit permit = tryAcquire();
+		if (permit == null) {
+			throw new LimitExceededException("Concurrency limit " + getLimit() + " exceeded");
+		}
+		try {
+			T result = task.call();
+			permit.onSuccess();
+			return result;
+		} catch (Exception e) {
+			permit.onDropped();
+			throw e;
+		} catch (Throwable t) {
+			permit.onIgnore();
+			throw t;
+		}
+	}
+
+	private Permit newPermit() {
+		accepted.increment();
+		return new Permit(inflight.incrementAndGet(), System.nanoTime());
+	}
+
+	private void release(Permit permit, boolean sample, boolean didDrop) {
+		inflight.decrementAndGet();
+		if (sample) {
+			limit.onSample(System.nanoTime() - permit.startNanos, permit.inflight, didDrop);
+			semaphore.release();
+			if (limit.getLimit() != permits) {
+				resize();
+			}
+		} else {
+			semaphore.release();
+		}
+	}
+
+	private synchronized void resize() {
+		int newLimit = limit.getLimit();
+		int delta = newLimit - permits;
+		if (delta > 0) {
+			semaphore.release(delta);
+		} else if (delta < 0) {
+			semaphore.reducePermits(-delta); // 可用许可可以为负，已发出的请求结束后逐步收回
+		}
+		permits = newLimit;
+	}
+
+	public int getLimit() {
+		return limit.getLimit();
+	}
+
+	public int getInflight() {
+		return inflight.get();
+	}
+
+	public long getAcceptedCount() {
+		return accepted.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "[limit = " + getLimit() + ", inflight = " + getInflight()
+			+ ", accepted = " + getAcceptedCount() + ", rejected = " + getRejectedCount()
+			+ ", dropped = " + getDroppedCount() + "]";
+	}
+
+	/**
+	 * 一次获取到的许可，必须且只能调用一次 onSuccess、onDropped 或 onIgnore
+	 */
+	public final class Permit {
+
+		private final int inflight; // 获取许可后的并发数
+
+		private final long startNanos;
+
+		private boolean released;
+
+		Permit(int inflight, long startNanos) {
+			this.inflight = inflight;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * 请求正常完成，耗时计入样本
+		 */
+		public void onSuccess() {
+			if (markReleased()) {
+				release(this, true, false);
+			}
+		}
+
+		/**
+		 * 请求超时或被下游拒绝，按过载处理
+		 */
+		public void onDropped() {
+			if (markReleased()) {
+				dropped.increment();
+				release(this, true, true);
+			}
+		}
+
+		/**
+		 * 请求未真正到达下游（如参数校验失败），只归还许可，不计入样本
+		 */
+		public void onIgnore() {
+			if (markReleased()) {
+				release(this, false, false);
+			}
+		}
+
+		private boolean markReleased() {
+			if (released) {
+				return false;
+			}
+			released = true;
+			return true;
+		}
+	}
+
+	/**
+	 * 暴露 reducePermits，用于收缩上限
+	 */
+	static final class AdjustableSemaphore extends Semaphore {
+
+		private static final long serialVersionUID = 3411590742049437318L;
+
+		AdjustableSemaphore(int permits) {
+			super(permits);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
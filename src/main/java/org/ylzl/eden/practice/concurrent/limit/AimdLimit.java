@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加性增、乘性减
+ *
+ * <p>请求被丢弃或耗时超过阈值时上限乘以回退系数；否则在上限被用满一半以上时加 1，空闲时不增长。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AimdLimit extends AbstractLimit {
+
+	private final double backoffRatio;
+
+	private final long timeoutNanos;
+
+	public AimdLimit() {
+		this(20, 1, 1000, 0.9, 5, TimeUnit.SECONDS);
+	}
+
+	public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeout, TimeUnit unit) {
+		super(initialLimit, minLimit, maxLimit);
+		if (backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException();
+		}
+		this.backoffRatio = backoffRatio;
+		this.timeoutNanos = unit.toNanos(timeout);
+	}
+
+	@Override
+	protected int update(int limit, long rttNanos, int inflight, boolean didDrop) {
+		if (didDrop || rttNanos > timeoutNanos) {
+			return (int) (limit * backoffRatio);
+		}
+		if (inflight * 2 >= limit) {
+			return limit + 1;
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+/**
+ * 梯度算法
+ *
+ * <p>以窗口内的最小 RTT 作为无排队基线，梯度 = tolerance × 基线 / 平滑后的当前 RTT，限制在 [0.5, 1]。
+ * 新上限 = 上限 × 梯度 + √上限（允许的排队余量），再与旧上限做平滑。当前 RTT 超过基线的 tolerance 倍时梯度小于 1，上限收缩。
+ * 基线每隔 longWindow 个样本重置一次，跟随下游真实能力的变化。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class GradientLimit extends AbstractLimit {
+
+	private static final double SHORT_ALPHA = 0.2; // 当前 RTT 的平滑系数，约 10 个样本
+
+	private final double tolerance;
+
+	private final double smoothing;
+
+	private final int longWindow;
+
+	private double shortRtt; // 纳秒，0 表示尚无样本
+
+	private long baselineRtt; // 纳秒，0 表示需要重新探测
+
+	private int samples;
+
+	private double estimatedLimit;
+
+	public GradientLimit() {
+		this(20, 1, 1000, 1.5, 0.2, 600);
+	}
+
+	/**
+	 * @param tolerance  当前 RTT 相对基线可以接受的倍数
+	 * @param smoothing  新上限的权重
+	 * @param longWindow 基线重置的样本间隔
+	 */
+	public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing, int longWindow) {
+		super(initialLimit, minLimit, maxLimit);
+		if (tolerance < 1 || smoothing <= 0 || smoothing > 1 || longWindow <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.tolerance = tolerance;
+		this.smoothing = smoothing;
+		this.longWindow = longWindow;
+		this.estimatedLimit = initialLimit;
+	}
+
+	@Override
+	protected int update(int limit, long rttNanos, int inflight, boolean didDrop) {
+		long rtt = Math.max(1, rttNanos);
+		shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) * SHORT_ALPHA;
+		if (++samples >= longWindow) {
+			samples = 0;
+			baselineRtt = 0;
+		}
+		if (baselineRtt == 0 || rtt < baselineRtt) {
+			baselineRtt = rtt;
+		}
+		double gradient = didDrop ? 0.5 : Math.max(0.5, Math.min(1.0, tolerance * baselineRtt / shortRtt));
+		if (gradient >= 1.0 && inflight < estimatedLimit / 2) { // 未充分使用，不据此扩大上限
+			return (int) estimatedLimit;
+		}
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		return (int) estimatedLimit;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+/**
+ * 并发上限算法，根据每次请求的耗时和结果调整上限
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public interface Limit {
+
+	int getLimit();
+
+	/**
+	 * @param rttNanos 请求耗时
+	 * @param inflight 请求开始时的并发数
+	 * @param didDrop  请求是否超时或被下游拒绝
+	 */
+	void onSample(long rttNanos, int inflight, boolean didDrop);
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.limit;
+
+/**
+ * 参考 TCP Vegas 的上限算法
+ *
+ * <p>以最小 RTT 作为无负载延迟，估算排队长度 queue = limit × (1 - minRtt / rtt)。
+ * 排队少于 alpha 时上限增加，多于 beta 时减少，alpha 和 beta 随上限按 log10 放大。
+ * 每隔一段样本重置最小 RTT 重新探测，避免基线过时。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class VegasLimit extends AbstractLimit {
+
+	private final int probeInterval; // 重新探测最小 RTT 的样本间隔
+
+	private long rttNoLoad; // 0 表示尚无样本
+
+	private int samples;
+
+	public VegasLimit() {
+		this(20, 1, 1000, 1000);
+	}
+
+	public VegasLimit(int initialLimit, int minLimit, int maxLimit, int probeInterval) {
+		super(initialLimit, minLimit, maxLimit);
+		if (probeInterval <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.probeInterval = probeInterval;
+	}
+
+	@Override
+	protected int update(int limit, long rttNanos, int inflight, boolean didDrop) {
+		long rtt = Math.max(1, rttNanos);
+		if (++samples >= probeInterval) {
+			samples = 0;
+			rttNoLoad = rtt;
+			return limit;
+		}
+		if (rttNoLoad == 0 || rtt < rttNoLoad) {
+			rttNoLoad = rtt;
+			return limit;
+		}
+		int log = Math.max(1, (int) Math.log10(limit));
+		if (didDrop) {
+			return limit - log;
+		}
+		if (inflight * 2 < limit) { // 未充分使用
+			return limit;
+		}
+		int queueSize = (int) Math.ceil(limit * (1 - (double) rttNoLoad / rtt));
+		int alpha = 3 * log;
+		int beta = 6 * log;
+		if (queueSize <= alpha) {
+			return limit + log;
+		}
+		if (queueSize >= beta) {
+			return limit - log;
+		}
+		return limit;
+	}
+}
@@ -20,6 +20,8 @@ package org.ylzl.eden.practice.concurrent.locks;
 import sun.misc.Unsafe;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * AQS 抽象队列同步器
@@ -86,7 +88,10 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
   /* 同步状态值 */
   private volatile int state;
 
-  private static final Unsafe unsafe = Unsafe.getUnsafe();
+  /* 自旋超时阈值，剩余时间小于该值时不再挂起线程 */
+  static final long spinForTimeoutThreshold = 1000L;
+
+  static final Unsafe unsafe;
 
   private static final long stateOffset;
 
@@ -100,6 +105,10 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
 
   static {
     try {
+      // Unsafe.getUnsafe() 只允许启动类加载器加载的类调用，应用层通过反射获取
+      Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = (Unsafe) theUnsafe.get(null);
       stateOffset =
           unsafe.objectFieldOffset(AbstractQueuedSynchronizer.class.getDeclaredField("state"));
       headOffset =
@@ -133,12 +142,71 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
     throw new UnsupportedOperationException();
   }
 
+  protected boolean isHeldExclusively() {
+    throw new UnsupportedOperationException();
+  }
+
   public final void acquire(int arg) {
     if (!tryAcquire(arg)
         && acquireQueued(addWaiter(AbstractQueuedSynchronizer.Node.EXCLUSIVE), arg))
       selfInterrupt();
   }
 
+  public final boolean release(int arg) {
+    if (tryRelease(arg)) {
+      AbstractQueuedSynchronizer.Node h = head;
+      if (h != null && h.waitStatus != 0) { // 有后继节点需要唤醒
+        unparkSuccessor(h);
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private void unparkSuccessor(AbstractQueuedSynchronizer.Node node) { // 唤醒后继节点
+    int ws = node.waitStatus;
+    if (ws < 0) compareAndSetWaitStatus(node, ws, 0);
+
+    AbstractQueuedSynchronizer.Node s = node.next;
+    if (s == null || s.waitStatus > 0) { // 后继节点已取消，从尾部向前找到最靠前的有效节点
+      s = null;
+      for (AbstractQueuedSynchronizer.Node t = tail; t != null && t != node; t = t.prev)
+        if (t.waitStatus <= 0) s = t;
+    }
+    if (s != null) LockSupport.unpark(s.thread);
+  }
+
+  private void cancelAcquire(AbstractQueuedSynchronizer.Node node) { // 取消排队（超时或中断）
+    if (node == null) return;
+
+    node.thread = null;
+
+    AbstractQueuedSynchronizer.Node pred = node.prev;
+    while (pred.waitStatus > 0) { // 跳过已取消的前驱节点
+      node.prev = pred = pred.prev;
+    }
+
+    AbstractQueuedSynchronizer.Node predNext = pred.next;
+    node.waitStatus = AbstractQueuedSynchronizer.Node.CANCELLED;
+
+    if (node == tail && compareAndSetTail(node, pred)) { // 尾节点直接移除
+      compareAndSetNext(pred, predNext, null);
+    } else {
+      int ws;
+      if (pred != head
+          && ((ws = pred.waitStatus) == AbstractQueuedSynchronizer.Node.SIGNAL
+              || (ws <= 0
+                  && compareAndSetWaitStatus(pred, ws, AbstractQueuedSynchronizer.Node.SIGNAL)))
+          && pred.thread != null) {
+        AbstractQueuedSynchronizer.Node next = node.next;
+        if (next != null && next.waitStatus <= 0) compareAndSetNext(pred, predNext, next);
+      } else {
+        unparkSuccessor(node);
+      }
+      node.next = node; // help GC
+    }
+  }
+
   private AbstractQueuedSynchronizer.Node enq(
       final AbstractQueuedSynchronizer.Node node) { // 入队，并检测是否初始化队列头部和尾部
     for (; ; ) {
@@ -189,7 +257,7 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
       }
     } finally {
       if (failed) {
-        //        cancelAcquire(node);
+        cancelAcquire(node);
       }
     }
   }
@@ -220,7 +288,7 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
   }
 
   private final boolean parkAndCheckInterrupt() {
-    //		LockSupport.park(this);
+    LockSupport.park(this);
     return Thread.interrupted();
   }
 
@@ -247,11 +315,196 @@ public class AbstractQueuedSynchronizer extends AbstractOwnableSynchronizer
       }
     } finally {
       if (failed) {
-        // cancelAcquire(node);
+        cancelAcquire(node);
+      }
+    }
+  }
+
+  public final boolean tryAcquireNanos(int arg, long nanosTimeout) throws InterruptedException {
+    if (Thread.interrupted()) throw new InterruptedException();
+    return tryAcquire(arg) || doAcquireNanos(arg, nanosTimeout);
+  }
+
+  private boolean doAcquireNanos(int arg, long nanosTimeout) throws InterruptedException {
+    if (nanosTimeout <= 0L) return false;
+    final long deadline = System.nanoTime() + nanosTimeout;
+    final AbstractQueuedSynchronizer.Node node =
+        addWaiter(AbstractQueuedSynchronizer.Node.EXCLUSIVE);
+    boolean failed = true;
+    try {
+      for (; ; ) {
+        final AbstractQueuedSynchronizer.Node p = node.predecessor();
+        if (p == head && tryAcquire(arg)) {
+          setHead(node);
+          p.next = null; // help GC
+          failed = false;
+          return true;
+        }
+        nanosTimeout = deadline - System.nanoTime();
+        if (nanosTimeout <= 0L) return false;
+        if (shouldParkAfterFailedAcquire(p, node) && nanosTimeout > spinForTimeoutThreshold)
+          LockSupport.parkNanos(this, nanosTimeout);
+        if (Thread.interrupted()) throw new InterruptedException();
+      }
+    } finally {
+      if (failed) {
+        cancelAcquire(node);
       }
     }
   }
 
+  /* 共享模式，读锁、信号量等多个线程可同时持有 */
+  public final void acquireShared(int arg) {
+    if (tryAcquireShared(arg) < 0) doAcquireShared(arg);
+  }
+
+  public final void acquireSharedInterruptibly(int arg) throws InterruptedException {
+    if (Thread.interrupted()) throw new InterruptedException();
+    if (tryAcquireShared(arg) < 0) doAcquireSharedInterruptibly(arg);
+  }
+
+  public final boolean tryAcquireSharedNanos(int arg, long nanosTimeout)
+      throws InterruptedException {
+    if (Thread.interrupted()) throw new InterruptedException();
+    return tryAcquireShared(arg) >= 0 || doAcquireSharedNanos(arg, nanosTimeout);
+  }
+
+  public final boolean releaseShared(int arg) {
+    if (tryReleaseShared(arg)) {
+      doReleaseShared();
+      return true;
+    }
+    return false;
+  }
+
+  private void doAcquireShared(int arg) {
+    final AbstractQueuedSynchronizer.Node node = addWaiter(AbstractQueuedSynchronizer.Node.SHARED);
+    boolean failed = true;
+    try {
+      boolean interrupted = false;
+      for (; ; ) {
+        final AbstractQueuedSynchronizer.Node p = node.predecessor();
+        if (p == head) {
+          int r = tryAcquireShared(arg);
+          if (r >= 0) {
+            setHeadAndPropagate(node, r);
+            p.next = null; // help GC
+            if (interrupted) selfInterrupt();
+            failed = false;
+            return;
+          }
+        }
+        if (shouldParkAfterFailedAcquire(p, node) && parkAndCheckInterrupt()) interrupted = true;
+      }
+    } finally {
+      if (failed) {
+        cancelAcquire(node);
+      }
+    }
+  }
+
+  private void doAcquireSharedInterruptibly(int arg) throws InterruptedException {
+    final AbstractQueuedSynchronizer.Node node = addWaiter(AbstractQueuedSynchronizer.Node.SHARED);
+    boolean failed = true;
+    try {
+      for (; ; ) {
+        final AbstractQueuedSynchronizer.Node p = node.predecessor();
+        if (p == head) {
+          int r = tryAcquireShared(arg);
+          if (r >= 0) {
+            setHeadAndPropagate(node, r);
+            p.next = null; // help GC
+            failed = false;
+            return;
+          }
+        }
+        if (shouldParkAfterFailedAcquire(p, node) && parkAndCheckInterrupt())
+          throw new InterruptedException();
+      }
+    } finally {
+      if (failed) {
+        cancelAcquire(node);
+      }
+    }
+  }
+
+  private boolean doAcquireSharedNanos(int arg, long nanosTimeout) throws InterruptedException {
+    if (nanosTimeout <= 0L) return false;
+    final long deadline = System.nanoTime() + nanosTimeout;
+    final AbstractQueuedSynchronizer.Node node = addWaiter(AbstractQueuedSynchronizer.Node.SHARED);
+    boolean failed = true;
+    try {
+      for (; ; ) {
+        final AbstractQueuedSynchronizer.Node p = node.predecessor();
+        if (p == head) {
+          int r = tryAcquireShared(arg);
+          if (r >= 0) {
+            setHeadAndPropagate(node, r);
+            p.next = null; // help GC
+            failed = false;
+            return true;
+          }
+        }
+        nanosTimeout = deadline - System.nanoTime();
+        if (nanosTimeout <= 0L) return false;
+        if (shouldParkAfterFailedAcquire(p, node) && nanosTimeout > spinForTimeoutThreshold)
+          LockSupport.parkNanos(this, nanosTimeout);
+        if (Thread.interrupted()) throw new InterruptedException();
+      }
+    } finally {
+      if (failed) {
+        cancelAcquire(node);
+      }
+    }
+  }
+
+  private void setHeadAndPropagate(AbstractQueuedSynchronizer.Node node, int propagate) {
+    AbstractQueuedSynchronizer.Node h = head;
+    setHead(node);
+    // 还有剩余资源，或者旧头节点、新头节点需要传播，继续唤醒后继的共享节点
+    if (propagate > 0 || h == null || h.waitStatus < 0 || (h = head) == null || h.waitStatus < 0) {
+      AbstractQueuedSynchronizer.Node s = node.next;
+      if (s == null || s.isShared()) doReleaseShared();
+    }
+  }
+
+  private void doReleaseShared() {
+    for (; ; ) {
+      AbstractQueuedSynchronizer.Node h = head;
+      if (h != null && h != tail) {
+        int ws = h.waitStatus;
+        if (ws == AbstractQueuedSynchronizer.Node.SIGNAL) {
+          if (!compareAndSetWaitStatus(h, AbstractQueuedSynchronizer.Node.SIGNAL, 0)) continue;
+          unparkSuccessor(h);
+        } else if (ws == 0
+            && !compareAndSetWaitStatus(h, 0, AbstractQueuedSynchronizer.Node.PROPAGATE)) {
+          continue;
+        }
+      }
+      if (h == head) break; // 头节点变化说明有新线程拿到资源，继续传播
+    }
+  }
+
+  final boolean apparentlyFirstQueuedIsExclusive() { // 队首是否为写线程，防止写线程饥饿
+    AbstractQueuedSynchronizer.Node h, s;
+    return (h = head) != null
+        && (s = h.next) != null
+        && !s.isShared()
+        && s.thread != null;
+  }
+
+  public final boolean hasQueuedThreads() {
+    return head != tail;
+  }
+
+  public final int getQueueLength() { // 从尾部遍历，仅用于监控
+    int n = 0;
+    for (AbstractQueuedSynchronizer.Node p = tail; p != null; p = p.prev) {
+      if (p.thread != null) ++n;
+    }
+    return n;
+  }
+
   public final boolean hasQueuedPredecessors() {
     AbstractQueuedSynchronizer.Node t = tail; // Read fields in reverse initialization order
     AbstractQueuedSynchronizer.Node h = head;
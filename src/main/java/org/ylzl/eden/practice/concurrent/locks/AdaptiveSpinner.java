@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import java.io.Serializable;
+
+/**
+ * 自适应自旋策略，参考 HotSpot 的自适应自旋：自旋拿到锁就放宽次数，失败就收紧次数，
+ * 平均持锁时长超过一次 park/unpark 的开销时直接入队
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class AdaptiveSpinner implements Serializable {
+
+	private static final long serialVersionUID = 1929140265316826346L;
+
+	static final int MIN_SPINS = 16;
+
+	static final int MAX_SPINS = 1 << 12;
+
+	static final int INITIAL_SPINS = 128;
+
+	/* park/unpark 往返一次的大致开销，持锁时长超过该值时自旋没有收益 */
+	static final long PARK_COST_NANOS = 20_000L;
+
+	/* 持锁时长的指数移动平均，只在持锁线程释放锁时写入，天然串行 */
+	private volatile long avgHoldNanos;
+
+	/* 自旋次数上限，写入存在竞争但只是启发值，丢失更新无妨 */
+	private volatile int spins = INITIAL_SPINS;
+
+	boolean spin(ReentrantLock.Sync sync) {
+		int limit = avgHoldNanos > PARK_COST_NANOS ? 0 : spins;
+		for (int i = 0; i < limit; i++) {
+			if (!sync.isLocked() && sync.tryAcquire(1)) { // 公平锁的 tryAcquire 会检查排队的前驱
+				int s = spins;
+				if (s < MAX_SPINS) {
+					spins = Math.min(MAX_SPINS, s + (s >> 1));
+				}
+				return true;
+			}
+			if ((i & 63) == 63) {
+				Thread.yield();
+			}
+		}
+		if (limit > 0) {
+			int s = spins;
+			if (s > MIN_SPINS) {
+				spins = Math.max(MIN_SPINS, s >> 1);
+			}
+		}
+		return false;
+	}
+
+	void recordHoldTime(long holdNanos) {
+		long avg = avgHoldNanos;
+		avgHoldNanos = avg + ((holdNanos - avg) >> 3); // alpha = 1/8
+	}
+
+	long getAvgHoldNanos() {
+		return avgHoldNanos;
+	}
+
+	int getSpins() {
+		return spins;
+	}
+}
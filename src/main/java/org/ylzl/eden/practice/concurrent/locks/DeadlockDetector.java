@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 死锁与锁竞争诊断
+ *
+ * <p>只跟踪本包的 {@link ReentrantLock}，且只在竞争路径上记账：线程自旋失败、准备排队时登记“等待哪把锁”，拿到锁后注销，
+ * 无竞争的加锁只多一次 volatile 读。持有者直接取锁的独占线程，因此等待图是“线程 → 锁 → 持有线程”的链，
+ * 每个线程最多等一把锁，沿链走到重复的线程即为环。检测在后台线程周期执行，不影响加锁路径。
+ * <pre>
+ * DeadlockDetector.report(10, TimeUnit.SECONDS, 5, report -&gt; {
+ *     if (report.hasDeadlock()) { log.error(report.toString()); }
+ * });
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class DeadlockDetector {
+
+	private static final ScheduledExecutorService detector =
+		java.util.concurrent.Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "deadlock-detector");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+	private static volatile boolean enabled;
+
+	// 正在排队的线程及其等待的锁，ConcurrentHashMap 分段计数，竞争线程之间互不阻塞
+	private static final ConcurrentHashMap<Thread, ReentrantLock> waiting = new ConcurrentHashMap<Thread, ReentrantLock>();
+
+	// 发生过竞争的锁，弱引用不阻止锁被回收
+	private static final Map<ReentrantLock, Boolean> contended =
+		Collections.synchronizedMap(new WeakHashMap<ReentrantLock, Boolean>());
+
+	private DeadlockDetector() {
+	}
+
+	public static void enable() {
+		enabled = true;
+	}
+
+	/**
+	 * 关闭跟踪，已登记的等待在线程拿到锁后自然清除
+	 */
+	public static void disable() {
+		enabled = false;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 线程即将排队等待 lock，返回是否已登记
+	 */
+	static boolean beginWait(ReentrantLock lock) {
+		if (!enabled) {
+			return false;
+		}
+		if (!lock.tracked) { // 每把锁只登记一次
+			lock.tracked = true;
+			contended.put(lock, Boolean.TRUE);
+		}
+		waiting.put(Thread.currentThread(), lock);
+		return true;
+	}
+
+	static void endWait() {
+		waiting.remove(Thread.currentThread());
+	}
+
+	/**
+	 * 开启跟踪并周期检测，每次检测结果交给 listener
+	 *
+	 * @param topContended 报告中列出的竞争最严重的锁数量
+	 */
+	public static ScheduledFuture<?> report(long period, TimeUnit unit, final int topContended, final Listener listener) {
+		enable();
+		return detector.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				listener.onReport(detect(topContended));
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * 立即检测一次
+	 */
+	public static Report detect(int topContended) {
+		return new Report(findDeadlocks(), topContended(topContended));
+	}
+
+	private static List<Cycle> findDeadlocks() {
+		Map<Thread, ReentrantLock> snapshot = new HashMap<Thread, ReentrantLock>(waiting);
+		Map<Thread, Boolean> visited = new IdentityHashMap<Thread, Boolean>();
+		List<Cycle> cycles = new ArrayList<Cycle>();
+		for (Thread start : snapshot.keySet()) {
+			if (visited.containsKey(start)) {
+				continue;
+			}
+			Map<Thread, Integer> path = new IdentityHashMap<Thread, Integer>(); // 本轮走过的线程及其在链上的位置
+			List<Thread> threads = new ArrayList<Thread>();
+			List<ReentrantLock> locks = new ArrayList<ReentrantLock>();
+			Thread t = start;
+			while (t != null && !visited.containsKey(t)) {
+				ReentrantLock lock = snapshot.get(t);
+				if (lock == null) {
+					break;
+				}
+				visited.put(t, Boolean.TRUE);
+				path.put(t, threads.size());
+				threads.add(t);
+				locks.add(lock);
+				Thread owner = lock.getOwner();
+				Integer index = owner == null ? null : path.get(owner);
+				if (index != null) { // 回到本轮走过的线程，成环
+					Cycle cycle = newCycle(threads.subList(index, threads.size()), locks.subList(index, locks.size()));
+					if (cycle != null) {
+						cycles.add(cycle);
+					}
+					break;
+				}
+				t = owner;
+			}
+		}
+		return cycles;
+	}
+
+	// 快照不是原子的，抓取栈后再确认每条边仍然成立，排除瞬时的假环
+	private static Cycle newCycle(List<Thread> threads, List<ReentrantLock> locks) {
+		int n = threads.size();
+		List<Cycle.Entry> entries = new ArrayList<Cycle.Entry>(n);
+		for (int i = 0; i < n; i++) {
+			Thread t = threads.get(i);
+			ReentrantLock lock = locks.get(i);
+			entries.add(new Cycle.Entry(t.getName(), lock.toString(), threads.get((i + 1) % n).getName(), t.getStackTrace()));
+		}
+		for (int i = 0; i < n; i++) {
+			ReentrantLock lock = locks.get(i);
+			if (waiting.get(threads.get(i)) != lock || lock.getOwner() != threads.get((i + 1) % n)) {
+				return null;
+			}
+		}
+		return new Cycle(entries);
+	}
+
+	private static List<ContendedLock> topContended(int limit) {
+		List<ContendedLock> all = new ArrayList<ContendedLock>();
+		synchronized (contended) {
+			for (ReentrantLock lock : contended.keySet()) {
+				LockStatistics stats = lock.getStatistics();
+				Thread owner = lock.getOwner();
+				all.add(new ContendedLock(lock.toString(), owner == null ? null : owner.getName(),
+					stats.getTotalWaitNanos(), stats.getContendedCount(), stats.getQueueLength()));
+			}
+		}
+		Collections.sort(all, new Comparator<ContendedLock>() {
+
+			@Override
+			public int compare(ContendedLock a, ContendedLock b) {
+				return Long.compare(b.totalWaitNanos, a.totalWaitNanos);
+			}
+		});
+		return all.size() > limit ? new ArrayList<ContendedLock>(all.subList(0, limit)) : all;
+	}
+
+	public interface Listener {
+
+		void onReport(Report report);
+	}
+
+	/**
+	 * 一次检测的结果
+	 */
+	public static final class Report {
+
+		private final List<Cycle> deadlocks;
+
+		private final List<ContendedLock> topContended;
+
+		Report(List<Cycle> deadlocks, List<ContendedLock> topContended) {
+			this.deadlocks = Collections.unmodifiableList(deadlocks);
+			this.topContended = Collections.unmodifiableList(topContended);
+		}
+
+		public boolean hasDeadlock() {
+			return !deadlocks.isEmpty();
+		}
+
+		public List<Cycle> getDeadlocks() {
+			return deadlocks;
+		}
+
+		public List<ContendedLock> getTopContended() {
+			return topContended;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Cycle cycle : deadlocks) {
+				sb.append(cycle);
+			}
+			sb.append("Top contended locks:\n");
+			for (ContendedLock lock : topContended) {
+				sb.append("  ").append(lock).append('\n');
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * 死锁环，第 i 个线程等待的锁由第 i + 1 个线程持有
+	 */
+	public static final class Cycle {
+
+		private final List<Entry> entries;
+
+		Cycle(List<Entry> entries) {
+			this.entries = Collections.unmodifiableList(entries);
+		}
+
+		public List<Entry> getEntries() {
+			return entries;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("Found deadlock of ").append(entries.size()).append(" threads:\n");
+			for (Entry e : entries) {
+				sb.append('"').append(e.thread).append("\" waiting for ").append(e.lock)
+					.append(" held by \"").append(e.owner).append("\"\n");
+				for (StackTraceElement element : e.stackTrace) {
+					sb.append("\tat ").append(element).append('\n');
+				}
+			}
+			return sb.toString();
+		}
+
+		public static final class Entry {
+
+			private final String thread;
+
+			private final String lock;
+
+			private final String owner;
+
+			private final StackTraceElement[] stackTrace;
+
+			Entry(String thread, String lock, String owner, StackTraceElement[] stackTrace) {
+				this.thread = thread;
+				this.lock = lock;
+				this.owner = owner;
+				this.stackTrace = stackTrace;
+			}
+
+			public String getThread() {
+				return thread;
+			}
+
+			public String getLock() {
+				return lock;
+			}
+
+			public String getOwner() {
+				return owner;
+			}
+
+			public StackTraceElement[] getStackTrace() {
+				return stackTrace.clone();
+			}
+		}
+	}
+
+	/**
+	 * 锁的累计竞争情况
+	 */
+	public static final class ContendedLock {
+
+		private final String lock;
+
+		private final String owner;
+
+		private final long totalWaitNanos;
+
+		private final long contendedCount;
+
+		private final int queueLength;
+
+		ContendedLock(String lock, String owner, long totalWaitNanos, long contendedCount, int queueLength) {
+			this.lock = lock;
+			this.owner = owner;
+			this.totalWaitNanos = totalWaitNanos;
+			this.contendedCount = contendedCount;
+			this.queueLength = queueLength;
+		}
+
+		public String getLock() {
+			return lock;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		public long getTotalWaitNanos() {
+			return totalWaitNanos;
+		}
+
+		public long getContendedCount() {
+			return contendedCount;
+		}
+
+		public int getQueueLength() {
+			return queueLength;
+		}
+
+		@Override
+		public String toString() {
+			return lock + " waited " + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos) + "ms in " + contendedCount
+				+ " contentions, queue " + queueLength + (owner == null ? "" : ", owner \"" + owner + "\"");
+		}
+	}
+}
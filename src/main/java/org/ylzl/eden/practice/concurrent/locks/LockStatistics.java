@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 锁竞争统计，只在竞争路径上更新，无竞争的加锁不产生额外写操作
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class LockStatistics implements Serializable {
+
+	private static final long serialVersionUID = -3309562393578164912L;
+
+	private static final AtomicIntegerFieldUpdater<LockStatistics> MAX_QUEUE_LENGTH =
+		AtomicIntegerFieldUpdater.newUpdater(LockStatistics.class, "maxQueueLength");
+
+	private final LongAdder contendedCount = new LongAdder(); // 竞争加锁次数
+
+	private final LongAdder spinAcquiredCount = new LongAdder(); // 自旋阶段拿到锁的次数
+
+	private final LongAdder totalWaitNanos = new LongAdder(); // 累计等待耗时
+
+	private final AtomicInteger queueLength = new AtomicInteger(); // 当前排队线程数
+
+	private volatile int maxQueueLength; // 历史最大排队线程数
+
+	void recordSpinAcquired(long waitNanos) {
+		contendedCount.increment();
+		spinAcquiredCount.increment();
+		totalWaitNanos.add(waitNanos);
+	}
+
+	void enqueue() {
+		contendedCount.increment();
+		int n = queueLength.incrementAndGet();
+		int max;
+		while (n > (max = maxQueueLength)) { // 只有刷新最大值时才写
+			if (MAX_QUEUE_LENGTH.compareAndSet(this, max, n)) {
+				break;
+			}
+		}
+	}
+
+	void dequeue(long waitNanos) {
+		queueLength.decrementAndGet();
+		totalWaitNanos.add(waitNanos);
+	}
+
+	public long getContendedCount() {
+		return contendedCount.sum();
+	}
+
+	public long getSpinAcquiredCount() {
+		return spinAcquiredCount.sum();
+	}
+
+	public long getTotalWaitNanos() {
+		return totalWaitNanos.sum();
+	}
+
+	public int getQueueLength() {
+		return queueLength.get();
+	}
+
+	public int getMaxQueueLength() {
+		return maxQueueLength;
+	}
+
+	public void reset() {
+		contendedCount.reset();
+		spinAcquiredCount.reset();
+		totalWaitNanos.reset();
+		maxQueueLength = queueLength.get();
+	}
+
+	@Override
+	public String toString() {
+		return "LockStatistics{contended=" + getContendedCount() +
+			", spinAcquired=" + getSpinAcquiredCount() +
+			", totalWaitNanos=" + getTotalWaitNanos() +
+			", queueLength=" + getQueueLength() +
+			", maxQueueLength=" + getMaxQueueLength() + "}";
+	}
+}
@@ -23,25 +23,52 @@ import java.util.concurrent.TimeUnit;
 /**
  * 重入锁
  *
+ * <p>自适应模式下，竞争失败的线程先按最近的持锁时长自旋有限次数，再入队挂起，
+ * 短临界区可以省掉 park/unpark 的开销。每把锁都会统计竞争次数、等待耗时和最大排队长度，
+ * 开启 {@link DeadlockDetector} 后排队的线程会登记到等待图。
+ *
  * @author gyl
  * @since 2.0.0
  */
 public class ReentrantLock implements Lock, Serializable {
 
+	private static final long serialVersionUID = 7373984872572414699L;
+
+	private static final int HOLD_SAMPLE_MASK = 15; // 每 16 次加锁采样一次持锁时长
+
   private final Sync sync;
 
+	private final AdaptiveSpinner spinner; // 非自适应模式为 null
+
+	private final LockStatistics statistics = new LockStatistics();
+
+	transient boolean tracked; // 是否已登记到 DeadlockDetector，重复登记无害，不需要 volatile
+
 	public ReentrantLock() {
-		sync = new NonfairSync();
+		this(false, false);
 	}
 
 	public ReentrantLock(boolean fair) {
+		this(fair, false);
+	}
+
+	public ReentrantLock(boolean fair, boolean adaptive) {
 		sync = fair ? new FairSync() : new NonfairSync();
+		spinner = adaptive ? new AdaptiveSpinner() : null;
 	}
 
   abstract static class Sync extends AbstractQueuedSynchronizer {
 
+		private static final long serialVersionUID = -5179523762034025860L;
+
+		transient int acquireCount; // 最外层加锁次数，用于采样，仅持锁线程读写
+
+		transient long holdStartNanos; // 采样到的加锁时间点，0 表示本次未采样
+
     abstract void lock();
 
+		abstract boolean initialTryLock(); // 不入队的快速尝试
+
 		final boolean nonfairTryAcquire(int acquires) {
 			final Thread current = Thread.currentThread();
 			int c = getState();
@@ -73,6 +100,22 @@ public class ReentrantLock implements Lock, Serializable {
 			setState(c);
 			return free;
 		}
+
+		protected final boolean isHeldExclusively() {
+			return getExclusiveOwnerThread() == Thread.currentThread();
+		}
+
+		final int getHoldCount() {
+			return isHeldExclusively() ? getState() : 0;
+		}
+
+		final Thread getOwner() {
+			return getState() == 0 ? null : getExclusiveOwnerThread();
+		}
+
+		final boolean isLocked() {
+			return getState() != 0;
+		}
   }
 
 	static final class NonfairSync extends Sync {
@@ -85,6 +128,14 @@ public class ReentrantLock implements Lock, Serializable {
 				acquire(1);
 		}
 
+		final boolean initialTryLock() {
+			if (compareAndSetState(0, 1)) {
+				setExclusiveOwnerThread(Thread.currentThread());
+				return true;
+			}
+			return getExclusiveOwnerThread() == Thread.currentThread() && nonfairTryAcquire(1);
+		}
+
 		protected final boolean tryAcquire(int acquires) {
 			return nonfairTryAcquire(acquires);
 		}
@@ -97,6 +148,10 @@ public class ReentrantLock implements Lock, Serializable {
 			acquire(1);
 		}
 
+		final boolean initialTryLock() {
+			return tryAcquire(1);
+		}
+
 		protected final boolean tryAcquire(int acquires) {
 			final Thread current = Thread.currentThread();
 			int c = getState();
@@ -120,27 +175,154 @@ public class ReentrantLock implements Lock, Serializable {
 
 	@Override
 	public void lock() {
-		sync.lock();
+		if (sync.initialTryLock()) {
+			onAcquired();
+			return;
+		}
+		long start = System.nanoTime();
+		if (spinner != null && spinner.spin(sync)) {
+			statistics.recordSpinAcquired(System.nanoTime() - start);
+			onAcquired();
+			return;
+		}
+		statistics.enqueue();
+		boolean waitTracked = DeadlockDetector.beginWait(this);
+		try {
+			sync.lock();
+		} finally {
+			if (waitTracked) {
+				DeadlockDetector.endWait();
+			}
+			statistics.dequeue(System.nanoTime() - start);
+		}
+		onAcquired();
 	}
 
 	@Override
 	public void lockInterruptibly() throws InterruptedException {
-		sync.acquireInterruptibly(1);
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (sync.initialTryLock()) {
+			onAcquired();
+			return;
+		}
+		long start = System.nanoTime();
+		if (spinner != null && spinner.spin(sync)) {
+			statistics.recordSpinAcquired(System.nanoTime() - start);
+			onAcquired();
+			return;
+		}
+		statistics.enqueue();
+		boolean waitTracked = DeadlockDetector.beginWait(this);
+		try {
+			sync.acquireInterruptibly(1);
+		} finally {
+			if (waitTracked) {
+				DeadlockDetector.endWait();
+			}
+			statistics.dequeue(System.nanoTime() - start);
+		}
+		onAcquired();
 	}
 
 	@Override
 	public boolean tryLock() {
-		return sync.nonfairTryAcquire(1);
+		if (sync.nonfairTryAcquire(1)) {
+			onAcquired();
+			return true;
+		}
+		return false;
 	}
 
 	@Override
 	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-//		return sync.tryAcquireNanos(1, unit.toNanos(timeout));
-		return false;
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (sync.initialTryLock()) {
+			onAcquired();
+			return true;
+		}
+		long start = System.nanoTime();
+		long nanosTimeout = unit.toNanos(time);
+		if (spinner != null && spinner.spin(sync)) {
+			statistics.recordSpinAcquired(System.nanoTime() - start);
+			onAcquired();
+			return true;
+		}
+		boolean acquired = false;
+		statistics.enqueue();
+		boolean waitTracked = DeadlockDetector.beginWait(this);
+		try {
+			acquired = sync.tryAcquireNanos(1, nanosTimeout - (System.nanoTime() - start));
+		} finally {
+			if (waitTracked) {
+				DeadlockDetector.endWait();
+			}
+			statistics.dequeue(System.nanoTime() - start);
+		}
+		if (acquired) {
+			onAcquired();
+		}
+		return acquired;
 	}
 
 	@Override
 	public void unlock() {
-//		sync.release(1);
+		if (spinner != null && sync.holdStartNanos != 0L && sync.getHoldCount() == 1) { // 最外层释放，记录持锁时长
+			spinner.recordHoldTime(System.nanoTime() - sync.holdStartNanos);
+			sync.holdStartNanos = 0L;
+		}
+		sync.release(1);
+	}
+
+	private void onAcquired() {
+		if (spinner != null && sync.getHoldCount() == 1
+			&& (++sync.acquireCount & HOLD_SAMPLE_MASK) == 0) { // 采样计时，避免每次加锁都读时钟
+			sync.holdStartNanos = System.nanoTime();
+		}
+	}
+
+	public int getHoldCount() {
+		return sync.getHoldCount();
+	}
+
+	public boolean isHeldByCurrentThread() {
+		return sync.isHeldExclusively();
+	}
+
+	public boolean isLocked() {
+		return sync.isLocked();
+	}
+
+	public final boolean isFair() {
+		return sync instanceof FairSync;
+	}
+
+	public final boolean isAdaptive() {
+		return spinner != null;
+	}
+
+	protected Thread getOwner() {
+		return sync.getOwner();
+	}
+
+	public final boolean hasQueuedThreads() {
+		return sync.hasQueuedThreads();
+	}
+
+	public final int getQueueLength() {
+		return sync.getQueueLength();
+	}
+
+	public LockStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		Thread o = sync.getOwner();
+		return super.toString() + ((o == null) ? "[Unlocked]" : "[Locked by thread " + o.getName() + "]");
 	}
 }
@@ -0,0 +1,516 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可重入读写锁，基于 AQS 的共享模式实现读锁、排他模式实现写锁
+ *
+ * <p>同步状态的高 16 位为读锁持有数，低 16 位为写锁重入数。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ReentrantReadWriteLock implements ReadWriteLock, Serializable {
+
+	private static final long serialVersionUID = -6992448646407690164L;
+
+	private final ReentrantReadWriteLock.ReadLock readerLock;
+
+	private final ReentrantReadWriteLock.WriteLock writerLock;
+
+	final Sync sync;
+
+	public ReentrantReadWriteLock() {
+		this(false);
+	}
+
+	public ReentrantReadWriteLock(boolean fair) {
+		sync = fair ? new FairSync() : new NonfairSync();
+		readerLock = new ReadLock(this);
+		writerLock = new WriteLock(this);
+	}
+
+	@Override
+	public ReentrantReadWriteLock.WriteLock writeLock() {
+		return writerLock;
+	}
+
+	@Override
+	public ReentrantReadWriteLock.ReadLock readLock() {
+		return readerLock;
+	}
+
+	abstract static class Sync extends AbstractQueuedSynchronizer {
+
+		private static final long serialVersionUID = 6317671515068378041L;
+
+		static final int SHARED_SHIFT = 16;
+		static final int SHARED_UNIT = (1 << SHARED_SHIFT);
+		static final int MAX_COUNT = (1 << SHARED_SHIFT) - 1;
+		static final int EXCLUSIVE_MASK = (1 << SHARED_SHIFT) - 1;
+
+		static int sharedCount(int c) { // 读锁持有数
+			return c >>> SHARED_SHIFT;
+		}
+
+		static int exclusiveCount(int c) { // 写锁重入数
+			return c & EXCLUSIVE_MASK;
+		}
+
+		static final class HoldCounter { // 每个读线程的重入计数
+			int count = 0;
+			final long tid = Thread.currentThread().getId();
+		}
+
+		static final class ThreadLocalHoldCounter extends ThreadLocal<HoldCounter> {
+			@Override
+			public HoldCounter initialValue() {
+				return new HoldCounter();
+			}
+		}
+
+		private transient ThreadLocalHoldCounter readHolds;
+
+		private transient HoldCounter cachedHoldCounter; // 最近一个获取读锁的线程的计数，省去 ThreadLocal 查找
+
+		private transient Thread firstReader = null; // 第一个获取读锁的线程，无竞争读时不需要 ThreadLocal
+
+		private transient int firstReaderHoldCount;
+
+		Sync() {
+			readHolds = new ThreadLocalHoldCounter();
+			setState(getState()); // 保证 readHolds 的可见性
+		}
+
+		abstract boolean readerShouldBlock();
+
+		abstract boolean writerShouldBlock();
+
+		@Override
+		protected final boolean tryRelease(int releases) {
+			if (!isHeldExclusively()) {
+				throw new IllegalMonitorStateException();
+			}
+			int nextc = getState() - releases;
+			boolean free = exclusiveCount(nextc) == 0;
+			if (free) {
+				setExclusiveOwnerThread(null);
+			}
+			setState(nextc);
+			return free;
+		}
+
+		@Override
+		protected final boolean tryAcquire(int acquires) {
+			Thread current = Thread.currentThread();
+			int c = getState();
+			int w = exclusiveCount(c);
+			if (c != 0) {
+				// 有读锁，或者写锁被其他线程持有
+				if (w == 0 || current != getExclusiveOwnerThread()) {
+					return false;
+				}
+				if (w + exclusiveCount(acquires) > MAX_COUNT) {
+					throw new Error("Maximum lock count exceeded");
+				}
+				setState(c + acquires); // 重入
+				return true;
+			}
+			if (writerShouldBlock() || !compareAndSetState(c, c + acquires)) {
+				return false;
+			}
+			setExclusiveOwnerThread(current);
+			return true;
+		}
+
+		@Override
+		protected final boolean tryReleaseShared(int unused) {
+			Thread current = Thread.currentThread();
+			if (firstReader == current) {
+				if (firstReaderHoldCount == 1) {
+					firstReader = null;
+				} else {
+					firstReaderHoldCount--;
+				}
+			} else {
+				HoldCounter rh = cachedHoldCounter;
+				if (rh == null || rh.tid != current.getId()) {
+					rh = readHolds.get();
+				}
+				int count = rh.count;
+				if (count <= 1) {
+					readHolds.remove();
+					if (count <= 0) {
+						throw new IllegalMonitorStateException("attempt to unlock read lock, not locked by current thread");
+					}
+				}
+				--rh.count;
+			}
+			for (; ; ) {
+				int c = getState();
+				int nextc = c - SHARED_UNIT;
+				if (compareAndSetState(c, nextc)) {
+					return nextc == 0; // 读写锁都释放后才唤醒等待的写线程
+				}
+			}
+		}
+
+		@Override
+		protected final int tryAcquireShared(int unused) {
+			Thread current = Thread.currentThread();
+			int c = getState();
+			if (exclusiveCount(c) != 0 && getExclusiveOwnerThread() != current) {
+				return -1;
+			}
+			int r = sharedCount(c);
+			if (!readerShouldBlock() && r < MAX_COUNT && compareAndSetState(c, c + SHARED_UNIT)) {
+				if (r == 0) {
+					firstReader = current;
+					firstReaderHoldCount = 1;
+				} else if (firstReader == current) {
+					firstReaderHoldCount++;
+				} else {
+					HoldCounter rh = cachedHoldCounter;
+					if (rh == null || rh.tid != current.getId()) {
+						cachedHoldCounter = rh = readHolds.get();
+					} else if (rh.count == 0) {
+						readHolds.set(rh);
+					}
+					rh.count++;
+				}
+				return 1;
+			}
+			return fullTryAcquireShared(current);
+		}
+
+		final int fullTryAcquireShared(Thread current) { // CAS 失败或需要排队时的完整版本，处理重入读
+			HoldCounter rh = null;
+			for (; ; ) {
+				int c = getState();
+				if (exclusiveCount(c) != 0) {
+					if (getExclusiveOwnerThread() != current) {
+						return -1;
+					}
+					// 持有写锁的线程可以降级获取读锁
+				} else if (readerShouldBlock()) {
+					if (firstReader != current) { // 非重入读，让位给排队的线程
+						if (rh == null) {
+							rh = cachedHoldCounter;
+							if (rh == null || rh.tid != current.getId()) {
+								rh = readHolds.get();
+								if (rh.count == 0) {
+									readHolds.remove();
+								}
+							}
+						}
+						if (rh.count == 0) {
+							return -1;
+						}
+					}
+				}
+				if (sharedCount(c) == MAX_COUNT) {
+					throw new Error("Maximum lock count exceeded");
+				}
+				if (compareAndSetState(c, c + SHARED_UNIT)) {
+					if (sharedCount(c) == 0) {
+						firstReader = current;
+						firstReaderHoldCount = 1;
+					} else if (firstReader == current) {
+						firstReaderHoldCount++;
+					} else {
+						if (rh == null) {
+							rh = cachedHoldCounter;
+						}
+						if (rh == null || rh.tid != current.getId()) {
+							rh = readHolds.get();
+						} else if (rh.count == 0) {
+							readHolds.set(rh);
+						}
+						rh.count++;
+						cachedHoldCounter = rh;
+					}
+					return 1;
+				}
+			}
+		}
+
+		final boolean tryWriteLock() { // 不考虑公平性的写锁尝试
+			Thread current = Thread.currentThread();
+			int c = getState();
+			if (c != 0) {
+				int w = exclusiveCount(c);
+				if (w == 0 || current != getExclusiveOwnerThread()) {
+					return false;
+				}
+				if (w == MAX_COUNT) {
+					throw new Error("Maximum lock count exceeded");
+				}
+			}
+			if (!compareAndSetState(c, c + 1)) {
+				return false;
+			}
+			setExclusiveOwnerThread(current);
+			return true;
+		}
+
+		final boolean tryReadLock() { // 不考虑公平性的读锁尝试
+			Thread current = Thread.currentThread();
+			for (; ; ) {
+				int c = getState();
+				if (exclusiveCount(c) != 0 && getExclusiveOwnerThread() != current) {
+					return false;
+				}
+				int r = sharedCount(c);
+				if (r == MAX_COUNT) {
+					throw new Error("Maximum lock count exceeded");
+				}
+				if (compareAndSetState(c, c + SHARED_UNIT)) {
+					if (r == 0) {
+						firstReader = current;
+						firstReaderHoldCount = 1;
+					} else if (firstReader == current) {
+						firstReaderHoldCount++;
+					} else {
+						HoldCounter rh = cachedHoldCounter;
+						if (rh == null || rh.tid != current.getId()) {
+							cachedHoldCounter = rh = readHolds.get();
+						} else if (rh.count == 0) {
+							readHolds.set(rh);
+						}
+						rh.count++;
+					}
+					return true;
+				}
+			}
+		}
+
+		@Override
+		protected final boolean isHeldExclusively() {
+			return getExclusiveOwnerThread() == Thread.currentThread();
+		}
+
+		final Thread getOwner() {
+			return exclusiveCount(getState()) == 0 ? null : getExclusiveOwnerThread();
+		}
+
+		final int getReadLockCount() {
+			return sharedCount(getState());
+		}
+
+		final boolean isWriteLocked() {
+			return exclusiveCount(getState()) != 0;
+		}
+
+		final int getWriteHoldCount() {
+			return isHeldExclusively() ? exclusiveCount(getState()) : 0;
+		}
+
+		final int getReadHoldCount() {
+			if (getReadLockCount() == 0) {
+				return 0;
+			}
+			Thread current = Thread.currentThread();
+			if (firstReader == current) {
+				return firstReaderHoldCount;
+			}
+			HoldCounter rh = cachedHoldCounter;
+			if (rh != null && rh.tid == current.getId()) {
+				return rh.count;
+			}
+			int count = readHolds.get().count;
+			if (count == 0) {
+				readHolds.remove();
+			}
+			return count;
+		}
+
+		private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+			s.defaultReadObject();
+			readHolds = new ThreadLocalHoldCounter();
+			setState(0);
+		}
+	}
+
+	static final class NonfairSync extends Sync {
+
+		private static final long serialVersionUID = -8159625535654395037L;
+
+		@Override
+		final boolean writerShouldBlock() {
+			return false; // 写线程总是可以插队
+		}
+
+		@Override
+		final boolean readerShouldBlock() {
+			return apparentlyFirstQueuedIsExclusive(); // 队首是写线程时读线程不插队，避免写饥饿
+		}
+	}
+
+	static final class FairSync extends Sync {
+
+		private static final long serialVersionUID = -2274990926593161451L;
+
+		@Override
+		final boolean writerShouldBlock() {
+			return hasQueuedPredecessors();
+		}
+
+		@Override
+		final boolean readerShouldBlock() {
+			return hasQueuedPredecessors();
+		}
+	}
+
+	public static class ReadLock implements Lock, Serializable {
+
+		private static final long serialVersionUID = -5992448646407690164L;
+
+		private final Sync sync;
+
+		protected ReadLock(ReentrantReadWriteLock lock) {
+			sync = lock.sync;
+		}
+
+		@Override
+		public void lock() {
+			sync.acquireShared(1);
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			sync.acquireSharedInterruptibly(1);
+		}
+
+		@Override
+		public boolean tryLock() {
+			return sync.tryReadLock();
+		}
+
+		@Override
+		public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+			return sync.tryAcquireSharedNanos(1, unit.toNanos(timeout));
+		}
+
+		@Override
+		public void unlock() {
+			sync.releaseShared(1);
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + "[Read locks = " + sync.getReadLockCount() + "]";
+		}
+	}
+
+	public static class WriteLock implements Lock, Serializable {
+
+		private static final long serialVersionUID = -4992448646407690164L;
+
+		private final Sync sync;
+
+		protected WriteLock(ReentrantReadWriteLock lock) {
+			sync = lock.sync;
+		}
+
+		@Override
+		public void lock() {
+			sync.acquire(1);
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			sync.acquireInterruptibly(1);
+		}
+
+		@Override
+		public boolean tryLock() {
+			return sync.tryWriteLock();
+		}
+
+		@Override
+		public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+			return sync.tryAcquireNanos(1, unit.toNanos(timeout));
+		}
+
+		@Override
+		public void unlock() {
+			sync.release(1);
+		}
+
+		public boolean isHeldByCurrentThread() {
+			return sync.isHeldExclusively();
+		}
+
+		public int getHoldCount() {
+			return sync.getWriteHoldCount();
+		}
+
+		@Override
+		public String toString() {
+			Thread o = sync.getOwner();
+			return super.toString() + ((o == null) ? "[Unlocked]" : "[Locked by thread " + o.getName() + "]");
+		}
+	}
+
+	public final boolean isFair() {
+		return sync instanceof FairSync;
+	}
+
+	protected Thread getOwner() {
+		return sync.getOwner();
+	}
+
+	public int getReadLockCount() {
+		return sync.getReadLockCount();
+	}
+
+	public boolean isWriteLocked() {
+		return sync.isWriteLocked();
+	}
+
+	public boolean isWriteLockedByCurrentThread() {
+		return sync.isHeldExclusively();
+	}
+
+	public int getWriteHoldCount() {
+		return sync.getWriteHoldCount();
+	}
+
+	public int getReadHoldCount() {
+		return sync.getReadHoldCount();
+	}
+
+	public final boolean hasQueuedThreads() {
+		return sync.hasQueuedThreads();
+	}
+
+	public final int getQueueLength() {
+		return sync.getQueueLength();
+	}
+
+	@Override
+	public String toString() {
+		int c = sync.getState();
+		int w = Sync.exclusiveCount(c);
+		int r = Sync.sharedCount(c);
+		return super.toString() + "[Write locks = " + w + ", Read locks = " + r + "]";
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import sun.misc.Unsafe;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带版本戳的读写锁，读多写少时使用乐观读
+ *
+ * <p>乐观读只读取版本号，不写任何共享内存，读完后校验版本号是否变化；写锁持有期间版本号为奇数，
+ * 释放后变为偶数。悲观读、写锁复用 AQS 的共享、排他模式，不可重入。
+ * 版本戳为版本号左移一位，最低位标记悲观读，乐观读得到的版本戳不能用来释放读锁。
+ *
+ * <pre>
+ * long stamp = lock.tryOptimisticRead();
+ * double x = this.x, y = this.y;
+ * if (!lock.validate(stamp)) {
+ *   stamp = lock.readLock();
+ *   try {
+ *     x = this.x;
+ *     y = this.y;
+ *   } finally {
+ *     lock.unlockRead(stamp);
+ *   }
+ * }
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class StampedLock implements Serializable {
+
+	private static final long serialVersionUID = -6001602636862214147L;
+
+	private static final long ORIGIN = 2L; // 初始版本号，0 留作获取失败的返回值
+
+	private static final long RBIT = 1L; // 版本戳的悲观读标记位
+
+	private static final Unsafe U = AbstractQueuedSynchronizer.unsafe;
+
+	private static final long VERSION;
+
+	static {
+		try {
+			VERSION = U.objectFieldOffset(StampedLock.class.getDeclaredField("version"));
+		} catch (Exception ex) {
+			throw new Error(ex);
+		}
+	}
+
+	private final Sync sync = new Sync();
+
+	private volatile long version = ORIGIN; // 写锁持有期间为奇数
+
+	static final class Sync extends AbstractQueuedSynchronizer {
+
+		private static final long serialVersionUID = 3329085958738449437L;
+
+		static final int WRITER = -1; // state 为 -1 表示写锁，大于 0 表示读锁持有数
+
+		@Override
+		protected boolean tryAcquire(int unused) {
+			if (getState() == 0 && compareAndSetState(0, WRITER)) {
+				setExclusiveOwnerThread(Thread.currentThread());
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean tryRelease(int unused) {
+			if (getState() != WRITER) {
+				throw new IllegalMonitorStateException();
+			}
+			setExclusiveOwnerThread(null);
+			setState(0);
+			return true;
+		}
+
+		@Override
+		protected int tryAcquireShared(int unused) {
+			for (; ; ) {
+				int c = getState();
+				if (c == WRITER || apparentlyFirstQueuedIsExclusive()) { // 队首是写线程时不插队
+					return -1;
+				}
+				if (c == Integer.MAX_VALUE) {
+					throw new Error("Maximum lock count exceeded");
+				}
+				if (compareAndSetState(c, c + 1)) {
+					return 1;
+				}
+			}
+		}
+
+		@Override
+		protected boolean tryReleaseShared(int unused) {
+			for (; ; ) {
+				int c = getState();
+				if (c <= 0) {
+					throw new IllegalMonitorStateException();
+				}
+				if (compareAndSetState(c, c - 1)) {
+					return c == 1;
+				}
+			}
+		}
+
+		@Override
+		protected boolean isHeldExclusively() {
+			return getState() == WRITER && getExclusiveOwnerThread() == Thread.currentThread();
+		}
+
+		boolean tryReadLock() {
+			for (; ; ) {
+				int c = getState();
+				if (c == WRITER) {
+					return false;
+				}
+				if (compareAndSetState(c, c + 1)) {
+					return true;
+				}
+			}
+		}
+
+		int getReadLockCount() {
+			int c = getState();
+			return c > 0 ? c : 0;
+		}
+
+		boolean isWriteLocked() {
+			return getState() == WRITER;
+		}
+	}
+
+	public long writeLock() {
+		sync.acquire(1);
+		return nextWriteVersion();
+	}
+
+	public long writeLockInterruptibly() throws InterruptedException {
+		sync.acquireInterruptibly(1);
+		return nextWriteVersion();
+	}
+
+	public long tryWriteLock() {
+		return sync.tryAcquire(1) ? nextWriteVersion() : 0L;
+	}
+
+	public long tryWriteLock(long time, TimeUnit unit) throws InterruptedException {
+		return sync.tryAcquireNanos(1, unit.toNanos(time)) ? nextWriteVersion() : 0L;
+	}
+
+	public long readLock() {
+		sync.acquireShared(1);
+		return readStamp(); // 没有写线程，版本号必为偶数且在释放前不会变化
+	}
+
+	public long readLockInterruptibly() throws InterruptedException {
+		sync.acquireSharedInterruptibly(1);
+		return readStamp();
+	}
+
+	public long tryReadLock() {
+		return sync.tryReadLock() ? readStamp() : 0L;
+	}
+
+	public long tryReadLock(long time, TimeUnit unit) throws InterruptedException {
+		return sync.tryAcquireSharedNanos(1, unit.toNanos(time)) ? readStamp() : 0L;
+	}
+
+	public long tryOptimisticRead() {
+		long s = version;
+		return (s & 1L) == 0L ? s << 1 : 0L; // 写锁持有期间无法乐观读
+	}
+
+	public boolean validate(long stamp) {
+		U.loadFence(); // 保证数据的读取不会重排到版本号校验之后
+		return stamp != 0L && version == stamp >>> 1;
+	}
+
+	public void unlockWrite(long stamp) {
+		long v = stamp >>> 1;
+		if ((stamp & RBIT) != 0L || version != v || (v & 1L) == 0L || !sync.isHeldExclusively()) {
+			throw new IllegalMonitorStateException();
+		}
+		U.getAndAddLong(this, VERSION, 1L); // 版本号回到偶数，之前的写操作对乐观读可见
+		sync.release(1);
+	}
+
+	public void unlockRead(long stamp) {
+		if ((stamp & RBIT) == 0L || version != stamp >>> 1) { // 乐观读和写锁的版本戳没有读标记
+			throw new IllegalMonitorStateException();
+		}
+		sync.releaseShared(1);
+	}
+
+	public void unlock(long stamp) {
+		if ((stamp & RBIT) != 0L) {
+			unlockRead(stamp);
+		} else {
+			unlockWrite(stamp);
+		}
+	}
+
+	public long tryConvertToWriteLock(long stamp) { // 乐观读升级为写锁，持有悲观读锁时会失败
+		if (stamp == 0L || (stamp & RBIT) != 0L) {
+			return 0L;
+		}
+		long v = stamp >>> 1;
+		if ((v & 1L) != 0L) {
+			return version == v ? stamp : 0L; // 已经是写锁
+		}
+		if (sync.tryAcquire(1)) {
+			if (version == v) {
+				return nextWriteVersion();
+			}
+			sync.release(1);
+		}
+		return 0L;
+	}
+
+	public boolean isWriteLocked() {
+		return sync.isWriteLocked();
+	}
+
+	public boolean isReadLocked() {
+		return sync.getReadLockCount() > 0;
+	}
+
+	public int getReadLockCount() {
+		return sync.getReadLockCount();
+	}
+
+	private long nextWriteVersion() {
+		// CAS 类操作带有 volatile 读写语义，写锁内的数据写入不会重排到版本号变为奇数之前
+		return (U.getAndAddLong(this, VERSION, 1L) + 1L) << 1;
+	}
+
+	private long readStamp() {
+		return version << 1 | RBIT;
+	}
+
+	@Override
+	public String toString() {
+		long s = version;
+		return super.toString() +
+			((s & 1L) != 0L ? "[Write-locked]" :
+				sync.getReadLockCount() > 0 ? "[Read-locks:" + sync.getReadLockCount() + "]" : "[Unlocked]");
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.aio;
+
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.MessageHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
+
+/**
+ * 异步 TCP 客户端，多个连接共享一个通道组
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AioClient implements Closeable {
+
+	private final AsynchronousChannelGroup group;
+
+	private final boolean ownGroup;
+
+	private final FrameCodec codec;
+
+	private final MessageHandler<AioConnection> handler;
+
+	private final AioConnection.Options options;
+
+	/**
+	 * 使用 {@link AsynchronousIO#sharedGroup()}
+	 */
+	public AioClient(FrameCodec codec, MessageHandler<AioConnection> handler) {
+		this(AsynchronousIO.sharedGroup(), false, codec, handler, new AioConnection.Options());
+	}
+
+	public AioClient(int ioThreads, FrameCodec codec, MessageHandler<AioConnection> handler) throws IOException {
+		this(AsynchronousIO.newGroup(ioThreads, "aio-client-"), true, codec, handler, new AioConnection.Options());
+	}
+
+	public AioClient(AsynchronousChannelGroup group, FrameCodec codec, MessageHandler<AioConnection> handler, AioConnection.Options options) {
+		this(group, false, codec, handler, options);
+	}
+
+	private AioClient(AsynchronousChannelGroup group, boolean ownGroup, FrameCodec codec, MessageHandler<AioConnection> handler,
+					  AioConnection.Options options) {
+		this.group = group;
+		this.ownGroup = ownGroup;
+		this.codec = codec;
+		this.handler = handler;
+		this.options = options;
+	}
+
+	/**
+	 * 发起连接，建立前写入的帧会在建立后写出
+	 */
+	public AioConnection connect(SocketAddress remote) throws IOException {
+		return AioConnection.connect(remote, group, codec, handler, options);
+	}
+
+	/**
+	 * 独占通道组时关闭通道组及其上的全部连接
+	 */
+	@Override
+	public void close() throws IOException {
+		if (ownGroup) {
+			group.shutdownNow();
+		}
+	}
+}
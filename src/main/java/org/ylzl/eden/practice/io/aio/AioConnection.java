@@ -0,0 +1,410 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.aio;
+
+import org.ylzl.eden.practice.io.nio.BufferPool;
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.MessageHandler;
+import org.ylzl.eden.practice.io.nio.PooledBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步连接
+ *
+ * <p>读和写各是一条完成回调链：读完成后解码全部帧、回调 {@link MessageHandler}，再发起下一次读；
+ * 写请求进入无锁队列，同一时刻只有一个聚集写在途，完成后接着写出期间积累的数据。
+ * 读缓冲区从 {@link BufferPool} 分配。待写字节超过高水位时不再发起读，降到低水位以下由写完成回调恢复。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class AioConnection implements Closeable {
+
+	private static final int MAX_GATHER = 64;
+
+	private static final int READING = 0;
+
+	private static final int READ_PAUSED = 1;
+
+	private static final int READ_DONE = 2; // 已关闭且读缓冲区已归还
+
+	private final AsynchronousSocketChannel channel;
+
+	private final FrameCodec codec;
+
+	private final MessageHandler<AioConnection> handler;
+
+	private final int lowWaterMark;
+
+	private final int highWaterMark;
+
+	private final int maxReadBufferSize;
+
+	private PooledBuffer readBuffer; // 只在读回调链中访问
+
+	private ByteBuffer in;
+
+	private final AtomicInteger readState = new AtomicInteger(READING);
+
+	private final ConcurrentLinkedQueue<ByteBuffer[]> incoming = new ConcurrentLinkedQueue<ByteBuffer[]>();
+
+	private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<ByteBuffer>(); // 只由持有 writing 的线程访问
+
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+	private final AtomicBoolean writing = new AtomicBoolean();
+
+	private final AtomicLong pendingBytes = new AtomicLong();
+
+	private volatile boolean opened; // 连接建立前只入队，不发起写
+
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	private volatile Object attachment;
+
+	private final CompletionHandler<Integer, Void> readHandler = new CompletionHandler<Integer, Void>() {
+
+		@Override
+		public void completed(Integer n, Void ignored) {
+			onRead(n);
+		}
+
+		@Override
+		public void failed(Throwable cause, Void ignored) {
+			finishRead();
+			if (!closed.get()) {
+				handler.onError(AioConnection.this, cause);
+				closeNow();
+			}
+		}
+	};
+
+	private final CompletionHandler<Long, Void> writeHandler = new CompletionHandler<Long, Void>() {
+
+		@Override
+		public void completed(Long written, Void ignored) {
+			onWritten(written);
+		}
+
+		@Override
+		public void failed(Throwable cause, Void ignored) {
+			if (!closed.get()) {
+				handler.onError(AioConnection.this, cause);
+				closeNow();
+			}
+		}
+	};
+
+	AioConnection(AsynchronousSocketChannel channel, FrameCodec codec, MessageHandler<AioConnection> handler, Options options) {
+		this.channel = channel;
+		this.codec = codec;
+		this.handler = handler;
+		this.lowWaterMark = options.lowWaterMark;
+		this.highWaterMark = options.highWaterMark;
+		this.maxReadBufferSize = options.maxReadBufferSize;
+		this.readBuffer = BufferPool.DEFAULT.allocate(options.readBufferSize);
+		this.in = readBuffer.buffer();
+	}
+
+	/**
+	 * 接管已连接的通道，回调 onOpen 后开始读取
+	 */
+	static AioConnection open(AsynchronousSocketChannel channel, FrameCodec codec, MessageHandler<AioConnection> handler,
+							  Options options) throws IOException {
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		AioConnection connection = new AioConnection(channel, codec, handler, options);
+		connection.start();
+		return connection;
+	}
+
+	/**
+	 * 发起异步连接，连接建立后回调 {@link MessageHandler#onOpen}，失败时回调 onError 和 onClose
+	 */
+	public static AioConnection connect(SocketAddress remote, AsynchronousChannelGroup group, FrameCodec codec,
+										MessageHandler<AioConnection> handler, Options options) throws IOException {
+		AsynchronousSocketChannel channel = AsynchronousSocketChannel.open(group);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		final AioConnection connection = new AioConnection(channel, codec, handler, options);
+		channel.connect(remote, null, new CompletionHandler<Void, Void>() {
+
+			@Override
+			public void completed(Void result, Void attachment) {
+				connection.start();
+			}
+
+			@Override
+			public void failed(Throwable cause, Void attachment) {
+				connection.finishRead();
+				connection.handler.onError(connection, cause);
+				connection.closeNow();
+			}
+		});
+		return connection;
+	}
+
+	private void start() {
+		try {
+			handler.onOpen(this);
+		} catch (Throwable t) {
+			finishRead();
+			handler.onError(this, t);
+			closeNow();
+			return;
+		}
+		opened = true;
+		doRead();
+		if (!incoming.isEmpty() && writing.compareAndSet(false, true)) { // onOpen 之前写入的数据
+			doWrite();
+		}
+	}
+
+	private void doRead() {
+		channel.read(in, null, readHandler);
+	}
+
+	private void onRead(int n) {
+		if (n < 0 || closed.get()) {
+			finishRead();
+			closeNow();
+			return;
+		}
+		try {
+			in.flip();
+			ByteBuffer frame;
+			while (!closed.get() && (frame = codec.decode(in)) != null) {
+				handler.onMessage(this, frame);
+			}
+			in.compact();
+			if (!in.hasRemaining()) { // 一帧装不下，扩容
+				growReadBuffer();
+			}
+		} catch (Throwable t) {
+			finishRead();
+			handler.onError(this, t);
+			closeNow();
+			return;
+		}
+		if (pendingBytes.get() > highWaterMark) {
+			readState.set(READ_PAUSED);
+			// 暂停后再检查一次，避免与写完成回调的恢复、关闭错过
+			if (closed.get()) {
+				if (readState.compareAndSet(READ_PAUSED, READ_DONE)) {
+					readBuffer.release();
+				}
+				return;
+			}
+			if (pendingBytes.get() > lowWaterMark || !readState.compareAndSet(READ_PAUSED, READING)) {
+				return;
+			}
+		}
+		doRead();
+	}
+
+	private void growReadBuffer() throws IOException {
+		int capacity = in.capacity();
+		if (capacity >= maxReadBufferSize) {
+			throw new IOException("Frame exceeds read buffer limit " + maxReadBufferSize);
+		}
+		PooledBuffer bigger = BufferPool.DEFAULT.allocate(Math.min(capacity * 2, maxReadBufferSize));
+		ByteBuffer next = bigger.buffer();
+		in.flip();
+		next.put(in);
+		readBuffer.release();
+		readBuffer = bigger;
+		in = next;
+	}
+
+	// 读回调链结束，归还读缓冲区；暂停读取期间被关闭时由 closeNow 归还，两处只有一处生效
+	private void finishRead() {
+		if (readState.getAndSet(READ_DONE) != READ_DONE) {
+			readBuffer.release();
+		}
+	}
+
+	/**
+	 * 写出一帧，可在任意线程调用，frame 的所有权转交给连接
+	 */
+	public void write(ByteBuffer frame) {
+		if (closed.get()) {
+			return;
+		}
+		ByteBuffer[] encoded = codec.encode(frame);
+		long size = 0;
+		for (ByteBuffer b : encoded) {
+			size += b.remaining();
+		}
+		pendingBytes.addAndGet(size);
+		incoming.offer(encoded);
+		if (opened && writing.compareAndSet(false, true)) {
+			doWrite();
+		}
+	}
+
+	// 调用方持有 writing
+	private void doWrite() {
+		for (;;) {
+			ByteBuffer[] encoded;
+			while ((encoded = incoming.poll()) != null) {
+				for (ByteBuffer b : encoded) {
+					outbound.add(b);
+				}
+			}
+			if (closed.get()) {
+				outbound.clear();
+				writing.set(false);
+				return;
+			}
+			if (!outbound.isEmpty()) {
+				int count = 0;
+				for (ByteBuffer b : outbound) {
+					gather[count++] = b;
+					if (count == MAX_GATHER) {
+						break;
+					}
+				}
+				try {
+					channel.write(gather, 0, count, 0L, TimeUnit.MILLISECONDS, null, writeHandler);
+				} catch (RuntimeException e) { // 如 ShutdownChannelGroupException
+					writeHandler.failed(e, null);
+				}
+				return;
+			}
+			writing.set(false);
+			// 释放 writing 后可能有新的写请求入队，而其发起者没有抢到 writing
+			if (incoming.isEmpty() || !writing.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+
+	private void onWritten(long written) {
+		for (int i = 0; i < MAX_GATHER && gather[i] != null; i++) {
+			gather[i] = null;
+		}
+		while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+			outbound.poll();
+		}
+		long pending = pendingBytes.addAndGet(-written);
+		if (pending <= lowWaterMark && readState.compareAndSet(READ_PAUSED, READING)) {
+			doRead();
+		}
+		doWrite();
+	}
+
+	/**
+	 * 待写字节未超过高水位，生产者可据此限速
+	 */
+	public boolean isWritable() {
+		return pendingBytes.get() <= highWaterMark;
+	}
+
+	public long getPendingBytes() {
+		return pendingBytes.get();
+	}
+
+	public SocketAddress getRemoteAddress() {
+		try {
+			return channel.getRemoteAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public Object attachment() {
+		return attachment;
+	}
+
+	public void attach(Object attachment) {
+		this.attachment = attachment;
+	}
+
+	public boolean isOpen() {
+		return !closed.get();
+	}
+
+	@Override
+	public void close() {
+		closeNow();
+	}
+
+	void closeNow() {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			channel.close(); // 在途的读写以 AsynchronousCloseException 失败
+		} catch (IOException ignored) {
+		}
+		if (readState.compareAndSet(READ_PAUSED, READ_DONE)) {
+			readBuffer.release();
+		}
+		incoming.clear();
+		handler.onClose(this);
+	}
+
+	@Override
+	public String toString() {
+		return "AioConnection[remote = " + getRemoteAddress() + ", pending = " + pendingBytes.get() + "]";
+	}
+
+	/**
+	 * 连接参数
+	 */
+	public static final class Options {
+
+		int readBufferSize = 16 * 1024;
+
+		int maxReadBufferSize = 1024 * 1024 + 64;
+
+		int lowWaterMark = 32 * 1024;
+
+		int highWaterMark = 64 * 1024;
+
+		public Options readBufferSize(int initial, int max) {
+			if (initial <= 0 || max < initial) {
+				throw new IllegalArgumentException();
+			}
+			this.readBufferSize = initial;
+			this.maxReadBufferSize = max;
+			return this;
+		}
+
+		public Options writeBufferWaterMark(int low, int high) {
+			if (low < 0 || high < low) {
+				throw new IllegalArgumentException();
+			}
+			this.lowWaterMark = low;
+			this.highWaterMark = high;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.aio;
+
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.MessageHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 {@link AsynchronousServerSocketChannel} 的 TCP 服务端
+ *
+ * <p>accept 完成后立即发起下一次 accept，新连接交给 {@link AioConnection} 的读写回调链，全部回调在通道组的线程中执行。
+ * 可以独占一个通道组，也可以与客户端共享 {@link AsynchronousIO#sharedGroup()}。
+ * <pre>
+ * AioServer server = new AioServer(new InetSocketAddress(8080), 4, new LengthFieldFrameCodec(), handler);
+ * server.start();
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AioServer implements Closeable {
+
+	private static final int BACKLOG = 4096;
+
+	private static final long ACCEPT_RETRY_MILLIS = 10;
+
+	private final InetSocketAddress address;
+
+	private final AsynchronousChannelGroup group;
+
+	private final boolean ownGroup;
+
+	private final FrameCodec codec;
+
+	private final MessageHandler<AioConnection> handler;
+
+	private final AioConnection.Options options;
+
+	private final Set<AioConnection> connections = ConcurrentHashMap.newKeySet();
+
+	private AsynchronousServerSocketChannel serverChannel;
+
+	private volatile boolean closed;
+
+	private final CompletionHandler<AsynchronousSocketChannel, Void> acceptHandler =
+		new CompletionHandler<AsynchronousSocketChannel, Void>() {
+
+			@Override
+			public void completed(AsynchronousSocketChannel channel, Void attachment) {
+				accept();
+				try {
+					AioConnection.open(channel, codec, handler, options);
+				} catch (IOException e) {
+					try {
+						channel.close();
+					} catch (IOException ignored) {
+					}
+					handler.onError(null, e);
+				}
+			}
+
+			@Override
+			public void failed(Throwable cause, Void attachment) {
+				if (closed || cause instanceof AsynchronousCloseException) {
+					return;
+				}
+				handler.onError(null, cause); // 如文件句柄耗尽，稍后重试，不能阻塞通道组线程
+				AsynchronousIO.scheduler().schedule(new Runnable() {
+
+					@Override
+					public void run() {
+						accept();
+					}
+				}, ACCEPT_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		};
+
+	public AioServer(InetSocketAddress address, int ioThreads, FrameCodec codec, MessageHandler<AioConnection> handler) throws IOException {
+		this(address, AsynchronousIO.newGroup(ioThreads, "aio-server-"), true, codec, handler, new AioConnection.Options());
+	}
+
+	/**
+	 * 使用外部通道组，关闭服务端时不关闭通道组
+	 */
+	public AioServer(InetSocketAddress address, AsynchronousChannelGroup group, FrameCodec codec, MessageHandler<AioConnection> handler,
+					 AioConnection.Options options) {
+		this(address, group, false, codec, handler, options);
+	}
+
+	private AioServer(InetSocketAddress address, AsynchronousChannelGroup group, boolean ownGroup, FrameCodec codec,
+					  MessageHandler<AioConnection> handler, AioConnection.Options options) {
+		this.address = address;
+		this.group = group;
+		this.ownGroup = ownGroup;
+		this.codec = codec;
+		this.handler = new TrackingHandler(handler);
+		this.options = options;
+	}
+
+	public void start() throws IOException {
+		serverChannel = AsynchronousServerSocketChannel.open(group);
+		serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		serverChannel.bind(address, BACKLOG);
+		accept();
+	}
+
+	private void accept() {
+		if (!closed) {
+			serverChannel.accept(null, acceptHandler);
+		}
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (serverChannel != null) {
+			serverChannel.close();
+		}
+		for (AioConnection connection : connections) {
+			connection.close();
+		}
+		if (ownGroup) {
+			group.shutdownNow();
+		}
+	}
+
+	private final class TrackingHandler implements MessageHandler<AioConnection> {
+
+		private final MessageHandler<AioConnection> delegate;
+
+		TrackingHandler(MessageHandler<AioConnection> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onOpen(AioConnection connection) {
+			connections.add(connection);
+			delegate.onOpen(connection);
+		}
+
+		@Override
+		public void onMessage(AioConnection connection, ByteBuffer frame) throws Exception {
+			delegate.onMessage(connection, frame);
+		}
+
+		@Override
+		public void onClose(AioConnection connection) {
+			connections.remove(connection);
+			delegate.onClose(connection);
+		}
+
+		@Override
+		public void onError(AioConnection connection, Throwable cause) {
+			delegate.onError(connection, cause);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.aio;
+
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.MessageHandler;
+import org.ylzl.eden.practice.thread.core.FastThreadLocalThread;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步非阻塞 IO
+ *
+ * <p>基于 {@link java.nio.channels.AsynchronousChannel} 的完成回调模型：{@link AioServer} 负责接入，
+ * {@link AioConnection} 负责读写回调链，{@link IoModelBenchmark} 在同一负载下对比 BIO、NIO 和 AIO。
+ * Linux 上的实现内部仍是 epoll 加线程池，回调在通道组的线程中执行。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AsynchronousIO {
+
+	/**
+	 * 创建固定线程数的通道组，线程为守护线程
+	 */
+	public static AsynchronousChannelGroup newGroup(int threads, String namePrefix) throws IOException {
+		if (threads <= 0) {
+			throw new IllegalArgumentException();
+		}
+		return AsynchronousChannelGroup.withFixedThreadPool(threads, daemonThreadFactory(namePrefix));
+	}
+
+	/**
+	 * 进程内共享的通道组，线程数等于 CPU 核数
+	 */
+	public static AsynchronousChannelGroup sharedGroup() {
+		return SharedGroupHolder.GROUP;
+	}
+
+	/**
+	 * 原样返回收到的每一帧
+	 */
+	public static MessageHandler<AioConnection> echoHandler() {
+		return new MessageHandler<AioConnection>() {
+
+			@Override
+			public void onMessage(AioConnection connection, ByteBuffer frame) {
+				ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+				copy.put(frame).flip();
+				connection.write(copy);
+			}
+		};
+	}
+
+	/**
+	 * 启动回显服务
+	 */
+	public static AioServer startEchoServer(int port, int ioThreads, FrameCodec codec) throws IOException {
+		AioServer server = new AioServer(new InetSocketAddress(port), ioThreads, codec, echoHandler());
+		server.start();
+		return server;
+	}
+
+	/**
+	 * 延迟任务，如 accept 失败后的重试，避免在通道组线程中休眠
+	 */
+	static ScheduledExecutorService scheduler() {
+		return SchedulerHolder.SCHEDULER;
+	}
+
+	private static ThreadFactory daemonThreadFactory(final String namePrefix) {
+		return new ThreadFactory() {
+
+			private final AtomicInteger index = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new FastThreadLocalThread(r, namePrefix + index.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	private static final class SchedulerHolder {
+
+		static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("aio-scheduler-"));
+	}
+
+	private static final class SharedGroupHolder {
+
+		static final AsynchronousChannelGroup GROUP;
+
+		static {
+			try {
+				GROUP = newGroup(Runtime.getRuntime().availableProcessors(), "aio-shared-");
+			} catch (IOException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.aio;
+
+import org.ylzl.eden.practice.io.bio.BioServer;
+import org.ylzl.eden.practice.io.bio.BlockingIO;
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.LengthFieldFrameCodec;
+import org.ylzl.eden.practice.io.nio.LoadGenerator;
+import org.ylzl.eden.practice.io.nio.NioServer;
+import org.ylzl.eden.practice.io.nio.NonblockingIO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在同一回显负载下对比 BIO、NIO 和 AIO 服务端
+ *
+ * <p>三种服务端使用相同的 {@link LengthFieldFrameCodec}，压测端都是同一个 {@link LoadGenerator}，
+ * 每种模型先预热再计时，报告吞吐、延迟分位和服务期间的峰值线程数。
+ * <pre>
+ * java ... IoModelBenchmark [connections] [serverThreads] [clientThreads] [payloadSize] [pipeline] [seconds] [warmupSeconds]
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class IoModelBenchmark {
+
+	public enum Model {
+		BIO, NIO, AIO
+	}
+
+	private final int connections;
+
+	private final int serverThreads;
+
+	private final int clientThreads;
+
+	private final int payloadSize;
+
+	private final int pipeline;
+
+	private final FrameCodec codec = new LengthFieldFrameCodec();
+
+	public IoModelBenchmark(int connections, int serverThreads, int clientThreads, int payloadSize, int pipeline) {
+		this.connections = connections;
+		this.serverThreads = serverThreads;
+		this.clientThreads = clientThreads;
+		this.payloadSize = payloadSize;
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * 启动指定模型的回显服务并压测，warmup 为 0 时不预热
+	 */
+	public Result run(Model model, long warmup, long duration, TimeUnit unit) throws IOException, InterruptedException {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int baseThreads = threads.getThreadCount();
+		Closeable server = null;
+		try {
+			int port;
+			switch (model) {
+				case BIO:
+					BioServer bio = BlockingIO.startEchoServer(0, codec);
+					server = bio;
+					port = bio.getPort();
+					break;
+				case NIO:
+					NioServer nio = NonblockingIO.startEchoServer(0, serverThreads, codec);
+					server = nio;
+					port = nio.getPort();
+					break;
+				default:
+					AioServer aio = AsynchronousIO.startEchoServer(0, serverThreads, codec);
+					server = aio;
+					port = aio.getPort();
+			}
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+			if (warmup > 0) {
+				new LoadGenerator(address, connections, clientThreads, payloadSize, pipeline, codec).run(warmup, unit);
+			}
+			threads.resetPeakThreadCount();
+			LoadGenerator.Result load = new LoadGenerator(address, connections, clientThreads, payloadSize, pipeline, codec)
+				.run(duration, unit);
+			return new Result(model, load, threads.getPeakThreadCount() - baseThreads);
+		} finally {
+			if (server != null) {
+				server.close();
+			}
+			awaitThreadsExit(threads, baseThreads); // 下一轮的基线不能包含本轮尚未退出的线程
+		}
+	}
+
+	private static void awaitThreadsExit(ThreadMXBean threads, int baseThreads) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (threads.getThreadCount() > baseThreads && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+	}
+
+	public static final class Result {
+
+		private final Model model;
+
+		private final LoadGenerator.Result load;
+
+		private final int peakThreads;
+
+		Result(Model model, LoadGenerator.Result load, int peakThreads) {
+			this.model = model;
+			this.load = load;
+			this.peakThreads = peakThreads;
+		}
+
+		public Model getModel() {
+			return model;
+		}
+
+		public LoadGenerator.Result getLoad() {
+			return load;
+		}
+
+		/**
+		 * 压测期间相对启动前新增的峰值线程数，包含压测端自身的线程
+		 */
+		public int getPeakThreads() {
+			return peakThreads;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-4s %10.0f msg/s  p50 = %6d us  p99 = %6d us  p999 = %6d us  threads = %d",
+				model, load.getMessagesPerSecond(),
+				TimeUnit.NANOSECONDS.toMicros(load.getLatency().getValueAtPercentile(50)),
+				TimeUnit.NANOSECONDS.toMicros(load.getLatency().getValueAtPercentile(99)),
+				TimeUnit.NANOSECONDS.toMicros(load.getLatency().getValueAtPercentile(99.9)),
+				peakThreads);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int serverThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int clientThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int payloadSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+		int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+		int warmupSeconds = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+		IoModelBenchmark benchmark = new IoModelBenchmark(connections, serverThreads, clientThreads, payloadSize, pipeline);
+		System.out.printf("connections = %d, serverThreads = %d, clientThreads = %d, payload = %d B, pipeline = %d%n",
+			connections, serverThreads, clientThreads, payloadSize, pipeline);
+		for (Model model : Model.values()) {
+			System.out.println(benchmark.run(model, warmupSeconds, seconds, TimeUnit.SECONDS));
+		}
+	}
+}
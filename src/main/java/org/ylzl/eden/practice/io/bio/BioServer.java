@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每连接一个线程的阻塞 TCP 服务端
+ *
+ * <p>与 {@link org.ylzl.eden.practice.io.nio.NioServer} 使用同一套 {@link FrameCodec}，便于在同一负载下比较 IO 模型。
+ * 响应先写入缓冲输出流，socket 中暂无更多请求时才 flush，流水线请求的响应可以合并为一次系统调用。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class BioServer implements Closeable {
+
+	private static final int BACKLOG = 4096;
+
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+	private static final int MAX_READ_BUFFER_SIZE = 1024 * 1024 + 64;
+
+	private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+	private final InetSocketAddress address;
+
+	private final FrameCodec codec;
+
+	private final RequestHandler handler;
+
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger threadIndex = new AtomicInteger();
+
+	private ServerSocket serverSocket;
+
+	private volatile boolean closed;
+
+	public BioServer(InetSocketAddress address, FrameCodec codec, RequestHandler handler) {
+		this.address = address;
+		this.codec = codec;
+		this.handler = handler;
+	}
+
+	public void start() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(address, BACKLOG);
+		Thread acceptor = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "bio-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				final Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				Thread worker = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				}, "bio-server-" + threadIndex.getAndIncrement());
+				worker.setDaemon(true);
+				worker.start();
+			} catch (IOException e) {
+				if (closed) {
+					return;
+				}
+				handler.onError(null, e); // 如文件句柄耗尽，稍后重试
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException ie) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try {
+			InputStream is = socket.getInputStream();
+			OutputStream os = new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE);
+			ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			int n;
+			while ((n = is.read(in.array(), in.position(), in.remaining())) >= 0) {
+				in.position(in.position() + n);
+				in.flip();
+				ByteBuffer frame;
+				while ((frame = codec.decode(in)) != null) {
+					ByteBuffer response = handler.handle(frame);
+					if (response != null) {
+						for (ByteBuffer b : codec.encode(response)) {
+							write(os, b);
+						}
+					}
+				}
+				in.compact();
+				if (!in.hasRemaining()) { // 一帧装不下，扩容
+					if (in.capacity() >= MAX_READ_BUFFER_SIZE) {
+						throw new IOException("Frame exceeds read buffer limit " + MAX_READ_BUFFER_SIZE);
+					}
+					in.flip();
+					in = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_READ_BUFFER_SIZE)).put(in);
+				}
+				if (is.available() == 0) {
+					os.flush();
+				}
+			}
+		} catch (Exception e) {
+			if (!closed && !socket.isClosed()) {
+				handler.onError(socket, e);
+			}
+		} finally {
+			sockets.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static void write(OutputStream os, ByteBuffer b) throws IOException {
+		if (b.hasArray()) {
+			os.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+			b.position(b.limit());
+			return;
+		}
+		byte[] chunk = new byte[Math.min(b.remaining(), WRITE_BUFFER_SIZE)];
+		while (b.hasRemaining()) {
+			int len = Math.min(chunk.length, b.remaining());
+			b.get(chunk, 0, len);
+			os.write(chunk, 0, len);
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getConnectionCount() {
+		return sockets.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (serverSocket != null) {
+			serverSocket.close();
+		}
+		for (Socket socket : sockets) {
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * 请求处理，在连接线程中执行，可以阻塞
+	 */
+	public interface RequestHandler {
+
+		/**
+		 * @param request 只在回调内有效，可以直接作为响应返回
+		 * @return 响应，null 表示不回复
+		 */
+		ByteBuffer handle(ByteBuffer request) throws Exception;
+
+		/**
+		 * 处理或 IO 出错，之后连接会被关闭；socket 为 null 表示与具体连接无关，如 accept 失败
+		 */
+		default void onError(Socket socket, Throwable cause) {
+		}
+	}
+}
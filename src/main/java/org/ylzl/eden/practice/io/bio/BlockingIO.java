@@ -18,24 +18,212 @@
 package org.ylzl.eden.practice.io.bio;
 
 import lombok.NonNull;
+import org.ylzl.eden.practice.io.nio.BufferPool;
+import org.ylzl.eden.practice.io.nio.FrameCodec;
+import org.ylzl.eden.practice.io.nio.PooledBuffer;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 阻塞 IO
  *
+ * <p>只有两端都是真实通道时才走零拷贝：源是普通文件、目标是文件或 socket/pipe 通道时用 {@link FileChannel#transferTo}
+ * （Linux 上为 sendfile）。其他情况下 JDK 只能经 8 KB 的临时缓冲区中转，反而比直接复制慢，
+ * 所以通道之间用池化的 64 KB 直接缓冲区，普通流之间用池化的 64 KB 数组。直接缓冲区来自 {@link BufferPool#DEFAULT}。
+ *
  * @author gyl
  * @since 2.0.0
  */
 public class BlockingIO {
 
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+
+	private static final HeapBufferPool heapBuffers = new HeapBufferPool();
+
+	/**
+	 * 启动回显服务，每个连接一个线程
+	 */
+	public static BioServer startEchoServer(int port, @NonNull FrameCodec codec) throws IOException {
+		BioServer server = new BioServer(new InetSocketAddress(port), codec, new BioServer.RequestHandler() {
+
+			@Override
+			public ByteBuffer handle(ByteBuffer request) {
+				return request; // 同步写出，不需要拷贝
+			}
+		});
+		server.start();
+		return server;
+	}
+
 	public static void write(@NonNull InputStream is, @NonNull OutputStream os) throws IOException {
-		byte[] buffer = new byte[1024];
-		int len;
-		while ((len = is.read(buffer)) > 0) {
-			os.write(buffer, 0, len);
+		transfer(is, os);
+	}
+
+	/**
+	 * 从流读到末尾并写入目标流，两端都是文件流时取其通道走零拷贝
+	 */
+	public static TransferStats transfer(@NonNull InputStream is, @NonNull OutputStream os) throws IOException {
+		if (is instanceof FileInputStream && os instanceof FileOutputStream) {
+			return transfer(((FileInputStream) is).getChannel(), ((FileOutputStream) os).getChannel());
+		}
+		long start = System.nanoTime();
+		long total = 0;
+		byte[] buffer = heapBuffers.acquire();
+		try {
+			int len;
+			while ((len = is.read(buffer)) >= 0) {
+				os.write(buffer, 0, len);
+				total += len;
+			}
+		} finally {
+			heapBuffers.release(buffer);
+		}
+		return new TransferStats(TransferMode.HEAP_BUFFER, total, System.nanoTime() - start);
+	}
+
+	/**
+	 * 从通道读到末尾并写入目标通道
+	 */
+	public static TransferStats transfer(@NonNull ReadableByteChannel src, @NonNull WritableByteChannel dst) throws IOException {
+		long start = System.nanoTime();
+		if (isRegularFile(src) && (dst instanceof FileChannel || dst instanceof SelectableChannel)) {
+			long total = transferTo((FileChannel) src, dst);
+			total += copy(src, dst); // 文件在传输中增长或 transferTo 返回 0 时，剩余部分按缓冲区读到末尾
+			return new TransferStats(TransferMode.TRANSFER_TO, total, System.nanoTime() - start);
+		}
+		long total = copy(src, dst);
+		return new TransferStats(TransferMode.DIRECT_BUFFER, total, System.nanoTime() - start);
+	}
+
+	// /proc 文件、FIFO、字符设备的 size() 为 0，不能按长度做零拷贝
+	private static boolean isRegularFile(ReadableByteChannel channel) throws IOException {
+		return channel instanceof FileChannel && ((FileChannel) channel).size() > 0;
+	}
+
+	private static long copy(ReadableByteChannel src, WritableByteChannel dst) throws IOException {
+		long total = 0;
+		PooledBuffer pooled = BufferPool.DEFAULT.allocate(BUFFER_SIZE);
+		ByteBuffer buffer = pooled.buffer();
+		try {
+			while (src.read(buffer) >= 0 || buffer.position() > 0) {
+				buffer.flip();
+				total += dst.write(buffer);
+				buffer.compact(); // 非阻塞通道可能只写出一部分，剩余的留到下一轮
+			}
+		} finally {
+			pooled.release();
+		}
+		return total;
+	}
+
+	// transferTo 不移动源通道的位置，结束后手动推进，与按流读取的语义保持一致；返回 0 时停止，由调用方改用缓冲区复制
+	private static long transferTo(FileChannel src, WritableByteChannel dst) throws IOException {
+		long position = src.position();
+		long size = src.size();
+		long total = 0;
+		while (position < size) {
+			long n = src.transferTo(position, size - position, dst);
+			if (n <= 0) {
+				break;
+			}
+			position += n;
+			total += n;
+		}
+		src.position(position);
+		return total;
+	}
+
+	/**
+	 * 传输方式
+	 */
+	public enum TransferMode {
+
+		TRANSFER_TO,
+
+		DIRECT_BUFFER,
+
+		HEAP_BUFFER
+	}
+
+	/**
+	 * 一次传输的统计
+	 */
+	public static final class TransferStats {
+
+		private final TransferMode mode;
+
+		private final long bytes;
+
+		private final long nanos;
+
+		TransferStats(TransferMode mode, long bytes, long nanos) {
+			this.mode = mode;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+
+		public TransferMode getMode() {
+			return mode;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public double getBytesPerSecond() {
+			return nanos == 0 ? 0 : bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return "TransferStats[mode = " + mode + ", bytes = " + bytes + ", "
+				+ String.format("%.1f", getBytesPerSecond() / (1024 * 1024)) + " MB/s]";
+		}
+	}
+
+	/**
+	 * 固定大小数组的简单池，最多缓存 MAX_POOLED 个，池空时新分配
+	 */
+	private static final class HeapBufferPool {
+
+		private final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<byte[]>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		byte[] acquire() {
+			byte[] buffer = pool.poll();
+			if (buffer == null) {
+				return new byte[BUFFER_SIZE];
+			}
+			size.decrementAndGet();
+			return buffer;
+		}
+
+		void release(byte[] buffer) {
+			if (size.incrementAndGet() <= MAX_POOLED) {
+				pool.offer(buffer);
+			} else {
+				size.decrementAndGet();
+			}
 		}
 	}
 }
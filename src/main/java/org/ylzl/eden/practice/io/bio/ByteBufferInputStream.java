@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 以 {@link ByteBuffer} 为数据源的输入流
+ *
+ * <p>多个缓冲区按顺序拼接读取，每个缓冲区使用独立的视图，不修改调用方缓冲区的 position。
+ * {@link #map} 把文件区间映射为内存，单次映射不能超过 2 GB，更大的区间自动拆成多段。
+ * 写出到文件时直接交给通道，直接缓冲区和内存映射不经过堆数组中转。同一个流只应由一个线程使用。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+	private final ByteBuffer[] buffers;
+
+	private int index; // 当前读取的缓冲区
+
+	private int markIndex = -1;
+
+	private byte[] transferBuffer; // 非堆缓冲区写到普通流时的中转数组
+
+	public ByteBufferInputStream(ByteBuffer... buffers) {
+		this.buffers = new ByteBuffer[buffers.length];
+		for (int i = 0; i < buffers.length; i++) {
+			this.buffers[i] = buffers[i].duplicate();
+		}
+		skipEmpty();
+	}
+
+	/**
+	 * 只读映射文件的 [position, position + size) 区间
+	 */
+	public static ByteBufferInputStream map(FileChannel channel, long position, long size) throws IOException {
+		if (position < 0 || size < 0) {
+			throw new IllegalArgumentException();
+		}
+		int segments = (int) ((size + MAX_MAPPING_SIZE - 1) / MAX_MAPPING_SIZE);
+		ByteBuffer[] buffers = new ByteBuffer[segments];
+		for (int i = 0; i < segments; i++) {
+			long offset = i * MAX_MAPPING_SIZE;
+			buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, Math.min(MAX_MAPPING_SIZE, size - offset));
+		}
+		return new ByteBufferInputStream(buffers);
+	}
+
+	// 跳过已读完的缓冲区，读完后 index 等于 buffers.length
+	private void skipEmpty() {
+		while (index < buffers.length && !buffers[index].hasRemaining()) {
+			index++;
+		}
+	}
+
+	@Override
+	public int read() {
+		if (index >= buffers.length) {
+			return -1;
+		}
+		ByteBuffer buffer = buffers[index];
+		int b = buffer.get() & 0xff;
+		if (!buffer.hasRemaining()) {
+			skipEmpty();
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte b[], int off, int len) {
+		if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+			throw new IndexOutOfBoundsException();
+		} else if (len == 0) {
+			return 0;
+		}
+		if (index >= buffers.length) {
+			return -1;
+		}
+		int n = 0;
+		while (n < len && index < buffers.length) {
+			ByteBuffer buffer = buffers[index];
+			int cnt = Math.min(len - n, buffer.remaining());
+			buffer.get(b, off + n, cnt);
+			n += cnt;
+			skipEmpty();
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		long skipped = 0;
+		while (skipped < n && index < buffers.length) {
+			ByteBuffer buffer = buffers[index];
+			int cnt = (int) Math.min(n - skipped, buffer.remaining());
+			buffer.position(buffer.position() + cnt);
+			skipped += cnt;
+			skipEmpty();
+		}
+		return skipped;
+	}
+
+	@Override
+	public long transferTo(OutputStream out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException();
+		}
+		FileChannel channel = out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : null;
+		long transferred = 0;
+		for (; index < buffers.length; index++) {
+			ByteBuffer buffer = buffers[index];
+			transferred += buffer.remaining();
+			if (channel != null) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} else if (buffer.hasArray()) {
+				out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				buffer.position(buffer.limit());
+			} else {
+				if (transferBuffer == null) {
+					transferBuffer = new byte[DEFAULT_TRANSFER_BUFFER_SIZE];
+				}
+				while (buffer.hasRemaining()) {
+					int cnt = Math.min(transferBuffer.length, buffer.remaining());
+					buffer.get(transferBuffer, 0, cnt);
+					out.write(transferBuffer, 0, cnt);
+				}
+			}
+		}
+		return transferred;
+	}
+
+	/**
+	 * 剩余字节数，超过 int 范围时返回 Integer.MAX_VALUE
+	 */
+	@Override
+	public int available() {
+		long n = remaining();
+		return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+	}
+
+	public long remaining() {
+		long n = 0;
+		for (int i = index; i < buffers.length; i++) {
+			n += buffers[i].remaining();
+		}
+		return n;
+	}
+
+	/**
+	 * 标记当前位置，readlimit 不受限制
+	 */
+	@Override
+	public void mark(int readlimit) {
+		markIndex = index;
+		for (int i = index; i < buffers.length; i++) {
+			buffers[i].mark();
+		}
+	}
+
+	@Override
+	public void reset() throws IOException {
+		if (markIndex < 0) {
+			throw new IOException("Resetting to invalid mark");
+		}
+		for (int i = markIndex; i <= Math.min(index, buffers.length - 1); i++) {
+			buffers[i].reset();
+		}
+		index = markIndex;
+		skipEmpty();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+}
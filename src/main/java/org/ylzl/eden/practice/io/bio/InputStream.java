@@ -18,10 +18,15 @@
 package org.ylzl.eden.practice.io.bio;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
- * TODO
+ * 字节输入流
+ *
+ * <p>默认的批量读取退化为逐字节调用 {@link #read()}，子类应覆盖 {@link #read(byte[], int, int)}
+ * 提供块读取，{@link #readFully}、{@link #skip} 和 {@link #transferTo} 都建立在块读取之上。
  *
  * @author gyl
  * @since 2.0.0
@@ -30,6 +35,8 @@ public abstract class InputStream implements Closeable {
 
 	private static final int MAX_SKIP_BUFFER_SIZE = 2048;
 
+	static final int DEFAULT_TRANSFER_BUFFER_SIZE = 8192;
+
 	public abstract int read() throws IOException;
 
 	public int read(byte b[]) throws IOException {
@@ -64,4 +71,77 @@ public abstract class InputStream implements Closeable {
 		}
 		return i;
 	}
+
+	/**
+	 * 读满 len 个字节
+	 *
+	 * @throws EOFException 读满之前到达流末尾
+	 */
+	public void readFully(byte b[], int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			int n = read(b, off, len);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			off += n;
+			len -= n;
+		}
+	}
+
+	public long skip(long n) throws IOException {
+		long remaining = n;
+		int nr;
+		if (n <= 0) {
+			return 0;
+		}
+		int size = (int) Math.min(MAX_SKIP_BUFFER_SIZE, remaining);
+		byte[] skipBuffer = new byte[size];
+		while (remaining > 0) {
+			nr = read(skipBuffer, 0, (int) Math.min(size, remaining));
+			if (nr < 0) {
+				break;
+			}
+			remaining -= nr;
+		}
+		return n - remaining;
+	}
+
+	/**
+	 * 读到末尾并写入 out，返回写入的字节数
+	 */
+	public long transferTo(OutputStream out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException();
+		}
+		long transferred = 0;
+		byte[] buffer = new byte[DEFAULT_TRANSFER_BUFFER_SIZE];
+		int read;
+		while ((read = read(buffer, 0, DEFAULT_TRANSFER_BUFFER_SIZE)) >= 0) {
+			out.write(buffer, 0, read);
+			transferred += read;
+		}
+		return transferred;
+	}
+
+	public int available() throws IOException {
+		return 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	public void mark(int readlimit) {
+	}
+
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
 }
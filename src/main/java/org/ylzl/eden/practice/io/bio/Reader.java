@@ -18,17 +18,28 @@
 package org.ylzl.eden.practice.io.bio;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
 /**
- * TODO
+ * 字符输入流
+ *
+ * <p>子类只需实现 {@link #read(char[], int, int)} 和 {@link #close()}，其余方法都建立在块读取之上。
  *
  * @author gyl
  * @since 2.0.0
  */
 public abstract class Reader implements Readable, Closeable {
 
+	private static final int MAX_SKIP_BUFFER_SIZE = 8192;
+
+	static final int DEFAULT_TRANSFER_BUFFER_SIZE = 8192;
+
 	protected Object lock;
 
+	private char[] skipBuffer;
+
 	protected Reader() {
 		this.lock = this;
 	}
@@ -40,5 +51,100 @@ public abstract class Reader implements Readable, Closeable {
 		this.lock = lock;
 	}
 
+	@Override
+	public int read(CharBuffer target) throws IOException {
+		int len = target.remaining();
+		if (target.hasArray()) {
+			int n = read(target.array(), target.arrayOffset() + target.position(), len);
+			if (n > 0) {
+				target.position(target.position() + n);
+			}
+			return n;
+		}
+		char[] cbuf = new char[len];
+		int n = read(cbuf, 0, len);
+		if (n > 0) {
+			target.put(cbuf, 0, n);
+		}
+		return n;
+	}
+
+	public int read() throws IOException {
+		char[] cb = new char[1];
+		if (read(cb, 0, 1) == -1) {
+			return -1;
+		}
+		return cb[0];
+	}
+
+	public int read(char[] cbuf) throws IOException {
+		return read(cbuf, 0, cbuf.length);
+	}
+
+	/**
+	 * 读取最多 len 个字符，阻塞到至少有一个字符可读或到达流末尾
+	 *
+	 * @return 读取的字符数，流末尾返回 -1
+	 */
+	public abstract int read(char[] cbuf, int off, int len) throws IOException;
+
+	public long skip(long n) throws IOException {
+		if (n < 0L) {
+			throw new IllegalArgumentException("skip value is negative");
+		}
+		int nn = (int) Math.min(n, MAX_SKIP_BUFFER_SIZE);
+		synchronized (lock) {
+			if (skipBuffer == null || skipBuffer.length < nn) {
+				skipBuffer = new char[nn];
+			}
+			long r = n;
+			while (r > 0) {
+				int nc = read(skipBuffer, 0, (int) Math.min(r, nn));
+				if (nc == -1) {
+					break;
+				}
+				r -= nc;
+			}
+			return n - r;
+		}
+	}
+
+	/**
+	 * 下一次读取是否保证不阻塞
+	 */
+	public boolean ready() throws IOException {
+		return false;
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
+
+	public void mark(int readAheadLimit) throws IOException {
+		throw new IOException("mark() not supported");
+	}
+
+	public void reset() throws IOException {
+		throw new IOException("reset() not supported");
+	}
+
+	/**
+	 * 把剩余字符全部写出，返回字符数
+	 */
+	public long transferTo(Writer out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException();
+		}
+		long transferred = 0;
+		char[] buffer = new char[DEFAULT_TRANSFER_BUFFER_SIZE];
+		int nRead;
+		while ((nRead = read(buffer, 0, DEFAULT_TRANSFER_BUFFER_SIZE)) >= 0) {
+			out.write(buffer, 0, nRead);
+			transferred += nRead;
+		}
+		return transferred;
+	}
 
+	@Override
+	public abstract void close() throws IOException;
 }
@@ -0,0 +1,509 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * UTF-8 字符输入流
+ *
+ * <p>字节批量解码到复用的 char[]，不经过 {@link java.nio.charset.CharsetDecoder}。ASCII 部分每次读取 8 个字节检查最高位，
+ * 全为 0 时把这 8 个字节移位展开成 8 个 char 整体写入，遇到多字节序列才进入逐字符解码。非法序列按 JDK 的规则替换为 U+FFFD。
+ * {@link #readLine()} 返回指向内部缓冲区的 {@link CharSequence} 视图，不为每行创建 String。
+ * 与 {@link BufferedInputStream} 一样不做同步，只能由一个线程使用。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class Utf8Reader extends Reader {
+
+	private static final int DEFAULT_BYTE_BUFFER_SIZE = 8192;
+
+	private static final int DEFAULT_CHAR_BUFFER_SIZE = 8192;
+
+	private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private static final Unsafe UNSAFE; // 不可用或非小端平台时为 null，退回 ByteBuffer 读取
+
+	private static final long BYTE_BASE;
+
+	private static final long CHAR_BASE;
+
+	private Source source;
+
+	private final byte[] bytes;
+
+	private final ByteBuffer words; // bytes 的小端视图，UNSAFE 不可用时按 long 读取
+
+	private int bytePos;
+
+	private int byteLimit;
+
+	private boolean eof;
+
+	private char[] chars;
+
+	private int charPos;
+
+	private int charLimit;
+
+	private boolean skipLF; // 上一行以 '\r' 结束，跳过紧随的 '\n'
+
+	private final LineView line = new LineView();
+
+	public Utf8Reader(InputStream in) {
+		this(in, DEFAULT_BYTE_BUFFER_SIZE);
+	}
+
+	public Utf8Reader(final InputStream in, int size) {
+		this(new Source() {
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return in.read(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		}, size);
+	}
+
+	public Utf8Reader(java.io.InputStream in) {
+		this(in, DEFAULT_BYTE_BUFFER_SIZE);
+	}
+
+	public Utf8Reader(final java.io.InputStream in, int size) {
+		this(new Source() {
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return in.read(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				in.close();
+			}
+		}, size);
+	}
+
+	private Utf8Reader(Source source, int size) {
+		if (size < 8) {
+			throw new IllegalArgumentException("Buffer size < 8");
+		}
+		this.source = source;
+		this.bytes = new byte[size];
+		this.words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		this.chars = new char[Math.max(size, DEFAULT_CHAR_BUFFER_SIZE)];
+	}
+
+	private void ensureOpen() throws IOException {
+		if (source == null) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	/**
+	 * 解码更多字符追加到 chars 末尾，调用方保证至少有 2 个空位；返回 false 表示已到流末尾
+	 */
+	private boolean fill() throws IOException {
+		for (;;) {
+			if (bytePos < byteLimit) {
+				int before = charLimit;
+				decode();
+				if (charLimit > before) {
+					return true;
+				}
+			}
+			if (eof) {
+				return false;
+			}
+			if (bytePos > 0) { // 保留未凑齐的多字节序列
+				System.arraycopy(bytes, bytePos, bytes, 0, byteLimit - bytePos);
+				byteLimit -= bytePos;
+				bytePos = 0;
+			}
+			int n = source.read(bytes, byteLimit, bytes.length - byteLimit);
+			if (n < 0) {
+				eof = true;
+			} else {
+				byteLimit += n;
+			}
+		}
+	}
+
+	// 低 32 位的 4 个 ASCII 字节展开到 4 个 16 位槽位，小端下依次对应 4 个 char
+	private static long widen(long word) {
+		word = (word | (word << 16)) & 0x0000FFFF0000FFFFL;
+		return (word | (word << 8)) & 0x00FF00FF00FF00FFL;
+	}
+
+	private void decode() {
+		byte[] src = bytes;
+		char[] dst = chars;
+		int sp = bytePos;
+		int sl = byteLimit;
+		int dp = charLimit;
+		int dl = dst.length;
+		while (dp < dl && sp < sl) {
+			// ASCII 快速路径：每次读 8 个字节检查最高位，全为 ASCII 时展开成两个 long 直接写入 char[]
+			int n = Math.min(sl - sp, dl - dp);
+			int run = 0;
+			if (UNSAFE != null) {
+				while (run + 8 <= n) {
+					long word = UNSAFE.getLong(src, BYTE_BASE + sp + run);
+					if ((word & NON_ASCII_MASK) != 0) {
+						break;
+					}
+					long offset = CHAR_BASE + ((long) (dp + run) << 1);
+					UNSAFE.putLong(dst, offset, widen(word & 0xFFFFFFFFL));
+					UNSAFE.putLong(dst, offset + 8, widen(word >>> 32));
+					run += 8;
+				}
+				while (run < n && src[sp + run] >= 0) {
+					dst[dp + run] = (char) src[sp + run];
+					run++;
+				}
+			} else {
+				while (run + 8 <= n && (words.getLong(sp + run) & NON_ASCII_MASK) == 0) {
+					run += 8;
+				}
+				while (run < n && src[sp + run] >= 0) {
+					run++;
+				}
+				for (int i = 0; i < run; i++) {
+					dst[dp + i] = (char) src[sp + i];
+				}
+			}
+			sp += run;
+			dp += run;
+			if (run == n) {
+				continue;
+			}
+			int b0 = src[sp] & 0xFF;
+			int avail = sl - sp;
+			if (b0 >= 0xC2 && b0 <= 0xDF) {
+				if (avail < 2) {
+					if (!eof) {
+						break;
+					}
+					dst[dp++] = REPLACEMENT;
+					sp++;
+				} else if (isContinuation(src[sp + 1])) {
+					dst[dp++] = (char) (((b0 & 0x1F) << 6) | (src[sp + 1] & 0x3F));
+					sp += 2;
+				} else {
+					dst[dp++] = REPLACEMENT;
+					sp++;
+				}
+			} else if (b0 >= 0xE0 && b0 <= 0xEF) {
+				if (avail >= 2) {
+					int b1 = src[sp + 1];
+					if (!isContinuation(b1) || (b0 == 0xE0 && (b1 & 0xFF) < 0xA0)) {
+						dst[dp++] = REPLACEMENT; // 过长编码
+						sp++;
+						continue;
+					}
+				}
+				if (avail < 3) {
+					if (!eof) {
+						break;
+					}
+					dst[dp++] = REPLACEMENT; // 流末尾不完整的序列
+					sp += avail;
+				} else if (isContinuation(src[sp + 2])) {
+					char c = (char) (((b0 & 0x0F) << 12) | ((src[sp + 1] & 0x3F) << 6) | (src[sp + 2] & 0x3F));
+					dst[dp++] = Character.isSurrogate(c) ? REPLACEMENT : c; // 编码了代理区的 3 字节整体替换
+					sp += 3;
+				} else {
+					dst[dp++] = REPLACEMENT;
+					sp += 2;
+				}
+			} else if (b0 >= 0xF0 && b0 <= 0xF4) {
+				if (dl - dp < 2) { // 代理对需要两个字符
+					break;
+				}
+				if (avail >= 2) {
+					int b1 = src[sp + 1];
+					if (!isContinuation(b1) || (b0 == 0xF0 && (b1 & 0xFF) < 0x90) || (b0 == 0xF4 && (b1 & 0xFF) >= 0x90)) {
+						dst[dp++] = REPLACEMENT;
+						sp++;
+						continue;
+					}
+				}
+				if (avail >= 3 && !isContinuation(src[sp + 2])) {
+					dst[dp++] = REPLACEMENT;
+					sp += 2;
+					continue;
+				}
+				if (avail < 4) {
+					if (!eof) {
+						break;
+					}
+					dst[dp++] = REPLACEMENT;
+					sp += avail;
+				} else if (isContinuation(src[sp + 3])) {
+					int cp = ((b0 & 0x07) << 18) | ((src[sp + 1] & 0x3F) << 12) | ((src[sp + 2] & 0x3F) << 6) | (src[sp + 3] & 0x3F);
+					dst[dp++] = Character.highSurrogate(cp);
+					dst[dp++] = Character.lowSurrogate(cp);
+					sp += 4;
+				} else {
+					dst[dp++] = REPLACEMENT;
+					sp += 3;
+				}
+			} else { // 孤立的后续字节、C0/C1 过长前缀或超出 U+10FFFF
+				dst[dp++] = REPLACEMENT;
+				sp++;
+			}
+		}
+		bytePos = sp;
+		charLimit = dp;
+	}
+
+	private static boolean isContinuation(int b) {
+		return (b & 0xC0) == 0x80;
+	}
+
+	// 读取前确保 chars 中有字符，并跳过上一行 '\r' 之后的 '\n'；返回 false 表示流末尾
+	private boolean ensureChars() throws IOException {
+		for (;;) {
+			if (charPos == charLimit) {
+				charPos = 0;
+				charLimit = 0;
+				if (!fill()) {
+					return false;
+				}
+			}
+			if (skipLF) {
+				skipLF = false;
+				if (chars[charPos] == '\n') {
+					charPos++;
+					continue;
+				}
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		ensureOpen();
+		if (!ensureChars()) {
+			return -1;
+		}
+		return chars[charPos++];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || len > cbuf.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureChars()) {
+			return -1;
+		}
+		int n = Math.min(len, charLimit - charPos);
+		System.arraycopy(chars, charPos, cbuf, off, n);
+		charPos += n;
+		return n;
+	}
+
+	@Override
+	public int read(CharBuffer target) throws IOException {
+		ensureOpen();
+		if (!target.hasArray()) {
+			if (!ensureChars()) {
+				return -1;
+			}
+			int n = Math.min(target.remaining(), charLimit - charPos);
+			target.put(chars, charPos, n);
+			charPos += n;
+			return n;
+		}
+		return super.read(target);
+	}
+
+	/**
+	 * 读取一行，行以 '\n'、'\r' 或 "\r\n" 结束，返回的内容不含行尾
+	 *
+	 * <p>返回的视图指向内部缓冲区，下一次读取后失效，需要保留时调用 toString()。
+	 * 超过缓冲区的长行会使缓冲区扩容。
+	 *
+	 * @return 流末尾返回 null
+	 */
+	public CharSequence readLine() throws IOException {
+		ensureOpen();
+		int start = charPos;
+		int scan = charPos;
+		for (;;) {
+			if (scan == charLimit) {
+				if (start > 0) { // 把未完成的行移到开头，腾出空间
+					System.arraycopy(chars, start, chars, 0, charLimit - start);
+					charLimit -= start;
+					scan -= start;
+					start = 0;
+				}
+				if (chars.length - charLimit < 2) {
+					chars = Arrays.copyOf(chars, chars.length << 1);
+				}
+				charPos = start;
+				if (!fill()) {
+					charPos = charLimit;
+					if (scan == start) {
+						return null;
+					}
+					line.set(start, scan);
+					return line;
+				}
+			}
+			if (skipLF) {
+				skipLF = false;
+				if (chars[scan] == '\n') {
+					start++;
+					scan++;
+					continue;
+				}
+			}
+			char[] cs = chars;
+			int limit = charLimit;
+			for (; scan < limit; scan++) {
+				char c = cs[scan];
+				if (c == '\n' || c == '\r') {
+					line.set(start, scan);
+					charPos = scan + 1;
+					skipLF = c == '\r';
+					return line;
+				}
+			}
+		}
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (n < 0L) {
+			throw new IllegalArgumentException("skip value is negative");
+		}
+		ensureOpen();
+		long r = n;
+		while (r > 0 && ensureChars()) {
+			int d = (int) Math.min(r, charLimit - charPos);
+			charPos += d;
+			r -= d;
+		}
+		return n - r;
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		ensureOpen();
+		return charPos < charLimit;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (source == null) {
+			return;
+		}
+		try {
+			source.close();
+		} finally {
+			source = null;
+		}
+	}
+
+	private interface Source {
+
+		int read(byte[] b, int off, int len) throws IOException;
+
+		void close() throws IOException;
+	}
+
+	/**
+	 * 内部缓冲区上的一行
+	 */
+	private final class LineView implements CharSequence {
+
+		private int start;
+
+		private int end;
+
+		void set(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return chars[start + index];
+		}
+
+		/**
+		 * 同样是内部缓冲区上的视图
+		 */
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException();
+			}
+			return CharBuffer.wrap(chars, start + from, to - from);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, start, end - start);
+		}
+	}
+
+	static {
+		Unsafe unsafe = null;
+		if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+			try {
+				Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				unsafe = (Unsafe) theUnsafe.get(null);
+			} catch (Exception ignored) {
+			}
+		}
+		UNSAFE = unsafe;
+		BYTE_BASE = unsafe == null ? 0 : unsafe.arrayBaseOffset(byte[].class);
+		CHAR_BASE = unsafe == null ? 0 : unsafe.arrayBaseOffset(char[].class);
+	}
+}
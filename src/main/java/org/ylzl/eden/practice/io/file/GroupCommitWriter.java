@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.file;
+
+import org.ylzl.eden.practice.concurrent.future.CompletableFuture;
+import org.ylzl.eden.practice.io.nio.BufferPool;
+import org.ylzl.eden.practice.io.nio.PooledBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 组提交的只追加文件写入器
+ *
+ * <p>多个线程的记录先累积到共享批次：小记录拷贝进池化的直接缓冲区，大记录直接引用；单个写线程把整批用一次聚集写写出，
+ * 再 fsync 一次，批次内所有记录的 future 随之完成，值为记录在文件中的偏移。写线程 fsync 期间新到的记录组成下一批，
+ * 负载越高批次越大，fsync 次数不随记录数增长。
+ *
+ * <p>提交策略：批次字节数达到 syncBytes，或距批次第一条记录超过 syncInterval 时提交；syncInterval 为 0 时有记录即提交。
+ * 待写字节超过 maxPendingBytes 时 {@link #append} 阻塞。write 或 fsync 失败后页缓存中的数据状态不可知，
+ * 写入器进入失败状态，之后的记录全部失败，不做重试。{@link #open} 新建文件时会 fsync 所在目录。
+ * <pre>
+ * GroupCommitWriter writer = GroupCommitWriter.open(path, new GroupCommitWriter.Options().syncInterval(2, TimeUnit.MILLISECONDS));
+ * writer.append(record).thenAccept(offset -&gt; ack());
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class GroupCommitWriter implements Closeable {
+
+	private static final int COPY_THRESHOLD = 8 * 1024; // 不超过此大小的记录拷贝进共享缓冲区
+
+	private static final int SEGMENT_SIZE = 64 * 1024; // 共享缓冲区每段的大小
+
+	private static final int MAX_FREE_SEGMENTS = 16; // 提交后留作复用的段数上限
+
+	private final FileChannel channel;
+
+	private final Options options;
+
+	private final Thread writer;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition ready = lock.newCondition(); // 有批次待提交
+
+	private final Condition notFull = lock.newCondition(); // 待写字节降到上限以下
+
+	private final ArrayList<PooledBuffer> freeSegments = new ArrayList<PooledBuffer>(); // 受 lock 保护
+
+	private Batch active = new Batch(freeSegments); // 受 lock 保护
+
+	private Batch spare = new Batch(freeSegments); // 写线程处理中的批次完成后放回
+
+	private long nextPosition;
+
+	private long pendingBytes;
+
+	private boolean closed;
+
+	private IOException failure;
+
+	private volatile long syncCount;
+
+	private volatile long recordCount;
+
+	private volatile long bytesWritten;
+
+	private GroupCommitWriter(FileChannel channel, Path path, Options options) throws IOException {
+		this.channel = channel;
+		this.options = options;
+		this.nextPosition = channel.size();
+		channel.position(nextPosition);
+		this.writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				GroupCommitWriter.this.run();
+			}
+		}, "group-commit-" + path.getFileName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public static GroupCommitWriter open(Path path) throws IOException {
+		return open(path, new Options());
+	}
+
+	public static GroupCommitWriter open(Path path, Options options) throws IOException {
+		FileChannel channel;
+		boolean created;
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			created = true;
+		} catch (FileAlreadyExistsException e) {
+			channel = FileChannel.open(path, StandardOpenOption.WRITE);
+			created = false;
+		}
+		try {
+			if (created && options.fsync) {
+				syncDirectory(path.toAbsolutePath().getParent()); // 新文件的目录项也要落盘，否则崩溃后整个文件可能丢失
+			}
+			return new GroupCommitWriter(channel, path, options);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Windows 不能以通道打开目录，NTFS 的元数据由日志保证
+	private static void syncDirectory(Path dir) throws IOException {
+		if (dir == null || System.getProperty("os.name", "").startsWith("Windows")) {
+			return;
+		}
+		FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 追加一条记录，可在任意线程调用
+	 *
+	 * <p>future 的回调在写线程中执行，不能阻塞，否则会推迟后续批次的提交。
+	 * 超过 8 KB 的记录不拷贝，future 完成前不能修改 record。
+	 *
+	 * @return 记录持久化后完成，值为记录在文件中的起始偏移
+	 */
+	public CompletableFuture<Long> append(ByteBuffer record) {
+		int size = record.remaining();
+		CompletableFuture<Long> future = new CompletableFuture<Long>();
+		lock.lock();
+		try {
+			while (!closed && failure == null && pendingBytes > 0 && pendingBytes + size > options.maxPendingBytes) {
+				notFull.awaitUninterruptibly();
+			}
+			if (failure != null) {
+				return CompletableFuture.failedFuture(new IOException("Writer failed", failure));
+			}
+			if (closed) {
+				return CompletableFuture.failedFuture(new ClosedChannelException());
+			}
+			Batch batch = active;
+			boolean wasEmpty = batch.records == 0;
+			batch.add(record, future, nextPosition);
+			nextPosition += size;
+			pendingBytes += size;
+			if (wasEmpty || batch.bytes >= options.syncBytes) {
+				ready.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return future;
+	}
+
+	public CompletableFuture<Long> append(byte[] record) {
+		return append(ByteBuffer.wrap(record));
+	}
+
+	private void run() {
+		for (;;) {
+			Batch batch;
+			lock.lock();
+			try {
+				if (!awaitBatch()) {
+					break;
+				}
+				batch = active;
+				active = spare;
+				spare = null;
+			} finally {
+				lock.unlock();
+			}
+			IOException error = commit(batch);
+			lock.lock();
+			try {
+				pendingBytes -= batch.bytes;
+				if (error != null && failure == null) {
+					failure = error;
+					active.fail(new IOException("Writer failed", error));
+					active.reset();
+					pendingBytes = 0;
+				}
+				batch.reset();
+				spare = batch;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		lock.lock();
+		try {
+			for (PooledBuffer segment : freeSegments) {
+				segment.release();
+			}
+			freeSegments.clear();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	// 等到当前批次满足提交策略，返回 false 表示已关闭且没有剩余记录
+	private boolean awaitBatch() {
+		long intervalNanos = options.syncIntervalNanos;
+		for (;;) {
+			Batch batch = active;
+			if (batch.records == 0) {
+				if (closed || failure != null) {
+					return false;
+				}
+				ready.awaitUninterruptibly();
+				continue;
+			}
+			if (closed || intervalNanos == 0 || batch.bytes >= options.syncBytes) {
+				return true;
+			}
+			long remaining = batch.firstNanos + intervalNanos - System.nanoTime();
+			if (remaining <= 0) {
+				return true;
+			}
+			try {
+				ready.awaitNanos(remaining);
+			} catch (InterruptedException ignored) { // 写线程不响应中断，由 close 结束
+			}
+		}
+	}
+
+	private IOException commit(Batch batch) {
+		IOException error = null;
+		try {
+			ByteBuffer[] parts = batch.seal();
+			int count = batch.parts.size();
+			int offset = 0;
+			while (offset < count) { // 一次聚集写，写不完时（如超过 IOV_MAX）继续
+				channel.write(parts, offset, count - offset);
+				while (offset < count && !parts[offset].hasRemaining()) {
+					offset++;
+				}
+			}
+			if (options.fsync) {
+				channel.force(false); // 追加引起的文件长度变化也由 fdatasync 落盘
+			}
+		} catch (IOException e) {
+			error = e;
+		}
+		if (error == null) {
+			syncCount++;
+			recordCount += batch.records;
+			bytesWritten += batch.bytes;
+			batch.complete();
+		} else {
+			batch.fail(error);
+		}
+		return error;
+	}
+
+	public long getSyncCount() {
+		return syncCount;
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * 提交剩余记录后关闭，之后的 append 返回失败的 future
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			closed = true;
+			ready.signal();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		lock.lock();
+		try {
+			if (failure != null) {
+				throw new IOException("Writer failed", failure);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 一批记录，两个批次交替使用；段在提交后回到空闲列表，稳定运行时不再经过 {@link BufferPool}
+	 */
+	private static final class Batch {
+
+		final ArrayList<PooledBuffer> freeSegments;
+
+		final ArrayList<ByteBuffer> parts = new ArrayList<ByteBuffer>();
+
+		final ArrayList<PooledBuffer> segments = new ArrayList<PooledBuffer>();
+
+		final ArrayList<CompletableFuture<Long>> futures = new ArrayList<CompletableFuture<Long>>();
+
+		long[] offsets = new long[64];
+
+		ByteBuffer tail; // 写模式，当前的拷贝目标
+
+		ByteBuffer[] array = new ByteBuffer[16];
+
+		int records;
+
+		long bytes;
+
+		long firstNanos;
+
+		Batch(ArrayList<PooledBuffer> freeSegments) {
+			this.freeSegments = freeSegments;
+		}
+
+		void add(ByteBuffer record, CompletableFuture<Long> future, long offset) {
+			int size = record.remaining();
+			if (records == 0) {
+				firstNanos = System.nanoTime();
+			}
+			if (size > COPY_THRESHOLD) {
+				parts.add(record.duplicate());
+				tail = null; // 保持顺序，之后的小记录进入新段
+			} else if (size > 0) {
+				if (tail == null || tail.remaining() < size) {
+					PooledBuffer segment = freeSegments.isEmpty() ? BufferPool.DEFAULT.allocate(SEGMENT_SIZE)
+						: freeSegments.remove(freeSegments.size() - 1);
+					segments.add(segment);
+					tail = segment.buffer();
+					parts.add(tail);
+				}
+				tail.put(record.duplicate());
+			}
+			if (records == offsets.length) {
+				offsets = Arrays.copyOf(offsets, records << 1);
+			}
+			offsets[records++] = offset;
+			futures.add(future);
+			bytes += size;
+		}
+
+		ByteBuffer[] seal() {
+			for (PooledBuffer segment : segments) {
+				segment.buffer().flip();
+			}
+			if (array.length < parts.size()) {
+				array = new ByteBuffer[Math.max(parts.size(), array.length << 1)];
+			}
+			return parts.toArray(array);
+		}
+
+		void complete() {
+			for (int i = 0; i < records; i++) {
+				futures.get(i).complete(offsets[i]);
+			}
+		}
+
+		void fail(IOException e) {
+			for (int i = 0; i < records; i++) {
+				futures.get(i).completeExceptionally(e);
+			}
+			records = 0; // 已失败的记录不再处理
+		}
+
+		void reset() {
+			for (PooledBuffer segment : segments) {
+				if (freeSegments.size() < MAX_FREE_SEGMENTS) {
+					segment.buffer().clear();
+					freeSegments.add(segment);
+				} else {
+					segment.release();
+				}
+			}
+			segments.clear();
+			parts.clear();
+			futures.clear();
+			Arrays.fill(array, null);
+			tail = null;
+			records = 0;
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * 写入参数
+	 */
+	public static final class Options {
+
+		long syncIntervalNanos;
+
+		long syncBytes = 1024 * 1024;
+
+		long maxPendingBytes = 64L * 1024 * 1024;
+
+		boolean fsync = true;
+
+		/**
+		 * 批次第一条记录最多等待多久提交，默认 0，即写线程空闲时立即提交
+		 */
+		public Options syncInterval(long interval, TimeUnit unit) {
+			if (interval < 0) {
+				throw new IllegalArgumentException();
+			}
+			this.syncIntervalNanos = unit.toNanos(interval);
+			return this;
+		}
+
+		/**
+		 * 批次累积到多少字节时不再等待，立即提交
+		 */
+		public Options syncBytes(long syncBytes) {
+			if (syncBytes <= 0) {
+				throw new IllegalArgumentException();
+			}
+			this.syncBytes = syncBytes;
+			return this;
+		}
+
+		public Options maxPendingBytes(long maxPendingBytes) {
+			if (maxPendingBytes <= 0) {
+				throw new IllegalArgumentException();
+			}
+			this.maxPendingBytes = maxPendingBytes;
+			return this;
+		}
+
+		/**
+		 * 是否 fsync，关闭后 future 在数据进入页缓存时完成，不保证持久化
+		 */
+		public Options fsync(boolean fsync) {
+			this.fsync = fsync;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.file;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存映射的大文件记录读取器
+ *
+ * <p>文件按固定大小切成块，每块单独映射，突破单个 {@link MappedByteBuffer} 2 GB 的限制。块边界向后对齐到分隔符：
+ * 起始于块内的记录归该块处理，即使它跨过块尾，因此每块多映射 maxRecordSize 字节。多个线程动态领取块并行处理，
+ * 处理完立即解除映射，不依赖 GC 回收地址空间。
+ *
+ * <p>每条记录以同一个视图缓冲区回调，position 和 limit 框出记录内容（不含分隔符），不拷贝、不分配。
+ * 视图只在回调内有效，块处理完后映射即被解除，回调外继续访问会导致进程崩溃。
+ * 只按分隔符切分，CSV 引号内的换行不受支持。
+ * <pre>
+ * LongAdder count = new LongAdder();
+ * new MappedFileReader(path).forEachRecord((record, offset) -&gt; count.increment());
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class MappedFileReader {
+
+	private static final long LO_BYTES = 0x0101010101010101L;
+
+	private static final long HI_BITS = 0x8080808080808080L;
+
+	private static final Method INVOKE_CLEANER; // JDK 9+ Unsafe.invokeCleaner(ByteBuffer)
+
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		} catch (Throwable ignored) { // JDK 8 走 DirectBuffer.cleaner()
+			invokeCleaner = null;
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		UNSAFE = unsafe;
+	}
+
+	private final Path path;
+
+	private final Options options;
+
+	public MappedFileReader(Path path) {
+		this(path, new Options());
+	}
+
+	public MappedFileReader(Path path, Options options) {
+		this.path = path;
+		this.options = options;
+	}
+
+	/**
+	 * 并行遍历全部记录，handler 会在多个线程中并发调用，同一块内的记录按文件顺序回调
+	 *
+	 * @throws IOException 读取失败、记录超过 maxRecordSize 或 handler 抛出异常，其余线程会尽快停止
+	 */
+	public ScanStats forEachRecord(final RecordHandler handler) throws IOException {
+		long start = System.nanoTime();
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final int chunks = (int) ((size + options.chunkSize - 1) / options.chunkSize);
+			final AtomicInteger nextChunk = new AtomicInteger();
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			final LongAdder records = new LongAdder();
+			Runnable worker = new Runnable() {
+
+				@Override
+				public void run() {
+					int chunk;
+					while (failure.get() == null && (chunk = nextChunk.getAndIncrement()) < chunks) {
+						try {
+							records.add(processChunk(channel, size, chunk, handler));
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+						}
+					}
+				}
+			};
+			int threads = Math.min(options.parallelism, chunks);
+			Thread[] workers = new Thread[Math.max(threads - 1, 0)];
+			for (int i = 0; i < workers.length; i++) {
+				workers[i] = new Thread(worker, "mapped-reader-" + i);
+				workers[i].setDaemon(true);
+				workers[i].start();
+			}
+			worker.run(); // 当前线程也参与处理
+			try {
+				for (Thread t : workers) {
+					t.join();
+				}
+			} catch (InterruptedException e) {
+				failure.compareAndSet(null, e);
+				for (Thread t : workers) {
+					t.interrupt();
+				}
+				Thread.currentThread().interrupt();
+			}
+			Throwable t = failure.get();
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			}
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			}
+			if (t instanceof Error) {
+				throw (Error) t;
+			}
+			if (t != null) {
+				throw new IOException(t);
+			}
+			return new ScanStats(records.sum(), size, chunks, System.nanoTime() - start);
+		}
+	}
+
+	private long processChunk(FileChannel channel, long fileSize, int chunk, RecordHandler handler) throws Exception {
+		long start = (long) chunk * options.chunkSize;
+		long end = Math.min(start + options.chunkSize, fileSize);
+		long mapStart = start > 0 ? start - 1 : 0; // 多映射前一个字节，判断块首是否正好是记录开头
+		long mapEnd = Math.min(end + options.maxRecordSize, fileSize);
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+		try {
+			ByteBuffer buf = mapped.order(ByteOrder.LITTLE_ENDIAN);
+			ByteBuffer view = mapped.duplicate();
+			int limit = buf.limit();
+			int ownedEnd = (int) (end - mapStart); // 起始位置小于它的记录归本块
+			byte delimiter = options.delimiter;
+			int pos = 0;
+			if (start > 0) {
+				int first = indexOf(buf, 0, limit, delimiter);
+				if (first < 0 || first >= ownedEnd) { // 整块都在前一块的某条记录里
+					return 0;
+				}
+				pos = first + 1;
+			}
+			long count = 0;
+			while (pos < ownedEnd) {
+				int eol = indexOf(buf, pos, limit, delimiter);
+				if (eol < 0) {
+					if (mapEnd != fileSize) {
+						throw new IOException("Record at offset " + (mapStart + pos) + " exceeds " + options.maxRecordSize + " bytes");
+					}
+					eol = limit; // 文件末尾没有分隔符的最后一条记录
+				}
+				int recordEnd = eol;
+				if (options.stripCarriageReturn && recordEnd > pos && buf.get(recordEnd - 1) == '\r') {
+					recordEnd--;
+				}
+				view.limit(recordEnd).position(pos);
+				try {
+					handler.onRecord(view, mapStart + pos);
+				} catch (Exception e) {
+					throw new IOException("Failed to process record at offset " + (mapStart + pos), e);
+				}
+				count++;
+				pos = eol + 1;
+			}
+			return count;
+		} finally {
+			if (options.unmap) {
+				unmap(mapped);
+			}
+		}
+	}
+
+	/**
+	 * 从 from 开始查找 b，每次比较 8 字节：异或后为 0 的字节即为匹配，用 (x - 0x01..) &amp; ~x &amp; 0x80.. 找出最低的 0 字节
+	 */
+	static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+		long pattern = (b & 0xFFL) * LO_BYTES;
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long x = buf.getLong(i) ^ pattern;
+			long found = (x - LO_BYTES) & ~x & HI_BITS;
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (buf.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 立即解除映射，失败时留给 GC
+	 */
+	static void unmap(MappedByteBuffer buffer) {
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				return;
+			}
+			Method cleaner = buffer.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object c = cleaner.invoke(buffer);
+			if (c != null) {
+				c.getClass().getMethod("clean").invoke(c);
+			}
+		} catch (Throwable ignored) {
+		}
+	}
+
+	/**
+	 * 记录回调
+	 */
+	public interface RecordHandler {
+
+		/**
+		 * @param record 只读视图，[position, limit) 为记录内容，只在回调内有效
+		 * @param offset 记录在文件中的偏移
+		 */
+		void onRecord(ByteBuffer record, long offset) throws Exception;
+	}
+
+	/**
+	 * 一次遍历的统计
+	 */
+	public static final class ScanStats {
+
+		private final long records;
+
+		private final long bytes;
+
+		private final int chunks;
+
+		private final long nanos;
+
+		ScanStats(long records, long bytes, int chunks, long nanos) {
+			this.records = records;
+			this.bytes = bytes;
+			this.chunks = chunks;
+			this.nanos = nanos;
+		}
+
+		public long getRecords() {
+			return records;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public int getChunks() {
+			return chunks;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public double getBytesPerSecond() {
+			return nanos == 0 ? 0 : bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("records = %d, bytes = %d, chunks = %d, %d ms, %.1f MB/s",
+				records, bytes, chunks, TimeUnit.NANOSECONDS.toMillis(nanos), getBytesPerSecond() / (1024 * 1024));
+		}
+	}
+
+	/**
+	 * 读取参数
+	 */
+	public static final class Options {
+
+		int chunkSize = 64 * 1024 * 1024;
+
+		int maxRecordSize = 1024 * 1024;
+
+		int parallelism = Runtime.getRuntime().availableProcessors();
+
+		byte delimiter = '\n';
+
+		boolean stripCarriageReturn = true;
+
+		boolean unmap = true;
+
+		/**
+		 * @param chunkSize     每块的大小，也是并行的粒度
+		 * @param maxRecordSize 单条记录的最大长度，两者之和不能超过 2 GB
+		 */
+		public Options chunkSize(int chunkSize, int maxRecordSize) {
+			if (chunkSize <= 0 || maxRecordSize <= 0 || (long) chunkSize + maxRecordSize + 1 > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException();
+			}
+			this.chunkSize = chunkSize;
+			this.maxRecordSize = maxRecordSize;
+			return this;
+		}
+
+		public Options parallelism(int parallelism) {
+			if (parallelism <= 0) {
+				throw new IllegalArgumentException();
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		public Options delimiter(byte delimiter) {
+			this.delimiter = delimiter;
+			return this;
+		}
+
+		/**
+		 * 是否去掉记录末尾的 '\r'，默认 true
+		 */
+		public Options stripCarriageReturn(boolean strip) {
+			this.stripCarriageReturn = strip;
+			return this;
+		}
+
+		/**
+		 * 块处理完后是否立即解除映射，默认 true；回调需要在外部保留视图时关闭，由 GC 回收映射
+		 */
+		public Options unmap(boolean unmap) {
+			this.unmap = unmap;
+			return this;
+		}
+	}
+}
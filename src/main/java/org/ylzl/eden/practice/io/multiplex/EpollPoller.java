@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+
+/**
+ * 通过 Foreign Function &amp; Memory API 直接调用 epoll 的轮询器，边沿触发
+ *
+ * <p>需要 Linux、JDK 22+，并用 --add-opens java.base/sun.nio.ch=ALL-UNNAMED 允许读取通道的文件描述符；
+ * 条件不满足时 {@link #isAvailable()} 返回 false。FFM 的类型在编译期不可见，下行调用句柄通过反射创建，
+ * 再把 MemorySegment 参数转为 Object，热路径上直接 invokeExact，没有反射开销。
+ * 事件数组是一块直接缓冲区，epoll_wait 一次批量填入最多 {@value #MAX_EVENTS} 个事件，按 fd 下标找到注册，不产生垃圾。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class EpollPoller implements Poller {
+
+	private static final int MAX_EVENTS = 1024;
+
+	private static final int EPOLLIN = 0x001;
+	private static final int EPOLLOUT = 0x004;
+	private static final int EPOLLERR = 0x008;
+	private static final int EPOLLHUP = 0x010;
+	private static final int EPOLLRDHUP = 0x2000;
+	private static final int EPOLLET = 1 << 31;
+
+	private static final int EPOLL_CTL_ADD = 1;
+	private static final int EPOLL_CTL_DEL = 2;
+	private static final int EPOLL_CTL_MOD = 3;
+
+	private static final int EFD_NONBLOCK = 0x800;
+	private static final int EFD_CLOEXEC = 0x80000;
+	private static final int EPOLL_CLOEXEC = 0x80000;
+
+	// x86_64 上 struct epoll_event 是 packed 的 12 字节，其他架构按 8 字节对齐为 16 字节
+	private static final boolean PACKED = "amd64".equals(System.getProperty("os.arch")) || "x86_64".equals(System.getProperty("os.arch"));
+	private static final int EVENT_SIZE = PACKED ? 12 : 16;
+	private static final int DATA_OFFSET = PACKED ? 4 : 8;
+
+	private static final MethodHandle EPOLL_CREATE1; // (int)int
+	private static final MethodHandle EPOLL_CTL; // (int, int, int, Object)int
+	private static final MethodHandle EPOLL_WAIT; // (int, Object, int, int)int
+	private static final MethodHandle EVENTFD; // (int, int)int
+	private static final MethodHandle READ; // (int, Object, long)long
+	private static final MethodHandle WRITE; // (int, Object, long)long
+	private static final MethodHandle CLOSE; // (int)int
+	private static final Method OF_BUFFER; // MemorySegment.ofBuffer(Buffer)
+	private static final Method GET_FD; // SelChImpl.getFDVal()
+	private static final Throwable UNAVAILABILITY_CAUSE;
+
+	static {
+		MethodHandle create1 = null, ctl = null, wait = null, eventfd = null, read = null, write = null, close = null;
+		Method ofBuffer = null, getFd = null;
+		Throwable cause = null;
+		try {
+			if (!System.getProperty("os.name", "").toLowerCase().contains("linux")) {
+				throw new UnsupportedOperationException("epoll requires Linux");
+			}
+			Class<?> linkerClass = Class.forName("java.lang.foreign.Linker");
+			Class<?> lookupClass = Class.forName("java.lang.foreign.SymbolLookup");
+			Class<?> segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+			Class<?> layoutClass = Class.forName("java.lang.foreign.MemoryLayout");
+			Class<?> valueLayoutClass = Class.forName("java.lang.foreign.ValueLayout");
+			Class<?> descriptorClass = Class.forName("java.lang.foreign.FunctionDescriptor");
+			Class<?> optionClass = Class.forName("java.lang.foreign.Linker$Option");
+
+			Object linker = linkerClass.getMethod("nativeLinker").invoke(null);
+			Object lookup = linkerClass.getMethod("defaultLookup").invoke(linker);
+			Method find = lookupClass.getMethod("find", String.class);
+			Method descriptorOf = descriptorClass.getMethod("of", layoutClass, Array.newInstance(layoutClass, 0).getClass());
+			Method downcallHandle = linkerClass.getMethod("downcallHandle", segmentClass, descriptorClass,
+				Array.newInstance(optionClass, 0).getClass());
+			Object options = Array.newInstance(optionClass, 0);
+			Object jint = valueLayoutClass.getField("JAVA_INT").get(null);
+			Object jlong = valueLayoutClass.getField("JAVA_LONG").get(null);
+			Object address = valueLayoutClass.getField("ADDRESS").get(null);
+
+			Downcall downcall = new Downcall(lookup, find, descriptorOf, downcallHandle, linker, options, layoutClass);
+			create1 = downcall.of("epoll_create1", MethodType.methodType(int.class, int.class), jint, jint);
+			ctl = downcall.of("epoll_ctl", MethodType.methodType(int.class, int.class, int.class, int.class, Object.class),
+				jint, jint, jint, jint, address);
+			wait = downcall.of("epoll_wait", MethodType.methodType(int.class, int.class, Object.class, int.class, int.class),
+				jint, jint, address, jint, jint);
+			eventfd = downcall.of("eventfd", MethodType.methodType(int.class, int.class, int.class), jint, jint, jint);
+			read = downcall.of("read", MethodType.methodType(long.class, int.class, Object.class, long.class), jlong, jint, address, jlong);
+			write = downcall.of("write", MethodType.methodType(long.class, int.class, Object.class, long.class), jlong, jint, address, jlong);
+			close = downcall.of("close", MethodType.methodType(int.class, int.class), jint, jint);
+			ofBuffer = segmentClass.getMethod("ofBuffer", Buffer.class);
+
+			getFd = Class.forName("sun.nio.ch.SelChImpl").getMethod("getFDVal");
+			getFd.setAccessible(true); // 未开放 sun.nio.ch 时失败
+		} catch (Throwable t) {
+			cause = t;
+		}
+		EPOLL_CREATE1 = create1;
+		EPOLL_CTL = ctl;
+		EPOLL_WAIT = wait;
+		EVENTFD = eventfd;
+		READ = read;
+		WRITE = write;
+		CLOSE = close;
+		OF_BUFFER = ofBuffer;
+		GET_FD = getFd;
+		UNAVAILABILITY_CAUSE = cause;
+	}
+
+	static boolean isAvailable() {
+		return UNAVAILABILITY_CAUSE == null;
+	}
+
+	static Throwable unavailabilityCause() {
+		return UNAVAILABILITY_CAUSE;
+	}
+
+	private final int epfd;
+
+	private final int wakeupFd; // eventfd，写入即唤醒 epoll_wait
+
+	private final ByteBuffer events = ByteBuffer.allocateDirect(MAX_EVENTS * EVENT_SIZE).order(ByteOrder.nativeOrder());
+
+	private final Object eventsSegment;
+
+	private final ByteBuffer ctlEvent = ByteBuffer.allocateDirect(EVENT_SIZE).order(ByteOrder.nativeOrder()); // 只在循环线程使用
+
+	private final Object ctlSegment;
+
+	private final Object wakeupSegment; // 8 字节计数，wakeup 可能来自任意线程，只写常量 1
+
+	private final Object drainSegment;
+
+	private EpollKey[] keys = new EpollKey[1024]; // 按 fd 下标
+
+	private boolean closed;
+
+	EpollPoller() throws IOException {
+		if (!isAvailable()) {
+			throw new IOException("epoll is not available", UNAVAILABILITY_CAUSE);
+		}
+		try {
+			eventsSegment = OF_BUFFER.invoke(null, events);
+			ctlSegment = OF_BUFFER.invoke(null, ctlEvent);
+			ByteBuffer one = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder());
+			one.putLong(0, 1L);
+			wakeupSegment = OF_BUFFER.invoke(null, one);
+			drainSegment = OF_BUFFER.invoke(null, ByteBuffer.allocateDirect(8));
+			epfd = (int) EPOLL_CREATE1.invokeExact(EPOLL_CLOEXEC);
+			if (epfd < 0) {
+				throw new IOException("epoll_create1 failed");
+			}
+			wakeupFd = (int) EVENTFD.invokeExact(0, EFD_NONBLOCK | EFD_CLOEXEC);
+			if (wakeupFd < 0) {
+				int ignored = (int) CLOSE.invokeExact(epfd);
+				throw new IOException("eventfd failed");
+			}
+			ctl(EPOLL_CTL_ADD, wakeupFd, EPOLLIN); // 水平触发，读空计数后才会停止通知
+		} catch (IOException e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IOException(t);
+		}
+	}
+
+	private static int fdOf(SelectableChannel channel) throws IOException {
+		try {
+			return (Integer) GET_FD.invoke(channel);
+		} catch (Exception e) {
+			throw new IOException("Unsupported channel " + channel.getClass().getName(), e);
+		}
+	}
+
+	private void ctl(int op, int fd, int epollEvents) throws IOException {
+		ctlEvent.putInt(0, epollEvents);
+		ctlEvent.putLong(DATA_OFFSET, fd);
+		int rc;
+		try {
+			rc = (int) EPOLL_CTL.invokeExact(epfd, op, fd, ctlSegment);
+		} catch (Throwable t) {
+			throw new IOException(t);
+		}
+		if (rc < 0) {
+			throw new IOException("epoll_ctl(" + op + ", " + fd + ") failed");
+		}
+	}
+
+	private static int toEpoll(int ops) {
+		int events = EPOLLET | EPOLLRDHUP;
+		if ((ops & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0) {
+			events |= EPOLLIN;
+		}
+		if ((ops & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT)) != 0) {
+			events |= EPOLLOUT;
+		}
+		return events;
+	}
+
+	@Override
+	public PollKey register(SelectableChannel channel, int interestOps, Object attachment) throws IOException {
+		if (channel.isBlocking()) {
+			throw new IllegalArgumentException("Channel must be non-blocking");
+		}
+		int fd = fdOf(channel);
+		EpollKey key = new EpollKey(channel, fd, interestOps, attachment);
+		if (fd >= keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(fd + 1, keys.length << 1));
+		}
+		ctl(EPOLL_CTL_ADD, fd, toEpoll(interestOps));
+		keys[fd] = key;
+		return key;
+	}
+
+	@Override
+	public int poll(long timeoutMillis, ReadyHandler handler) throws IOException {
+		int timeout = timeoutMillis < 0 ? -1 : (int) Math.min(timeoutMillis, Integer.MAX_VALUE);
+		int n;
+		try {
+			n = (int) EPOLL_WAIT.invokeExact(epfd, eventsSegment, MAX_EVENTS, timeout);
+		} catch (Throwable t) {
+			throw new IOException(t);
+		}
+		if (n < 0) { // 多为 EINTR，下一轮重试
+			return 0;
+		}
+		int dispatched = 0;
+		for (int i = 0; i < n; i++) {
+			int base = i * EVENT_SIZE;
+			int ev = events.getInt(base);
+			int fd = (int) events.getLong(base + DATA_OFFSET);
+			if (fd == wakeupFd) {
+				drainWakeup();
+				continue;
+			}
+			EpollKey key = fd < keys.length ? keys[fd] : null;
+			if (key == null || !key.valid) {
+				continue;
+			}
+			int ready = 0;
+			if ((ev & (EPOLLIN | EPOLLERR | EPOLLHUP | EPOLLRDHUP)) != 0) { // 出错和挂断都交给读路径发现
+				ready |= SelectionKey.OP_READ | SelectionKey.OP_ACCEPT;
+			}
+			if ((ev & (EPOLLOUT | EPOLLERR | EPOLLHUP)) != 0) {
+				ready |= SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
+			}
+			ready &= key.interestOps;
+			if (ready != 0) {
+				handler.onReady(key, ready);
+				dispatched++;
+			}
+		}
+		return dispatched;
+	}
+
+	private void drainWakeup() {
+		try {
+			long ignored = (long) READ.invokeExact(wakeupFd, drainSegment, 8L);
+		} catch (Throwable ignored) {
+		}
+	}
+
+	@Override
+	public void wakeup() {
+		try {
+			long ignored = (long) WRITE.invokeExact(wakeupFd, wakeupSegment, 8L);
+		} catch (Throwable ignored) {
+		}
+	}
+
+	@Override
+	public String name() {
+		return "epoll";
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			int ignored = (int) CLOSE.invokeExact(wakeupFd);
+			ignored = (int) CLOSE.invokeExact(epfd);
+		} catch (Throwable t) {
+			throw new IOException(t);
+		}
+	}
+
+	private final class EpollKey implements PollKey {
+
+		private final SelectableChannel channel;
+
+		private final int fd;
+
+		private final Object attachment;
+
+		int interestOps;
+
+		boolean valid = true;
+
+		EpollKey(SelectableChannel channel, int fd, int interestOps, Object attachment) {
+			this.channel = channel;
+			this.fd = fd;
+			this.interestOps = interestOps;
+			this.attachment = attachment;
+		}
+
+		@Override
+		public SelectableChannel channel() {
+			return channel;
+		}
+
+		@Override
+		public Object attachment() {
+			return attachment;
+		}
+
+		@Override
+		public int interestOps() {
+			return interestOps;
+		}
+
+		@Override
+		public void interestOps(int ops) {
+			if (!valid) {
+				throw new IllegalStateException("Key cancelled");
+			}
+			if (ops == interestOps) {
+				return;
+			}
+			try {
+				ctl(EPOLL_CTL_MOD, fd, toEpoll(ops)); // MOD 会重新检查就绪状态，已就绪的事件会再次上报
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			interestOps = ops;
+		}
+
+		@Override
+		public boolean isValid() {
+			return valid && channel.isOpen();
+		}
+
+		@Override
+		public void cancel() {
+			if (!valid) {
+				return;
+			}
+			valid = false;
+			if (keys[fd] == this) {
+				keys[fd] = null;
+			}
+			try {
+				ctl(EPOLL_CTL_DEL, fd, 0);
+			} catch (IOException ignored) { // 通道已关闭时内核已自动移除
+			}
+		}
+	}
+
+	/**
+	 * 反射创建下行调用句柄
+	 */
+	private static final class Downcall {
+
+		private final Object lookup;
+
+		private final Method find;
+
+		private final Method descriptorOf;
+
+		private final Method downcallHandle;
+
+		private final Object linker;
+
+		private final Object options;
+
+		private final Class<?> layoutClass;
+
+		Downcall(Object lookup, Method find, Method descriptorOf, Method downcallHandle, Object linker, Object options,
+				 Class<?> layoutClass) {
+			this.lookup = lookup;
+			this.find = find;
+			this.descriptorOf = descriptorOf;
+			this.downcallHandle = downcallHandle;
+			this.linker = linker;
+			this.options = options;
+			this.layoutClass = layoutClass;
+		}
+
+		/**
+		 * @param type    调整后的句柄类型，MemorySegment 参数以 Object 表示
+		 * @param result  返回值布局
+		 * @param args    参数布局
+		 */
+		MethodHandle of(String name, MethodType type, Object result, Object... args) throws Exception {
+			Object symbol = ((java.util.Optional<?>) find.invoke(lookup, name))
+				.orElseThrow(() -> new UnsupportedOperationException("Symbol not found: " + name));
+			Object layouts = Array.newInstance(layoutClass, args.length);
+			for (int i = 0; i < args.length; i++) {
+				Array.set(layouts, i, args[i]);
+			}
+			Object descriptor = descriptorOf.invoke(null, result, layouts);
+			MethodHandle handle = (MethodHandle) downcallHandle.invoke(linker, symbol, descriptor, options);
+			return handle.asType(type);
+		}
+	}
+}
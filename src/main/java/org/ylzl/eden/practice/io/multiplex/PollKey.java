@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.nio.channels.SelectableChannel;
+
+/**
+ * 通道在 {@link Poller} 上的注册
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public interface PollKey {
+
+	SelectableChannel channel();
+
+	Object attachment();
+
+	int interestOps();
+
+	void interestOps(int ops);
+
+	boolean isValid();
+
+	/**
+	 * 取消注册，关闭通道之前调用
+	 */
+	void cancel();
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * 就绪事件轮询器，事件循环的后端
+ *
+ * <p>关注的事件沿用 {@link java.nio.channels.SelectionKey} 的 OP_* 常量。按边沿触发的约定使用：收到可读事件后必须读到
+ * 返回 0 为止，收到可写事件后必须写到缓冲区满或写完为止，否则在 epoll 后端上不会再次通知。
+ * 水平触发的 Selector 后端同样满足这个约定。除 {@link #wakeup()} 外的方法只能在事件循环线程中调用。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public interface Poller extends Closeable {
+
+	/**
+	 * 注册非阻塞通道
+	 */
+	PollKey register(SelectableChannel channel, int interestOps, Object attachment) throws IOException;
+
+	/**
+	 * 等待就绪事件并逐个回调 handler
+	 *
+	 * @param timeoutMillis 小于 0 表示一直等待，0 表示不等待
+	 * @return 回调的事件数
+	 */
+	int poll(long timeoutMillis, ReadyHandler handler) throws IOException;
+
+	/**
+	 * 唤醒阻塞中的 {@link #poll}，可在任意线程调用
+	 */
+	void wakeup();
+
+	/**
+	 * 后端名称，用于日志
+	 */
+	String name();
+
+	@Override
+	void close() throws IOException;
+}
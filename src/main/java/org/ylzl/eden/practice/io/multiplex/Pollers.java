@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.io.IOException;
+
+/**
+ * 轮询器工厂
+ *
+ * <p>默认使用 JDK Selector；系统属性 {@value #POLLER_PROPERTY} 为 epoll 且当前环境支持时使用 epoll 后端。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class Pollers {
+
+	public static final String POLLER_PROPERTY = "org.ylzl.eden.practice.io.multiplex.poller";
+
+	private static final boolean PREFER_EPOLL = "epoll".equalsIgnoreCase(System.getProperty(POLLER_PROPERTY));
+
+	private Pollers() {
+	}
+
+	public static Poller open() throws IOException {
+		return PREFER_EPOLL && EpollPoller.isAvailable() ? new EpollPoller() : new SelectorPoller();
+	}
+
+	public static Poller openSelector() throws IOException {
+		return new SelectorPoller();
+	}
+
+	/**
+	 * @throws IOException epoll 不可用
+	 */
+	public static Poller openEpoll() throws IOException {
+		return new EpollPoller();
+	}
+
+	public static boolean isEpollAvailable() {
+		return EpollPoller.isAvailable();
+	}
+
+	/**
+	 * epoll 不可用的原因，可用时为 null
+	 */
+	public static Throwable epollUnavailabilityCause() {
+		return EpollPoller.unavailabilityCause();
+	}
+}
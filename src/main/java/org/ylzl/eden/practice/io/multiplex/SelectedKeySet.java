@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.nio.channels.SelectionKey;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 替换 Selector 内部 HashSet 的数组集合
+ *
+ * <p>Selector 只调用 add，且每轮 select 前集合已被清空，不需要去重；遍历时直接按下标访问，不产生迭代器和哈希节点。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class SelectedKeySet extends AbstractSet<SelectionKey> {
+
+	SelectionKey[] keys = new SelectionKey[1024];
+
+	int size;
+
+	@Override
+	public boolean add(SelectionKey key) {
+		if (key == null) {
+			return false;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size << 1);
+		}
+		keys[size++] = key;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<SelectionKey> iterator() {
+		return new Iterator<SelectionKey>() {
+
+			private int idx;
+
+			@Override
+			public boolean hasNext() {
+				return idx < size;
+			}
+
+			@Override
+			public SelectionKey next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return keys[idx++];
+			}
+		};
+	}
+
+	void reset() {
+		Arrays.fill(keys, 0, size, null);
+		size = 0;
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.multiplex;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 基于 JDK Selector 的轮询器
+ *
+ * <p>依次尝试三种方式处理就绪集合，避免每轮 select 在 HashSet 中增删节点和创建迭代器：
+ * <ol>
+ *   <li>反射把 Selector 内部的 selectedKeys 换成数组集合（JDK 8，或 9+ 开启 --add-opens java.base/sun.nio.ch）</li>
+ *   <li>JDK 11+ 的 {@code Selector.select(Consumer, long)}，就绪的 key 直接回调，不进入集合</li>
+ *   <li>普通的迭代删除</li>
+ * </ol>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class SelectorPoller implements Poller {
+
+	private static final MethodHandle SELECT_ACTION; // select(Consumer)，JDK 11 以下为 null
+
+	private static final MethodHandle SELECT_ACTION_TIMEOUT; // select(Consumer, long)
+
+	private static final MethodHandle SELECT_NOW_ACTION; // selectNow(Consumer)
+
+	static {
+		MethodHandle select = null;
+		MethodHandle selectTimeout = null;
+		MethodHandle selectNow = null;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			select = lookup.findVirtual(Selector.class, "select", MethodType.methodType(int.class, Consumer.class));
+			selectTimeout = lookup.findVirtual(Selector.class, "select", MethodType.methodType(int.class, Consumer.class, long.class));
+			selectNow = lookup.findVirtual(Selector.class, "selectNow", MethodType.methodType(int.class, Consumer.class));
+		} catch (Throwable ignored) {
+			select = selectTimeout = selectNow = null;
+		}
+		SELECT_ACTION = select;
+		SELECT_ACTION_TIMEOUT = selectTimeout;
+		SELECT_NOW_ACTION = selectNow;
+	}
+
+	private final Selector selector;
+
+	private final SelectedKeySet selectedKeys; // 替换失败时为 null
+
+	private ReadyHandler handler; // 当前 poll 的回调，供 action 使用
+
+	private final Consumer<SelectionKey> action = new Consumer<SelectionKey>() {
+
+		@Override
+		public void accept(SelectionKey key) {
+			dispatch(key, handler);
+		}
+	};
+
+	SelectorPoller() throws IOException {
+		this.selector = Selector.open();
+		this.selectedKeys = replaceSelectedKeys(selector);
+	}
+
+	private static SelectedKeySet replaceSelectedKeys(Selector selector) {
+		try {
+			Class<?> impl = Class.forName("sun.nio.ch.SelectorImpl", false, Selector.class.getClassLoader());
+			if (!impl.isInstance(selector)) {
+				return null;
+			}
+			Field selected = impl.getDeclaredField("selectedKeys");
+			Field publicSelected = impl.getDeclaredField("publicSelectedKeys");
+			selected.setAccessible(true);
+			publicSelected.setAccessible(true);
+			SelectedKeySet set = new SelectedKeySet();
+			selected.set(selector, set);
+			publicSelected.set(selector, set);
+			return set;
+		} catch (Throwable e) { // JDK 9+ 未开放 sun.nio.ch 时抛出 InaccessibleObjectException
+			return null;
+		}
+	}
+
+	@Override
+	public PollKey register(SelectableChannel channel, int interestOps, Object attachment) throws IOException {
+		SelectorKey key = new SelectorKey(attachment);
+		key.key = channel.register(selector, interestOps, key);
+		return key;
+	}
+
+	@Override
+	public int poll(long timeoutMillis, ReadyHandler handler) throws IOException {
+		if (selectedKeys != null) {
+			int n = select(timeoutMillis);
+			SelectionKey[] keys = selectedKeys.keys;
+			int size = selectedKeys.size;
+			try {
+				for (int i = 0; i < size; i++) {
+					SelectionKey key = keys[i];
+					if (key != null) {
+						keys[i] = null;
+						dispatch(key, handler);
+					}
+				}
+			} finally {
+				selectedKeys.reset(); // 回调抛出异常时也要清空，未分发的键在下次 select 时重新就绪
+			}
+			return n;
+		}
+		if (SELECT_ACTION != null) {
+			this.handler = handler;
+			try {
+				if (timeoutMillis < 0) {
+					return (int) SELECT_ACTION.invokeExact(selector, action);
+				} else if (timeoutMillis == 0) {
+					return (int) SELECT_NOW_ACTION.invokeExact(selector, action);
+				} else {
+					return (int) SELECT_ACTION_TIMEOUT.invokeExact(selector, action, timeoutMillis);
+				}
+			} catch (IOException | RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IOException(t);
+			} finally {
+				this.handler = null;
+			}
+		}
+		int n = select(timeoutMillis);
+		Set<SelectionKey> keys = selector.selectedKeys();
+		if (!keys.isEmpty()) {
+			Iterator<SelectionKey> it = keys.iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				dispatch(key, handler);
+			}
+		}
+		return n;
+	}
+
+	private int select(long timeoutMillis) throws IOException {
+		if (timeoutMillis < 0) {
+			return selector.select();
+		}
+		return timeoutMillis == 0 ? selector.selectNow() : selector.select(timeoutMillis);
+	}
+
+	private static void dispatch(SelectionKey key, ReadyHandler handler) {
+		if (!key.isValid()) { // 已取消，通道由持有者关闭
+			return;
+		}
+		handler.onReady((SelectorKey) key.attachment(), key.readyOps() & key.interestOps());
+	}
+
+	@Override
+	public void wakeup() {
+		selector.wakeup();
+	}
+
+	@Override
+	public String name() {
+		if (selectedKeys != null) {
+			return "selector(array)";
+		}
+		return SELECT_ACTION != null ? "selector(action)" : "selector";
+	}
+
+	@Override
+	public void close() throws IOException {
+		selector.close();
+	}
+
+	private static final class SelectorKey implements PollKey {
+
+		private final Object attachment;
+
+		SelectionKey key;
+
+		SelectorKey(Object attachment) {
+			this.attachment = attachment;
+		}
+
+		@Override
+		public SelectableChannel channel() {
+			return key.channel();
+		}
+
+		@Override
+		public Object attachment() {
+			return attachment;
+		}
+
+		@Override
+		public int interestOps() {
+			return key.interestOps();
+		}
+
+		@Override
+		public void interestOps(int ops) {
+			key.interestOps(ops);
+		}
+
+		@Override
+		public boolean isValid() {
+			return key.isValid();
+		}
+
+		@Override
+		public void cancel() {
+			key.cancel();
+		}
+	}
+}
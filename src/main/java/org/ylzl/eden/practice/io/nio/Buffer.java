@@ -71,9 +71,9 @@ public abstract class Buffer {
 	}
 
 	public final Buffer flip() {
+		limit = position;
 		position = 0;
 		mark = -1;
-		limit = position;
 		return this;
 	}
 
@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import org.ylzl.eden.practice.thread.core.FastThreadLocal;
+import org.ylzl.eden.practice.thread.core.FastThreadLocalThread;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接缓冲区池
+ *
+ * <p>内存按 chunk（默认 1 MB）向系统申请，chunk 内用伙伴算法切成 2 的幂大小的块，最小 512 字节；
+ * 超过 chunk 大小的请求直接分配，不入池。线程分散到多个 arena 上，{@link FastThreadLocalThread} 还缓存少量最近释放的小块
+ * （不超过 64 KB），同一线程反复申请释放同样大小的缓冲区时不加锁，线程结束时缓存还给 arena。普通线程的结束无法感知，不做缓存；
+ * 在分配线程以外释放的块也直接还给 arena，不进入释放线程的缓存。
+ *
+ * <p>开启泄漏检测（构造参数或系统属性 {@value #LEAK_DETECTION_PROPERTY}）后，每次分配都会记录调用栈，
+ * 缓冲区未 release 就被 GC 时计入泄漏，调用栈可以通过 {@link #pollLeaks()} 取出，适合在测试中断言。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class BufferPool {
+
+	public static final String LEAK_DETECTION_PROPERTY = "org.ylzl.eden.practice.io.nio.leakDetection";
+
+	private static final int DEFAULT_MIN_BLOCK_SIZE = 512;
+
+	private static final int DEFAULT_MAX_ORDER = 11; // 512 << 11 = 1 MB
+
+	private static final int MAX_CACHED_SIZE = 64 * 1024;
+
+	private static final int SMALL_CACHE_SIZE = 8 * 1024; // 不超过该大小的块每种缓存更多个
+
+	public static final BufferPool DEFAULT = new BufferPool();
+
+	final int minBlockSize;
+
+	final int maxOrder;
+
+	final int chunkSize;
+
+	private final PoolArena[] arenas;
+
+	private final FastThreadLocal<ThreadCache> threadCache = new FastThreadLocal<ThreadCache>() {
+
+		@Override
+		protected ThreadCache initialValue() {
+			return new ThreadCache(leastUsedArena());
+		}
+
+		@Override
+		protected void onRemoval(ThreadCache cache) {
+			cache.free();
+		}
+	};
+
+	private final boolean leakDetection;
+
+	private final ReferenceQueue<PooledBuffer> leakQueue = new ReferenceQueue<PooledBuffer>();
+
+	private final Set<LeakTracker> trackers = ConcurrentHashMap.newKeySet();
+
+	private final ConcurrentLinkedQueue<Throwable> leaks = new ConcurrentLinkedQueue<Throwable>();
+
+	private final AtomicLong pooledBytes = new AtomicLong(); // chunk 占用的直接内存
+
+	private final AtomicLong chunkCount = new AtomicLong();
+
+	private final LongAdder usedBytes = new LongAdder(); // 调用方持有的块大小之和
+
+	private final LongAdder cachedBytes = new LongAdder(); // 线程缓存中的块大小之和
+
+	private final LongAdder allocations = new LongAdder();
+
+	private final LongAdder cacheHits = new LongAdder();
+
+	private final LongAdder leakCount = new LongAdder();
+
+	public BufferPool() {
+		this(DEFAULT_MIN_BLOCK_SIZE, DEFAULT_MAX_ORDER, Runtime.getRuntime().availableProcessors() * 2,
+			Boolean.getBoolean(LEAK_DETECTION_PROPERTY));
+	}
+
+	/**
+	 * @param minBlockSize 最小块大小，2 的幂
+	 * @param maxOrder     chunk 大小为 minBlockSize << maxOrder
+	 * @param arenaCount   arena 数量
+	 */
+	public BufferPool(int minBlockSize, int maxOrder, int arenaCount, boolean leakDetection) {
+		if (minBlockSize <= 0 || (minBlockSize & (minBlockSize - 1)) != 0 || maxOrder < 0 || maxOrder > 14
+			|| (long) minBlockSize << maxOrder > 1 << 30 || arenaCount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.minBlockSize = minBlockSize;
+		this.maxOrder = maxOrder;
+		this.chunkSize = minBlockSize << maxOrder;
+		this.leakDetection = leakDetection;
+		arenas = new PoolArena[arenaCount];
+		for (int i = 0; i < arenaCount; i++) {
+			arenas[i] = new PoolArena(this);
+		}
+	}
+
+	/**
+	 * 分配至少 size 字节的直接缓冲区，返回的 {@link PooledBuffer#buffer()} 的 limit 为 size
+	 */
+	public PooledBuffer allocate(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size < 0");
+		}
+		if (leakDetection) {
+			collectLeaks();
+		}
+		PooledBuffer buf;
+		if (size > chunkSize) {
+			buf = new PooledBuffer(this, size);
+		} else {
+			int depth = depthFor(size);
+			Thread current = Thread.currentThread();
+			if (current instanceof FastThreadLocalThread) {
+				ThreadCache cache = threadCache.get();
+				buf = cache.poll(depth);
+				if (buf != null) {
+					buf.reuse(size);
+					cacheHits.increment();
+					cachedBytes.add(-buf.capacity());
+				} else {
+					buf = cache.arena.allocate(depth, size);
+				}
+				buf.cache = cache;
+			} else {
+				buf = arenas[(int) (current.getId() % arenas.length)].allocate(depth, size);
+			}
+		}
+		allocations.increment();
+		usedBytes.add(buf.capacity());
+		if (leakDetection) {
+			LeakTracker tracker = new LeakTracker(buf, leakQueue);
+			trackers.add(tracker);
+			buf.tracker = tracker;
+		}
+		return buf;
+	}
+
+	// 引用计数归零后调用
+	void free(PooledBuffer buf) {
+		usedBytes.add(-buf.capacity());
+		LeakTracker tracker = buf.tracker;
+		if (tracker != null) {
+			buf.tracker = null;
+			trackers.remove(tracker);
+			tracker.clear();
+		}
+		if (buf.chunk == null) { // 非池化缓冲区交给 GC
+			return;
+		}
+		ThreadCache cache = buf.cache;
+		buf.cache = null;
+		if (cache != null && cache.thread == Thread.currentThread() && cache.offer(buf)) { // 只放回分配线程自己的缓存
+			cachedBytes.add(buf.capacity());
+			return;
+		}
+		buf.chunk.arena.free(buf.chunk, buf.handle);
+	}
+
+	// 能容纳 size 的最小块所在的深度
+	private int depthFor(int size) {
+		if (size <= minBlockSize) {
+			return maxOrder;
+		}
+		int order = 32 - Integer.numberOfLeadingZeros((size - 1) / minBlockSize); // ceil(log2(size / minBlockSize))
+		return maxOrder - order;
+	}
+
+	private PoolArena leastUsedArena() {
+		PoolArena min = arenas[0];
+		for (int i = 1; i < arenas.length; i++) {
+			if (arenas[i].threadCaches < min.threadCaches) {
+				min = arenas[i];
+			}
+		}
+		synchronized (min) {
+			min.threadCaches++;
+		}
+		return min;
+	}
+
+	void onChunkAllocated(int size) {
+		pooledBytes.addAndGet(size);
+		chunkCount.incrementAndGet();
+	}
+
+	void onChunkReleased(int size) {
+		pooledBytes.addAndGet(-size);
+		chunkCount.decrementAndGet();
+	}
+
+	/**
+	 * 把当前线程缓存的块还给 arena，线程长期不再分配时调用
+	 */
+	public void trimCurrentThreadCache() {
+		ThreadCache cache = threadCache.getIfExists();
+		if (cache != null) {
+			cache.trim();
+		}
+	}
+
+	private void collectLeaks() {
+		LeakTracker tracker;
+		while ((tracker = (LeakTracker) leakQueue.poll()) != null) {
+			if (trackers.remove(tracker)) { // 已 release 的不在集合中
+				leakCount.increment();
+				usedBytes.add(-tracker.capacity);
+				leaks.offer(tracker.allocation);
+			}
+		}
+	}
+
+	/**
+	 * 取出已发现的泄漏，每项为分配时的调用栈
+	 */
+	public List<Throwable> pollLeaks() {
+		collectLeaks();
+		List<Throwable> result = new ArrayList<Throwable>();
+		Throwable t;
+		while ((t = leaks.poll()) != null) {
+			result.add(t);
+		}
+		return result;
+	}
+
+	public boolean isLeakDetection() {
+		return leakDetection;
+	}
+
+	public Stats stats() {
+		return new Stats(pooledBytes.get(), chunkCount.get(), usedBytes.sum(), cachedBytes.sum(),
+			allocations.sum(), cacheHits.sum(), leakCount.sum());
+	}
+
+	@Override
+	public String toString() {
+		return "BufferPool[chunkSize = " + chunkSize + ", arenas = " + arenas.length + ", " + stats() + "]";
+	}
+
+	/**
+	 * 线程私有的空闲块缓存，按深度分组，每组是一个有界栈
+	 */
+	final class ThreadCache {
+
+		final PoolArena arena;
+
+		final Thread thread = Thread.currentThread();
+
+		private boolean freed; // 已还给 arena，之后释放的块不再缓存
+
+		private final PooledBuffer[][] stacks;
+
+		private final int[] sizes;
+
+		ThreadCache(PoolArena arena) {
+			this.arena = arena;
+			stacks = new PooledBuffer[maxOrder + 1][];
+			sizes = new int[maxOrder + 1];
+			for (int d = 0; d <= maxOrder; d++) {
+				int blockSize = chunkSize >> d;
+				if (blockSize <= MAX_CACHED_SIZE) {
+					stacks[d] = new PooledBuffer[blockSize <= SMALL_CACHE_SIZE ? 64 : 16];
+				}
+			}
+		}
+
+		PooledBuffer poll(int depth) {
+			PooledBuffer[] stack = stacks[depth];
+			if (stack == null || sizes[depth] == 0) {
+				return null;
+			}
+			int i = --sizes[depth];
+			PooledBuffer buf = stack[i];
+			stack[i] = null;
+			return buf;
+		}
+
+		boolean offer(PooledBuffer buf) {
+			int depth = buf.depth;
+			PooledBuffer[] stack = stacks[depth];
+			if (freed || stack == null || sizes[depth] == stack.length) {
+				return false;
+			}
+			stack[sizes[depth]++] = buf;
+			return true;
+		}
+
+		void trim() {
+			for (int d = 0; d <= maxOrder; d++) {
+				PooledBuffer buf;
+				while ((buf = poll(d)) != null) {
+					cachedBytes.add(-buf.capacity());
+					buf.chunk.arena.free(buf.chunk, buf.handle);
+				}
+			}
+		}
+
+		// 线程结束或 FastThreadLocal.removeAll 时调用，此后缓存对象作废，新的分配会创建新缓存
+		void free() {
+			freed = true;
+			trim();
+			synchronized (arena) {
+				arena.threadCaches--;
+			}
+		}
+	}
+
+	static final class LeakTracker extends WeakReference<PooledBuffer> {
+
+		final Throwable allocation;
+
+		final int capacity;
+
+		LeakTracker(PooledBuffer buf, ReferenceQueue<PooledBuffer> queue) {
+			super(buf, queue);
+			this.allocation = new Throwable("Buffer allocated here was garbage collected without release");
+			this.capacity = buf.capacity();
+		}
+	}
+
+	/**
+	 * 池的统计快照
+	 */
+	public static final class Stats {
+
+		private final long pooledBytes;
+
+		private final long chunks;
+
+		private final long usedBytes;
+
+		private final long cachedBytes;
+
+		private final long allocations;
+
+		private final long cacheHits;
+
+		private final long leaks;
+
+		Stats(long pooledBytes, long chunks, long usedBytes, long cachedBytes, long allocations, long cacheHits, long leaks) {
+			this.pooledBytes = pooledBytes;
+			this.chunks = chunks;
+			this.usedBytes = usedBytes;
+			this.cachedBytes = cachedBytes;
+			this.allocations = allocations;
+			this.cacheHits = cacheHits;
+			this.leaks = leaks;
+		}
+
+		/**
+		 * chunk 占用的直接内存
+		 */
+		public long getPooledBytes() {
+			return pooledBytes;
+		}
+
+		public long getChunks() {
+			return chunks;
+		}
+
+		/**
+		 * 调用方持有、尚未 release 的字节数，包括非池化的大缓冲区
+		 */
+		public long getUsedBytes() {
+			return usedBytes;
+		}
+
+		/**
+		 * 线程缓存中的字节数
+		 */
+		public long getCachedBytes() {
+			return cachedBytes;
+		}
+
+		public long getAllocations() {
+			return allocations;
+		}
+
+		public long getCacheHits() {
+			return cacheHits;
+		}
+
+		public long getLeaks() {
+			return leaks;
+		}
+
+		@Override
+		public String toString() {
+			return "pooled = " + pooledBytes + ", chunks = " + chunks + ", used = " + usedBytes + ", cached = " + cachedBytes
+				+ ", allocations = " + allocations + ", cacheHits = " + cacheHits + ", leaks = " + leaks;
+		}
+	}
+}
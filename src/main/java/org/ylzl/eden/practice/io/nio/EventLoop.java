@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import org.ylzl.eden.practice.io.multiplex.PollKey;
+import org.ylzl.eden.practice.io.multiplex.Poller;
+import org.ylzl.eden.practice.io.multiplex.Pollers;
+import org.ylzl.eden.practice.io.multiplex.ReadyHandler;
+import org.ylzl.eden.practice.thread.core.FastThreadLocalThread;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单线程事件循环，一个 {@link Poller} 负责一组连接的全部 IO 和回调
+ *
+ * <p>轮询后端由 {@link Pollers#open()} 决定，默认为 Selector，可切换为 epoll。
+ * 其他线程提交的任务进入无锁队列，只有在循环可能阻塞在 poll 上时才调用一次 {@link Poller#wakeup()}。
+ * 循环退出前会执行完队列中剩余的任务，之后提交的任务抛出 {@link RejectedExecutionException}。
+ * 循环自身的异常交给线程的 {@link Thread.UncaughtExceptionHandler}，可通过 {@link #setExceptionHandler} 替换。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class EventLoop implements Executor, Closeable {
+
+	private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+	private final Poller poller;
+
+	private final Thread thread;
+
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	private final AtomicBoolean wakenUp = new AtomicBoolean(); // 已请求唤醒，避免重复的 wakeup 系统调用
+
+	private final Set<NioConnection> connections = new HashSet<NioConnection>(); // 只在循环线程访问，关闭时逐个关闭
+
+	private final ReadyHandler readyHandler = new ReadyHandler() {
+
+		@Override
+		public void onReady(PollKey key, int readyOps) {
+			processReady(key, readyOps);
+		}
+	};
+
+	private volatile boolean closed;
+
+	private volatile boolean terminated; // 剩余任务已执行完，不再接受新任务
+
+	public EventLoop(String name) throws IOException {
+		this.poller = Pollers.open();
+		this.thread = new FastThreadLocalThread(new Runnable() {
+
+			@Override
+			public void run() {
+				EventLoop.this.run();
+			}
+		}, name);
+		thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * 设置循环异常的处理器，未设置时使用线程组的默认处理
+	 */
+	public void setExceptionHandler(Thread.UncaughtExceptionHandler handler) {
+		thread.setUncaughtExceptionHandler(handler);
+	}
+
+	public boolean inEventLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (terminated) {
+			throw new RejectedExecutionException("Event loop terminated");
+		}
+		tasks.offer(task);
+		if (terminated && tasks.remove(task)) { // 与退出前的最后一次 runTasks 竞争，没被取走的任务要拒绝
+			throw new RejectedExecutionException("Event loop terminated");
+		}
+		if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+			poller.wakeup();
+		}
+	}
+
+	/**
+	 * 在循环线程中注册连接
+	 */
+	PollKey register(NioConnection connection, int ops) throws IOException {
+		PollKey key = poller.register(connection.channel(), ops, connection);
+		connections.add(connection);
+		return key;
+	}
+
+	void deregister(NioConnection connection) {
+		connections.remove(connection);
+	}
+
+	/**
+	 * 轮询后端名称
+	 */
+	public String pollerName() {
+		return poller.name();
+	}
+
+	private void run() {
+		while (!closed) {
+			try {
+				wakenUp.set(false);
+				poller.poll(tasks.isEmpty() ? SELECT_TIMEOUT_MILLIS : 0, readyHandler);
+				runTasks();
+			} catch (Throwable t) { // 单个连接的异常不能终止循环
+				reportError(t);
+			}
+		}
+		terminated = true;
+		runTasks(); // 尚未注册的连接在任务中看到循环已关闭，会释放通道和读缓冲区
+		for (NioConnection connection : new ArrayList<NioConnection>(connections)) {
+			connection.closeNow();
+		}
+		try {
+			poller.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private void processReady(PollKey key, int readyOps) {
+		NioConnection connection = (NioConnection) key.attachment();
+		if ((readyOps & SelectionKey.OP_CONNECT) != 0) {
+			connection.finishConnect();
+			if (!key.isValid()) {
+				return;
+			}
+		}
+		if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+			connection.flush();
+		}
+		if ((readyOps & SelectionKey.OP_READ) != 0 && key.isValid()) {
+			connection.read();
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				reportError(t);
+			}
+		}
+	}
+
+	private void reportError(Throwable t) {
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+	}
+
+	/**
+	 * 停止循环并关闭其上的所有连接
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		poller.wakeup();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 帧编解码，实现应无状态，可被多个连接共享
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public interface FrameCodec {
+
+	/**
+	 * 从 in 的 position 处解出一帧并推进 position，数据不足时返回 null 且不移动 position。
+	 * 返回的帧是 in 的切片，只在本次回调内有效。
+	 *
+	 * @throws IOException 帧格式错误或超过最大长度，连接会被关闭
+	 */
+	ByteBuffer decode(ByteBuffer in) throws IOException;
+
+	/**
+	 * 把一帧编码为待写出的缓冲区，可以直接引用 frame 避免拷贝
+	 */
+	ByteBuffer[] encode(ByteBuffer frame);
+}
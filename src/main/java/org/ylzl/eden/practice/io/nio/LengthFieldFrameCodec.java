@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 4 字节大端长度前缀的帧，长度不含前缀本身
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class LengthFieldFrameCodec implements FrameCodec {
+
+	private static final int HEADER_LENGTH = 4;
+
+	private final int maxFrameLength;
+
+	public LengthFieldFrameCodec() {
+		this(1024 * 1024);
+	}
+
+	public LengthFieldFrameCodec(int maxFrameLength) {
+		if (maxFrameLength <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	@Override
+	public ByteBuffer decode(ByteBuffer in) throws IOException {
+		int pos = in.position();
+		if (in.limit() - pos < HEADER_LENGTH) {
+			return null;
+		}
+		int length = in.getInt(pos);
+		if (length < 0 || length > maxFrameLength) {
+			throw new IOException("Illegal frame length " + length);
+		}
+		if (in.limit() - pos - HEADER_LENGTH < length) {
+			return null;
+		}
+		ByteBuffer frame = in.duplicate();
+		frame.position(pos + HEADER_LENGTH).limit(pos + HEADER_LENGTH + length);
+		in.position(pos + HEADER_LENGTH + length);
+		return frame.slice();
+	}
+
+	@Override
+	public ByteBuffer[] encode(ByteBuffer frame) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(0, frame.remaining());
+		return new ByteBuffer[]{header, frame};
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 以 \n 分隔的帧，解码时去掉行尾的 \r\n 或 \n，编码时追加 \n
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class LineFrameCodec implements FrameCodec {
+
+	private static final byte[] DELIMITER = {'\n'};
+
+	private final int maxFrameLength;
+
+	public LineFrameCodec() {
+		this(64 * 1024);
+	}
+
+	public LineFrameCodec(int maxFrameLength) {
+		if (maxFrameLength <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	@Override
+	public ByteBuffer decode(ByteBuffer in) throws IOException {
+		int pos = in.position();
+		int limit = in.limit();
+		for (int i = pos; i < limit; i++) {
+			if (in.get(i) == '\n') {
+				int end = (i > pos && in.get(i - 1) == '\r') ? i - 1 : i;
+				ByteBuffer frame = in.duplicate();
+				frame.position(pos).limit(end);
+				in.position(i + 1);
+				return frame.slice();
+			}
+		}
+		if (limit - pos > maxFrameLength) {
+			throw new IOException("Line exceeds " + maxFrameLength + " bytes");
+		}
+		return null;
+	}
+
+	@Override
+	public ByteBuffer[] encode(ByteBuffer frame) {
+		return new ByteBuffer[]{frame, ByteBuffer.wrap(DELIMITER)};
+	}
+}
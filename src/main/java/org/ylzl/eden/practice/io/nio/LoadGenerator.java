@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import org.ylzl.eden.practice.thread.pool.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回环压测客户端
+ *
+ * <p>建立指定数量的连接，每个连接保持 pipeline 个在途请求，收到响应后立即发送下一个（闭环）。
+ * 请求的前 8 字节是发送时间，响应原样返回后据此计算延迟。每个事件循环独立记录直方图，结束时合并，避免跨线程写。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class LoadGenerator {
+
+	private final InetSocketAddress address;
+
+	private final int connections;
+
+	private final int ioThreads;
+
+	private final int payloadSize;
+
+	private final int pipeline;
+
+	private final FrameCodec codec;
+
+	private volatile boolean running;
+
+	public LoadGenerator(InetSocketAddress address, int connections, int ioThreads, int payloadSize, int pipeline,
+						 FrameCodec codec) {
+		if (connections <= 0 || ioThreads <= 0 || payloadSize < 8 || pipeline <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.address = address;
+		this.connections = connections;
+		this.ioThreads = ioThreads;
+		this.payloadSize = payloadSize;
+		this.pipeline = pipeline;
+		this.codec = codec;
+	}
+
+	public Result run(long duration, TimeUnit unit) throws IOException, InterruptedException {
+		final EventLoop[] loops = new EventLoop[ioThreads];
+		final LatencyHistogram[] histograms = new LatencyHistogram[ioThreads];
+		for (int i = 0; i < ioThreads; i++) {
+			loops[i] = new EventLoop("load-generator-" + i);
+			histograms[i] = new LatencyHistogram();
+			loops[i].start();
+		}
+		final CountDownLatch opened = new CountDownLatch(connections);
+		final AtomicInteger failed = new AtomicInteger();
+		MessageHandler<NioConnection> handler = new MessageHandler<NioConnection>() {
+
+			@Override
+			public void onOpen(NioConnection connection) {
+				opened.countDown();
+			}
+
+			@Override
+			public void onMessage(NioConnection connection, ByteBuffer frame) {
+				long sent = frame.getLong(frame.position());
+				((LatencyHistogram) connection.attachment()).record(System.nanoTime() - sent);
+				if (running) {
+					send(connection);
+				}
+			}
+
+			@Override
+			public void onError(NioConnection connection, Throwable cause) {
+				failed.incrementAndGet();
+				opened.countDown();
+			}
+		};
+		NioConnection[] clients = new NioConnection[connections];
+		try {
+			long connectStart = System.nanoTime();
+			for (int i = 0; i < connections; i++) {
+				clients[i] = NioConnection.connect(address, loops[i % ioThreads], codec, handler, new NioConnection.Options());
+				clients[i].attach(histograms[i % ioThreads]);
+			}
+			opened.await(30, TimeUnit.SECONDS);
+			long connectNanos = System.nanoTime() - connectStart;
+
+			running = true;
+			long start = System.nanoTime();
+			for (final NioConnection client : clients) {
+				client.loop().execute(new Runnable() {
+
+					@Override
+					public void run() {
+						for (int k = 0; k < pipeline && client.isOpen(); k++) {
+							send(client);
+						}
+					}
+				});
+			}
+			unit.sleep(duration);
+			running = false;
+			long elapsed = System.nanoTime() - start;
+			Thread.sleep(200); // 等待在途响应
+
+			final LatencyHistogram total = new LatencyHistogram();
+			final CountDownLatch merged = new CountDownLatch(ioThreads);
+			for (int i = 0; i < ioThreads; i++) {
+				final LatencyHistogram h = histograms[i];
+				loops[i].execute(new Runnable() { // 在写入线程中读取，保证可见
+
+					@Override
+					public void run() {
+						synchronized (total) {
+							total.add(h);
+						}
+						merged.countDown();
+					}
+				});
+			}
+			merged.await();
+			synchronized (total) {
+				return new Result(connections - failed.get(), connectNanos, total, elapsed);
+			}
+		} finally {
+			for (EventLoop loop : loops) {
+				loop.close();
+			}
+		}
+	}
+
+	private void send(NioConnection connection) {
+		ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+		payload.putLong(0, System.nanoTime());
+		connection.write(payload);
+	}
+
+	/**
+	 * 压测结果
+	 */
+	public static final class Result {
+
+		private final int connections;
+
+		private final long connectNanos;
+
+		private final LatencyHistogram latency;
+
+		private final long elapsedNanos;
+
+		Result(int connections, long connectNanos, LatencyHistogram latency, long elapsedNanos) {
+			this.connections = connections;
+			this.connectNanos = connectNanos;
+			this.latency = latency;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public int getConnections() {
+			return connections;
+		}
+
+		public long getMessages() {
+			return latency.getTotalCount();
+		}
+
+		public double getMessagesPerSecond() {
+			return latency.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("connections = %d (%d ms), messages = %d, %.0f msg/s, latency p50 = %d us, p99 = %d us, p999 = %d us, max = %d us",
+				connections, TimeUnit.NANOSECONDS.toMillis(connectNanos), getMessages(), getMessagesPerSecond(),
+				TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(50)),
+				TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(99)),
+				TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(99.9)),
+				TimeUnit.NANOSECONDS.toMicros(latency.getMax()));
+		}
+	}
+
+	/**
+	 * 参数依次为：连接数、服务端线程数、客户端线程数、消息字节数、每连接在途请求数、持续秒数
+	 */
+	public static void main(String[] args) throws Exception {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int serverThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int clientThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int payloadSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+		int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+		FrameCodec codec = new LengthFieldFrameCodec();
+		NioServer server = NonblockingIO.startEchoServer(0, serverThreads, codec);
+		try {
+			LoadGenerator generator = new LoadGenerator(new InetSocketAddress("127.0.0.1", server.getPort()),
+				connections, clientThreads, payloadSize, pipeline, codec);
+			System.out.println(generator.run(seconds, TimeUnit.SECONDS));
+		} finally {
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 连接事件回调，在 IO 线程中执行，不能阻塞
+ *
+ * <p>NIO 与 AIO 共用，C 为连接类型。{@link NioConnection} 的回调全部在所属事件循环线程中执行；
+ * {@link org.ylzl.eden.practice.io.aio.AioConnection} 的回调在通道组的线程中执行，同一连接的 onMessage 按顺序串行，
+ * onError、onClose 可能来自写完成回调，与 onMessage 处于不同线程。
+ *
+ * @param <C> 连接类型
+ * @author gyl
+ * @since 2.0.0
+ */
+public interface MessageHandler<C> {
+
+	default void onOpen(C connection) {
+	}
+
+	/**
+	 * 收到一帧，frame 只在回调内有效，需要保留时自行拷贝
+	 */
+	void onMessage(C connection, ByteBuffer frame) throws Exception;
+
+	default void onClose(C connection) {
+	}
+
+	/**
+	 * 回调或 IO 出错，之后连接会被关闭
+	 *
+	 * <p>与具体连接无关的错误（如服务端 accept 失败、事件循环异常）也从这里报告，此时 connection 为 null
+	 */
+	default void onError(C connection, Throwable cause) {
+	}
+}
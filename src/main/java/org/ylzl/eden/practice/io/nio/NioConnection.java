@@ -0,0 +1,456 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import org.ylzl.eden.practice.io.multiplex.PollKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非阻塞连接
+ *
+ * <p>读缓冲区从 {@link BufferPool} 分配，一次读取后尽可能多地解码帧并回调 {@link MessageHandler}。
+ * {@link #write} 可以在任意线程调用：事件循环线程内且没有积压时直接写 socket，否则进入队列，由循环线程批量聚集写出。
+ * 待写字节超过高水位时停止读取这个连接，对端不再能继续推送请求，降到低水位以下再恢复。
+ * 读写都按边沿触发处理：可读时读到返回 0 为止，可写时写到发送缓冲区满为止。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class NioConnection implements Closeable {
+
+	private static final int MAX_GATHER = 64; // 一次聚集写的最大缓冲区数
+
+	private final SocketChannel channel;
+
+	private final EventLoop loop;
+
+	private final FrameCodec codec;
+
+	private final MessageHandler<NioConnection> handler;
+
+	private final int lowWaterMark;
+
+	private final int highWaterMark;
+
+	private final int maxReadBufferSize;
+
+	private PollKey key;
+
+	private PooledBuffer readBuffer;
+
+	private ByteBuffer in; // 写模式，position 之前为未解码的数据
+
+	private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<ByteBuffer>(); // 只在循环线程访问
+
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+	private final ConcurrentLinkedQueue<ByteBuffer[]> incoming = new ConcurrentLinkedQueue<ByteBuffer[]>(); // 其他线程的写请求
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private final AtomicLong pendingBytes = new AtomicLong();
+
+	private volatile boolean writable = true;
+
+	private boolean readSuspended;
+
+	private volatile boolean closed;
+
+	private volatile Object attachment;
+
+	private final Runnable flushTask = new Runnable() {
+
+		@Override
+		public void run() {
+			flushScheduled.set(false);
+			flush();
+		}
+	};
+
+	NioConnection(SocketChannel channel, EventLoop loop, FrameCodec codec, MessageHandler<NioConnection> handler, Options options) {
+		this.channel = channel;
+		this.loop = loop;
+		this.codec = codec;
+		this.handler = handler;
+		this.lowWaterMark = options.lowWaterMark;
+		this.highWaterMark = options.highWaterMark;
+		this.maxReadBufferSize = options.maxReadBufferSize;
+		this.readBuffer = BufferPool.DEFAULT.allocate(options.readBufferSize);
+		this.in = readBuffer.buffer();
+	}
+
+	/**
+	 * 注册已连接的通道，通常由服务端 acceptor 调用
+	 */
+	static NioConnection register(SocketChannel channel, EventLoop loop, FrameCodec codec, MessageHandler<NioConnection> handler,
+								  Options options) throws IOException {
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		final NioConnection connection = new NioConnection(channel, loop, codec, handler, options);
+		connection.submitRegister(new Runnable() {
+
+			@Override
+			public void run() {
+				connection.doRegister(SelectionKey.OP_READ);
+				if (connection.key != null) {
+					connection.fireOpen();
+				}
+			}
+		});
+		return connection;
+	}
+
+	/**
+	 * 发起非阻塞连接，连接建立后回调 {@link MessageHandler#onOpen}
+	 */
+	public static NioConnection connect(SocketAddress remote, EventLoop loop, FrameCodec codec, MessageHandler<NioConnection> handler,
+										Options options) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		final boolean connected = channel.connect(remote);
+		final NioConnection connection = new NioConnection(channel, loop, codec, handler, options);
+		connection.submitRegister(new Runnable() {
+
+			@Override
+			public void run() {
+				connection.doRegister(connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT);
+				if (connected && connection.key != null) {
+					connection.fireOpen();
+				}
+			}
+		});
+		return connection;
+	}
+
+	private void submitRegister(Runnable task) throws IOException {
+		try {
+			loop.execute(task);
+		} catch (RejectedExecutionException e) {
+			abort();
+			throw new IOException("Event loop closed", e);
+		}
+	}
+
+	private void doRegister(int ops) {
+		if (loop.isClosed()) { // 循环退出前执行剩余任务，不再注册
+			abort();
+			return;
+		}
+		try {
+			key = loop.register(this, ops);
+		} catch (IOException e) {
+			handler.onError(this, e);
+			closeNow();
+		}
+	}
+
+	private void fireOpen() {
+		try {
+			handler.onOpen(this);
+		} catch (Throwable t) {
+			handler.onError(this, t);
+			closeNow();
+		}
+	}
+
+	void finishConnect() {
+		try {
+			if (channel.finishConnect()) {
+				key.interestOps(SelectionKey.OP_READ);
+				fireOpen();
+				flush();
+			}
+		} catch (IOException e) {
+			handler.onError(this, e);
+			closeNow();
+		}
+	}
+
+	void read() {
+		try {
+			while (!readSuspended) { // 暂停读取时剩余数据留在内核，恢复关注可读后会再次通知
+				int n = channel.read(in);
+				if (n < 0) {
+					closeNow();
+					return;
+				}
+				if (n == 0) {
+					return;
+				}
+				in.flip();
+				ByteBuffer frame;
+				while (!closed && (frame = codec.decode(in)) != null) {
+					handler.onMessage(this, frame);
+				}
+				if (closed) {
+					return;
+				}
+				in.compact();
+				if (!in.hasRemaining()) { // 一帧装不下，扩容
+					growReadBuffer();
+				}
+			}
+		} catch (Throwable t) {
+			handler.onError(this, t);
+			closeNow();
+		}
+	}
+
+	private void growReadBuffer() throws IOException {
+		int capacity = in.capacity();
+		if (capacity >= maxReadBufferSize) {
+			throw new IOException("Frame exceeds read buffer limit " + maxReadBufferSize);
+		}
+		PooledBuffer bigger = BufferPool.DEFAULT.allocate(Math.min(capacity * 2, maxReadBufferSize));
+		ByteBuffer next = bigger.buffer();
+		in.flip();
+		next.put(in);
+		readBuffer.release();
+		readBuffer = bigger;
+		in = next;
+	}
+
+	/**
+	 * 写出一帧，frame 的所有权转交给连接，调用后不能再修改
+	 */
+	public void write(ByteBuffer frame) {
+		if (closed) {
+			return;
+		}
+		ByteBuffer[] encoded = codec.encode(frame);
+		long size = 0;
+		for (ByteBuffer b : encoded) {
+			size += b.remaining();
+		}
+		if (pendingBytes.addAndGet(size) > highWaterMark) {
+			writable = false;
+		}
+		if (loop.inEventLoop()) {
+			for (ByteBuffer b : encoded) {
+				outbound.add(b);
+			}
+			flush();
+		} else {
+			incoming.offer(encoded);
+			if (flushScheduled.compareAndSet(false, true)) {
+				try {
+					loop.execute(flushTask);
+				} catch (RejectedExecutionException ignored) { // 循环已退出，连接随之关闭
+				}
+			}
+		}
+	}
+
+	void flush() {
+		if (closed || !channel.isConnected()) { // 连接建立后 finishConnect 会再次 flush
+			return;
+		}
+		ByteBuffer[] encoded;
+		while ((encoded = incoming.poll()) != null) {
+			for (ByteBuffer b : encoded) {
+				outbound.add(b);
+			}
+		}
+		try {
+			while (!outbound.isEmpty()) {
+				int count = 0;
+				for (ByteBuffer b : outbound) {
+					gather[count++] = b;
+					if (count == MAX_GATHER) {
+						break;
+					}
+				}
+				long written = channel.write(gather, 0, count);
+				for (int i = 0; i < count; i++) {
+					gather[i] = null;
+				}
+				pendingBytes.addAndGet(-written);
+				while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+					outbound.poll();
+				}
+				if (written == 0) { // socket 发送缓冲区已满
+					break;
+				}
+			}
+		} catch (IOException e) {
+			handler.onError(this, e);
+			closeNow();
+			return;
+		}
+		updateInterest();
+	}
+
+	// 按积压情况调整关注的事件：有积压关注可写，超过高水位暂停读取
+	private void updateInterest() {
+		if (key == null || !key.isValid()) {
+			return;
+		}
+		long pending = pendingBytes.get();
+		if (pending > highWaterMark) {
+			readSuspended = true;
+		} else if (pending <= lowWaterMark) {
+			readSuspended = false;
+			writable = true;
+		}
+		int ops = (readSuspended ? 0 : SelectionKey.OP_READ) | (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+		if (key.interestOps() != ops) {
+			key.interestOps(ops);
+		}
+	}
+
+	/**
+	 * 待写字节未超过高水位，生产者可据此限速
+	 */
+	public boolean isWritable() {
+		return writable;
+	}
+
+	public long getPendingBytes() {
+		return pendingBytes.get();
+	}
+
+	SocketChannel channel() {
+		return channel;
+	}
+
+	public EventLoop loop() {
+		return loop;
+	}
+
+	public SocketAddress getRemoteAddress() {
+		try {
+			return channel.getRemoteAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public Object attachment() {
+		return attachment;
+	}
+
+	public void attach(Object attachment) {
+		this.attachment = attachment;
+	}
+
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() {
+		if (loop.inEventLoop()) {
+			closeNow();
+		} else {
+			try {
+				loop.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						closeNow();
+					}
+				});
+			} catch (RejectedExecutionException ignored) { // 循环退出时已关闭全部连接
+			}
+		}
+	}
+
+	/**
+	 * 从未注册到循环的连接只释放资源，不回调 {@link MessageHandler#onClose}
+	 */
+	private void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+		readBuffer.release();
+	}
+
+	void closeNow() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (key != null) {
+			key.cancel();
+			loop.deregister(this);
+		}
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+		readBuffer.release();
+		outbound.clear();
+		incoming.clear();
+		handler.onClose(this);
+	}
+
+	@Override
+	public String toString() {
+		return "NioConnection[remote = " + getRemoteAddress() + ", pending = " + pendingBytes.get() + "]";
+	}
+
+	/**
+	 * 连接参数
+	 */
+	public static final class Options {
+
+		int readBufferSize = 16 * 1024;
+
+		int maxReadBufferSize = 1024 * 1024 + 64;
+
+		int lowWaterMark = 32 * 1024;
+
+		int highWaterMark = 64 * 1024;
+
+		public Options readBufferSize(int initial, int max) {
+			if (initial <= 0 || max < initial) {
+				throw new IllegalArgumentException();
+			}
+			this.readBufferSize = initial;
+			this.maxReadBufferSize = max;
+			return this;
+		}
+
+		public Options writeBufferWaterMark(int low, int high) {
+			if (low < 0 || high < low) {
+				throw new IllegalArgumentException();
+			}
+			this.lowWaterMark = low;
+			this.highWaterMark = high;
+			return this;
+		}
+	}
+}
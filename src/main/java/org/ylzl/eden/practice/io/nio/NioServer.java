@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多 Reactor 的非阻塞 TCP 服务端
+ *
+ * <p>一个 acceptor 线程阻塞在 accept 上，新连接轮询分配给 N 个 {@link EventLoop}，之后的读写和回调都在所属循环线程中完成。
+ * <pre>
+ * NioServer server = new NioServer(new InetSocketAddress(8080), 4, new LineFrameCodec(), handler);
+ * server.start();
+ * </pre>
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class NioServer implements Closeable {
+
+	private static final int BACKLOG = 4096;
+
+	private final InetSocketAddress address;
+
+	private final EventLoop[] loops;
+
+	private final FrameCodec codec;
+
+	private final MessageHandler<NioConnection> handler;
+
+	private final NioConnection.Options options;
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private ServerSocketChannel serverChannel;
+
+	private Thread acceptor;
+
+	private volatile boolean closed;
+
+	public NioServer(InetSocketAddress address, int ioThreads, FrameCodec codec, MessageHandler<NioConnection> handler) throws IOException {
+		this(address, ioThreads, codec, handler, new NioConnection.Options());
+	}
+
+	public NioServer(InetSocketAddress address, int ioThreads, FrameCodec codec, MessageHandler<NioConnection> handler,
+					 NioConnection.Options options) throws IOException {
+		if (ioThreads <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.address = address;
+		this.codec = codec;
+		this.handler = new CountingHandler(handler);
+		this.options = options;
+		this.loops = new EventLoop[ioThreads];
+		for (int i = 0; i < ioThreads; i++) {
+			loops[i] = new EventLoop("nio-server-loop-" + i);
+			loops[i].setExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+				@Override
+				public void uncaughtException(Thread t, Throwable e) {
+					NioServer.this.handler.onError(null, e);
+				}
+			});
+		}
+	}
+
+	public void start() throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		serverChannel.bind(address, BACKLOG);
+		for (EventLoop loop : loops) {
+			loop.start();
+		}
+		acceptor = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "nio-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	private void accept() {
+		int next = 0;
+		while (!closed) {
+			SocketChannel channel = null;
+			try {
+				channel = serverChannel.accept();
+				NioConnection.register(channel, loops[next], codec, handler, options);
+				next = (next + 1) % loops.length;
+			} catch (IOException e) {
+				if (closed) {
+					return;
+				}
+				if (channel != null) {
+					try {
+						channel.close();
+					} catch (IOException ignored) {
+					}
+				}
+				handler.onError(null, e); // 如文件句柄耗尽，稍后重试
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException ie) {
+					return;
+				}
+			}
+		}
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	public int getConnectionCount() {
+		return connections.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (serverChannel != null) {
+			serverChannel.close();
+		}
+		for (EventLoop loop : loops) {
+			loop.close();
+		}
+	}
+
+	private final class CountingHandler implements MessageHandler<NioConnection> {
+
+		private final MessageHandler<NioConnection> delegate;
+
+		CountingHandler(MessageHandler<NioConnection> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onOpen(NioConnection connection) {
+			connections.incrementAndGet();
+			delegate.onOpen(connection);
+		}
+
+		@Override
+		public void onMessage(NioConnection connection, ByteBuffer frame) throws Exception {
+			delegate.onMessage(connection, frame);
+		}
+
+		@Override
+		public void onClose(NioConnection connection) {
+			connections.decrementAndGet();
+			delegate.onClose(connection);
+		}
+
+		@Override
+		public void onError(NioConnection connection, Throwable cause) {
+			delegate.onError(connection, cause);
+		}
+	}
+}
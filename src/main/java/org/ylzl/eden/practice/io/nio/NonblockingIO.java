@@ -3,7 +3,7 @@
  * contributor license agreements.  See the NOTICE file distributed with
  * this work for additional information regarding copyright ownership.
  * The ASF licenses this file to You under the Apache License, Version 2.0
- *  (the "License"); you may not use this file except in compliance with
+ * (the "License"); you may not use this file except in compliance with
  * the License.  You may obtain a copy of the License at
  *
  *      http://www.apache.org/licenses/LICENSE-2.0
@@ -17,13 +17,42 @@
 
 package org.ylzl.eden.practice.io.nio;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
 /**
  * 非阻塞 IO
  *
+ * <p>基于 Selector 的多 Reactor 模型：{@link NioServer} 负责接入，{@link EventLoop} 负责一组连接的读写，
+ * {@link FrameCodec} 负责拆帧，{@link LoadGenerator} 用于在回环地址上压测。
+ *
  * @author gyl
  * @since 2.0.0
  */
 public class NonblockingIO {
 
+	/**
+	 * 原样返回收到的每一帧
+	 */
+	public static MessageHandler<NioConnection> echoHandler() {
+		return new MessageHandler<NioConnection>() {
+
+			@Override
+			public void onMessage(NioConnection connection, ByteBuffer frame) {
+				ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+				copy.put(frame).flip();
+				connection.write(copy);
+			}
+		};
+	}
 
+	/**
+	 * 启动回显服务
+	 */
+	public static NioServer startEchoServer(int port, int ioThreads, FrameCodec codec) throws IOException {
+		NioServer server = new NioServer(new InetSocketAddress(port), ioThreads, codec, echoHandler());
+		server.start();
+		return server;
+	}
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一组 chunk，多个线程分散到不同的 arena 上以降低锁竞争
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class PoolArena {
+
+	private final BufferPool pool;
+
+	private final List<PoolChunk> chunks = new ArrayList<PoolChunk>();
+
+	private int emptyChunks; // 完全空闲的 chunk 数，多于 1 个时释放多余的
+
+	int threadCaches; // 绑定到本 arena 的线程缓存数，用于均衡分配
+
+	PoolArena(BufferPool pool) {
+		this.pool = pool;
+	}
+
+	synchronized PooledBuffer allocate(int depth, int size) {
+		for (int i = 0, n = chunks.size(); i < n; i++) {
+			PoolChunk chunk = chunks.get(i);
+			boolean wasEmpty = chunk.isEmpty();
+			int id = chunk.allocate(depth);
+			if (id > 0) {
+				if (wasEmpty) {
+					emptyChunks--;
+				}
+				return new PooledBuffer(pool, chunk, id, size);
+			}
+		}
+		PoolChunk chunk = new PoolChunk(this, pool.minBlockSize, pool.maxOrder);
+		chunks.add(chunk);
+		pool.onChunkAllocated(chunk.chunkSize);
+		return new PooledBuffer(pool, chunk, chunk.allocate(depth), size);
+	}
+
+	synchronized void free(PoolChunk chunk, int id) {
+		chunk.free(id);
+		if (chunk.isEmpty()) {
+			if (emptyChunks > 0) { // 保留一个空闲 chunk 应对抖动，其余交给 GC 回收
+				chunks.remove(chunk);
+				pool.onChunkReleased(chunk.chunkSize);
+			} else {
+				emptyChunks++;
+			}
+		}
+	}
+}
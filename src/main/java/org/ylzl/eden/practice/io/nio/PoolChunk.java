@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 伙伴算法管理的一块直接内存
+ *
+ * <p>chunkSize = minBlockSize × 2^maxOrder，用完全二叉树表示划分：深度 d 的节点对应 chunkSize >> d 的块。
+ * memoryMap[id] 记录子树中能分配的最浅深度，分配时沿树找到深度恰好为 d 且可用的节点，O(maxOrder)。
+ * 非线程安全，由所属 {@link PoolArena} 加锁访问。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+final class PoolChunk {
+
+	final PoolArena arena;
+
+	final ByteBuffer memory;
+
+	final int chunkSize;
+
+	final int maxOrder;
+
+	private final byte[] memoryMap;
+
+	private final byte unusable; // 已分配的标记，比最大深度大 1
+
+	int freeBytes;
+
+	PoolChunk(PoolArena arena, int minBlockSize, int maxOrder) {
+		this.arena = arena;
+		this.maxOrder = maxOrder;
+		this.chunkSize = minBlockSize << maxOrder;
+		this.memory = ByteBuffer.allocateDirect(chunkSize);
+		this.unusable = (byte) (maxOrder + 1);
+		this.freeBytes = chunkSize;
+		memoryMap = new byte[1 << (maxOrder + 1)];
+		for (int d = 0; d <= maxOrder; d++) {
+			int start = 1 << d;
+			for (int id = start; id < start << 1; id++) {
+				memoryMap[id] = (byte) d;
+			}
+		}
+	}
+
+	static int depth(int id) {
+		return 31 - Integer.numberOfLeadingZeros(id);
+	}
+
+	/**
+	 * 分配深度为 d 的块，返回节点编号，空间不足返回 -1
+	 */
+	int allocate(int d) {
+		int id = 1;
+		int initial = -(1 << d); // id & initial != 0 表示 id 的深度 >= d
+		byte val = memoryMap[id];
+		if (val > d) {
+			return -1;
+		}
+		while (val < d || (id & initial) == 0) {
+			id <<= 1;
+			val = memoryMap[id];
+			if (val > d) { // 左子树不够，换右子树
+				id ^= 1;
+				val = memoryMap[id];
+			}
+		}
+		memoryMap[id] = unusable;
+		updateParentsAlloc(id);
+		freeBytes -= size(id);
+		return id;
+	}
+
+	void free(int id) {
+		memoryMap[id] = (byte) depth(id);
+		updateParentsFree(id);
+		freeBytes += size(id);
+	}
+
+	boolean isEmpty() {
+		return freeBytes == chunkSize;
+	}
+
+	private void updateParentsAlloc(int id) {
+		while (id > 1) {
+			int parentId = id >>> 1;
+			byte v1 = memoryMap[id];
+			byte v2 = memoryMap[id ^ 1];
+			memoryMap[parentId] = v1 < v2 ? v1 : v2;
+			id = parentId;
+		}
+	}
+
+	// 两个兄弟都完全空闲时父节点合并回完整的块
+	private void updateParentsFree(int id) {
+		int logChild = depth(id) + 1;
+		while (id > 1) {
+			int parentId = id >>> 1;
+			byte v1 = memoryMap[id];
+			byte v2 = memoryMap[id ^ 1];
+			logChild -= 1;
+			if (v1 == logChild && v2 == logChild) {
+				memoryMap[parentId] = (byte) (logChild - 1);
+			} else {
+				memoryMap[parentId] = v1 < v2 ? v1 : v2;
+			}
+			id = parentId;
+		}
+	}
+
+	int size(int id) {
+		return chunkSize >> depth(id);
+	}
+
+	int offset(int id) {
+		int d = depth(id);
+		return (id ^ (1 << d)) * (chunkSize >> d);
+	}
+
+	/**
+	 * 节点对应内存的独立视图
+	 */
+	ByteBuffer slice(int id) {
+		ByteBuffer view = memory.duplicate();
+		int offset = offset(id);
+		view.limit(offset + size(id)).position(offset);
+		return view.slice();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 从 {@link BufferPool} 分配的缓冲区，按引用计数归还
+ *
+ * <p>分配时引用计数为 1，{@link #retain()} 加一，{@link #release()} 减一，减到 0 时内存回到池中，
+ * 之后不能再访问 {@link #buffer()}。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class PooledBuffer {
+
+	private static final AtomicIntegerFieldUpdater<PooledBuffer> REF_CNT =
+		AtomicIntegerFieldUpdater.newUpdater(PooledBuffer.class, "refCnt");
+
+	private final BufferPool pool;
+
+	final PoolChunk chunk; // 超过 chunk 大小的非池化缓冲区为 null
+
+	final int handle; // chunk 中的节点编号
+
+	final int depth;
+
+	private final ByteBuffer buffer;
+
+	private volatile int refCnt = 1;
+
+	BufferPool.LeakTracker tracker; // 未开启泄漏检测时为 null
+
+	BufferPool.ThreadCache cache; // 分配线程的缓存，非 FastThreadLocalThread 分配时为 null
+
+	PooledBuffer(BufferPool pool, PoolChunk chunk, int handle, int size) {
+		this.pool = pool;
+		this.chunk = chunk;
+		this.handle = handle;
+		this.depth = PoolChunk.depth(handle);
+		this.buffer = chunk.slice(handle);
+		buffer.limit(size);
+	}
+
+	PooledBuffer(BufferPool pool, int size) {
+		this.pool = pool;
+		this.chunk = null;
+		this.handle = -1;
+		this.depth = -1;
+		this.buffer = ByteBuffer.allocateDirect(size);
+	}
+
+	// 从线程缓存中取出复用
+	void reuse(int size) {
+		buffer.clear();
+		buffer.limit(size);
+		refCnt = 1;
+	}
+
+	/**
+	 * 底层的直接缓冲区，limit 为申请的大小，capacity 为实际分配的块大小
+	 */
+	public ByteBuffer buffer() {
+		if (refCnt == 0) {
+			throw new IllegalStateException("Buffer already released");
+		}
+		return buffer;
+	}
+
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	public boolean isPooled() {
+		return chunk != null;
+	}
+
+	public int refCnt() {
+		return refCnt;
+	}
+
+	public PooledBuffer retain() {
+		for (;;) {
+			int cnt = refCnt;
+			if (cnt == 0) {
+				throw new IllegalStateException("Buffer already released");
+			}
+			if (REF_CNT.compareAndSet(this, cnt, cnt + 1)) {
+				return this;
+			}
+		}
+	}
+
+	/**
+	 * 引用计数减一，返回是否已归还
+	 */
+	public boolean release() {
+		for (;;) {
+			int cnt = refCnt;
+			if (cnt == 0) {
+				throw new IllegalStateException("Buffer already released");
+			}
+			if (REF_CNT.compareAndSet(this, cnt, cnt - 1)) {
+				if (cnt == 1) {
+					pool.free(this);
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PooledBuffer[capacity = " + capacity() + ", refCnt = " + refCnt + "]";
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.core;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 基于数组下标的线程本地变量
+ *
+ * <p>在 {@link FastThreadLocalThread} 中访问最快，普通线程中也能使用。线程池任务结束或线程退出时
+ * 调用 {@link #removeAll()} 清理本线程设置过的全部变量。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class FastThreadLocal<V> {
+
+	private final int index = InternalThreadLocalMap.nextVariableIndex();
+
+	public static <S> FastThreadLocal<S> withInitial(final Supplier<? extends S> supplier) {
+		if (supplier == null) {
+			throw new NullPointerException();
+		}
+		return new FastThreadLocal<S>() {
+
+			@Override
+			protected S initialValue() {
+				return supplier.get();
+			}
+		};
+	}
+
+	/**
+	 * 清理当前线程设置过的所有 FastThreadLocal
+	 */
+	@SuppressWarnings("unchecked")
+	public static void removeAll() {
+		InternalThreadLocalMap map = InternalThreadLocalMap.getIfSet();
+		if (map == null) {
+			return;
+		}
+		try {
+			Object v = map.indexedVariable(InternalThreadLocalMap.VARIABLES_TO_REMOVE_INDEX);
+			if (v != InternalThreadLocalMap.UNSET) {
+				Set<FastThreadLocal<?>> variablesToRemove = (Set<FastThreadLocal<?>>) v;
+				FastThreadLocal<?>[] variables = variablesToRemove.toArray(new FastThreadLocal<?>[0]);
+				for (FastThreadLocal<?> tlv : variables) {
+					tlv.remove(map);
+				}
+			}
+		} finally {
+			InternalThreadLocalMap.remove();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addToVariablesToRemove(InternalThreadLocalMap map, FastThreadLocal<?> variable) {
+		Object v = map.indexedVariable(InternalThreadLocalMap.VARIABLES_TO_REMOVE_INDEX);
+		Set<FastThreadLocal<?>> variablesToRemove;
+		if (v == InternalThreadLocalMap.UNSET) {
+			variablesToRemove = Collections.newSetFromMap(new IdentityHashMap<FastThreadLocal<?>, Boolean>());
+			map.setIndexedVariable(InternalThreadLocalMap.VARIABLES_TO_REMOVE_INDEX, variablesToRemove);
+		} else {
+			variablesToRemove = (Set<FastThreadLocal<?>>) v;
+		}
+		variablesToRemove.add(variable);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void removeFromVariablesToRemove(InternalThreadLocalMap map, FastThreadLocal<?> variable) {
+		Object v = map.indexedVariable(InternalThreadLocalMap.VARIABLES_TO_REMOVE_INDEX);
+		if (v != InternalThreadLocalMap.UNSET) {
+			((Set<FastThreadLocal<?>>) v).remove(variable);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public final V get() {
+		InternalThreadLocalMap map = InternalThreadLocalMap.get();
+		Object v = map.indexedVariable(index);
+		if (v != InternalThreadLocalMap.UNSET) {
+			return (V) v;
+		}
+		return initialize(map);
+	}
+
+	/**
+	 * 未设置时返回 null，不触发初始化
+	 */
+	@SuppressWarnings("unchecked")
+	public final V getIfExists() {
+		InternalThreadLocalMap map = InternalThreadLocalMap.getIfSet();
+		if (map != null) {
+			Object v = map.indexedVariable(index);
+			if (v != InternalThreadLocalMap.UNSET) {
+				return (V) v;
+			}
+		}
+		return null;
+	}
+
+	private V initialize(InternalThreadLocalMap map) {
+		V v;
+		try {
+			v = initialValue();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		if (map.setIndexedVariable(index, v)) {
+			addToVariablesToRemove(map, this);
+		}
+		return v;
+	}
+
+	public final void set(V value) {
+		InternalThreadLocalMap map = InternalThreadLocalMap.get();
+		if (map.setIndexedVariable(index, value)) {
+			addToVariablesToRemove(map, this);
+		}
+	}
+
+	public final boolean isSet() {
+		InternalThreadLocalMap map = InternalThreadLocalMap.getIfSet();
+		return map != null && map.isIndexedVariableSet(index);
+	}
+
+	public final void remove() {
+		remove(InternalThreadLocalMap.getIfSet());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void remove(InternalThreadLocalMap map) {
+		if (map == null) {
+			return;
+		}
+		Object v = map.removeIndexedVariable(index);
+		removeFromVariablesToRemove(map, this);
+		if (v != InternalThreadLocalMap.UNSET) {
+			try {
+				onRemoval((V) v);
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	protected V initialValue() throws Exception {
+		return null;
+	}
+
+	/**
+	 * 变量被移除时回调，可用于归还缓冲区等资源
+	 */
+	protected void onRemoval(V value) throws Exception {
+	}
+}
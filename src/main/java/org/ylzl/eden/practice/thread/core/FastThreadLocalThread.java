@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.core;
+
+/**
+ * 直接持有 {@link InternalThreadLocalMap} 的线程，{@link FastThreadLocal} 在其中访问不经过 JDK ThreadLocal
+ *
+ * <p>通过构造函数传入的任务执行结束后会清理全部 FastThreadLocal；重写 run 的子类需要自行调用 {@link FastThreadLocal#removeAll()}。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class FastThreadLocalThread extends java.lang.Thread {
+
+	private InternalThreadLocalMap threadLocalMap;
+
+	public FastThreadLocalThread() {
+		super();
+	}
+
+	public FastThreadLocalThread(java.lang.Runnable target) {
+		super(wrap(target));
+	}
+
+	public FastThreadLocalThread(String name) {
+		super(name);
+	}
+
+	public FastThreadLocalThread(java.lang.Runnable target, String name) {
+		super(wrap(target), name);
+	}
+
+	public FastThreadLocalThread(java.lang.ThreadGroup group, java.lang.Runnable target, String name) {
+		super(group, wrap(target), name);
+	}
+
+	public FastThreadLocalThread(java.lang.ThreadGroup group, java.lang.Runnable target, String name, long stackSize) {
+		super(group, wrap(target), name, stackSize);
+	}
+
+	private static java.lang.Runnable wrap(final java.lang.Runnable target) {
+		if (target == null) {
+			return null;
+		}
+		return new java.lang.Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					target.run();
+				} finally {
+					FastThreadLocal.removeAll();
+				}
+			}
+		};
+	}
+
+	public final InternalThreadLocalMap threadLocalMap() {
+		return threadLocalMap;
+	}
+
+	public final void setThreadLocalMap(InternalThreadLocalMap threadLocalMap) {
+		this.threadLocalMap = threadLocalMap;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link FastThreadLocal} 的线程内存储
+ *
+ * <p>每个 FastThreadLocal 创建时分配一个全局递增的下标，值直接存放在线程私有数组的对应位置，
+ * 查找只是一次数组访问，没有哈希探测和过期条目清理。{@link FastThreadLocalThread} 直接持有本对象；
+ * 普通线程退化为通过 JDK ThreadLocal 取得本对象，之后的访问同样是数组下标。
+ * 下标不回收，变量应作为静态常量长期持有，不要按请求创建。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class InternalThreadLocalMap {
+
+	static final Object UNSET = new Object();
+
+	private static final int INITIAL_CAPACITY = 32;
+
+	private static final java.lang.ThreadLocal<InternalThreadLocalMap> slowThreadLocalMap =
+		new java.lang.ThreadLocal<InternalThreadLocalMap>();
+
+	private static final AtomicInteger nextIndex = new AtomicInteger();
+
+	static final int VARIABLES_TO_REMOVE_INDEX = nextVariableIndex(); // 保存本线程设置过的变量，用于 removeAll
+
+	private Object[] indexedVariables;
+
+	private InternalThreadLocalMap() {
+		Object[] array = new Object[INITIAL_CAPACITY];
+		Arrays.fill(array, UNSET);
+		indexedVariables = array;
+	}
+
+	public static InternalThreadLocalMap getIfSet() {
+		java.lang.Thread thread = java.lang.Thread.currentThread();
+		if (thread instanceof FastThreadLocalThread) {
+			return ((FastThreadLocalThread) thread).threadLocalMap();
+		}
+		return slowThreadLocalMap.get();
+	}
+
+	public static InternalThreadLocalMap get() {
+		java.lang.Thread thread = java.lang.Thread.currentThread();
+		if (thread instanceof FastThreadLocalThread) {
+			return fastGet((FastThreadLocalThread) thread);
+		}
+		return slowGet();
+	}
+
+	private static InternalThreadLocalMap fastGet(FastThreadLocalThread thread) {
+		InternalThreadLocalMap map = thread.threadLocalMap();
+		if (map == null) {
+			thread.setThreadLocalMap(map = new InternalThreadLocalMap());
+		}
+		return map;
+	}
+
+	private static InternalThreadLocalMap slowGet() {
+		InternalThreadLocalMap map = slowThreadLocalMap.get();
+		if (map == null) {
+			slowThreadLocalMap.set(map = new InternalThreadLocalMap());
+		}
+		return map;
+	}
+
+	public static void remove() {
+		java.lang.Thread thread = java.lang.Thread.currentThread();
+		if (thread instanceof FastThreadLocalThread) {
+			((FastThreadLocalThread) thread).setThreadLocalMap(null);
+		} else {
+			slowThreadLocalMap.remove();
+		}
+	}
+
+	static int nextVariableIndex() {
+		int index = nextIndex.getAndIncrement();
+		if (index < 0) {
+			nextIndex.decrementAndGet();
+			throw new IllegalStateException("Too many thread-local indexed variables");
+		}
+		return index;
+	}
+
+	Object indexedVariable(int index) {
+		Object[] lookup = indexedVariables;
+		return index < lookup.length ? lookup[index] : UNSET;
+	}
+
+	/**
+	 * @return 该位置之前未设置时返回 true
+	 */
+	boolean setIndexedVariable(int index, Object value) {
+		Object[] lookup = indexedVariables;
+		if (index < lookup.length) {
+			Object oldValue = lookup[index];
+			lookup[index] = value;
+			return oldValue == UNSET;
+		}
+		expandIndexedVariableTableAndSet(index, value);
+		return true;
+	}
+
+	private void expandIndexedVariableTableAndSet(int index, Object value) {
+		Object[] oldArray = indexedVariables;
+		int oldCapacity = oldArray.length;
+		int newCapacity = Integer.highestOneBit(index) << 1; // 不小于 index + 1 的 2 的幂
+		Object[] newArray = Arrays.copyOf(oldArray, newCapacity);
+		Arrays.fill(newArray, oldCapacity, newArray.length, UNSET);
+		newArray[index] = value;
+		indexedVariables = newArray;
+	}
+
+	Object removeIndexedVariable(int index) {
+		Object[] lookup = indexedVariables;
+		if (index < lookup.length) {
+			Object v = lookup[index];
+			lookup[index] = UNSET;
+			return v;
+		}
+		return UNSET;
+	}
+
+	boolean isIndexedVariableSet(int index) {
+		Object[] lookup = indexedVariables;
+		return index < lookup.length && lookup[index] != UNSET;
+	}
+}
@@ -17,16 +17,15 @@
 
 package org.ylzl.eden.practice.thread.pool;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
 
 /**
- * TODO
+ * 线程池骨架实现，提交的任务统一包装为 {@link RunnableFuture} 后交给 {@link #execute(Runnable)}
  *
  * @author gyl
  * @since 2.0.0
@@ -43,41 +42,137 @@ public abstract class AbstractExecutorService implements ExecutorService {
 
 	@Override
 	public <T> Future<T> submit(Callable<T> task) {
-		return null;
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		RunnableFuture<T> ftask = newTaskFor(task);
+		execute(ftask);
+		return ftask;
 	}
 
 	@Override
 	public <T> Future<T> submit(Runnable task, T result) {
-		return null;
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		RunnableFuture<T> ftask = newTaskFor(task, result);
+		execute(ftask);
+		return ftask;
 	}
 
 	@Override
 	public Future<?> submit(Runnable task) {
-		return null;
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		RunnableFuture<Void> ftask = newTaskFor(task, null);
+		execute(ftask);
+		return ftask;
+	}
+
+	/**
+	 * 先创建全部 Future，再交给 {@link #executeBatch} 一次性执行
+	 */
+	@Override
+	public <T> List<Future<T>> submitBatch(Collection<? extends Callable<T>> tasks) {
+		if (tasks == null) {
+			throw new NullPointerException();
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		List<Runnable> commands = new ArrayList<Runnable>(tasks.size());
+		for (Callable<T> task : tasks) {
+			RunnableFuture<T> ftask = newTaskFor(task);
+			futures.add(ftask);
+			commands.add(ftask);
+		}
+		executeBatch(commands);
+		return futures;
+	}
+
+	/**
+	 * 执行一批任务，默认逐个调用 {@link #execute(Runnable)}，子类可以一次性入队
+	 */
+	protected void executeBatch(List<Runnable> commands) {
+		for (Runnable command : commands) {
+			execute(command);
+		}
 	}
 
 	@Override
 	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
-		return null;
+		return doInvokeAll(tasks, false, 0L);
 	}
 
 	@Override
 	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
-		return null;
+		return doInvokeAll(tasks, true, unit.toNanos(timeout));
+	}
+
+	/**
+	 * 任一任务失败即取消其余任务；到达截止时间时取消未完成的任务后返回
+	 */
+	private <T> List<Future<T>> doInvokeAll(Collection<? extends Callable<T>> tasks, boolean timed, long nanos)
+		throws InterruptedException {
+		if (tasks == null) {
+			throw new NullPointerException();
+		}
+		StructuredTaskScope<T> scope = new StructuredTaskScope<T>(
+			StructuredTaskScope.Policy.SHUTDOWN_ON_FAILURE, timed, nanos);
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		List<Runnable> commands = new ArrayList<Runnable>(tasks.size());
+		for (Callable<T> task : tasks) {
+			StructuredTaskScope<T>.Subtask s = scope.fork(task);
+			futures.add(s);
+			commands.add(s);
+		}
+		try {
+			executeBatch(commands);
+			scope.join();
+			return futures;
+		} finally {
+			scope.shutdown();
+		}
 	}
 
 	@Override
 	public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
-		return null;
+		try {
+			return doInvokeAny(tasks, false, 0L);
+		} catch (TimeoutException e) { // 继承的截止时间已到
+			throw new ExecutionException(e);
+		}
 	}
 
 	@Override
 	public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-		return null;
+		return doInvokeAny(tasks, true, unit.toNanos(timeout));
 	}
 
-	@Override
-	public void execute(Runnable command) {
-
+	/**
+	 * 同时执行全部任务，第一个成功的结果胜出并立即取消其余任务
+	 */
+	private <T> T doInvokeAny(Collection<? extends Callable<T>> tasks, boolean timed, long nanos)
+		throws InterruptedException, ExecutionException, TimeoutException {
+		if (tasks == null) {
+			throw new NullPointerException();
+		}
+		if (tasks.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+		StructuredTaskScope<T> scope = new StructuredTaskScope<T>(
+			StructuredTaskScope.Policy.SHUTDOWN_ON_SUCCESS, timed, nanos);
+		List<Runnable> commands = new ArrayList<Runnable>(tasks.size());
+		for (Callable<T> task : tasks) {
+			commands.add(scope.fork(task));
+		}
+		try {
+			executeBatch(commands);
+			if (!scope.join()) {
+				throw new TimeoutException();
+			}
+			return scope.result();
+		} finally {
+			scope.shutdown();
+		}
 	}
 }
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.ylzl.eden.practice.thread.core.FastThreadLocal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应线程池
+ *
+ * <p>按固定周期统计到达率 λ、平均服务时间 S、平均排队时间和进程 CPU 使用率，调整核心线程数：
+ * <ul>
+ *   <li>按 Little 定律，需要的忙碌线程数为 λ·S，除以目标利用率得到基准线程数</li>
+ *   <li>排队时间超过阈值且 CPU 未饱和时在基准之上继续扩容</li>
+ *   <li>爬山探测：上次扩容没有带来吞吐提升，或 CPU 已饱和时，不再扩容并回退一步</li>
+ * </ul>
+ * 每次调整幅度不超过当前线程数的 1/4。为避免稳定负载下来回震荡：
+ * <ul>
+ *   <li>缩容有死区，基准线程数只比当前少不超过 10%（至少 1 个）时保持不变，扩容不受影响</li>
+ *   <li>按 Little 定律调整时如果方向与上次相反，步长减为上次幅度的一半</li>
+ *   <li>扩容无效回退后进入冷却期，期间不再扩容，连续无效时冷却期翻倍，直到某次扩容重新带来吞吐提升</li>
+ * </ul>
+ * 排队时间用 Little 定律由平均队列长度除以到达率估算，
+ * 平均队列长度在每次提交时采样，提交路径不额外分配对象。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+	private static final double DEFAULT_TARGET_UTILIZATION = 0.8;
+
+	private static final double DEFAULT_CPU_CEILING = 0.9;
+
+	private static final double MIN_THROUGHPUT_GAIN = 0.05; // 扩容后吞吐提升低于 5% 视为无效
+
+	private static final double DEAD_BAND = 0.1; // 缩容死区，占当前线程数的比例
+
+	private static final int MIN_COOLDOWN_PERIODS = 4;
+
+	private static final int MAX_COOLDOWN_SHIFT = 4; // 冷却期最长 64 个周期
+
+	private static final ScheduledExecutorService controllerTimer =
+		java.util.concurrent.Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "adaptive-pool-controller");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+	private final int minPoolSize;
+
+	private final int maxPoolSize;
+
+	private final double targetUtilization;
+
+	private final long maxQueueWaitNanos;
+
+	private final LongAdder arrivals = new LongAdder();
+
+	private final LongAdder queueLengthSum = new LongAdder(); // 每次提交时看到的队列长度之和
+
+	private final LongAdder completions = new LongAdder();
+
+	private final LongAdder serviceNanos = new LongAdder();
+
+	private final AtomicLong decisionCount = new AtomicLong();
+
+	private final FastThreadLocal<long[]> taskStart = new FastThreadLocal<long[]>() { // 每个工作线程复用一个数组
+
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private final ScheduledFuture<?> controller;
+
+	private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+	private long lastTickNanos = System.nanoTime();
+
+	private double lastThroughput;
+
+	private int lastDelta; // 上次调整的方向和幅度
+
+	private int cooldown; // 剩余的禁止扩容周期数
+
+	private int noGainStreak; // 连续无效扩容次数
+
+	private volatile Decision lastDecision;
+
+	public AdaptiveThreadPoolExecutor(int minPoolSize, int maxPoolSize) {
+		this(minPoolSize, maxPoolSize, 1, TimeUnit.SECONDS);
+	}
+
+	public AdaptiveThreadPoolExecutor(int minPoolSize, int maxPoolSize, long period, TimeUnit unit) {
+		this(minPoolSize, maxPoolSize, period, unit, new LinkedBlockingQueue<Runnable>(),
+			DEFAULT_TARGET_UTILIZATION, TimeUnit.MILLISECONDS.toNanos(10));
+	}
+
+	/**
+	 * @param targetUtilization 每个线程的目标忙碌比例，取值 (0, 1]
+	 * @param maxQueueWaitNanos 可以接受的平均排队时间
+	 */
+	public AdaptiveThreadPoolExecutor(int minPoolSize, int maxPoolSize, long period, TimeUnit unit,
+																		BlockingQueue<Runnable> workQueue,
+																		double targetUtilization, long maxQueueWaitNanos) {
+		super(minPoolSize, maxPoolSize, 10L, TimeUnit.SECONDS, workQueue);
+		if (minPoolSize <= 0 || targetUtilization <= 0 || targetUtilization > 1 || period <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.minPoolSize = minPoolSize;
+		this.maxPoolSize = maxPoolSize;
+		this.targetUtilization = targetUtilization;
+		this.maxQueueWaitNanos = maxQueueWaitNanos;
+		this.controller = controllerTimer.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				adjust();
+			}
+		}, period, period, unit);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		arrivals.increment();
+		queueLengthSum.add(getQueue().size());
+		super.execute(command);
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		taskStart.get()[0] = System.nanoTime();
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		serviceNanos.add(System.nanoTime() - taskStart.get()[0]);
+		completions.increment();
+	}
+
+	@Override
+	protected void terminated() {
+		controller.cancel(false);
+	}
+
+	/**
+	 * 控制器周期执行，只在定时线程中调用
+	 */
+	void adjust() {
+		if (isShutdown()) {
+			return;
+		}
+		long now = System.nanoTime();
+		double seconds = (now - lastTickNanos) / 1e9;
+		lastTickNanos = now;
+		if (seconds <= 0) {
+			return;
+		}
+		long n = arrivals.sumThenReset();
+		long queueSum = queueLengthSum.sumThenReset();
+		long done = completions.sumThenReset();
+		long busy = serviceNanos.sumThenReset();
+
+		double arrivalRate = n / seconds;
+		double throughput = done / seconds;
+		double serviceTime = done == 0 ? 0 : (double) busy / done; // 纳秒
+		double avgQueueLength = n == 0 ? getQueue().size() : (double) queueSum / n;
+		double queueWait = arrivalRate == 0 ? 0 : avgQueueLength / arrivalRate * 1e9; // W = L / λ
+		int current = getCorePoolSize();
+		Decision decision = decide(arrivalRate, throughput, serviceTime, queueWait, processCpuLoad(), current);
+		int target = decision.getNewSize();
+		if (target != current) {
+			if (target > getMaximumPoolSize()) {
+				setMaximumPoolSize(target);
+			}
+			setCorePoolSize(target);
+			decisionCount.incrementAndGet();
+		}
+		lastDecision = decision;
+	}
+
+	/**
+	 * 根据一个周期的统计计算新的核心线程数并推进爬山状态，不修改线程池本身
+	 *
+	 * @param serviceTime 平均服务时间，纳秒
+	 * @param queueWait 平均排队时间，纳秒
+	 */
+	Decision decide(double arrivalRate, double throughput, double serviceTime, double queueWait,
+									double cpu, int current) {
+		int littleSize = (int) Math.ceil(arrivalRate * serviceTime / 1e9 / targetUtilization);
+		int step = Math.max(1, current / 4);
+		int band = Math.max(1, (int) Math.ceil(current * DEAD_BAND));
+		int target = current;
+		String reason = "steady";
+		if (littleSize > current || littleSize < current - band) { // 需求只略低于当前线程数时不缩容
+			target = littleSize;
+			reason = "little's law";
+		}
+
+		boolean cpuSaturated = cpu >= DEFAULT_CPU_CEILING;
+		if (queueWait > maxQueueWaitNanos && !cpuSaturated && target <= current) {
+			target = current + step;
+			reason = "queue wait above limit";
+		}
+		if (cooldown > 0) {
+			cooldown--;
+		}
+		if (target > current) {
+			boolean noGain = lastDelta > 0 && lastThroughput > 0
+				&& throughput < lastThroughput * (1 + MIN_THROUGHPUT_GAIN);
+			if (cpuSaturated) {
+				target = current - step;
+				reason = "cpu saturated";
+			} else if (noGain) {
+				target = current - lastDelta; // 爬山回退，连续无效时冷却期翻倍
+				reason = "no throughput gain";
+				cooldown = MIN_COOLDOWN_PERIODS << Math.min(noGainStreak++, MAX_COOLDOWN_SHIFT);
+			} else if (cooldown > 0) {
+				target = current;
+				reason = "cooling down";
+			} else if (lastDelta > 0) {
+				noGainStreak = 0; // 上次扩容有效
+			}
+		}
+		if ("little's law".equals(reason) && lastDelta != 0 && (target > current) != (lastDelta > 0)) {
+			step = Math.max(1, Math.abs(lastDelta) / 2); // 方向反转时步长减半
+		}
+
+		target = Math.max(current - step, Math.min(current + step, target));
+		target = Math.max(minPoolSize, Math.min(maxPoolSize, target));
+		if (target == current && !"cooling down".equals(reason)) {
+			reason = "steady";
+		}
+		lastDelta = target - current;
+		lastThroughput = throughput;
+		return new Decision(arrivalRate, throughput, (long) serviceTime, (long) queueWait,
+			cpu, current, target, reason);
+	}
+
+	private double processCpuLoad() {
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			double load = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+			if (load >= 0) {
+				return load;
+			}
+		}
+		double avg = os.getSystemLoadAverage(); // 不支持时按系统负载估算
+		return avg < 0 ? 0 : Math.min(1.0, avg / os.getAvailableProcessors());
+	}
+
+	public int getMinPoolSize() {
+		return minPoolSize;
+	}
+
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * 实际调整过线程数的次数
+	 */
+	public long getDecisionCount() {
+		return decisionCount.get();
+	}
+
+	/**
+	 * 最近一个周期的统计和决策，首个周期结束前为 null
+	 */
+	public Decision getLastDecision() {
+		return lastDecision;
+	}
+
+	/**
+	 * 控制器单个周期的决策
+	 */
+	public static final class Decision {
+
+		private final double arrivalRate;
+
+		private final double throughput;
+
+		private final long serviceTimeNanos;
+
+		private final long queueWaitNanos;
+
+		private final double cpuUtilization;
+
+		private final int previousSize;
+
+		private final int newSize;
+
+		private final String reason;
+
+		Decision(double arrivalRate, double throughput, long serviceTimeNanos, long queueWaitNanos,
+						 double cpuUtilization, int previousSize, int newSize, String reason) {
+			this.arrivalRate = arrivalRate;
+			this.throughput = throughput;
+			this.serviceTimeNanos = serviceTimeNanos;
+			this.queueWaitNanos = queueWaitNanos;
+			this.cpuUtilization = cpuUtilization;
+			this.previousSize = previousSize;
+			this.newSize = newSize;
+			this.reason = reason;
+		}
+
+		public double getArrivalRate() {
+			return arrivalRate;
+		}
+
+		public double getThroughput() {
+			return throughput;
+		}
+
+		public long getServiceTimeNanos() {
+			return serviceTimeNanos;
+		}
+
+		public long getQueueWaitNanos() {
+			return queueWaitNanos;
+		}
+
+		public double getCpuUtilization() {
+			return cpuUtilization;
+		}
+
+		public int getPreviousSize() {
+			return previousSize;
+		}
+
+		public int getNewSize() {
+			return newSize;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return "Decision[" + previousSize + " -> " + newSize +
+				", reason = " + reason +
+				", arrival rate = " + String.format("%.1f/s", arrivalRate) +
+				", throughput = " + String.format("%.1f/s", throughput) +
+				", service time = " + serviceTimeNanos / 1000 + "us" +
+				", queue wait = " + queueWaitNanos / 1000 + "us" +
+				", cpu = " + String.format("%.2f", cpuUtilization) +
+				"]";
+		}
+	}
+}
@@ -0,0 +1,610 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 支持批量入队的链表阻塞队列
+ *
+ * <p>结构同 JDK 的 LinkedBlockingQueue，入队和出队各用一把锁。{@link #offerAll(List)} 在锁外串好节点链，
+ * 只加一次入队锁就整段挂到队尾，计数也只更新一次。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class BatchLinkedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	static class Node<E> {
+
+		E item;
+
+		Node<E> next; // 指向自身表示已出队
+
+		Node(E x) {
+			item = x;
+		}
+	}
+
+	private final int capacity;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	transient Node<E> head; // head.item 恒为 null
+
+	private transient Node<E> last; // last.next 恒为 null
+
+	private final ReentrantLock takeLock = new ReentrantLock();
+
+	private final Condition notEmpty = takeLock.newCondition();
+
+	private final ReentrantLock putLock = new ReentrantLock();
+
+	private final Condition notFull = putLock.newCondition();
+
+	public BatchLinkedBlockingQueue() {
+		this(Integer.MAX_VALUE);
+	}
+
+	public BatchLinkedBlockingQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.capacity = capacity;
+		last = head = new Node<E>(null);
+	}
+
+	private void signalNotEmpty() {
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	private void signalNotFull() {
+		final ReentrantLock putLock = this.putLock;
+		putLock.lock();
+		try {
+			notFull.signal();
+		} finally {
+			putLock.unlock();
+		}
+	}
+
+	private void enqueue(Node<E> node) {
+		last = last.next = node;
+	}
+
+	private E dequeue() {
+		Node<E> h = head;
+		Node<E> first = h.next;
+		h.next = h; // 帮助 GC
+		head = first;
+		E x = first.item;
+		first.item = null;
+		return x;
+	}
+
+	void fullyLock() {
+		putLock.lock();
+		takeLock.lock();
+	}
+
+	void fullyUnlock() {
+		takeLock.unlock();
+		putLock.unlock();
+	}
+
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - count.get();
+	}
+
+	/**
+	 * 批量入队，容量不足时只放入前面能放下的部分
+	 *
+	 * @return 实际入队的元素个数
+	 */
+	public int offerAll(List<? extends E> items) {
+		int n = items.size();
+		if (n == 0) {
+			return 0;
+		}
+		final AtomicInteger count = this.count;
+		if (count.get() == capacity) {
+			return 0;
+		}
+		Node<E> first = null;
+		Node<E> tail = null;
+		for (E e : items) { // 锁外创建节点
+			if (e == null) {
+				throw new NullPointerException();
+			}
+			Node<E> node = new Node<E>(e);
+			if (first == null) {
+				first = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+		}
+		int c;
+		int added;
+		final ReentrantLock putLock = this.putLock;
+		putLock.lock();
+		try {
+			added = Math.min(n, capacity - count.get());
+			if (added <= 0) {
+				return 0;
+			}
+			if (added < n) { // 截断放不下的部分
+				tail = first;
+				for (int i = 1; i < added; i++) {
+					tail = tail.next;
+				}
+				tail.next = null;
+			}
+			last.next = first;
+			last = tail;
+			c = count.getAndAdd(added);
+			if (c + added < capacity) {
+				notFull.signal();
+			}
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) { // 被唤醒的消费者取走一个后会继续唤醒下一个
+			signalNotEmpty();
+		}
+		return added;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		int c;
+		Node<E> node = new Node<E>(e);
+		final ReentrantLock putLock = this.putLock;
+		final AtomicInteger count = this.count;
+		putLock.lockInterruptibly();
+		try {
+			while (count.get() == capacity) {
+				notFull.await();
+			}
+			enqueue(node);
+			c = count.getAndIncrement();
+			if (c + 1 < capacity) {
+				notFull.signal();
+			}
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		long nanos = unit.toNanos(timeout);
+		int c;
+		final ReentrantLock putLock = this.putLock;
+		final AtomicInteger count = this.count;
+		putLock.lockInterruptibly();
+		try {
+			while (count.get() == capacity) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			enqueue(new Node<E>(e));
+			c = count.getAndIncrement();
+			if (c + 1 < capacity) {
+				notFull.signal();
+			}
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		final AtomicInteger count = this.count;
+		if (count.get() == capacity) {
+			return false;
+		}
+		int c = -1;
+		Node<E> node = new Node<E>(e);
+		final ReentrantLock putLock = this.putLock;
+		putLock.lock();
+		try {
+			if (count.get() < capacity) {
+				enqueue(node);
+				c = count.getAndIncrement();
+				if (c + 1 < capacity) {
+					notFull.signal();
+				}
+			}
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+		return c >= 0;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E x;
+		int c;
+		final AtomicInteger count = this.count;
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lockInterruptibly();
+		try {
+			while (count.get() == 0) {
+				notEmpty.await();
+			}
+			x = dequeue();
+			c = count.getAndDecrement();
+			if (c > 1) {
+				notEmpty.signal();
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		if (c == capacity) {
+			signalNotFull();
+		}
+		return x;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		E x;
+		int c;
+		long nanos = unit.toNanos(timeout);
+		final AtomicInteger count = this.count;
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lockInterruptibly();
+		try {
+			while (count.get() == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			x = dequeue();
+			c = count.getAndDecrement();
+			if (c > 1) {
+				notEmpty.signal();
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		if (c == capacity) {
+			signalNotFull();
+		}
+		return x;
+	}
+
+	@Override
+	public E poll() {
+		final AtomicInteger count = this.count;
+		if (count.get() == 0) {
+			return null;
+		}
+		E x = null;
+		int c = -1;
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lock();
+		try {
+			if (count.get() > 0) {
+				x = dequeue();
+				c = count.getAndDecrement();
+				if (c > 1) {
+					notEmpty.signal();
+				}
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		if (c == capacity) {
+			signalNotFull();
+		}
+		return x;
+	}
+
+	@Override
+	public E peek() {
+		if (count.get() == 0) {
+			return null;
+		}
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lock();
+		try {
+			Node<E> first = head.next;
+			return first == null ? null : first.item;
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	void unlink(Node<E> p, Node<E> trail) {
+		p.item = null;
+		trail.next = p.next;
+		if (last == p) {
+			last = trail;
+		}
+		if (count.getAndDecrement() == capacity) {
+			notFull.signal();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (o == null) {
+			return false;
+		}
+		fullyLock();
+		try {
+			for (Node<E> trail = head, p = trail.next; p != null; trail = p, p = p.next) {
+				if (o.equals(p.item)) {
+					unlink(p, trail);
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o == null) {
+			return false;
+		}
+		fullyLock();
+		try {
+			for (Node<E> p = head.next; p != null; p = p.next) {
+				if (o.equals(p.item)) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		fullyLock();
+		try {
+			Object[] a = new Object[count.get()];
+			int k = 0;
+			for (Node<E> p = head.next; p != null; p = p.next) {
+				a[k++] = p.item;
+			}
+			return a;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] a) {
+		fullyLock();
+		try {
+			int size = count.get();
+			if (a.length < size) {
+				a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+			}
+			int k = 0;
+			for (Node<E> p = head.next; p != null; p = p.next) {
+				a[k++] = (T) p.item;
+			}
+			if (a.length > k) {
+				a[k] = null;
+			}
+			return a;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		fullyLock();
+		try {
+			for (Node<E> p, h = head; (p = h.next) != null; h = p) {
+				h.next = h;
+				p.item = null;
+			}
+			head = last;
+			if (count.getAndSet(0) == capacity) {
+				notFull.signal();
+			}
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		if (maxElements <= 0) {
+			return 0;
+		}
+		boolean signalNotFull = false;
+		final ReentrantLock takeLock = this.takeLock;
+		takeLock.lock();
+		try {
+			int n = Math.min(maxElements, count.get());
+			Node<E> h = head;
+			int i = 0;
+			try {
+				while (i < n) {
+					Node<E> p = h.next;
+					c.add(p.item);
+					p.item = null;
+					h.next = h;
+					h = p;
+					++i;
+				}
+				return n;
+			} finally {
+				if (i > 0) {
+					head = h;
+					signalNotFull = (count.getAndAdd(-i) == capacity);
+				}
+			}
+		} finally {
+			takeLock.unlock();
+			if (signalNotFull) {
+				signalNotFull();
+			}
+		}
+	}
+
+	/**
+	 * 弱一致迭代器
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+
+	private class Itr implements Iterator<E> {
+
+		private Node<E> current;
+
+		private Node<E> lastRet;
+
+		private E currentElement;
+
+		Itr() {
+			fullyLock();
+			try {
+				current = head.next;
+				if (current != null) {
+					currentElement = current.item;
+				}
+			} finally {
+				fullyUnlock();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return current != null;
+		}
+
+		private Node<E> nextNode(Node<E> p) {
+			for (; ; ) {
+				Node<E> s = p.next;
+				if (s == p) { // 已出队，从头开始
+					return head.next;
+				}
+				if (s == null || s.item != null) {
+					return s;
+				}
+				p = s;
+			}
+		}
+
+		@Override
+		public E next() {
+			fullyLock();
+			try {
+				if (current == null) {
+					throw new NoSuchElementException();
+				}
+				E x = currentElement;
+				lastRet = current;
+				current = nextNode(current);
+				currentElement = (current == null) ? null : current.item;
+				return x;
+			} finally {
+				fullyUnlock();
+			}
+		}
+
+		@Override
+		public void remove() {
+			if (lastRet == null) {
+				throw new IllegalStateException();
+			}
+			fullyLock();
+			try {
+				Node<E> node = lastRet;
+				lastRet = null;
+				for (Node<E> trail = head, p = trail.next; p != null; trail = p, p = p.next) {
+					if (p == node) {
+						unlink(p, trail);
+						break;
+					}
+				}
+			} finally {
+				fullyUnlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池指标，按线程池名称注册，名称已被占用时追加序号；线程池终止后自动注销并停止周期回调
+ *
+ * <p>每个工作线程持有自己的 {@link Recorder}，记录排队时间、执行时间和端到端耗时，热路径上只写本线程的直方图，
+ * 不加锁也不分配对象。排队时间取自 submit 创建的任务或直接交给新线程的首个任务，经 execute 入队的普通 Runnable
+ * 不做包装，只记录执行时间。快照时合并所有存活线程和已退出线程的直方图，再附上活跃线程数、队列长度和拒绝次数。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class ExecutorMetrics {
+
+	private static final ConcurrentMap<String, ExecutorMetrics> registry = new ConcurrentHashMap<String, ExecutorMetrics>();
+
+	private static final ScheduledExecutorService reporter =
+		java.util.concurrent.Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "executor-metrics-reporter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+	private final String name;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Set<Recorder> recorders = Collections.newSetFromMap(new ConcurrentHashMap<Recorder, Boolean>());
+
+	private final Recorder retired = new Recorder(this); // 已退出线程的累计值，只在持有 this 锁时写
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final Set<ScheduledFuture<?>> reports = new HashSet<ScheduledFuture<?>>(); // 只在持有 this 锁时访问
+
+	private boolean closed; // 只在持有 this 锁时访问
+
+	ExecutorMetrics(String name, ThreadPoolExecutor executor) {
+		this.name = name;
+		this.executor = executor;
+	}
+
+	public static ExecutorMetrics get(String name) {
+		return registry.get(name);
+	}
+
+	public static Collection<ExecutorMetrics> all() {
+		return Collections.unmodifiableCollection(registry.values());
+	}
+
+	/**
+	 * 按名称注册，名称已被占用时依次尝试 name-2、name-3……
+	 */
+	static ExecutorMetrics register(String name, ThreadPoolExecutor executor) {
+		ExecutorMetrics metrics = new ExecutorMetrics(name, executor);
+		for (int i = 2; registry.putIfAbsent(metrics.name, metrics) != null; i++) {
+			metrics = new ExecutorMetrics(name + "-" + i, executor);
+		}
+		return metrics;
+	}
+
+	/**
+	 * 线程池终止时调用，注销名称并取消周期回调，之后不再被静态注册表引用
+	 */
+	synchronized void close() {
+		closed = true;
+		registry.remove(name, this);
+		for (ScheduledFuture<?> report : reports) {
+			report.cancel(false);
+		}
+		reports.clear();
+	}
+
+	public static void unregister(String name) {
+		registry.remove(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 单个工作线程的记录器
+	 */
+	static final class Recorder {
+
+		final ExecutorMetrics owner;
+
+		final LatencyHistogram queueWait = new LatencyHistogram();
+
+		final LatencyHistogram execution = new LatencyHistogram();
+
+		final LatencyHistogram endToEnd = new LatencyHistogram();
+
+		/**
+		 * @param submitNanos 提交时间，0 表示未知，只记录执行时间
+		 */
+		Recorder(ExecutorMetrics owner) {
+			this.owner = owner;
+		}
+
+		void record(long submitNanos, long startNanos, long endNanos) {
+			execution.record(endNanos - startNanos);
+			if (submitNanos != 0L) {
+				queueWait.record(startNanos - submitNanos);
+				endToEnd.record(endNanos - submitNanos);
+			}
+		}
+
+		void add(Recorder other) {
+			queueWait.add(other.queueWait);
+			execution.add(other.execution);
+			endToEnd.add(other.endToEnd);
+		}
+	}
+
+	Recorder newRecorder() {
+		Recorder r = new Recorder(this);
+		recorders.add(r);
+		return r;
+	}
+
+	synchronized void retire(Recorder r) {
+		if (recorders.remove(r)) {
+			retired.add(r);
+		}
+	}
+
+	void recordRejected() {
+		rejected.increment();
+	}
+
+	/**
+	 * 需要统计排队时间的任务携带提交时间
+	 */
+	interface Timestamped {
+
+		void setSubmitNanos(long nanos);
+
+		long getSubmitNanos();
+	}
+
+	/**
+	 * 写入提交时间，只对 submit 创建的任务生效，不包装普通 Runnable，
+	 * 以免分配对象，也避免 shutdownNow、getQueue、remove 和拒绝策略看到的不是调用方提交的任务
+	 */
+	static void stamp(Runnable command) {
+		if (command instanceof Timestamped) {
+			((Timestamped) command).setSubmitNanos(System.nanoTime());
+		}
+	}
+
+	/**
+	 * 自创建以来的累计快照
+	 */
+	public Snapshot snapshot() {
+		// 线程池计数需要 mainLock，先于 this 锁读取；退出的线程持有 mainLock 时不会再进入 retire
+		int activeCount = executor.getActiveCount();
+		int queuedCount = executor.getQueue().size();
+		int poolSize = executor.getPoolSize();
+		long completedCount = executor.getCompletedTaskCount();
+		Recorder total = new Recorder(this);
+		synchronized (this) {
+			total.add(retired);
+			for (Recorder r : recorders) {
+				total.add(r);
+			}
+		}
+		return new Snapshot(name, System.currentTimeMillis(), total.queueWait, total.execution, total.endToEnd,
+			activeCount, queuedCount, poolSize, completedCount, rejected.sum());
+	}
+
+	/**
+	 * 按周期回调区间快照，即本次累计值减去上次累计值；线程池终止后自动取消
+	 *
+	 * @throws IllegalStateException 线程池已终止
+	 */
+	public ScheduledFuture<?> report(long period, TimeUnit unit, final Listener listener) {
+		Runnable task = new Runnable() { // 在 this 锁外创建，snapshot 需要先获取 mainLock
+
+			private Snapshot last = snapshot();
+
+			@Override
+			public void run() {
+				Snapshot current = snapshot();
+				Snapshot interval = current.minus(last);
+				last = current;
+				listener.onSnapshot(interval);
+			}
+		};
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Executor " + name + " is terminated");
+			}
+			ScheduledFuture<?> report = reporter.scheduleAtFixedRate(task, period, period, unit);
+			reports.add(report);
+			return report;
+		}
+	}
+
+	public interface Listener {
+
+		void onSnapshot(Snapshot snapshot);
+	}
+
+	public static final class Snapshot {
+
+		private final String name;
+
+		private final long timestamp;
+
+		private final LatencyHistogram queueWait;
+
+		private final LatencyHistogram execution;
+
+		private final LatencyHistogram endToEnd;
+
+		private final int activeCount;
+
+		private final int queuedCount;
+
+		private final int poolSize;
+
+		private final long completedCount;
+
+		private final long rejectedCount;
+
+		Snapshot(String name, long timestamp, LatencyHistogram queueWait, LatencyHistogram execution,
+						 LatencyHistogram endToEnd, int activeCount, int queuedCount, int poolSize,
+						 long completedCount, long rejectedCount) {
+			this.name = name;
+			this.timestamp = timestamp;
+			this.queueWait = queueWait;
+			this.execution = execution;
+			this.endToEnd = endToEnd;
+			this.activeCount = activeCount;
+			this.queuedCount = queuedCount;
+			this.poolSize = poolSize;
+			this.completedCount = completedCount;
+			this.rejectedCount = rejectedCount;
+		}
+
+		/**
+		 * 直方图和累计计数取差值，线程数和队列长度等瞬时值保留当前值
+		 */
+		Snapshot minus(Snapshot earlier) {
+			return new Snapshot(name, timestamp, queueWait.minus(earlier.queueWait),
+				execution.minus(earlier.execution), endToEnd.minus(earlier.endToEnd),
+				activeCount, queuedCount, poolSize,
+				completedCount - earlier.completedCount, rejectedCount - earlier.rejectedCount);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public LatencyHistogram getQueueWait() {
+			return queueWait;
+		}
+
+		public LatencyHistogram getExecution() {
+			return execution;
+		}
+
+		public LatencyHistogram getEndToEnd() {
+			return endToEnd;
+		}
+
+		public int getActiveCount() {
+			return activeCount;
+		}
+
+		public int getQueuedCount() {
+			return queuedCount;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public long getCompletedCount() {
+			return completedCount;
+		}
+
+		public long getRejectedCount() {
+			return rejectedCount;
+		}
+
+		@Override
+		public String toString() {
+			return "pool = " + name + ", active = " + activeCount + ", queued = " + queuedCount +
+				", pool size = " + poolSize + ", completed = " + completedCount + ", rejected = " + rejectedCount +
+				"\n  queue wait " + queueWait +
+				"\n  execution  " + execution +
+				"\n  end to end " + endToEnd;
+		}
+	}
+}
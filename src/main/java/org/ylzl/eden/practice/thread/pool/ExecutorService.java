@@ -17,43 +17,33 @@
 
 package org.ylzl.eden.practice.thread.pool;
 
-import org.ylzl.eden.practice.thread.core.Callable;
-
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
- * TODO
+ * 线程池接口，在 {@link java.util.concurrent.ExecutorService} 的基础上增加批量提交
+ *
+ * <p>{@link Executors} 的工厂方法都返回这个接口，调用方不需要向下转型就能使用 {@link #submitBatch}。
  *
  * @author gyl
  * @since 2.0.0
  */
-public interface ExecutorService extends Executor {
-
-	void shutdown();
-
-	List<Runnable> shutdownNow();
-
-	boolean isShutdown();
-
-	boolean isTerminated();
-
-	boolean awaitTermination(long var1, TimeUnit var3) throws InterruptedException;
-
-	<T> Future<T> submit(Callable<T> var1);
-
-	<T> Future<T> submit(Runnable var1, T var2);
-
-	Future<?> submit(Runnable var1);
-
-	<T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> var1) throws InterruptedException;
-
-	<T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> var1, long var2, TimeUnit var4) throws InterruptedException;
-
-	<T> T invokeAny(Collection<? extends Callable<T>> var1) throws InterruptedException, ExecutionException;
-
-	<T> T invokeAny(Collection<? extends Callable<T>> var1, long var2, TimeUnit var4) throws InterruptedException, ExecutionException, TimeoutException;
+public interface ExecutorService extends Executor, java.util.concurrent.ExecutorService {
+
+	/**
+	 * 批量提交，返回的 Future 与任务顺序一致；默认逐个 {@link #submit(Callable)}，线程池可以一次性入队
+	 */
+	default <T> List<Future<T>> submitBatch(Collection<? extends Callable<T>> tasks) {
+		if (tasks == null) {
+			throw new NullPointerException();
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			futures.add(submit(task));
+		}
+		return futures;
+	}
 }
@@ -17,13 +17,27 @@
 
 package org.ylzl.eden.practice.thread.pool;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import org.ylzl.eden.practice.thread.core.FastThreadLocalThread;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * TODO
+ * 线程池工厂方法，返回本包的实现
+ *
+ * <ul>
+ *   <li>固定线程池和单线程池使用无界的 {@link BatchLinkedBlockingQueue}：核心线程数固定时任务总是入队，
+ *   {@link ExecutorService#submitBatch} 可以一次加锁把整批任务挂到队尾，普通 LinkedBlockingQueue 只能逐个入队</li>
+ *   <li>缓存线程池使用 SynchronousQueue，没有空闲线程时直接创建新线程</li>
+ *   <li>自适应线程池按到达率、服务时间和排队时间自动调整核心线程数，见 {@link AdaptiveThreadPoolExecutor}</li>
+ *   <li>工作窃取线程池每个工作线程一个本地队列，默认并行度为 CPU 核数</li>
+ *   <li>每任务一线程的执行器在 JDK 21 及以上使用虚拟线程，否则退回守护平台线程，可选限制并发任务数</li>
+ *   <li>定时线程池基于时间轮，见 {@link ScheduledThreadPoolExecutor}</li>
+ * </ul>
+ * 默认线程工厂创建 {@link FastThreadLocalThread}，非守护、普通优先级。
  *
  * @author gyl
  * @since 2.0.0
@@ -31,18 +45,86 @@ import java.util.concurrent.TimeUnit;
 public class Executors {
 
 	public static ExecutorService newSingleThreadPool() {
-		return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue());
+		return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new BatchLinkedBlockingQueue<Runnable>());
 	}
 
 	public static ExecutorService newFixedThreadPool(int nThreads) {
-		return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue());
+		return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new BatchLinkedBlockingQueue<Runnable>());
 	}
 
 	public static ExecutorService newCachedThreadPool() {
-		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue());
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+	}
+
+	/**
+	 * 核心线程数在 [minPoolSize, maxPoolSize] 之间按排队指标自动调整
+	 */
+	public static ExecutorService newAdaptiveThreadPool(int minPoolSize, int maxPoolSize) {
+		return new AdaptiveThreadPoolExecutor(minPoolSize, maxPoolSize);
+	}
+
+	public static ExecutorService newWorkStealingPool(int parallelism) {
+		return new WorkStealingPool(parallelism);
+	}
+
+	public static ExecutorService newWorkStealingPool() {
+		return new WorkStealingPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 每个任务一个虚拟线程，JDK 21 以下退回守护平台线程
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		return new ThreadPerTaskExecutor(VirtualThreads.factoryOrPlatform("virtual-"));
+	}
+
+	/**
+	 * 每个任务一个虚拟线程，同时执行的任务数超过 maxConcurrency 时提交方阻塞
+	 */
+	public static ExecutorService newBoundedVirtualThreadExecutor(int maxConcurrency) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException();
+		}
+		return new ThreadPerTaskExecutor(VirtualThreads.factoryOrPlatform("virtual-"), maxConcurrency);
 	}
 
-	public static ExecutorService newScheduledThreadPool(int corePoolSize) {
+	public static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+		return new ThreadPerTaskExecutor(threadFactory);
+	}
+
+	public static ScheduledExecutorService newScheduledThreadPool(int corePoolSize) {
 		return new ScheduledThreadPoolExecutor(corePoolSize);
 	}
+
+	public static ThreadFactory defaultThreadFactory() {
+		return new DefaultThreadFactory();
+	}
+
+	static class DefaultThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+		private final ThreadGroup group;
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		private final String namePrefix;
+
+		DefaultThreadFactory() {
+			group = Thread.currentThread().getThreadGroup();
+			namePrefix = "pool-" + poolNumber.getAndIncrement() + "-thread-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new FastThreadLocalThread(group, r, namePrefix + threadNumber.getAndIncrement(), 0);
+			if (t.isDaemon()) {
+				t.setDaemon(false);
+			}
+			if (t.getPriority() != Thread.NORM_PRIORITY) {
+				t.setPriority(Thread.NORM_PRIORITY);
+			}
+			return t;
+		}
+	}
 }
@@ -17,17 +17,29 @@
 
 package org.ylzl.eden.practice.thread.pool;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * TODO
+ * 可取消的异步任务
+ *
+ * <p>状态机通过 CAS 推进，等待结果的线程压入 Treiber 栈后挂起，完成时整栈弹出逐个唤醒。
+ * 任务已完成时 {@link #get()} 只读一次 volatile 状态就返回，不分配等待节点也不挂起；
+ * 未完成时先短暂自旋，仍未完成才分配节点入栈。
+ * 同时实现本包和 JUC 的 Future 接口，可以直接交给 JDK 的执行器和队列。
  *
  * @author gyl
  * @since 2.0.0
  */
-public class FutureTask<V> implements RunnableFuture<V> {
+public class FutureTask<V> implements RunnableFuture<V>, java.util.concurrent.RunnableFuture<V>,
+	ExecutorMetrics.Timestamped {
 
 	/**
 	 * Possible state transitions:
@@ -45,37 +57,322 @@ public class FutureTask<V> implements RunnableFuture<V> {
 	private static final int INTERRUPTING = 5;
 	private static final int INTERRUPTED  = 6;
 
-	public FutureTask(Runnable runnable, V result) {
+	private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0; // 挂起前的自旋次数
+
+	@SuppressWarnings("rawtypes") // newUpdater 只能得到原始类型的更新器
+	private static final AtomicIntegerFieldUpdater<FutureTask> STATE =
+		AtomicIntegerFieldUpdater.newUpdater(FutureTask.class, "state");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<FutureTask, Thread> RUNNER =
+		AtomicReferenceFieldUpdater.newUpdater(FutureTask.class, Thread.class, "runner");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<FutureTask, WaitNode> WAITERS =
+		AtomicReferenceFieldUpdater.newUpdater(FutureTask.class, WaitNode.class, "waiters");
+
+	private Callable<V> callable; // 运行后置空
+
+	private Object outcome; // 结果或异常，由 state 的读写保证可见性
 
+	private volatile Thread runner;
+
+	private volatile WaitNode waiters; // 等待线程的 Treiber 栈
+
+	private long submitNanos;
+
+	public FutureTask(Callable<V> callable) {
+		if (callable == null) {
+			throw new NullPointerException();
+		}
+		this.callable = callable;
+		this.state = NEW;
 	}
 
-	@Override
-	public void run() {
+	public FutureTask(Runnable runnable, V result) {
+		this.callable = Executors.callable(runnable, result);
+		this.state = NEW;
+	}
 
+	static final class WaitNode {
+
+		volatile Thread thread = Thread.currentThread();
+
+		volatile WaitNode next;
 	}
 
-	@Override
-	public boolean cancel(boolean mayInterruptIfRunning) {
-		return false;
+	@SuppressWarnings("unchecked")
+	private V report(int s) throws ExecutionException {
+		Object x = outcome;
+		if (s == NORMAL) {
+			return (V) x;
+		}
+		if (s >= CANCELLED) {
+			throw new CancellationException();
+		}
+		throw new ExecutionException((Throwable) x);
 	}
 
 	@Override
 	public boolean isCancelled() {
-		return false;
+		return state >= CANCELLED;
 	}
 
 	@Override
 	public boolean isDone() {
-		return false;
+		return state != NEW;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!(state == NEW &&
+			STATE.compareAndSet(this, NEW, mayInterruptIfRunning ? INTERRUPTING : CANCELLED))) {
+			return false;
+		}
+		try {
+			if (mayInterruptIfRunning) {
+				try {
+					Thread t = runner;
+					if (t != null) {
+						t.interrupt();
+					}
+				} finally {
+					STATE.lazySet(this, INTERRUPTED);
+				}
+			}
+		} finally {
+			finishCompletion();
+		}
+		return true;
 	}
 
 	@Override
 	public V get() throws InterruptedException, ExecutionException {
-		return null;
+		int s = state;
+		if (s <= COMPLETING) {
+			s = awaitDone(false, 0L);
+		}
+		return report(s);
 	}
 
 	@Override
 	public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-		return null;
+		if (unit == null) {
+			throw new NullPointerException();
+		}
+		int s = state;
+		if (s <= COMPLETING &&
+			(s = awaitDone(true, unit.toNanos(timeout))) <= COMPLETING) {
+			throw new TimeoutException();
+		}
+		return report(s);
+	}
+
+	protected void done() {
+	}
+
+	protected void set(V v) {
+		if (STATE.compareAndSet(this, NEW, COMPLETING)) {
+			outcome = v;
+			STATE.lazySet(this, NORMAL);
+			finishCompletion();
+		}
+	}
+
+	protected void setException(Throwable t) {
+		if (STATE.compareAndSet(this, NEW, COMPLETING)) {
+			outcome = t;
+			STATE.lazySet(this, EXCEPTIONAL);
+			finishCompletion();
+		}
+	}
+
+	@Override
+	public void run() {
+		if (state != NEW || !RUNNER.compareAndSet(this, null, Thread.currentThread())) {
+			return;
+		}
+		try {
+			Callable<V> c = callable;
+			if (c != null && state == NEW) {
+				V result;
+				boolean ran;
+				try {
+					result = c.call();
+					ran = true;
+				} catch (Throwable ex) {
+					result = null;
+					ran = false;
+					setException(ex);
+				}
+				if (ran) {
+					set(result);
+				}
+			}
+		} finally {
+			runner = null; // 置空前保持非空，防止并发调用 run
+			int s = state;
+			if (s >= INTERRUPTING) {
+				handlePossibleCancellationInterrupt(s);
+			}
+		}
+	}
+
+	/**
+	 * 执行但不设置结果，之后可以再次执行，用于周期任务
+	 */
+	protected boolean runAndReset() {
+		if (state != NEW || !RUNNER.compareAndSet(this, null, Thread.currentThread())) {
+			return false;
+		}
+		boolean ran = false;
+		int s = state;
+		try {
+			Callable<V> c = callable;
+			if (c != null && s == NEW) {
+				try {
+					c.call(); // 不设置结果
+					ran = true;
+				} catch (Throwable ex) {
+					setException(ex);
+				}
+			}
+		} finally {
+			runner = null;
+			s = state;
+			if (s >= INTERRUPTING) {
+				handlePossibleCancellationInterrupt(s);
+			}
+		}
+		return ran && s == NEW;
+	}
+
+	private void handlePossibleCancellationInterrupt(int s) {
+		if (s == INTERRUPTING) { // 等待 cancel 发出中断，避免中断泄漏到下一个任务
+			while (state == INTERRUPTING) {
+				Thread.yield();
+			}
+		}
+	}
+
+	private void finishCompletion() {
+		for (WaitNode q; (q = waiters) != null; ) {
+			if (WAITERS.compareAndSet(this, q, null)) { // 整栈弹出
+				for (; ; ) {
+					Thread t = q.thread;
+					if (t != null) {
+						q.thread = null;
+						LockSupport.unpark(t);
+					}
+					WaitNode next = q.next;
+					if (next == null) {
+						break;
+					}
+					q.next = null;
+					q = next;
+				}
+				break;
+			}
+		}
+		done();
+		callable = null;
+	}
+
+	private int awaitDone(boolean timed, long nanos) throws InterruptedException {
+		final long deadline = timed ? System.nanoTime() + nanos : 0L;
+		WaitNode q = null;
+		boolean queued = false;
+		int spins = SPINS;
+		for (; ; ) {
+			if (Thread.interrupted()) {
+				removeWaiter(q);
+				throw new InterruptedException();
+			}
+			int s = state;
+			if (s > COMPLETING) {
+				if (q != null) {
+					q.thread = null;
+				}
+				return s;
+			} else if (s == COMPLETING) { // 结果即将写入，让出即可
+				Thread.yield();
+			} else if (timed && q == null && nanos <= 0L) {
+				return s;
+			} else if (spins > 0) { // 短任务通常很快完成，先自旋避免分配节点
+				--spins;
+			} else if (q == null) {
+				q = new WaitNode();
+			} else if (!queued) {
+				q.next = waiters;
+				queued = WAITERS.compareAndSet(this, q.next, q);
+			} else if (timed) {
+				nanos = deadline - System.nanoTime();
+				if (nanos <= 0L) {
+					removeWaiter(q);
+					return state;
+				}
+				LockSupport.parkNanos(this, nanos);
+			} else {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	/**
+	 * 摘除超时或被中断的节点，遇到竞争从头重新遍历
+	 */
+	private void removeWaiter(WaitNode node) {
+		if (node != null) {
+			node.thread = null;
+			retry:
+			for (; ; ) {
+				for (WaitNode pred = null, q = waiters, s; q != null; q = s) {
+					s = q.next;
+					if (q.thread != null) {
+						pred = q;
+					} else if (pred != null) {
+						pred.next = s;
+						if (pred.thread == null) {
+							continue retry;
+						}
+					} else if (!WAITERS.compareAndSet(this, q, s)) {
+						continue retry;
+					}
+				}
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void setSubmitNanos(long nanos) {
+		submitNanos = nanos;
+	}
+
+	@Override
+	public long getSubmitNanos() {
+		return submitNanos;
+	}
+
+	@Override
+	public String toString() {
+		final String status;
+		switch (state) {
+			case NORMAL:
+				status = "[Completed normally]";
+				break;
+			case EXCEPTIONAL:
+				status = "[Completed exceptionally: " + outcome + "]";
+				break;
+			case CANCELLED:
+			case INTERRUPTING:
+			case INTERRUPTED:
+				status = "[Cancelled]";
+				break;
+			default:
+				final Callable<?> c = callable;
+				status = (c == null) ? "[Incomplete]" : "[Incomplete, task = " + c + "]";
+		}
+		return super.toString() + status;
 	}
 }
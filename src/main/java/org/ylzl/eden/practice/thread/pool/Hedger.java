@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求
+ *
+ * <p>先发出一次调用，若超过对冲延迟仍未返回，再发出一次相同的调用，取先成功的结果并取消另一个。
+ * 对冲延迟取最近一个统计窗口内成功调用耗时的指定分位（默认 p95），并限制在 [minDelay, maxDelay] 之间，
+ * 因此只有最慢的约 5% 请求会多发一次。统计窗口满 windowSize 次后滚动，首个窗口填满前使用 maxDelay。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class Hedger {
+
+	private static final int DEFAULT_WINDOW_SIZE = 1000;
+
+	private final Executor executor;
+
+	private final double percentile;
+
+	private final long minDelayNanos;
+
+	private final long maxDelayNanos;
+
+	private final int windowSize;
+
+	private LatencyHistogram recording = new LatencyHistogram(); // 受 this 锁保护
+
+	private volatile long hedgeDelayNanos;
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder hedged = new LongAdder();
+
+	private final LongAdder hedgeWins = new LongAdder();
+
+	public Hedger(Executor executor) {
+		this(executor, 95.0, 1, 1000, TimeUnit.MILLISECONDS, DEFAULT_WINDOW_SIZE);
+	}
+
+	public Hedger(Executor executor, double percentile, long minDelay, long maxDelay, TimeUnit unit, int windowSize) {
+		if (executor == null) {
+			throw new NullPointerException();
+		}
+		if (percentile <= 0 || percentile >= 100 || minDelay < 0 || maxDelay < minDelay || windowSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.executor = executor;
+		this.percentile = percentile;
+		this.minDelayNanos = unit.toNanos(minDelay);
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.windowSize = windowSize;
+		this.hedgeDelayNanos = maxDelayNanos;
+	}
+
+	public <T> T call(Callable<T> task) throws InterruptedException, ExecutionException {
+		try {
+			return doCall(task, false, 0L);
+		} catch (TimeoutException e) { // 继承的截止时间已到
+			throw new ExecutionException(e);
+		}
+	}
+
+	public <T> T call(Callable<T> task, long timeout, TimeUnit unit)
+		throws InterruptedException, ExecutionException, TimeoutException {
+		return doCall(task, true, unit.toNanos(timeout));
+	}
+
+	private <T> T doCall(Callable<T> task, boolean timed, long nanos)
+		throws InterruptedException, ExecutionException, TimeoutException {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		calls.increment();
+		StructuredTaskScope<T> scope = new StructuredTaskScope<T>(
+			StructuredTaskScope.Policy.SHUTDOWN_ON_SUCCESS, timed, nanos);
+		try {
+			executor.execute(scope.fork(task));
+			if (!scope.joinNanos(hedgeDelayNanos)) {
+				if (scope.isDeadlinePassed()) {
+					throw new TimeoutException();
+				}
+				hedged.increment();
+				StructuredTaskScope<T>.Subtask hedge = scope.fork(task);
+				executor.execute(hedge);
+				if (!scope.join()) {
+					throw new TimeoutException();
+				}
+				if (scope.winner() == hedge) {
+					hedgeWins.increment();
+				}
+			}
+			StructuredTaskScope<T>.Subtask winner = scope.winner();
+			if (winner != null) {
+				record(winner.endNanos - winner.startNanos);
+			}
+			return scope.result();
+		} finally {
+			scope.shutdown();
+		}
+	}
+
+	private synchronized void record(long latencyNanos) {
+		LatencyHistogram h = recording;
+		h.record(latencyNanos);
+		if (h.getTotalCount() >= windowSize) { // 窗口已满，更新对冲延迟并开始新窗口
+			long delay = h.getValueAtPercentile(percentile);
+			hedgeDelayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, delay));
+			recording = new LatencyHistogram();
+		}
+	}
+
+	public long getHedgeDelay(TimeUnit unit) {
+		return unit.convert(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	/**
+	 * 发出了第二次调用的次数
+	 */
+	public long getHedgedCount() {
+		return hedged.sum();
+	}
+
+	/**
+	 * 第二次调用先返回的次数
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWins.sum();
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() +
+			"[hedge delay = " + hedgeDelayNanos / 1000 + "us" +
+			", calls = " + calls.sum() +
+			", hedged = " + hedged.sum() +
+			", hedge wins = " + hedgeWins.sum() +
+			"]";
+	}
+}
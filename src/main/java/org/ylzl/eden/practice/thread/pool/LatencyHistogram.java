@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图，思路同 HdrHistogram
+ *
+ * <p>每个 2 的幂区间再等分为 32 个子桶，相对误差不超过 1/32，可记录的最大值约 4.9 小时（纳秒）。
+ * {@link #record(long)} 只允许单个线程调用，计数用 lazySet 发布，其他线程可随时读取和复制，不加锁也不分配对象。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+	public static final long MAX_TRACKABLE_VALUE = (1L << 44) - 1;
+
+	private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_VALUE) + 1;
+
+	private static final int TOTAL = BUCKET_COUNT; // 计数数组末尾依次存放总数、总和、最大值
+
+	private static final int SUM = BUCKET_COUNT + 1;
+
+	private static final int MAX = BUCKET_COUNT + 2;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT + 3);
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return value < 0 ? 0 : (int) value;
+		}
+		if (value > MAX_TRACKABLE_VALUE) {
+			value = MAX_TRACKABLE_VALUE;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+	}
+
+	static long lowestValueAt(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_HALF - 1;
+		return (long) (index - shift * SUB_BUCKET_HALF) << shift;
+	}
+
+	static long highestValueAt(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_HALF - 1;
+		return lowestValueAt(index) + (1L << shift) - 1;
+	}
+
+	/**
+	 * 记录一个值，单写线程
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		AtomicLongArray c = counts;
+		int i = indexOf(value);
+		c.lazySet(i, c.get(i) + 1);
+		c.lazySet(SUM, c.get(SUM) + value);
+		if (value > c.get(MAX)) {
+			c.lazySet(MAX, value);
+		}
+		c.lazySet(TOTAL, c.get(TOTAL) + 1);
+	}
+
+	public long getTotalCount() {
+		return counts.get(TOTAL);
+	}
+
+	public long getMax() {
+		return counts.get(MAX);
+	}
+
+	public double getMean() {
+		long n = counts.get(TOTAL);
+		return n == 0 ? 0 : (double) counts.get(SUM) / n;
+	}
+
+	/**
+	 * @param percentile 0 到 100
+	 * @return 对应分位所在桶的上界，不超过最大值
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) { // 并发记录时总数字段可能滞后，按桶重新累加
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(highestValueAt(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * 累加另一个直方图，调用方保证当前直方图没有并发写入
+	 */
+	public void add(LatencyHistogram other) {
+		AtomicLongArray c = counts;
+		AtomicLongArray o = other.counts;
+		for (int i = 0; i < BUCKET_COUNT + 2; i++) {
+			long v = o.get(i);
+			if (v != 0) {
+				c.lazySet(i, c.get(i) + v);
+			}
+		}
+		if (o.get(MAX) > c.get(MAX)) {
+			c.lazySet(MAX, o.get(MAX));
+		}
+	}
+
+	public LatencyHistogram copy() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.add(this);
+		return h;
+	}
+
+	/**
+	 * 当前累计值减去更早的快照，得到区间内的分布；区间最大值按最高的非空桶估算
+	 */
+	public LatencyHistogram minus(LatencyHistogram earlier) {
+		LatencyHistogram h = new LatencyHistogram();
+		AtomicLongArray c = counts;
+		AtomicLongArray e = earlier.counts;
+		int highest = -1;
+		for (int i = 0; i < BUCKET_COUNT + 2; i++) {
+			long v = c.get(i) - e.get(i);
+			h.counts.lazySet(i, v);
+			if (i < BUCKET_COUNT && v > 0) {
+				highest = i;
+			}
+		}
+		h.counts.lazySet(MAX, highest < 0 ? 0 : Math.min(highestValueAt(highest), c.get(MAX)));
+		return h;
+	}
+
+	/**
+	 * 清空，调用方保证没有并发写入
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT + 3; i++) {
+			counts.lazySet(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[count = " + getTotalCount() +
+			", mean = " + (long) getMean() / 1000 + "us" +
+			", p50 = " + getValueAtPercentile(50) / 1000 + "us" +
+			", p90 = " + getValueAtPercentile(90) / 1000 + "us" +
+			", p99 = " + getValueAtPercentile(99) / 1000 + "us" +
+			", p999 = " + getValueAtPercentile(99.9) / 1000 + "us" +
+			", max = " + getMax() / 1000 + "us" +
+			"]";
+	}
+}
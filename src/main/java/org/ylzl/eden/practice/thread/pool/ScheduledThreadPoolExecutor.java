@@ -18,106 +18,975 @@
 package org.ylzl.eden.practice.thread.pool;
 
 import java.util.AbstractQueue;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.*;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
- * TODO
+ * 定时任务线程池
+ *
+ * <p>延迟队列使用分层时间轮代替二叉堆，插入和取消都是 O(1)；周期任务执行后复用原任务对象和时间轮节点重新入队。
+ * 时间轮精度为 1 毫秒，任务不会早于计划时间执行，最多晚一个刻度。
  *
  * @author gyl
  * @since 2.0.0
  */
 public class ScheduledThreadPoolExecutor extends ThreadPoolExecutor implements ScheduledExecutorService {
 
+	private volatile boolean continueExistingPeriodicTasksAfterShutdown;
+
+	private volatile boolean executeExistingDelayedTasksAfterShutdown = true;
+
+	private volatile boolean removeOnCancel = true; // 取消后立即移出时间轮，避免长延迟任务占用内存
+
+	private static final AtomicLong sequencer = new AtomicLong();
+
 	public ScheduledThreadPoolExecutor(int corePoolSize) {
-		super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS, new ScheduledThreadPoolExecutor.DelayedWorkQueue());
+		super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS, new DelayedWorkQueue());
 	}
 
-	static class DelayedWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+	public ScheduledThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory) {
+		super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS, new DelayedWorkQueue(), threadFactory);
+	}
+
+	public ScheduledThreadPoolExecutor(int corePoolSize, RejectedExecutionHandler handler) {
+		super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS, new DelayedWorkQueue(), handler);
+	}
+
+	public ScheduledThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory,
+																		 RejectedExecutionHandler handler) {
+		super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS, new DelayedWorkQueue(), threadFactory, handler);
+	}
+
+	final long now() {
+		return System.nanoTime();
+	}
+
+	private class ScheduledFutureTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+		private final long sequenceNumber;
+
+		private long time; // 下次执行的 nanoTime
+
+		private final long period; // 正数为固定频率，负数为固定延迟，0 为一次性任务
+
+		RunnableScheduledFuture<V> outerTask = this;
+
+		final TimerNode node = new TimerNode(this); // 时间轮节点，周期任务重复使用
+
+		ScheduledFutureTask(Runnable r, V result, long ns) {
+			super(r, result);
+			this.time = ns;
+			this.period = 0;
+			this.sequenceNumber = sequencer.getAndIncrement();
+		}
+
+		ScheduledFutureTask(Runnable r, V result, long ns, long period) {
+			super(r, result);
+			this.time = ns;
+			this.period = period;
+			this.sequenceNumber = sequencer.getAndIncrement();
+		}
+
+		ScheduledFutureTask(Callable<V> callable, long ns) {
+			super(callable);
+			this.time = ns;
+			this.period = 0;
+			this.sequenceNumber = sequencer.getAndIncrement();
+		}
 
 		@Override
-		public Iterator<Runnable> iterator() {
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(time - now(), NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			if (other instanceof ScheduledFutureTask) {
+				ScheduledFutureTask<?> x = (ScheduledFutureTask<?>) other;
+				long diff = time - x.time;
+				if (diff < 0) {
+					return -1;
+				} else if (diff > 0) {
+					return 1;
+				} else if (sequenceNumber < x.sequenceNumber) {
+					return -1;
+				} else {
+					return 1;
+				}
+			}
+			long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+			return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		private void setNextRunTime() {
+			long p = period;
+			if (p > 0) {
+				time += p;
+			} else {
+				time = triggerTime(-p);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && removeOnCancel && node.bucket != null) {
+				remove(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public void run() {
+			boolean periodic = isPeriodic();
+			if (!canRunInCurrentRunState(periodic)) {
+				cancel(false);
+			} else if (!periodic) {
+				super.run();
+			} else if (super.runAndReset()) {
+				setNextRunTime();
+				reExecutePeriodic(outerTask);
+			}
+		}
+	}
+
+	boolean canRunInCurrentRunState(boolean periodic) {
+		return isRunningOrShutdown(periodic ?
+			continueExistingPeriodicTasksAfterShutdown :
+			executeExistingDelayedTasksAfterShutdown);
+	}
+
+	private void delayedExecute(RunnableScheduledFuture<?> task) {
+		if (isShutdown()) {
+			reject(task);
+		} else {
+			super.getQueue().add(task);
+			if (isShutdown() &&
+				!canRunInCurrentRunState(task.isPeriodic()) &&
+				remove(task)) {
+				task.cancel(false);
+			} else {
+				ensurePrestart();
+			}
+		}
+	}
+
+	void reExecutePeriodic(RunnableScheduledFuture<?> task) {
+		if (canRunInCurrentRunState(true)) {
+			super.getQueue().add(task);
+			if (!canRunInCurrentRunState(true) && remove(task)) {
+				task.cancel(false);
+			} else {
+				ensurePrestart();
+			}
+		}
+	}
+
+	@Override
+	void onShutdown() {
+		BlockingQueue<Runnable> q = super.getQueue();
+		boolean keepDelayed = getExecuteExistingDelayedTasksAfterShutdownPolicy();
+		boolean keepPeriodic = getContinueExistingPeriodicTasksAfterShutdownPolicy();
+		if (!keepDelayed && !keepPeriodic) {
+			for (Object e : q.toArray()) {
+				if (e instanceof RunnableScheduledFuture<?>) {
+					((RunnableScheduledFuture<?>) e).cancel(false);
+				}
+			}
+			q.clear();
+		} else {
+			for (Object e : q.toArray()) {
+				if (e instanceof RunnableScheduledFuture) {
+					RunnableScheduledFuture<?> t = (RunnableScheduledFuture<?>) e;
+					if ((t.isPeriodic() ? !keepPeriodic : !keepDelayed) || t.isCancelled()) {
+						if (q.remove(t)) {
+							t.cancel(false);
+						}
+					}
+				}
+			}
+		}
+		tryTerminate();
+	}
+
+	protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+		return task;
+	}
+
+	protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+		return task;
+	}
+
+	private long triggerTime(long delay, TimeUnit unit) {
+		return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+	}
+
+	long triggerTime(long delay) {
+		return now() + ((delay < (Long.MAX_VALUE >> 1)) ? delay : overflowFree(delay));
+	}
+
+	private long overflowFree(long delay) { // 限制与队首任务的时间差，避免 compareTo 溢出
+		Delayed head = (Delayed) super.getQueue().peek();
+		if (head != null) {
+			long headDelay = head.getDelay(NANOSECONDS);
+			if (headDelay < 0 && (delay - headDelay < 0)) {
+				delay = Long.MAX_VALUE + headDelay;
+			}
+		}
+		return delay;
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		RunnableScheduledFuture<?> t = decorateTask(command,
+			new ScheduledFutureTask<Void>(command, null, triggerTime(delay, unit)));
+		delayedExecute(t);
+		return t;
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		if (callable == null || unit == null) {
+			throw new NullPointerException();
+		}
+		RunnableScheduledFuture<V> t = decorateTask(callable,
+			new ScheduledFutureTask<V>(callable, triggerTime(delay, unit)));
+		delayedExecute(t);
+		return t;
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		if (period <= 0) {
+			throw new IllegalArgumentException();
+		}
+		ScheduledFutureTask<Void> sft = new ScheduledFutureTask<Void>(command, null,
+			triggerTime(initialDelay, unit), unit.toNanos(period));
+		RunnableScheduledFuture<Void> t = decorateTask(command, sft);
+		sft.outerTask = t;
+		delayedExecute(t);
+		return t;
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		if (delay <= 0) {
+			throw new IllegalArgumentException();
+		}
+		ScheduledFutureTask<Void> sft = new ScheduledFutureTask<Void>(command, null,
+			triggerTime(initialDelay, unit), unit.toNanos(-delay));
+		RunnableScheduledFuture<Void> t = decorateTask(command, sft);
+		sft.outerTask = t;
+		delayedExecute(t);
+		return t;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		schedule(command, 0, NANOSECONDS);
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		return schedule(task, 0, NANOSECONDS);
+	}
+
+	@Override
+	public <T> Future<T> submit(Runnable task, T result) {
+		return schedule(java.util.concurrent.Executors.callable(task, result), 0, NANOSECONDS);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		return schedule(task, 0, NANOSECONDS);
+	}
+
+	public void setContinueExistingPeriodicTasksAfterShutdownPolicy(boolean value) {
+		continueExistingPeriodicTasksAfterShutdown = value;
+		if (!value && isShutdown()) {
+			onShutdown();
+		}
+	}
+
+	public boolean getContinueExistingPeriodicTasksAfterShutdownPolicy() {
+		return continueExistingPeriodicTasksAfterShutdown;
+	}
+
+	public void setExecuteExistingDelayedTasksAfterShutdownPolicy(boolean value) {
+		executeExistingDelayedTasksAfterShutdown = value;
+		if (!value && isShutdown()) {
+			onShutdown();
+		}
+	}
+
+	public boolean getExecuteExistingDelayedTasksAfterShutdownPolicy() {
+		return executeExistingDelayedTasksAfterShutdown;
+	}
+
+	public void setRemoveOnCancelPolicy(boolean value) {
+		removeOnCancel = value;
+	}
+
+	public boolean getRemoveOnCancelPolicy() {
+		return removeOnCancel;
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return super.shutdownNow();
+	}
+
+	@Override
+	public BlockingQueue<Runnable> getQueue() {
+		return super.getQueue();
+	}
+
+	/**
+	 * 时间轮中的节点，挂在某个槽位的双向链表上，取消时可 O(1) 摘除
+	 */
+	static final class TimerNode {
+
+		final RunnableScheduledFuture<?> task;
+
+		TimerNode prev;
+
+		TimerNode next;
+
+		Bucket bucket; // 所在槽位，不在队列中时为 null
+
+		long expiryTick;
+
+		TimerNode(RunnableScheduledFuture<?> task) {
+			this.task = task;
+		}
+	}
+
+	static final class Bucket {
+
+		final DelayedWorkQueue owner;
+
+		final int level; // 就绪链表为 -1
+
+		final int slot;
+
+		TimerNode head;
+
+		TimerNode tail;
+
+		Bucket(DelayedWorkQueue owner, int level, int slot) {
+			this.owner = owner;
+			this.level = level;
+			this.slot = slot;
+		}
+
+		void add(TimerNode node) {
+			node.bucket = this;
+			node.next = null;
+			node.prev = tail;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+		}
+
+		void unlink(TimerNode node) {
+			TimerNode p = node.prev;
+			TimerNode n = node.next;
+			if (p == null) {
+				head = n;
+			} else {
+				p.next = n;
+			}
+			if (n == null) {
+				tail = p;
+			} else {
+				n.prev = p;
+			}
+			node.prev = node.next = null;
+			node.bucket = null;
+		}
+
+		/**
+		 * 按任务的 compareTo 有序插入，从队尾向前查找，任务按到期顺序到达时为 O(1)
+		 */
+		void addOrdered(TimerNode node) {
+			TimerNode p = tail;
+			while (p != null && p.task.compareTo(node.task) > 0) {
+				p = p.prev;
+			}
+			node.bucket = this;
+			node.prev = p;
+			if (p == null) {
+				node.next = head;
+				head = node;
+			} else {
+				node.next = p.next;
+				p.next = node;
+			}
+			if (node.next == null) {
+				tail = node;
+			} else {
+				node.next.prev = node;
+			}
+		}
+
+		TimerNode detachAll() {
+			TimerNode h = head;
+			head = tail = null;
+			return h;
+		}
+	}
+
+	/**
+	 * 分层时间轮实现的延迟队列
+	 *
+	 * <p>共 8 层，每层 64 个槽，第 L 层一个槽覆盖 64^L 个刻度。到期刻度 e 按与当前刻度 c 最高的不同位所在层放入对应槽位，
+	 * 因此同一层的任务与 c 在更高层的位相同，且槽位一定在当前槽位之后。每层用一个 long 位图记录非空槽位，
+	 * 最近的事件在最低的非空层，用 numberOfTrailingZeros 即可定位。时间推进到某个槽位的起点时，
+	 * 把槽内任务按新的当前刻度重新插入（降级到低层或进入就绪链表）。
+	 *
+	 * <p>槽位内不排序，同一刻度的任务到期时才按计划时间有序插入就绪链表，计划时间相同时按提交顺序，
+	 * 因此出队顺序与二叉堆实现一致。
+	 */
+	static class DelayedWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+		private static final int WHEEL_BITS = 6;
+
+		private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+		private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+		private static final int LEVELS = 8; // 覆盖 2^48 个刻度
+
+		private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+		private static final long NO_EVENT = Long.MAX_VALUE;
+
+		private final long origin = System.nanoTime();
+
+		private final Bucket[][] wheel = new Bucket[LEVELS][WHEEL_SIZE];
+
+		private final long[] occupied = new long[LEVELS]; // 每层非空槽位的位图
+
+		private final Bucket ready = new Bucket(this, -1, -1); // 已到期任务，按计划时间排列
+
+		private long currentTick;
+
+		private int size;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition available = lock.newCondition();
+
+		private Thread leader; // 等待最近到期任务的线程，其他线程无限期等待
+
+		DelayedWorkQueue() {
+			for (int l = 0; l < LEVELS; l++) {
+				for (int s = 0; s < WHEEL_SIZE; s++) {
+					wheel[l][s] = new Bucket(this, l, s);
+				}
+			}
+		}
+
+		private long nowTick() {
+			long elapsed = System.nanoTime() - origin;
+			return elapsed <= 0 ? 0 : elapsed / TICK_NANOS;
+		}
+
+		private long tickOf(RunnableScheduledFuture<?> task) {
+			long elapsed = task instanceof ScheduledThreadPoolExecutor.ScheduledFutureTask ?
+				((ScheduledThreadPoolExecutor.ScheduledFutureTask<?>) task).time - origin :
+				System.nanoTime() - origin + task.getDelay(NANOSECONDS);
+			if (elapsed <= 0) {
+				return 0;
+			}
+			return (elapsed + TICK_NANOS - 1) / TICK_NANOS; // 向上取整，保证不会提前执行
+		}
+
+		private TimerNode nodeOf(Object o) {
+			if (o instanceof ScheduledThreadPoolExecutor.ScheduledFutureTask) {
+				TimerNode node = ((ScheduledThreadPoolExecutor.ScheduledFutureTask<?>) o).node;
+				return node.bucket != null && node.bucket.owner == this ? node : null;
+			}
+			if (o != null) { // 被 decorateTask 替换的任务没有内置节点，退化为遍历
+				for (TimerNode n = ready.head; n != null; n = n.next) {
+					if (n.task == o) {
+						return n;
+					}
+				}
+				for (int l = 0; l < LEVELS; l++) {
+					for (Bucket b : wheel[l]) {
+						for (TimerNode n = b.head; n != null; n = n.next) {
+							if (n.task == o) {
+								return n;
+							}
+						}
+					}
+				}
+			}
 			return null;
 		}
 
+		private void insert(TimerNode node) {
+			long e = node.expiryTick;
+			long c = currentTick;
+			if (e <= c) {
+				ready.addOrdered(node);
+				return;
+			}
+			int level = (63 - Long.numberOfLeadingZeros(e ^ c)) / WHEEL_BITS;
+			int slot = (int) (e >>> (level * WHEEL_BITS)) & WHEEL_MASK;
+			wheel[level][slot].add(node);
+			occupied[level] |= 1L << slot;
+		}
+
+		private void unlink(TimerNode node) {
+			Bucket b = node.bucket;
+			b.unlink(node);
+			if (b.head == null && b.level >= 0) {
+				occupied[b.level] &= ~(1L << b.slot);
+			}
+		}
+
+		/**
+		 * 最近一个非空槽位的起始刻度，低层槽位总是早于高层
+		 */
+		private long nextEventTick() {
+			long c = currentTick;
+			for (int l = 0; l < LEVELS; l++) {
+				long bits = occupied[l];
+				if (bits != 0) {
+					int shift = l * WHEEL_BITS;
+					long block = (c >>> (shift + WHEEL_BITS)) << (shift + WHEEL_BITS);
+					return block | ((long) Long.numberOfTrailingZeros(bits) << shift);
+				}
+			}
+			return NO_EVENT;
+		}
+
+		/**
+		 * 推进到 nowTick，逐个经过途中的非空槽位并降级其中的任务
+		 */
+		private void advance(long nowTick) {
+			for (; ; ) {
+				long next = nextEventTick();
+				if (next > nowTick) {
+					if (nowTick > currentTick) {
+						currentTick = nowTick;
+					}
+					return;
+				}
+				currentTick = next;
+				for (int l = 0; l < LEVELS; l++) {
+					int slot = (int) (next >>> (l * WHEEL_BITS)) & WHEEL_MASK;
+					if ((occupied[l] & (1L << slot)) != 0) {
+						occupied[l] &= ~(1L << slot);
+						TimerNode n = wheel[l][slot].detachAll();
+						while (n != null) {
+							TimerNode following = n.next;
+							n.prev = n.next = null;
+							insert(n);
+							n = following;
+						}
+					}
+				}
+			}
+		}
+
+		private long earliestTick() {
+			return ready.head != null ? currentTick : nextEventTick();
+		}
+
+		private RunnableScheduledFuture<?> pollExpired() {
+			advance(nowTick());
+			TimerNode first = ready.head;
+			if (first == null) {
+				return null;
+			}
+			ready.unlink(first);
+			size--;
+			return first.task;
+		}
+
 		@Override
-		public int size() {
-			return 0;
+		public boolean offer(Runnable x) {
+			if (x == null) {
+				throw new NullPointerException();
+			}
+			RunnableScheduledFuture<?> task = (RunnableScheduledFuture<?>) x;
+			TimerNode node = task instanceof ScheduledThreadPoolExecutor.ScheduledFutureTask ?
+				((ScheduledThreadPoolExecutor.ScheduledFutureTask<?>) task).node : new TimerNode(task);
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				if (node.bucket != null) { // 已在队列中
+					return true;
+				}
+				long before = earliestTick();
+				node.expiryTick = tickOf(task);
+				insert(node);
+				size++;
+				if (node.bucket == ready || node.expiryTick < before) { // 成为最早到期的任务，唤醒等待线程
+					leader = null;
+					available.signal();
+				}
+			} finally {
+				lock.unlock();
+			}
+			return true;
 		}
 
 		@Override
-		public void put(Runnable runnable) throws InterruptedException {
+		public void put(Runnable e) {
+			offer(e);
+		}
 
+		@Override
+		public boolean add(Runnable e) {
+			return offer(e);
 		}
 
 		@Override
-		public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
-			return false;
+		public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+			return offer(e);
+		}
+
+		@Override
+		public Runnable poll() {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				return pollExpired();
+			} finally {
+				lock.unlock();
+			}
 		}
 
 		@Override
 		public Runnable take() throws InterruptedException {
-			return null;
+			final ReentrantLock lock = this.lock;
+			lock.lockInterruptibly();
+			try {
+				for (; ; ) {
+					RunnableScheduledFuture<?> first = pollExpired();
+					if (first != null) {
+						return first;
+					}
+					long next = nextEventTick();
+					if (next == NO_EVENT || leader != null) {
+						available.await();
+					} else {
+						long delay = origin + next * TICK_NANOS - System.nanoTime();
+						if (delay > 0) {
+							Thread thisThread = Thread.currentThread();
+							leader = thisThread;
+							try {
+								available.awaitNanos(delay);
+							} finally {
+								if (leader == thisThread) {
+									leader = null;
+								}
+							}
+						}
+					}
+				}
+			} finally {
+				if (leader == null && size > 0) {
+					available.signal();
+				}
+				lock.unlock();
+			}
 		}
 
 		@Override
 		public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
-			return null;
+			long nanos = unit.toNanos(timeout);
+			final ReentrantLock lock = this.lock;
+			lock.lockInterruptibly();
+			try {
+				for (; ; ) {
+					RunnableScheduledFuture<?> first = pollExpired();
+					if (first != null) {
+						return first;
+					}
+					if (nanos <= 0) {
+						return null;
+					}
+					long next = nextEventTick();
+					if (next == NO_EVENT) {
+						nanos = available.awaitNanos(nanos);
+					} else {
+						long delay = origin + next * TICK_NANOS - System.nanoTime();
+						if (delay <= 0) {
+							continue;
+						}
+						if (nanos < delay || leader != null) {
+							nanos = available.awaitNanos(nanos);
+						} else {
+							Thread thisThread = Thread.currentThread();
+							leader = thisThread;
+							try {
+								long timeLeft = available.awaitNanos(delay);
+								nanos -= delay - timeLeft;
+							} finally {
+								if (leader == thisThread) {
+									leader = null;
+								}
+							}
+						}
+					}
+				}
+			} finally {
+				if (leader == null && size > 0) {
+					available.signal();
+				}
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * 已到期的任务按到期顺序返回；否则返回最近非空槽位中的任意任务，不保证是最早到期的
+		 */
+		@Override
+		public Runnable peek() {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				advance(nowTick());
+				if (ready.head != null) {
+					return ready.head.task;
+				}
+				for (int l = 0; l < LEVELS; l++) {
+					long bits = occupied[l];
+					if (bits != 0) {
+						return wheel[l][Long.numberOfTrailingZeros(bits)].head.task;
+					}
+				}
+				return null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean contains(Object x) {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				return nodeOf(x) != null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean remove(Object x) {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				TimerNode node = nodeOf(x);
+				if (node == null) {
+					return false;
+				}
+				unlink(node);
+				size--;
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public int size() {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				return size;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return size() == 0;
 		}
 
 		@Override
 		public int remainingCapacity() {
-			return 0;
+			return Integer.MAX_VALUE;
+		}
+
+		@Override
+		public void clear() {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				clearBucket(ready);
+				for (int l = 0; l < LEVELS; l++) {
+					for (Bucket b : wheel[l]) {
+						clearBucket(b);
+					}
+					occupied[l] = 0;
+				}
+				size = 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private static void clearBucket(Bucket b) {
+			TimerNode n = b.detachAll();
+			while (n != null) {
+				TimerNode following = n.next;
+				n.prev = n.next = null;
+				n.bucket = null;
+				n = following;
+			}
 		}
 
 		@Override
 		public int drainTo(Collection<? super Runnable> c) {
-			return 0;
+			return drainTo(c, Integer.MAX_VALUE);
 		}
 
 		@Override
 		public int drainTo(Collection<? super Runnable> c, int maxElements) {
-			return 0;
+			if (c == null) {
+				throw new NullPointerException();
+			}
+			if (c == this) {
+				throw new IllegalArgumentException();
+			}
+			if (maxElements <= 0) {
+				return 0;
+			}
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				int n = 0;
+				RunnableScheduledFuture<?> first;
+				while (n < maxElements && (first = pollExpired()) != null) { // 只转移已到期的任务
+					c.add(first);
+					++n;
+				}
+				return n;
+			} finally {
+				lock.unlock();
+			}
 		}
 
 		@Override
-		public boolean offer(Runnable runnable) {
-			return false;
+		public Object[] toArray() {
+			return snapshot().toArray();
 		}
 
 		@Override
-		public Runnable poll() {
-			return null;
+		public <T> T[] toArray(T[] a) {
+			return snapshot().toArray(a);
+		}
+
+		private List<Runnable> snapshot() {
+			final ReentrantLock lock = this.lock;
+			lock.lock();
+			try {
+				List<Runnable> list = new ArrayList<Runnable>(size);
+				for (TimerNode n = ready.head; n != null; n = n.next) {
+					list.add(n.task);
+				}
+				for (int l = 0; l < LEVELS; l++) {
+					for (Bucket b : wheel[l]) {
+						for (TimerNode n = b.head; n != null; n = n.next) {
+							list.add(n.task);
+						}
+					}
+				}
+				return list;
+			} finally {
+				lock.unlock();
+			}
 		}
 
 		@Override
-		public Runnable peek() {
-			return null;
+		public Iterator<Runnable> iterator() {
+			return new Itr(snapshot());
 		}
-	}
 
-	@Override
-	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
-		return null;
-	}
+		private class Itr implements Iterator<Runnable> {
 
-	@Override
-	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-		return null;
-	}
+			final List<Runnable> array;
 
-	@Override
-	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
-		return null;
-	}
+			int cursor;
 
-	@Override
-	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
-		return null;
+			int lastRet = -1;
+
+			Itr(List<Runnable> array) {
+				this.array = array;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return cursor < array.size();
+			}
+
+			@Override
+			public Runnable next() {
+				if (cursor >= array.size()) {
+					throw new NoSuchElementException();
+				}
+				lastRet = cursor;
+				return array.get(cursor++);
+			}
+
+			@Override
+			public void remove() {
+				if (lastRet < 0) {
+					throw new IllegalStateException();
+				}
+				DelayedWorkQueue.this.remove(array.get(lastRet));
+				lastRet = -1;
+			}
+		}
 	}
 }
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.ylzl.eden.practice.thread.core.FastThreadLocal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 结构化的一组子任务，由创建它的线程 fork、等待并关闭
+ *
+ * <ul>
+ *   <li>SHUTDOWN_ON_FAILURE：任一子任务失败即取消其余子任务，用于 invokeAll</li>
+ *   <li>SHUTDOWN_ON_SUCCESS：任一子任务成功即取消其余子任务，用于 invokeAny 和对冲请求</li>
+ * </ul>
+ * 截止时间会向下传递：子任务执行期间可以通过 {@link #remainingNanos()} 读取，
+ * 子任务内再创建的 scope 取自身超时与继承截止时间中较早的一个。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class StructuredTaskScope<T> {
+
+	enum Policy {
+		SHUTDOWN_ON_FAILURE,
+		SHUTDOWN_ON_SUCCESS
+	}
+
+	private static final FastThreadLocal<Deadline> CURRENT_DEADLINE = new FastThreadLocal<Deadline>() {
+
+		@Override
+		protected Deadline initialValue() {
+			return new Deadline();
+		}
+	};
+
+	static final class Deadline { // 每个线程复用一个实例，执行子任务时暂存和恢复
+
+		boolean set;
+
+		long nanos;
+	}
+
+	private final Policy policy;
+
+	private final boolean timed;
+
+	private final long deadline; // System.nanoTime 基准
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition finished = lock.newCondition();
+
+	private final List<Subtask> subtasks = new ArrayList<Subtask>();
+
+	private int pending;
+
+	private boolean shutdown;
+
+	private Subtask winner;
+
+	private Throwable failure;
+
+	StructuredTaskScope(Policy policy, boolean timed, long nanos) {
+		long d = timed ? System.nanoTime() + nanos : 0L;
+		Deadline inherited = CURRENT_DEADLINE.getIfExists();
+		if (inherited != null && inherited.set && (!timed || inherited.nanos - d < 0)) { // 继承更早的截止时间
+			timed = true;
+			d = inherited.nanos;
+		}
+		this.policy = policy;
+		this.timed = timed;
+		this.deadline = d;
+	}
+
+	/**
+	 * 当前线程所在子任务的剩余时间，不在带截止时间的子任务中时返回 Long.MAX_VALUE
+	 */
+	public static long remainingNanos() {
+		Deadline d = CURRENT_DEADLINE.getIfExists();
+		if (d == null || !d.set) {
+			return Long.MAX_VALUE;
+		}
+		return d.nanos - System.nanoTime();
+	}
+
+	public static boolean isDeadlineExceeded() {
+		return remainingNanos() <= 0;
+	}
+
+	final class Subtask extends FutureTask<T> {
+
+		volatile long startNanos;
+
+		volatile long endNanos;
+
+		Subtask(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		public void run() {
+			if (!timed) {
+				startNanos = System.nanoTime();
+				super.run();
+				return;
+			}
+			Deadline d = CURRENT_DEADLINE.get();
+			boolean prevSet = d.set;
+			long prevNanos = d.nanos;
+			d.set = true;
+			d.nanos = deadline;
+			try {
+				startNanos = System.nanoTime();
+				super.run();
+			} finally {
+				d.set = prevSet;
+				d.nanos = prevNanos;
+			}
+		}
+
+		@Override
+		protected void done() {
+			endNanos = System.nanoTime();
+			onDone(this);
+		}
+	}
+
+	/**
+	 * 创建子任务，由调用方交给执行器；scope 已关闭时返回已取消的子任务
+	 */
+	Subtask fork(Callable<T> callable) {
+		if (callable == null) {
+			throw new NullPointerException();
+		}
+		Subtask s = new Subtask(callable);
+		boolean closed;
+		lock.lock();
+		try {
+			closed = shutdown;
+			subtasks.add(s);
+			pending++;
+		} finally {
+			lock.unlock();
+		}
+		if (closed) {
+			s.cancel(false);
+		}
+		return s;
+	}
+
+	private void onDone(Subtask s) {
+		boolean success = false;
+		Throwable ex = null;
+		if (!s.isCancelled()) {
+			try {
+				s.get();
+				success = true;
+			} catch (ExecutionException e) {
+				ex = e.getCause();
+			} catch (CancellationException | InterruptedException ignore) {
+			}
+		}
+		boolean cancelOthers = false;
+		lock.lock();
+		try {
+			pending--;
+			if (!shutdown) {
+				if (success && policy == Policy.SHUTDOWN_ON_SUCCESS) {
+					winner = s;
+					shutdown = cancelOthers = true;
+				} else if (ex != null) {
+					failure = ex; // SHUTDOWN_ON_SUCCESS 下保留最后一个失败
+					if (policy == Policy.SHUTDOWN_ON_FAILURE) {
+						shutdown = cancelOthers = true;
+					}
+				}
+			}
+			if (cancelOthers || pending == 0) {
+				finished.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (cancelOthers) {
+			cancelAll();
+		}
+	}
+
+	private void cancelAll() {
+		List<Subtask> snapshot;
+		lock.lock();
+		try {
+			snapshot = new ArrayList<Subtask>(subtasks);
+		} finally {
+			lock.unlock();
+		}
+		for (Subtask s : snapshot) {
+			s.cancel(true);
+		}
+	}
+
+	/**
+	 * 等待到 scope 关闭或全部子任务完成
+	 *
+	 * @return 到达截止时间仍未结束时返回 false
+	 */
+	boolean join() throws InterruptedException {
+		return joinNanos(Long.MAX_VALUE);
+	}
+
+	/**
+	 * 最多等待 nanos，且不超过截止时间
+	 *
+	 * @return 等待结束时 scope 已结束返回 true
+	 */
+	boolean joinNanos(long nanos) throws InterruptedException {
+		long limit = nanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + nanos;
+		lock.lock();
+		try {
+			while (!shutdown && pending > 0) {
+				long now = System.nanoTime();
+				long wait = Long.MAX_VALUE;
+				if (limit != Long.MAX_VALUE) {
+					wait = limit - now;
+				}
+				if (timed) {
+					wait = Math.min(wait, deadline - now);
+				}
+				if (wait <= 0) {
+					return false;
+				}
+				if (wait == Long.MAX_VALUE) {
+					finished.await();
+				} else {
+					finished.awaitNanos(wait);
+				}
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	boolean isDeadlinePassed() {
+		return timed && deadline - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * 关闭 scope，取消所有未完成的子任务
+	 */
+	void shutdown() {
+		lock.lock();
+		try {
+			shutdown = true;
+			finished.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		cancelAll();
+	}
+
+	Subtask winner() {
+		lock.lock();
+		try {
+			return winner;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * SHUTDOWN_ON_SUCCESS 下获取胜出的结果，全部失败时抛出最后一个失败
+	 */
+	T result() throws ExecutionException {
+		Subtask w;
+		Throwable ex;
+		lock.lock();
+		try {
+			w = winner;
+			ex = failure;
+		} finally {
+			lock.unlock();
+		}
+		if (w == null) {
+			throw new ExecutionException(ex);
+		}
+		try {
+			return w.get();
+		} catch (InterruptedException e) { // 已完成的任务不会阻塞
+			Thread.currentThread().interrupt();
+			throw new ExecutionException(e);
+		}
+	}
+}
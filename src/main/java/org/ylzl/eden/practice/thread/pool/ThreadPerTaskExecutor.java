@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个任务一个线程的执行器，配合虚拟线程工厂使用
+ *
+ * <p>不复用线程也不排队，并发度由调用方决定；指定 maxConcurrency 时用信号量限制同时执行的任务数，
+ * 许可耗尽后提交方阻塞等待，而不是像线程池那样靠线程数和队列限流。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ThreadPerTaskExecutor extends AbstractExecutorService {
+
+	private static final int RUNNING = 0;
+	private static final int SHUTDOWN = 1;
+	private static final int TERMINATED = 2;
+
+	private final ThreadFactory factory;
+
+	private final Semaphore permits; // 无界时为 null
+
+	private final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+	private final CountDownLatch termination = new CountDownLatch(1);
+
+	private volatile int state = RUNNING;
+
+	public ThreadPerTaskExecutor(ThreadFactory factory) {
+		this(factory, 0);
+	}
+
+	/**
+	 * @param maxConcurrency 同时执行的最大任务数，小于等于 0 表示不限制
+	 */
+	public ThreadPerTaskExecutor(ThreadFactory factory, int maxConcurrency) {
+		if (factory == null) {
+			throw new NullPointerException();
+		}
+		this.factory = factory;
+		this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		ensureRunning(command);
+		if (permits != null) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for a permit", e);
+			}
+		}
+		boolean started = false;
+		try {
+			Thread thread = factory.newThread(new TaskRunner(command));
+			if (thread == null) {
+				throw new RejectedExecutionException("Thread factory returned null");
+			}
+			threads.add(thread);
+			if (state != RUNNING) { // 登记期间被关闭，撤销
+				threads.remove(thread);
+				ensureRunning(command);
+			}
+			thread.start();
+			started = true;
+		} finally {
+			if (!started) {
+				if (permits != null) {
+					permits.release();
+				}
+				tryTerminate();
+			}
+		}
+	}
+
+	private void ensureRunning(Runnable command) {
+		if (state != RUNNING) {
+			throw new RejectedExecutionException("Task " + command + " rejected from " + this);
+		}
+	}
+
+	private final class TaskRunner implements Runnable {
+
+		private final Runnable task;
+
+		TaskRunner(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} finally {
+				threads.remove(Thread.currentThread());
+				if (permits != null) {
+					permits.release();
+				}
+				tryTerminate();
+			}
+		}
+	}
+
+	private void tryTerminate() {
+		if (state == SHUTDOWN && threads.isEmpty()) {
+			synchronized (this) {
+				if (state == SHUTDOWN) {
+					state = TERMINATED;
+					termination.countDown();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		synchronized (this) {
+			if (state == RUNNING) {
+				state = SHUTDOWN;
+			}
+		}
+		tryTerminate();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		for (Thread t : threads) {
+			t.interrupt();
+		}
+		return Collections.emptyList(); // 任务不排队，没有待执行任务可返回
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return state != RUNNING;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return state == TERMINATED;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return termination.await(timeout, unit);
+	}
+
+	public int getActiveCount() {
+		return threads.size();
+	}
+
+	public int getAvailablePermits() {
+		return permits == null ? Integer.MAX_VALUE : permits.availablePermits();
+	}
+
+	@Override
+	public String toString() {
+		int s = state;
+		return super.toString() +
+			"[" + (s == RUNNING ? "Running" : (s == TERMINATED ? "Terminated" : "Shutting down")) +
+			", active threads = " + threads.size() +
+			(permits == null ? "" : ", available permits = " + permits.availablePermits()) +
+			"]";
+	}
+}
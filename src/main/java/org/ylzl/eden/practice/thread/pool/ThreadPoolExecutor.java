@@ -17,48 +17,1000 @@
 
 package org.ylzl.eden.practice.thread.pool;
 
+import org.ylzl.eden.practice.thread.core.FastThreadLocal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * TODO
+ * 线程池
+ *
+ * <p>ctl 的高 3 位保存运行状态，低 29 位保存工作线程数，一次 CAS 同时校验两者。
+ * 任务提交顺序：核心线程未满则新建线程；否则入队；队列已满且未达最大线程数则新建线程；否则拒绝。
  *
  * @author gyl
  * @since 2.0.0
  */
 public class ThreadPoolExecutor extends AbstractExecutorService {
 
+	private final AtomicInteger ctl = new AtomicInteger(ctlOf(RUNNING, 0));
+	private static final int COUNT_BITS = Integer.SIZE - 3;
+	private static final int CAPACITY = (1 << COUNT_BITS) - 1;
+
+	// 运行状态只增不减
+	private static final int RUNNING = -1 << COUNT_BITS; // 接收新任务，处理队列任务
+	private static final int SHUTDOWN = 0 << COUNT_BITS; // 不接收新任务，继续处理队列任务
+	private static final int STOP = 1 << COUNT_BITS; // 不接收新任务，不处理队列任务，中断执行中的任务
+	private static final int TIDYING = 2 << COUNT_BITS; // 所有任务已终止，工作线程数为 0，即将调用 terminated()
+	private static final int TERMINATED = 3 << COUNT_BITS; // terminated() 已执行完
+
+	private static int runStateOf(int c) {
+		return c & ~CAPACITY;
+	}
+
+	private static int workerCountOf(int c) {
+		return c & CAPACITY;
+	}
+
+	private static int ctlOf(int rs, int wc) {
+		return rs | wc;
+	}
+
+	private static boolean runStateLessThan(int c, int s) {
+		return c < s;
+	}
+
+	private static boolean runStateAtLeast(int c, int s) {
+		return c >= s;
+	}
+
+	private static boolean isRunning(int c) {
+		return c < SHUTDOWN;
+	}
+
+	private boolean compareAndIncrementWorkerCount(int expect) {
+		return ctl.compareAndSet(expect, expect + 1);
+	}
+
+	private boolean compareAndDecrementWorkerCount(int expect) {
+		return ctl.compareAndSet(expect, expect - 1);
+	}
+
+	private void decrementWorkerCount() {
+		do {
+		} while (!compareAndDecrementWorkerCount(ctl.get()));
+	}
+
+	private final BlockingQueue<Runnable> workQueue;
+
+	private final ReentrantLock mainLock = new ReentrantLock(); // 保护 workers 集合和统计字段
+
+	private final HashSet<Worker> workers = new HashSet<Worker>();
+
+	private final Condition termination = mainLock.newCondition();
+
+	private int largestPoolSize;
+
+	private long completedTaskCount;
+
+	private volatile ThreadFactory threadFactory;
+
+	private volatile RejectedExecutionHandler handler;
+
+	private volatile long keepAliveTime;
+
+	private volatile boolean allowCoreThreadTimeOut;
+
+	private volatile boolean removeThreadLocalsAfterTask; // 每个任务结束后清理 FastThreadLocal
+
+	private volatile int corePoolSize;
+
+	private volatile int maximumPoolSize;
+
+	private static final RejectedExecutionHandler defaultHandler = new AbortPolicy();
+
+	private volatile ExecutorMetrics metrics; // 未开启指标时为 null
+
+	/**
+	 * 工作线程，自身作为不可重入的互斥锁：执行任务期间持有锁，
+	 * 以区分空闲线程和忙碌线程，避免 shutdown 中断正在执行的任务
+	 */
+	private final class Worker extends AbstractQueuedSynchronizer implements Runnable {
+
+		private static final long serialVersionUID = 6138294804551838833L;
+
+		final Thread thread;
+
+		Runnable firstTask;
+
+		long firstTaskNanos; // 首个任务的提交时间，未开启指标时为 0
+
+		volatile long completedTasks;
+
+		ExecutorMetrics.Recorder recorder; // 本线程的指标记录器，开启指标后首次执行任务时创建
+
+		Worker(Runnable firstTask) {
+			setState(-1); // 线程启动前禁止中断
+			this.firstTask = firstTask;
+			if (firstTask != null && metrics != null) {
+				this.firstTaskNanos = System.nanoTime();
+			}
+			this.thread = getThreadFactory().newThread(this);
+		}
+
+		@Override
+		public void run() {
+			runWorker(this);
+		}
+
+		@Override
+		protected boolean isHeldExclusively() {
+			return getState() != 0;
+		}
+
+		@Override
+		protected boolean tryAcquire(int unused) {
+			if (compareAndSetState(0, 1)) {
+				setExclusiveOwnerThread(Thread.currentThread());
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean tryRelease(int unused) {
+			setExclusiveOwnerThread(null);
+			setState(0);
+			return true;
+		}
+
+		void lock() {
+			acquire(1);
+		}
+
+		boolean tryLock() {
+			return tryAcquire(1);
+		}
+
+		void unlock() {
+			release(1);
+		}
+
+		boolean isLocked() {
+			return isHeldExclusively();
+		}
+
+		void interruptIfStarted() {
+			Thread t;
+			if (getState() >= 0 && (t = thread) != null && !t.isInterrupted()) {
+				try {
+					t.interrupt();
+				} catch (SecurityException ignore) {
+				}
+			}
+		}
+	}
+
 	public ThreadPoolExecutor(int corePoolSize,
 														int maximumPoolSize,
 														long keepAliveTime,
 														TimeUnit unit,
 														BlockingQueue<Runnable> workQueue) {
+		this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+			Executors.defaultThreadFactory(), defaultHandler);
 	}
 
+	public ThreadPoolExecutor(int corePoolSize,
+														int maximumPoolSize,
+														long keepAliveTime,
+														TimeUnit unit,
+														BlockingQueue<Runnable> workQueue,
+														ThreadFactory threadFactory) {
+		this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+			threadFactory, defaultHandler);
+	}
+
+	public ThreadPoolExecutor(int corePoolSize,
+														int maximumPoolSize,
+														long keepAliveTime,
+														TimeUnit unit,
+														BlockingQueue<Runnable> workQueue,
+														RejectedExecutionHandler handler) {
+		this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+			Executors.defaultThreadFactory(), handler);
+	}
+
+	public ThreadPoolExecutor(int corePoolSize,
+														int maximumPoolSize,
+														long keepAliveTime,
+														TimeUnit unit,
+														BlockingQueue<Runnable> workQueue,
+														ThreadFactory threadFactory,
+														RejectedExecutionHandler handler) {
+		if (corePoolSize < 0 ||
+			maximumPoolSize <= 0 ||
+			maximumPoolSize < corePoolSize ||
+			keepAliveTime < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (workQueue == null || threadFactory == null || handler == null) {
+			throw new NullPointerException();
+		}
+		this.corePoolSize = corePoolSize;
+		this.maximumPoolSize = maximumPoolSize;
+		this.workQueue = workQueue;
+		this.keepAliveTime = unit.toNanos(keepAliveTime);
+		this.threadFactory = threadFactory;
+		this.handler = handler;
+	}
 
 	@Override
-	public void shutdown() {
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		if (metrics != null) {
+			ExecutorMetrics.stamp(command);
+		}
+		int c = ctl.get();
+		if (workerCountOf(c) < corePoolSize) { // 1. 核心线程未满，直接新建线程执行
+			if (addWorker(command, true)) {
+				return;
+			}
+			c = ctl.get();
+		}
+		if (isRunning(c) && workQueue.offer(command)) { // 2. 入队
+			int recheck = ctl.get();
+			if (!isRunning(recheck) && remove(command)) { // 入队后线程池已关闭，撤回任务
+				reject(command);
+			} else if (workerCountOf(recheck) == 0) { // 没有工作线程，补一个线程消费队列
+				addWorker(null, false);
+			}
+		} else if (!addWorker(command, false)) { // 3. 队列已满，新建非核心线程，失败则拒绝
+			reject(command);
+		}
+	}
+
+	/**
+	 * 队列支持批量入队时先补足核心线程，再一次性放入整批任务；放不下的部分按 {@link #execute(Runnable)} 处理
+	 */
+	@Override
+	protected void executeBatch(List<Runnable> commands) {
+		BlockingQueue<Runnable> q = workQueue;
+		int n = commands.size();
+		if (!(q instanceof BatchLinkedBlockingQueue) || n < 2) {
+			super.executeBatch(commands);
+			return;
+		}
+		if (!isRunning(ctl.get())) {
+			for (Runnable command : commands) {
+				reject(command);
+			}
+			return;
+		}
+		if (metrics != null) {
+			for (Runnable command : commands) {
+				ExecutorMetrics.stamp(command);
+			}
+		}
+		int missing = Math.min(n, corePoolSize - workerCountOf(ctl.get()));
+		while (missing-- > 0 && addWorker(null, true)) {
+		}
+		int accepted = ((BatchLinkedBlockingQueue<Runnable>) q).offerAll(commands);
+		int recheck = ctl.get();
+		if (!isRunning(recheck)) {
+			for (int i = 0; i < accepted; i++) {
+				Runnable command = commands.get(i);
+				if (remove(command)) {
+					reject(command);
+				}
+			}
+		} else if (workerCountOf(recheck) == 0) {
+			addWorker(null, false);
+		}
+		for (int i = accepted; i < n; i++) {
+			execute(commands.get(i));
+		}
+	}
+
+	private boolean addWorker(Runnable firstTask, boolean core) {
+		retry:
+		for (; ; ) {
+			int c = ctl.get();
+			int rs = runStateOf(c);
+
+			// SHUTDOWN 状态下只允许为了消费队列剩余任务而新建线程
+			if (rs >= SHUTDOWN &&
+				!(rs == SHUTDOWN && firstTask == null && !workQueue.isEmpty())) {
+				return false;
+			}
+
+			for (; ; ) {
+				int wc = workerCountOf(c);
+				if (wc >= CAPACITY || wc >= (core ? corePoolSize : maximumPoolSize)) {
+					return false;
+				}
+				if (compareAndIncrementWorkerCount(c)) {
+					break retry;
+				}
+				c = ctl.get();
+				if (runStateOf(c) != rs) { // 状态变化，从外层重新校验
+					continue retry;
+				}
+			}
+		}
+
+		boolean workerStarted = false;
+		boolean workerAdded = false;
+		Worker w = null;
+		try {
+			w = new Worker(firstTask);
+			final Thread t = w.thread;
+			if (t != null) {
+				final ReentrantLock mainLock = this.mainLock;
+				mainLock.lock();
+				try {
+					int rs = runStateOf(ctl.get());
+					if (rs < SHUTDOWN || (rs == SHUTDOWN && firstTask == null)) {
+						if (t.isAlive()) {
+							throw new IllegalThreadStateException();
+						}
+						workers.add(w);
+						int s = workers.size();
+						if (s > largestPoolSize) {
+							largestPoolSize = s;
+						}
+						workerAdded = true;
+					}
+				} finally {
+					mainLock.unlock();
+				}
+				if (workerAdded) {
+					t.start();
+					workerStarted = true;
+				}
+			}
+		} finally {
+			if (!workerStarted) {
+				addWorkerFailed(w);
+			}
+		}
+		return workerStarted;
+	}
+
+	private void addWorkerFailed(Worker w) {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			if (w != null) {
+				workers.remove(w);
+			}
+			decrementWorkerCount();
+			tryTerminate();
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	final void runWorker(Worker w) {
+		Thread wt = Thread.currentThread();
+		Runnable task = w.firstTask;
+		long firstTaskNanos = w.firstTaskNanos;
+		w.firstTask = null;
+		w.unlock(); // 允许中断
+		boolean completedAbruptly = true;
+		try {
+			while (task != null || (task = getTask()) != null) {
+				w.lock();
+				// 线程池进入 STOP 后保证线程被中断，否则清除中断标记
+				if ((runStateAtLeast(ctl.get(), STOP) ||
+					(Thread.interrupted() && runStateAtLeast(ctl.get(), STOP))) &&
+					!wt.isInterrupted()) {
+					wt.interrupt();
+				}
+				ExecutorMetrics m = metrics;
+				long start = 0L;
+				if (m != null) {
+					if (w.recorder == null) {
+						w.recorder = m.newRecorder();
+					}
+					start = System.nanoTime();
+				}
+				try {
+					beforeExecute(wt, task);
+					Throwable thrown = null;
+					try {
+						task.run();
+					} catch (RuntimeException x) {
+						thrown = x;
+						throw x;
+					} catch (Error x) {
+						thrown = x;
+						throw x;
+					} catch (Throwable x) {
+						thrown = x;
+						throw new Error(x);
+					} finally {
+						afterExecute(task, thrown);
+					}
+				} finally {
+					if (m != null) {
+						long submitNanos = task instanceof ExecutorMetrics.Timestamped ?
+							((ExecutorMetrics.Timestamped) task).getSubmitNanos() : firstTaskNanos;
+						w.recorder.record(submitNanos, start, System.nanoTime());
+					}
+					firstTaskNanos = 0L; // 之后的任务来自队列
+					if (removeThreadLocalsAfterTask) {
+						FastThreadLocal.removeAll();
+					}
+					task = null;
+					w.completedTasks++;
+					w.unlock();
+				}
+			}
+			completedAbruptly = false;
+		} finally {
+			processWorkerExit(w, completedAbruptly);
+		}
+	}
+
+	private Runnable getTask() {
+		boolean timedOut = false; // 上一次 poll 是否超时
+
+		for (; ; ) {
+			int c = ctl.get();
+			int rs = runStateOf(c);
+
+			if (rs >= SHUTDOWN && (rs >= STOP || workQueue.isEmpty())) {
+				decrementWorkerCount();
+				return null;
+			}
+
+			int wc = workerCountOf(c);
+
+			// 超过核心线程数的线程，或允许核心线程超时，按 keepAliveTime 回收
+			boolean timed = allowCoreThreadTimeOut || wc > corePoolSize;
+
+			if ((wc > maximumPoolSize || (timed && timedOut))
+				&& (wc > 1 || workQueue.isEmpty())) {
+				if (compareAndDecrementWorkerCount(c)) {
+					return null;
+				}
+				continue;
+			}
+
+			try {
+				Runnable r = timed ?
+					workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
+					workQueue.take();
+				if (r != null) {
+					return r;
+				}
+				timedOut = true;
+			} catch (InterruptedException retry) {
+				timedOut = false;
+			}
+		}
+	}
+
+	private void processWorkerExit(Worker w, boolean completedAbruptly) {
+		if (completedAbruptly) { // 任务抛出异常，getTask 没有扣减线程数
+			decrementWorkerCount();
+		}
+
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			completedTaskCount += w.completedTasks;
+			workers.remove(w);
+		} finally {
+			mainLock.unlock();
+		}
+		if (w.recorder != null) { // 在 mainLock 之外合并，snapshot 按相反的顺序加锁
+			w.recorder.owner.retire(w.recorder);
+		}
+
+		tryTerminate();
+
+		int c = ctl.get();
+		if (runStateLessThan(c, STOP)) {
+			if (!completedAbruptly) {
+				int min = allowCoreThreadTimeOut ? 0 : corePoolSize;
+				if (min == 0 && !workQueue.isEmpty()) {
+					min = 1;
+				}
+				if (workerCountOf(c) >= min) {
+					return;
+				}
+			}
+			addWorker(null, false); // 补充线程
+		}
+	}
+
+	final void tryTerminate() {
+		for (; ; ) {
+			int c = ctl.get();
+			if (isRunning(c) ||
+				runStateAtLeast(c, TIDYING) ||
+				(runStateOf(c) == SHUTDOWN && !workQueue.isEmpty())) {
+				return;
+			}
+			if (workerCountOf(c) != 0) { // 逐个中断空闲线程，传播关闭信号
+				interruptIdleWorkers(true);
+				return;
+			}
 
+			final ReentrantLock mainLock = this.mainLock;
+			mainLock.lock();
+			try {
+				if (ctl.compareAndSet(c, ctlOf(TIDYING, 0))) {
+					try {
+						terminated();
+					} finally {
+						ctl.set(ctlOf(TERMINATED, 0));
+						termination.signalAll();
+						closeMetrics();
+					}
+					return;
+				}
+			} finally {
+				mainLock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			advanceRunState(SHUTDOWN);
+			interruptIdleWorkers(false);
+			onShutdown();
+		} finally {
+			mainLock.unlock();
+		}
+		tryTerminate();
 	}
 
 	@Override
 	public List<Runnable> shutdownNow() {
-		return null;
+		List<Runnable> tasks;
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			advanceRunState(STOP);
+			interruptWorkers();
+			tasks = drainQueue();
+		} finally {
+			mainLock.unlock();
+		}
+		tryTerminate();
+		return tasks;
 	}
 
 	@Override
 	public boolean isShutdown() {
-		return false;
+		return !isRunning(ctl.get());
+	}
+
+	public boolean isTerminating() {
+		int c = ctl.get();
+		return !isRunning(c) && runStateLessThan(c, TERMINATED);
 	}
 
 	@Override
 	public boolean isTerminated() {
-		return false;
+		return runStateAtLeast(ctl.get(), TERMINATED);
 	}
 
 	@Override
 	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-		return false;
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (; ; ) {
+				if (runStateAtLeast(ctl.get(), TERMINATED)) {
+					return true;
+				}
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = termination.awaitNanos(nanos);
+			}
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	private void advanceRunState(int targetState) {
+		for (; ; ) {
+			int c = ctl.get();
+			if (runStateAtLeast(c, targetState) ||
+				ctl.compareAndSet(c, ctlOf(targetState, workerCountOf(c)))) {
+				break;
+			}
+		}
+	}
+
+	private void interruptWorkers() {
+		for (Worker w : workers) {
+			w.interruptIfStarted();
+		}
+	}
+
+	private void interruptIdleWorkers(boolean onlyOne) { // 能拿到 Worker 锁说明线程空闲
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (Worker w : workers) {
+				Thread t = w.thread;
+				if (!t.isInterrupted() && w.tryLock()) {
+					try {
+						t.interrupt();
+					} catch (SecurityException ignore) {
+					} finally {
+						w.unlock();
+					}
+				}
+				if (onlyOne) {
+					break;
+				}
+			}
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	private List<Runnable> drainQueue() {
+		BlockingQueue<Runnable> q = workQueue;
+		ArrayList<Runnable> taskList = new ArrayList<Runnable>();
+		q.drainTo(taskList);
+		if (!q.isEmpty()) { // DelayQueue 等队列的 drainTo 可能无法移除全部元素
+			for (Runnable r : q.toArray(new Runnable[0])) {
+				if (q.remove(r)) {
+					taskList.add(r);
+				}
+			}
+		}
+		return taskList;
+	}
+
+	final void reject(Runnable command) {
+		ExecutorMetrics m = metrics;
+		if (m != null) {
+			m.recordRejected();
+		}
+		handler.rejectedExecution(command, this);
+	}
+
+	void onShutdown() {
+	}
+
+	final boolean isRunningOrShutdown(boolean shutdownOK) {
+		int rs = runStateOf(ctl.get());
+		return rs == RUNNING || (rs == SHUTDOWN && shutdownOK);
+	}
+
+	void ensurePrestart() { // 延迟任务只入队，需要保证至少有一个线程
+		int wc = workerCountOf(ctl.get());
+		if (wc < corePoolSize) {
+			addWorker(null, true);
+		} else if (wc == 0) {
+			addWorker(null, false);
+		}
+	}
+
+	public boolean remove(Runnable task) {
+		boolean removed = workQueue.remove(task);
+		tryTerminate();
+		return removed;
+	}
+
+	/* ---------------- 扩展点 ---------------- */
+
+	protected void beforeExecute(Thread t, Runnable r) {
+	}
+
+	protected void afterExecute(Runnable r, Throwable t) {
+	}
+
+	protected void terminated() {
+	}
+
+	/* ---------------- 参数调整 ---------------- */
+
+	public void setCorePoolSize(int corePoolSize) {
+		if (corePoolSize < 0 || maximumPoolSize < corePoolSize) {
+			throw new IllegalArgumentException();
+		}
+		int delta = corePoolSize - this.corePoolSize;
+		this.corePoolSize = corePoolSize;
+		if (workerCountOf(ctl.get()) > corePoolSize) { // 缩容，空闲线程被中断后在 getTask 中退出
+			interruptIdleWorkers(false);
+		} else if (delta > 0) { // 扩容，按队列积压量预先创建线程
+			int k = Math.min(delta, workQueue.size());
+			while (k-- > 0 && addWorker(null, true)) {
+				if (workQueue.isEmpty()) {
+					break;
+				}
+			}
+		}
+	}
+
+	public int getCorePoolSize() {
+		return corePoolSize;
+	}
+
+	public void setMaximumPoolSize(int maximumPoolSize) {
+		if (maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+			throw new IllegalArgumentException();
+		}
+		this.maximumPoolSize = maximumPoolSize;
+		if (workerCountOf(ctl.get()) > maximumPoolSize) {
+			interruptIdleWorkers(false);
+		}
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public void setKeepAliveTime(long time, TimeUnit unit) {
+		if (time < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (time == 0 && allowsCoreThreadTimeOut()) {
+			throw new IllegalArgumentException("Core threads must have nonzero keep alive times");
+		}
+		long keepAliveTime = unit.toNanos(time);
+		long delta = keepAliveTime - this.keepAliveTime;
+		this.keepAliveTime = keepAliveTime;
+		if (delta < 0) {
+			interruptIdleWorkers(false);
+		}
+	}
+
+	public long getKeepAliveTime(TimeUnit unit) {
+		return unit.convert(keepAliveTime, TimeUnit.NANOSECONDS);
+	}
+
+	public void allowCoreThreadTimeOut(boolean value) {
+		if (value && keepAliveTime <= 0) {
+			throw new IllegalArgumentException("Core threads must have nonzero keep alive times");
+		}
+		if (value != allowCoreThreadTimeOut) {
+			allowCoreThreadTimeOut = value;
+			if (value) {
+				interruptIdleWorkers(false);
+			}
+		}
+	}
+
+	public boolean allowsCoreThreadTimeOut() {
+		return allowCoreThreadTimeOut;
+	}
+
+	public boolean prestartCoreThread() {
+		return workerCountOf(ctl.get()) < corePoolSize && addWorker(null, true);
+	}
+
+	public int prestartAllCoreThreads() {
+		int n = 0;
+		while (addWorker(null, true)) {
+			++n;
+		}
+		return n;
+	}
+
+	/**
+	 * 开启后每个任务结束都会清理工作线程上的 FastThreadLocal，避免任务间串值；默认只在线程退出时清理
+	 */
+	public void setRemoveThreadLocalsAfterTask(boolean value) {
+		removeThreadLocalsAfterTask = value;
+	}
+
+	public boolean isRemoveThreadLocalsAfterTask() {
+		return removeThreadLocalsAfterTask;
+	}
+
+	public void setThreadFactory(ThreadFactory threadFactory) {
+		if (threadFactory == null) {
+			throw new NullPointerException();
+		}
+		this.threadFactory = threadFactory;
+	}
+
+	public ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+		if (handler == null) {
+			throw new NullPointerException();
+		}
+		this.handler = handler;
+	}
+
+	public RejectedExecutionHandler getRejectedExecutionHandler() {
+		return handler;
+	}
+
+	public BlockingQueue<Runnable> getQueue() {
+		return workQueue;
+	}
+
+	/* ---------------- 统计 ---------------- */
+
+	/**
+	 * 开启指标并按名称注册，之后提交的任务记录排队时间、执行时间和端到端耗时
+	 *
+	 * <p>名称已被其他线程池占用时追加序号，实际名称见 {@link ExecutorMetrics#getName()}。线程池终止后自动注销。
+	 */
+	public synchronized ExecutorMetrics enableMetrics(String name) {
+		if (metrics == null) {
+			metrics = ExecutorMetrics.register(name, this);
+			if (isTerminated()) {
+				metrics.close();
+			}
+		}
+		return metrics;
+	}
+
+	// 与 enableMetrics 互斥：要么这里看到已开启的指标，要么 enableMetrics 看到 TERMINATED
+	private synchronized void closeMetrics() {
+		if (metrics != null) {
+			metrics.close();
+		}
+	}
+
+	public ExecutorMetrics getMetrics() {
+		return metrics;
+	}
+
+	public int getPoolSize() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			return runStateAtLeast(ctl.get(), TIDYING) ? 0 : workers.size();
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	public int getActiveCount() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			int n = 0;
+			for (Worker w : workers) {
+				if (w.isLocked()) {
+					++n;
+				}
+			}
+			return n;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	public int getLargestPoolSize() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			return largestPoolSize;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	public long getTaskCount() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			long n = completedTaskCount;
+			for (Worker w : workers) {
+				n += w.completedTasks;
+				if (w.isLocked()) {
+					++n;
+				}
+			}
+			return n + workQueue.size();
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	public long getCompletedTaskCount() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			long n = completedTaskCount;
+			for (Worker w : workers) {
+				n += w.completedTasks;
+			}
+			return n;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		long ncompleted;
+		int nworkers, nactive;
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			ncompleted = completedTaskCount;
+			nactive = 0;
+			nworkers = workers.size();
+			for (Worker w : workers) {
+				ncompleted += w.completedTasks;
+				if (w.isLocked()) {
+					++nactive;
+				}
+			}
+		} finally {
+			mainLock.unlock();
+		}
+		int c = ctl.get();
+		String rs = (runStateLessThan(c, SHUTDOWN) ? "Running" :
+			(runStateAtLeast(c, TERMINATED) ? "Terminated" : "Shutting down"));
+		return super.toString() +
+			"[" + rs +
+			", pool size = " + nworkers +
+			", active threads = " + nactive +
+			", queued tasks = " + workQueue.size() +
+			", completed tasks = " + ncompleted +
+			"]";
+	}
+
+	/* ---------------- 拒绝策略 ---------------- */
+
+	public static class CallerRunsPolicy implements RejectedExecutionHandler { // 由提交线程执行，起到限流作用
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+			if (!e.isShutdown()) {
+				r.run();
+			}
+		}
+	}
+
+	public static class AbortPolicy implements RejectedExecutionHandler { // 抛出异常，默认策略
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+			throw new RejectedExecutionException("Task " + r.toString() + " rejected from " + e.toString());
+		}
+	}
+
+	public static class DiscardPolicy implements RejectedExecutionHandler { // 静默丢弃
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+		}
+	}
+
+	public static class DiscardOldestPolicy implements RejectedExecutionHandler { // 丢弃队首最旧的任务后重试
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+			if (!e.isShutdown()) {
+				e.getQueue().poll();
+				e.execute(r);
+			}
+		}
 	}
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 虚拟线程钉住（pinning）诊断
+ *
+ * <p>虚拟线程在 synchronized 块或本地方法中阻塞时无法卸载，会占住载体线程。
+ * 这里通过 JFR 事件流订阅 jdk.VirtualThreadPinned 事件，统计次数和耗时，并把栈交给监听器。
+ * JFR 事件流需要 JDK 14+，虚拟线程事件需要 JDK 21+，不满足时 {@link #start()} 返回 false。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+	private final Duration threshold;
+
+	private final Listener listener;
+
+	private final AtomicLong pinnedCount = new AtomicLong();
+
+	private final AtomicLong pinnedNanos = new AtomicLong();
+
+	private volatile AutoCloseable stream; // jdk.jfr.consumer.RecordingStream
+
+	public interface Listener {
+
+		void onPinned(Duration duration, String stackTrace);
+	}
+
+	public VirtualThreadPinningMonitor(Duration threshold, Listener listener) {
+		this.threshold = threshold;
+		this.listener = listener;
+	}
+
+	/**
+	 * 开始订阅事件
+	 *
+	 * @return 当前 JDK 不支持时返回 false
+	 */
+	public synchronized boolean start() {
+		if (stream != null) {
+			return true;
+		}
+		if (!VirtualThreads.isSupported()) {
+			return false;
+		}
+		try {
+			Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+			Object rs = streamClass.getConstructor().newInstance();
+			Object settings = streamClass.getMethod("enable", String.class).invoke(rs, PINNED_EVENT);
+			settings.getClass().getMethod("withThreshold", Duration.class).invoke(settings, threshold);
+			Class<?> eventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+			final Method getDuration = eventClass.getMethod("getDuration");
+			final Method getStackTrace = eventClass.getMethod("getStackTrace");
+			Consumer<Object> handler = new Consumer<Object>() {
+
+				@Override
+				public void accept(Object event) {
+					try {
+						Duration d = (Duration) getDuration.invoke(event);
+						pinnedCount.incrementAndGet();
+						pinnedNanos.addAndGet(d.toNanos());
+						if (listener != null) {
+							listener.onPinned(d, String.valueOf(getStackTrace.invoke(event)));
+						}
+					} catch (Exception ignore) {
+					}
+				}
+			};
+			streamClass.getMethod("onEvent", String.class, Consumer.class).invoke(rs, PINNED_EVENT, handler);
+			streamClass.getMethod("startAsync").invoke(rs);
+			stream = (AutoCloseable) rs;
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	public boolean isRunning() {
+		return stream != null;
+	}
+
+	public long getPinnedCount() {
+		return pinnedCount.get();
+	}
+
+	public Duration getTotalPinnedTime() {
+		return Duration.ofNanos(pinnedNanos.get());
+	}
+
+	@Override
+	public synchronized void close() {
+		AutoCloseable rs = stream;
+		stream = null;
+		if (rs != null) {
+			try {
+				rs.close();
+			} catch (Exception ignore) {
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() +
+			"[" + (stream != null ? "Running" : "Stopped") +
+			", pinned = " + pinnedCount.get() +
+			", pinned time = " + getTotalPinnedTime() +
+			"]";
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程支持探测
+ *
+ * <p>项目按 Java 8 编译，虚拟线程（JDK 21+）只能通过反射创建，不支持时由调用方退回平台线程。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public final class VirtualThreads {
+
+	private static final Method OF_VIRTUAL; // Thread.ofVirtual()
+
+	private static final Method BUILDER_NAME; // Thread.Builder.name(String, long)
+
+	private static final Method BUILDER_FACTORY; // Thread.Builder.factory()
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			name = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+			ofVirtual.invoke(null); // JDK 19/20 预览版未开启 --enable-preview 时会抛出异常
+		} catch (Throwable e) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = name;
+		BUILDER_FACTORY = factory;
+	}
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * 创建虚拟线程工厂，线程名为 prefix 加递增序号
+	 *
+	 * @return 当前 JDK 不支持虚拟线程时返回 null
+	 */
+	public static ThreadFactory factory(String prefix) {
+		if (OF_VIRTUAL == null) {
+			return null;
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			builder = BUILDER_NAME.invoke(builder, prefix, 0L);
+			return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 虚拟线程工厂，不支持时退回守护平台线程
+	 */
+	public static ThreadFactory factoryOrPlatform(String prefix) {
+		ThreadFactory factory = factory(prefix);
+		return factory != null ? factory : new PlatformThreadFactory(prefix);
+	}
+
+	public static boolean isVirtual(Thread thread) {
+		if (OF_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static final class PlatformThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private long count;
+
+		PlatformThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			long n;
+			synchronized (this) {
+				n = count++;
+			}
+			Thread t = new Thread(r, prefix + n);
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.ylzl.eden.practice.thread.core.FastThreadLocal;
+import org.ylzl.eden.practice.thread.core.FastThreadLocalThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 工作窃取线程池
+ *
+ * <p>每个工作线程持有一个无锁双端队列：工作线程内提交的任务压入自己队列的 top，并按 LIFO 弹出；
+ * 空闲线程从随机选中的其他队列的 base 按 FIFO 窃取。外部线程提交的任务按线程分散到多个共享队列，
+ * 避免所有提交方争用同一个队列。找不到任务的线程登记到等待队列后挂起，提交方通过空闲计数决定是否唤醒。
+ * 与 ForkJoinPool 不同，关闭后工作线程内的提交同样被拒绝，父任务需要在关闭前等待子任务完成。
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class WorkStealingPool extends AbstractExecutorService {
+
+	private static final int INITIAL_QUEUE_CAPACITY = 1 << 8;
+
+	private static final int MAXIMUM_QUEUE_CAPACITY = 1 << 26;
+
+	private static final int RUNNING = 0;
+	private static final int SHUTDOWN = 1;
+	private static final int STOP = 2;
+	private static final int TERMINATED = 3;
+
+	private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+	private final int parallelism;
+
+	private final Worker[] workers;
+
+	private final ConcurrentLinkedQueue<Runnable>[] submissionQueues; // 外部提交队列，按线程分段
+
+	private final int submissionMask;
+
+	private final ConcurrentLinkedQueue<Worker> waiters = new ConcurrentLinkedQueue<Worker>(); // 挂起中的工作线程
+
+	private final AtomicInteger idleCount = new AtomicInteger(); // 空闲线程数，提交方据此决定是否唤醒
+
+	private final AtomicInteger liveWorkers;
+
+	private final CountDownLatch termination = new CountDownLatch(1);
+
+	private final AtomicLong stealCount = new AtomicLong(); // 已退出线程的窃取次数
+
+	private volatile int runState = RUNNING;
+
+	public WorkStealingPool() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public WorkStealingPool(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.parallelism = parallelism;
+		int n = 1;
+		while (n < parallelism) {
+			n <<= 1;
+		}
+		this.submissionQueues = newSubmissionQueues(n);
+		this.submissionMask = n - 1;
+		this.workers = new Worker[parallelism];
+		this.liveWorkers = new AtomicInteger(parallelism);
+		String prefix = "work-stealing-pool-" + poolNumber.getAndIncrement() + "-worker-";
+		for (int i = 0; i < parallelism; i++) {
+			workers[i] = new Worker(this, i, prefix + i);
+		}
+		for (Worker w : workers) {
+			w.start();
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"}) // 不能直接创建泛型数组
+	private static ConcurrentLinkedQueue<Runnable>[] newSubmissionQueues(int n) {
+		ConcurrentLinkedQueue<Runnable>[] queues = new ConcurrentLinkedQueue[n];
+		for (int i = 0; i < n; i++) {
+			queues[i] = new ConcurrentLinkedQueue<Runnable>();
+		}
+		return queues;
+	}
+
+	/**
+	 * 工作线程的双端队列，仅所有者在 top 端压入/弹出，其他线程在 base 端窃取
+	 */
+	static final class WorkQueue {
+
+		volatile AtomicReferenceArray<Runnable> array = new AtomicReferenceArray<Runnable>(INITIAL_QUEUE_CAPACITY);
+
+		volatile int base; // 下一个被窃取的位置
+
+		volatile int top; // 下一个压入的位置，只有所有者写
+
+		void push(Runnable task) {
+			AtomicReferenceArray<Runnable> a = array;
+			int s = top;
+			int m = a.length() - 1;
+			a.lazySet(s & m, task);
+			top = s + 1;
+			if (s + 1 - base >= m) { // 已满，扩容
+				growArray();
+			}
+		}
+
+		Runnable pop() { // 所有者 LIFO 弹出
+			AtomicReferenceArray<Runnable> a = array;
+			int s = top - 1;
+			if (s - base >= 0) {
+				int i = s & (a.length() - 1);
+				Runnable t = a.get(i);
+				if (t != null && a.compareAndSet(i, t, null)) {
+					top = s;
+					return t;
+				}
+			}
+			return null;
+		}
+
+		Runnable poll() { // 窃取方 FIFO 取出，槽位 CAS 成功者推进 base
+			for (; ; ) {
+				int b = base;
+				if (top - b <= 0) {
+					return null;
+				}
+				AtomicReferenceArray<Runnable> a = array;
+				int i = b & (a.length() - 1);
+				Runnable t = a.get(i);
+				if (b != base) { // 已被其他线程取走，重读
+					continue;
+				}
+				if (t == null) { // 所有者正在写入、扩容迁移或已弹出，放弃本次窃取
+					return null;
+				}
+				if (a.compareAndSet(i, t, null)) {
+					base = b + 1;
+					return t;
+				}
+			}
+		}
+
+		private void growArray() {
+			AtomicReferenceArray<Runnable> oldA = array;
+			int oldCap = oldA.length();
+			int size = oldCap << 1;
+			if (size > MAXIMUM_QUEUE_CAPACITY) {
+				throw new RejectedExecutionException("Queue capacity exceeded");
+			}
+			AtomicReferenceArray<Runnable> a = new AtomicReferenceArray<Runnable>(size);
+			int oldMask = oldCap - 1;
+			int mask = size - 1;
+			int t = top;
+			int b = base;
+			for (int j = b; j != t; j++) { // 逐个从旧数组 CAS 迁出，与窃取方竞争同一元素时只有一方成功
+				int oi = j & oldMask;
+				Runnable x = oldA.get(oi);
+				if (x != null && oldA.compareAndSet(oi, x, null)) {
+					a.lazySet(j & mask, x);
+				}
+			}
+			array = a;
+		}
+
+		int size() {
+			int n = top - base;
+			return n < 0 ? 0 : n;
+		}
+
+		boolean isEmpty() {
+			return top - base <= 0;
+		}
+	}
+
+	static final class Worker extends FastThreadLocalThread {
+
+		final WorkStealingPool pool;
+
+		final WorkQueue queue = new WorkQueue();
+
+		final int index;
+
+		int seed; // xorshift 随机数，用于选择窃取目标
+
+		long steals; // 仅本线程写
+
+		Worker(WorkStealingPool pool, int index, String name) {
+			super(name);
+			this.pool = pool;
+			this.index = index;
+			this.seed = (index + 1) * 0x9E3779B9;
+			setDaemon(false);
+		}
+
+		int nextRandom() {
+			int r = seed;
+			r ^= r << 13;
+			r ^= r >>> 17;
+			r ^= r << 5;
+			return seed = r;
+		}
+
+		@Override
+		public void run() {
+			pool.runWorker(this);
+		}
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		if (runState != RUNNING) {
+			throw new RejectedExecutionException("Task " + command + " rejected from " + this);
+		}
+		Thread t = Thread.currentThread();
+		if (t instanceof Worker && ((Worker) t).pool == this) { // 工作线程内 fork 出的子任务压入本地队列
+			((Worker) t).queue.push(command);
+		} else {
+			ConcurrentLinkedQueue<Runnable> q = submissionQueues[submissionIndex(t)];
+			q.offer(command);
+			if (runState != RUNNING && q.remove(command)) { // 入队期间线程池已关闭，撤回任务
+				throw new RejectedExecutionException("Task " + command + " rejected from " + this);
+			}
+		}
+		signalWork();
+	}
+
+	private int submissionIndex(Thread t) {
+		long id = t.getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & submissionMask;
+	}
+
+	private void signalWork() {
+		if (idleCount.get() > 0) {
+			Worker w = waiters.poll();
+			if (w != null) {
+				LockSupport.unpark(w);
+			}
+		}
+	}
+
+	final void runWorker(Worker w) {
+		try {
+			for (; ; ) {
+				Runnable task = w.queue.pop();
+				if (task == null) {
+					task = scan(w);
+				}
+				if (task != null) {
+					runTask(w, task);
+				} else if (!awaitWork(w)) {
+					break;
+				}
+			}
+		} finally {
+			FastThreadLocal.removeAll();
+			stealCount.addAndGet(w.steals);
+			if (liveWorkers.decrementAndGet() == 0) {
+				runState = TERMINATED;
+				termination.countDown();
+				terminated();
+			}
+		}
+	}
+
+	private void runTask(Worker w, Runnable task) {
+		if (runState >= STOP) {
+			return;
+		}
+		try {
+			task.run();
+		} catch (Throwable ex) { // 异常不终止工作线程
+			Thread.UncaughtExceptionHandler h = w.getUncaughtExceptionHandler();
+			if (h != null) {
+				h.uncaughtException(w, ex);
+			}
+		}
+		if (Thread.interrupted() && runState >= STOP) { // 清除任务留下的中断标记
+			w.interrupt();
+		}
+	}
+
+	/**
+	 * 从随机位置开始依次尝试窃取其他工作线程的队列和外部提交队列
+	 */
+	private Runnable scan(Worker w) {
+		Worker[] ws = workers;
+		int n = ws.length;
+		int r = w.nextRandom();
+		int origin = (r >>> 1) % n;
+		for (int k = 0; k < n; k++) {
+			Worker v = ws[(origin + k) % n];
+			if (v != w) {
+				Runnable t = v.queue.poll();
+				if (t != null) {
+					w.steals++;
+					if (!v.queue.isEmpty()) { // 目标队列还有任务，继续唤醒其他线程
+						signalWork();
+					}
+					return t;
+				}
+			}
+		}
+		ConcurrentLinkedQueue<Runnable>[] qs = submissionQueues;
+		int m = qs.length;
+		int start = r & submissionMask;
+		for (int k = 0; k < m; k++) {
+			ConcurrentLinkedQueue<Runnable> q = qs[(start + k) & submissionMask];
+			Runnable t = q.poll();
+			if (t != null) {
+				if (!q.isEmpty()) {
+					signalWork();
+				}
+				return t;
+			}
+		}
+		return null;
+	}
+
+	private boolean hasQueuedTasks() {
+		for (Worker v : workers) {
+			if (!v.queue.isEmpty()) {
+				return true;
+			}
+		}
+		for (ConcurrentLinkedQueue<Runnable> q : submissionQueues) {
+			if (!q.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 挂起直到有新任务，返回 false 表示线程应退出
+	 */
+	private boolean awaitWork(Worker w) {
+		waiters.offer(w); // 先登记再递增计数，提交方看到计数时一定能找到等待者
+		idleCount.incrementAndGet();
+		try {
+			int rs = runState;
+			if (rs >= STOP) {
+				return false;
+			}
+			if (hasQueuedTasks()) { // 登记后复查，防止与提交方交错导致丢失唤醒
+				return true;
+			}
+			if (rs == SHUTDOWN) {
+				return false;
+			}
+			LockSupport.park(this);
+			return runState < STOP;
+		} finally {
+			idleCount.decrementAndGet();
+			waiters.remove(w); // 未被提交方取走时自行移除，等待者不超过并行度
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		if (runState == RUNNING) {
+			runState = SHUTDOWN;
+		}
+		wakeAll(false);
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		if (runState < STOP) {
+			runState = STOP;
+		}
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for (ConcurrentLinkedQueue<Runnable> q : submissionQueues) {
+			Runnable t;
+			while ((t = q.poll()) != null) {
+				tasks.add(t);
+			}
+		}
+		for (Worker v : workers) {
+			Runnable t;
+			while ((t = v.queue.poll()) != null) {
+				tasks.add(t);
+			}
+		}
+		wakeAll(true);
+		return tasks;
+	}
+
+	private void wakeAll(boolean interrupt) {
+		for (Worker w : workers) {
+			if (interrupt && w.isAlive()) {
+				try {
+					w.interrupt();
+				} catch (SecurityException ignore) {
+				}
+			}
+			LockSupport.unpark(w);
+		}
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return runState != RUNNING;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return runState == TERMINATED;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return termination.await(timeout, unit);
+	}
+
+	protected void terminated() {
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public long getStealCount() {
+		long n = stealCount.get();
+		for (Worker w : workers) {
+			if (w.isAlive()) {
+				n += w.steals;
+			}
+		}
+		return n;
+	}
+
+	public long getQueuedTaskCount() {
+		long n = 0;
+		for (Worker w : workers) {
+			n += w.queue.size();
+		}
+		for (ConcurrentLinkedQueue<Runnable> q : submissionQueues) {
+			n += q.size();
+		}
+		return n;
+	}
+
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+	@Override
+	public String toString() {
+		int rs = runState;
+		String state = rs == RUNNING ? "Running" : (rs == TERMINATED ? "Terminated" : "Shutting down");
+		return super.toString() +
+			"[" + state +
+			", parallelism = " + parallelism +
+			", idle = " + idleCount.get() +
+			", steals = " + getStealCount() +
+			", queued tasks = " + getQueuedTaskCount() +
+			"]";
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.future;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 非阻塞 Future 测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class CompletableFutureTest {
+
+	@Test
+	public void assertThatComposeAndCombine() throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CompletableFuture<Integer> f = CompletableFuture.supplyAsync(() -> 20, executor)
+				.thenApply(x -> x + 1)
+				.thenCompose(x -> CompletableFuture.supplyAsync(() -> x * 2, executor));
+			CompletableFuture<String> g = f.thenCombine(CompletableFuture.completedFuture("a"), (x, s) -> s + x);
+			assertEquals("a42", g.get());
+			assertEquals("a42", CompletableFuture.anyOf(new CompletableFuture<>(), g).get());
+			assertTrue(CompletableFuture.allOf(f, g).thenApply(v -> true).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void assertThatExceptionPropagates() throws InterruptedException, ExecutionException {
+		CompletableFuture<Integer> failed = CompletableFuture.failedFuture(new IllegalStateException());
+		assertThrows(CompletionException.class, () -> failed.thenApply(x -> x + 1).join());
+		assertEquals(Integer.valueOf(-1), failed.thenApply(x -> x + 1).exceptionally(ex -> -1).get());
+	}
+
+	@Test
+	public void assertThatTimeoutCompletes() throws InterruptedException, ExecutionException {
+		CompletionException ex = assertThrows(CompletionException.class,
+			() -> new CompletableFuture<Integer>().orTimeout(10, TimeUnit.MILLISECONDS).join());
+		assertTrue(ex.getCause() instanceof TimeoutException);
+		assertEquals(Integer.valueOf(7), new CompletableFuture<Integer>().completeOnTimeout(7, 10, TimeUnit.MILLISECONDS).get());
+		assertThrows(TimeoutException.class, () -> new CompletableFuture<Integer>().get(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void assertThatLongSynchronousChainCompletes() throws InterruptedException, ExecutionException {
+		CompletableFuture<Integer> source = new CompletableFuture<>();
+		CompletableFuture<Integer> f = source;
+		CompletableFuture<Integer> g = source;
+		for (int i = 0; i < 100000; i++) {
+			f = f.thenApply(x -> x + 1);
+			g = g.thenCompose(x -> CompletableFuture.completedFuture(x + 1));
+		}
+		source.complete(0);
+		assertEquals(Integer.valueOf(100000), f.get());
+		assertEquals(Integer.valueOf(100000), g.get());
+	}
+
+	@Test
+	public void assertThatAbandonedWaitersAreUnlinked() throws InterruptedException {
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+		for (int i = 0; i < 1000; i++) {
+			assertThrows(TimeoutException.class, () -> f.get(1, TimeUnit.MICROSECONDS));
+		}
+		assertTrue(f.stack == null);
+		f.thenApply(x -> x);
+		Thread.currentThread().interrupt();
+		assertThrows(InterruptedException.class, f::get);
+		assertTrue(f.stack != null && f.stack.next == null);
+	}
+
+	@Test
+	public void assertThatCancellationCompletesDependentsExceptionally() {
+		CompletableFuture<Integer> source = new CompletableFuture<>();
+		CompletableFuture<Integer> dependent = source.thenApply(x -> x + 1);
+		assertTrue(source.cancel());
+		assertTrue(source.isCancelled());
+		assertThrows(CancellationException.class, source::get);
+		assertThrows(CancellationException.class, source::join);
+
+		assertFalse(dependent.isCancelled());
+		assertTrue(dependent.isCompletedExceptionally());
+		CompletionException joined = assertThrows(CompletionException.class, dependent::join);
+		assertTrue(joined.getCause() instanceof CancellationException);
+		ExecutionException got = assertThrows(ExecutionException.class, dependent::get);
+		assertTrue(got.getCause() instanceof CancellationException);
+		assertTrue(source.thenCombine(CompletableFuture.completedFuture(1), Integer::sum).isCompletedExceptionally());
+		assertFalse(CompletableFuture.allOf(source).isCancelled());
+	}
+
+	@Test
+	public void assertThatGetReportsExecutionException() {
+		IllegalStateException failure = new IllegalStateException();
+		CompletableFuture<Integer> source = new CompletableFuture<>();
+		CompletableFuture<Integer> dependent = source.thenApply(x -> x + 1);
+		source.completeExceptionally(failure);
+		ExecutionException got = assertThrows(ExecutionException.class, source::get);
+		assertSame(failure, got.getCause());
+		got = assertThrows(ExecutionException.class, () -> dependent.get(1, TimeUnit.SECONDS));
+		assertSame(failure, got.getCause());
+		CompletionException joined = assertThrows(CompletionException.class, dependent::join);
+		assertSame(failure, joined.getCause());
+		got = assertThrows(ExecutionException.class, CompletableFuture.supplyAsync(() -> {
+			throw failure;
+		})::get);
+		assertSame(failure, got.getCause());
+	}
+}
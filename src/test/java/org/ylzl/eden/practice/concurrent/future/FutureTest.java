@@ -2,10 +2,12 @@ package org.ylzl.eden.practice.concurrent.future;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ExecutionException;
+
 public class FutureTest {
 
   @Test
-  public void assertThatAsyncResult() throws InterruptedException {
+  public void assertThatAsyncResult() throws InterruptedException, ExecutionException {
     final Future asyncData = new AsyncInvoker();
     new Thread(
             new Runnable() {
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应自旋策略测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AdaptiveSpinnerTest {
+
+	@Test
+	public void assertThatSuccessfulSpinWidensLimit() {
+		AdaptiveSpinner spinner = new AdaptiveSpinner();
+		ReentrantLock.Sync sync = new ReentrantLock.NonfairSync();
+		assertTrue(spinner.spin(sync));
+		assertTrue(sync.isHeldExclusively());
+		assertEquals(AdaptiveSpinner.INITIAL_SPINS * 3 / 2, spinner.getSpins());
+		sync.release(1);
+		for (int i = 0; i < 50; i++) {
+			assertTrue(spinner.spin(sync));
+			sync.release(1);
+		}
+		assertEquals(AdaptiveSpinner.MAX_SPINS, spinner.getSpins());
+	}
+
+	@Test
+	public void assertThatFailedSpinNarrowsLimit() {
+		AdaptiveSpinner spinner = new AdaptiveSpinner();
+		ReentrantLock.Sync sync = new ReentrantLock.NonfairSync();
+		sync.lock(); // 被占用时自旋只检查 isLocked，不会重入
+		assertFalse(spinner.spin(sync));
+		assertEquals(AdaptiveSpinner.INITIAL_SPINS / 2, spinner.getSpins());
+		for (int i = 0; i < 10; i++) {
+			assertFalse(spinner.spin(sync));
+		}
+		assertEquals(AdaptiveSpinner.MIN_SPINS, spinner.getSpins());
+		assertEquals(1, sync.getHoldCount());
+	}
+
+	@Test
+	public void assertThatLongHoldTimesDisableSpinning() {
+		AdaptiveSpinner spinner = new AdaptiveSpinner();
+		ReentrantLock.Sync sync = new ReentrantLock.NonfairSync();
+		spinner.recordHoldTime(AdaptiveSpinner.PARK_COST_NANOS * 100);
+		assertTrue(spinner.getAvgHoldNanos() > AdaptiveSpinner.PARK_COST_NANOS);
+		assertFalse(spinner.spin(sync)); // 锁空闲也直接入队
+		assertFalse(sync.isLocked());
+		assertEquals(AdaptiveSpinner.INITIAL_SPINS, spinner.getSpins());
+
+		for (int i = 0; i < 100; i++) { // 持锁时长回落后恢复自旋
+			spinner.recordHoldTime(100);
+		}
+		assertTrue(spinner.getAvgHoldNanos() < AdaptiveSpinner.PARK_COST_NANOS);
+		assertTrue(spinner.spin(sync));
+	}
+}
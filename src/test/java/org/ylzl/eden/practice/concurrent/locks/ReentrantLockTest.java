@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 可重入锁测试，覆盖自适应自旋和竞争统计
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ReentrantLockTest {
+
+	@Test
+	public void assertThatContendedCounterIsExact() throws InterruptedException {
+		for (int mode = 0; mode < 4; mode++) {
+			final ReentrantLock lock = new ReentrantLock((mode & 1) != 0, (mode & 2) != 0);
+			final int[] counter = new int[1];
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int t = 0; t < 8; t++) {
+				Thread thread = new Thread(() -> {
+					for (int i = 0; i < 20000; i++) {
+						lock.lock();
+						try {
+							counter[0]++;
+						} finally {
+							lock.unlock();
+						}
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			LockStatistics statistics = lock.getStatistics();
+			String message = "fair = " + lock.isFair() + ", adaptive = " + lock.isAdaptive() + ", " + statistics;
+			assertEquals(8 * 20000, counter[0], message);
+			assertFalse(lock.isLocked(), message);
+			assertEquals(0, statistics.getQueueLength(), message);
+			assertTrue(statistics.getSpinAcquiredCount() <= statistics.getContendedCount(), message);
+			if (!lock.isAdaptive()) {
+				assertEquals(0, statistics.getSpinAcquiredCount(), message);
+			}
+		}
+	}
+
+	@Test
+	public void assertThatUncontendedLockingLeavesStatisticsUntouched() {
+		ReentrantLock lock = new ReentrantLock(false, true);
+		for (int i = 0; i < 1000; i++) {
+			lock.lock();
+			lock.lock();
+			assertEquals(2, lock.getHoldCount());
+			lock.unlock();
+			lock.unlock();
+		}
+		assertTrue(lock.tryLock());
+		lock.unlock();
+		LockStatistics statistics = lock.getStatistics();
+		assertEquals(0, statistics.getContendedCount());
+		assertEquals(0, statistics.getTotalWaitNanos());
+		assertEquals(0, statistics.getMaxQueueLength());
+	}
+
+	@Test
+	public void assertThatQueuedWaiterIsCounted() throws InterruptedException {
+		final ReentrantLock lock = new ReentrantLock(false, true);
+		lock.lock();
+		Thread waiter = new Thread(() -> {
+			lock.lock();
+			lock.unlock();
+		});
+		waiter.start();
+		LockStatistics statistics = lock.getStatistics();
+		await(() -> statistics.getQueueLength() == 1 && lock.hasQueuedThreads());
+		Thread.sleep(20);
+		lock.unlock();
+		waiter.join();
+		assertEquals(1, statistics.getContendedCount());
+		assertEquals(0, statistics.getSpinAcquiredCount());
+		assertEquals(0, statistics.getQueueLength());
+		assertEquals(1, statistics.getMaxQueueLength());
+		assertTrue(statistics.getTotalWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20), statistics.toString());
+
+		statistics.reset();
+		assertEquals(0, statistics.getContendedCount());
+		assertEquals(0, statistics.getTotalWaitNanos());
+		assertEquals(0, statistics.getMaxQueueLength());
+	}
+
+	@Test
+	public void assertThatTimedOutWaitersLeaveTheQueue() throws InterruptedException {
+		final ReentrantLock lock = new ReentrantLock(true, true);
+		lock.lock();
+		final AtomicBoolean acquired = new AtomicBoolean(true);
+		List<Thread> waiters = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread waiter = new Thread(() -> {
+				try {
+					if (lock.tryLock(30, TimeUnit.MILLISECONDS)) {
+						lock.unlock();
+					} else {
+						acquired.set(false);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			waiter.start();
+			waiters.add(waiter);
+		}
+		for (Thread waiter : waiters) {
+			waiter.join();
+		}
+		assertFalse(acquired.get());
+		assertFalse(lock.hasQueuedThreads()); // 超时的节点被取消
+		assertEquals(0, lock.getStatistics().getQueueLength());
+		assertEquals(4, lock.getStatistics().getContendedCount());
+		lock.unlock();
+		assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+		lock.unlock();
+	}
+
+	@Test
+	public void assertThatInterruptedWaiterLeavesTheQueue() throws InterruptedException {
+		final ReentrantLock lock = new ReentrantLock();
+		lock.lock();
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		Thread waiter = new Thread(() -> {
+			try {
+				lock.lockInterruptibly();
+				lock.unlock();
+			} catch (InterruptedException e) {
+				interrupted.set(true);
+			}
+		});
+		waiter.start();
+		await(lock::hasQueuedThreads);
+		waiter.interrupt();
+		waiter.join();
+		assertTrue(interrupted.get());
+		assertFalse(lock.hasQueuedThreads());
+		assertEquals(0, lock.getStatistics().getQueueLength());
+		lock.unlock();
+		assertFalse(lock.isLocked());
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not reached");
+			Thread.sleep(1);
+		}
+	}
+}
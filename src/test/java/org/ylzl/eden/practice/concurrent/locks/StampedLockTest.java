@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.concurrent.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 版本戳读写锁测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class StampedLockTest {
+
+	private int x;
+
+	private int y; // 写锁内始终维持 x + y == 0
+
+	@Test
+	public void assertThatWriteInvalidatesOptimisticRead() {
+		StampedLock lock = new StampedLock();
+		long stamp = lock.tryOptimisticRead();
+		assertTrue(stamp != 0L);
+		assertTrue(lock.validate(stamp));
+
+		long read = lock.readLock();
+		assertTrue(lock.validate(stamp)); // 悲观读不改变版本号
+		lock.unlockRead(read);
+		assertTrue(lock.validate(stamp));
+
+		long write = lock.writeLock();
+		assertFalse(lock.validate(stamp));
+		assertEquals(0L, lock.tryOptimisticRead()); // 写锁持有期间无法乐观读
+		assertTrue(lock.validate(write));
+		lock.unlockWrite(write);
+		assertFalse(lock.validate(write));
+		assertFalse(lock.validate(stamp));
+		assertFalse(lock.validate(0L));
+		assertTrue(lock.validate(lock.tryOptimisticRead()));
+	}
+
+	@Test
+	public void assertThatUnlockReadRejectsForeignStamps() {
+		StampedLock lock = new StampedLock();
+		long stale = lock.readLock();
+		lock.unlockRead(stale);
+		lock.unlockWrite(lock.writeLock());
+
+		long read = lock.readLock();
+		long optimistic = lock.tryOptimisticRead();
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(optimistic));
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(stale));
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(0L));
+		assertEquals(1, lock.getReadLockCount()); // 被拒绝的释放不改变状态
+		lock.unlockRead(read);
+		assertFalse(lock.isReadLocked());
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(read)); // 没有读锁可释放
+
+		long write = lock.writeLock();
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(write));
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockRead(read));
+		assertTrue(lock.isWriteLocked());
+		lock.unlockWrite(write);
+	}
+
+	@Test
+	public void assertThatUnlockWriteRejectsForeignStamps() throws InterruptedException {
+		final StampedLock lock = new StampedLock();
+		final long write = lock.writeLock();
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockWrite(write | 1L)); // 带读标记
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockWrite(write + 4L)); // 版本不符
+		final AtomicLong foreign = new AtomicLong();
+		Thread other = new Thread(() -> {
+			try {
+				lock.unlockWrite(write);
+			} catch (IllegalMonitorStateException e) {
+				foreign.set(1L);
+			}
+		});
+		other.start();
+		other.join();
+		assertEquals(1L, foreign.get()); // 非持有线程不能释放
+		assertTrue(lock.isWriteLocked());
+		lock.unlockWrite(write);
+		assertFalse(lock.isWriteLocked());
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockWrite(write)); // 重复释放
+
+		long optimistic = lock.tryOptimisticRead();
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockWrite(optimistic));
+		long read = lock.readLock();
+		assertThrows(IllegalMonitorStateException.class, () -> lock.unlockWrite(read));
+		lock.unlock(read); // unlock 按读标记分派
+		lock.unlock(lock.writeLock());
+		assertFalse(lock.isReadLocked());
+		assertFalse(lock.isWriteLocked());
+	}
+
+	@Test
+	public void assertThatConvertToWriteLockChecksVersion() {
+		StampedLock lock = new StampedLock();
+		long optimistic = lock.tryOptimisticRead();
+		long write = lock.tryConvertToWriteLock(optimistic);
+		assertTrue(write != 0L);
+		assertTrue(lock.isWriteLocked());
+		assertEquals(write, lock.tryConvertToWriteLock(write)); // 已经是写锁
+		lock.unlockWrite(write);
+
+		long stale = lock.tryOptimisticRead();
+		lock.unlockWrite(lock.writeLock());
+		assertEquals(0L, lock.tryConvertToWriteLock(stale));
+		assertFalse(lock.isWriteLocked()); // 版本已变化，升级失败时释放写锁
+
+		long read = lock.readLock();
+		assertEquals(0L, lock.tryConvertToWriteLock(read));
+		assertEquals(0L, lock.tryConvertToWriteLock(lock.tryOptimisticRead())); // 有悲观读时拿不到写锁
+		lock.unlockRead(read);
+		assertEquals(0L, lock.tryConvertToWriteLock(0L));
+	}
+
+	@Test
+	public void assertThatValidatedOptimisticReadsAreConsistent() throws InterruptedException {
+		final StampedLock lock = new StampedLock();
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicLong validated = new AtomicLong();
+		final List<String> errors = new ArrayList<String>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int w = 0; w < 2; w++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 20000; i++) {
+					long stamp = lock.writeLock();
+					try {
+						x++;
+						y--;
+					} finally {
+						lock.unlockWrite(stamp);
+					}
+				}
+			}));
+		}
+		for (int r = 0; r < 4; r++) {
+			threads.add(new Thread(() -> {
+				while (!stop.get()) {
+					long stamp = lock.tryOptimisticRead();
+					int a = x;
+					int b = y;
+					if (lock.validate(stamp)) {
+						validated.incrementAndGet();
+						if (a + b != 0) {
+							synchronized (errors) {
+								errors.add(a + " / " + b);
+							}
+						}
+					}
+				}
+			}));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (int i = 0; i < 2; i++) {
+			threads.get(i).join();
+		}
+		stop.set(true);
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertTrue(errors.isEmpty(), () -> "inconsistent reads: " + errors);
+		assertTrue(validated.get() > 0);
+		assertEquals(40000, x);
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 带缓冲的输入流测试，以 JDK 的 {@link java.io.BufferedInputStream} 为准
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class BufferedInputStreamTest {
+
+	@Test
+	public void assertThatRandomOperationsMatchJdk() throws IOException {
+		Random random = new Random(20241019L);
+		for (int trial = 0; trial < 500; trial++) {
+			byte[] data = new byte[random.nextInt(2000)];
+			random.nextBytes(data);
+			int size = 1 + random.nextInt(64);
+			int chunk = 1 + random.nextInt(100);
+			BufferedInputStream in = new BufferedInputStream(new ChunkedInputStream(data, chunk), size);
+			java.io.BufferedInputStream expected = new java.io.BufferedInputStream(new JdkChunkedInputStream(data, chunk), size);
+			for (int op = 0; op < 300; op++) {
+				String message = "trial " + trial + ", op " + op + ", buffer size " + size + ", chunk " + chunk;
+				switch (random.nextInt(6)) {
+					case 0:
+						assertEquals(expected.read(), in.read(), message);
+						break;
+					case 1: {
+						int len = random.nextInt(150); // 超过缓冲区大小时可能绕过缓冲区
+						byte[] e = new byte[len + 2];
+						byte[] a = new byte[len + 2];
+						assertEquals(expected.read(e, 1, len), in.read(a, 1, len), message);
+						assertTrue(Arrays.equals(e, a), message);
+						break;
+					}
+					case 2: {
+						long n = random.nextInt(120);
+						assertEquals(expected.skip(n), in.skip(n), message);
+						break;
+					}
+					case 3: {
+						int limit = random.nextInt(200);
+						expected.mark(limit);
+						in.mark(limit);
+						break;
+					}
+					case 4: {
+						boolean valid = true;
+						try {
+							expected.reset();
+						} catch (IOException e) {
+							valid = false;
+						}
+						if (valid) {
+							in.reset();
+						} else {
+							assertThrows(IOException.class, in::reset, message); // 超出 marklimit 后 mark 失效
+						}
+						break;
+					}
+					default:
+						assertEquals(expected.markSupported(), in.markSupported(), message);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void assertThatMarkGrowsBufferUpToReadLimit() throws IOException {
+		byte[] data = sequence(5000);
+		BufferedInputStream in = new BufferedInputStream(new ChunkedInputStream(data, 7), 8);
+		assertEquals(3, in.skip(3));
+		in.mark(1000);
+		byte[] first = new byte[900];
+		in.readFully(first, 0, first.length); // 远超初始缓冲区，缓冲区随之扩容
+		in.reset();
+		byte[] again = new byte[900];
+		in.readFully(again, 0, again.length);
+		assertTrue(Arrays.equals(first, again));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, 3, 903), first));
+
+		in.mark(16);
+		byte[] beyond = new byte[2000];
+		in.readFully(beyond, 0, beyond.length);
+		assertThrows(IOException.class, in::reset);
+	}
+
+	@Test
+	public void assertThatLargeReadsBypassBufferWithoutMark() throws IOException {
+		byte[] data = sequence(1000);
+		ChunkedInputStream source = new ChunkedInputStream(data, 1000);
+		BufferedInputStream in = new BufferedInputStream(source, 16);
+		byte[] b = new byte[500];
+		assertEquals(500, in.read(b, 0, b.length));
+		assertEquals(500, source.maxRequest); // 直接读入调用方数组
+		assertTrue(Arrays.equals(Arrays.copyOf(data, 500), b));
+
+		in.mark(600);
+		assertEquals(16, in.read(b, 0, b.length)); // 有 mark 时经过缓冲区
+		assertEquals(500, source.maxRequest);
+		in.reset();
+		assertEquals(data[500] & 0xFF, in.read());
+	}
+
+	@Test
+	public void assertThatTransferToKeepsMarkedData() throws IOException {
+		byte[] data = sequence(3000);
+		BufferedInputStream in = new BufferedInputStream(new ChunkedInputStream(data, 100), 64);
+		assertEquals(10, in.read(new byte[10], 0, 10));
+		in.mark(4000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(2990, in.transferTo(out));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, 10, 3000), out.toByteArray()));
+		in.reset(); // 有 mark 时数据留在缓冲区中
+		out.reset();
+		assertEquals(2990, in.transferTo(out));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, 10, 3000), out.toByteArray()));
+
+		BufferedInputStream unmarked = new BufferedInputStream(new ChunkedInputStream(data, 100), 64);
+		assertEquals(0, unmarked.read());
+		out.reset();
+		assertEquals(2999, unmarked.transferTo(out));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, 1, 3000), out.toByteArray()));
+	}
+
+	@Test
+	public void assertThatReadFullyAndCloseBehave() throws IOException {
+		byte[] data = sequence(100);
+		BufferedInputStream in = new BufferedInputStream(new ChunkedInputStream(data, 3), 8);
+		byte[] b = new byte[60];
+		in.readFully(b, 0, b.length); // 底层每次只返回 3 个字节
+		assertTrue(Arrays.equals(Arrays.copyOf(data, 60), b));
+		assertThrows(EOFException.class, () -> in.readFully(new byte[50], 0, 50));
+		in.close();
+		in.close();
+		assertThrows(IOException.class, in::read);
+		assertThrows(IOException.class, in::reset);
+	}
+
+	private static byte[] sequence(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i * 31 + (i >>> 8));
+		}
+		return data;
+	}
+
+	/**
+	 * 每次最多返回 chunk 个字节，记录收到的最大请求长度
+	 */
+	private static final class ChunkedInputStream extends InputStream {
+
+		private final byte[] data;
+
+		private final int chunk;
+
+		private int pos;
+
+		int maxRequest;
+
+		ChunkedInputStream(byte[] data, int chunk) {
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() {
+			return pos < data.length ? data[pos++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			maxRequest = Math.max(maxRequest, len);
+			if (pos >= data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(len, chunk), data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+
+	/**
+	 * 与 {@link ChunkedInputStream} 行为相同的 JDK 输入流，作为参考实现的数据源
+	 */
+	private static final class JdkChunkedInputStream extends java.io.InputStream {
+
+		private final ChunkedInputStream delegate;
+
+		JdkChunkedInputStream(byte[] data, int chunk) {
+			this.delegate = new ChunkedInputStream(data, chunk);
+		}
+
+		@Override
+		public int read() {
+			return delegate.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			return delegate.read(b, off, len);
+		}
+	}
+}
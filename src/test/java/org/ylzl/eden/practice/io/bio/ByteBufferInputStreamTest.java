@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 以 ByteBuffer 为数据源的输入流测试，以拼接后的字节数组为准
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ByteBufferInputStreamTest {
+
+	private static final long TWO_GB = 1L << 31;
+
+	@Test
+	public void assertThatRandomOperationsMatchConcatenation() throws IOException {
+		Random random = new Random(20241019L);
+		for (int trial = 0; trial < 500; trial++) {
+			List<ByteBuffer> parts = new ArrayList<ByteBuffer>();
+			ByteArrayOutputStream all = new ByteArrayOutputStream();
+			for (int i = 0, n = random.nextInt(6); i < n; i++) {
+				byte[] part = new byte[random.nextInt(4) == 0 ? 0 : random.nextInt(100)]; // 含空缓冲区
+				random.nextBytes(part);
+				all.write(part, 0, part.length);
+				ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(part.length + 4) : ByteBuffer.allocateDirect(part.length + 4);
+				buffer.position(2);
+				buffer.put(part);
+				buffer.flip();
+				buffer.position(2); // 有效数据不从 0 开始
+				parts.add(buffer);
+			}
+			byte[] data = all.toByteArray();
+			ByteBuffer[] buffers = parts.toArray(new ByteBuffer[0]);
+			ByteBufferInputStream in = new ByteBufferInputStream(buffers);
+			int pos = 0;
+			int mark = -1;
+			for (int op = 0; op < 100; op++) {
+				String message = "trial " + trial + ", op " + op + ", pos " + pos;
+				assertEquals(data.length - pos, in.remaining(), message);
+				switch (random.nextInt(5)) {
+					case 0:
+						assertEquals(pos < data.length ? data[pos++] & 0xFF : -1, in.read(), message);
+						break;
+					case 1: {
+						int len = random.nextInt(150);
+						byte[] b = new byte[len];
+						int n = in.read(b, 0, len);
+						int expected = len == 0 ? 0 : pos == data.length ? -1 : Math.min(len, data.length - pos);
+						assertEquals(expected, n, message);
+						if (n > 0) {
+							assertTrue(Arrays.equals(Arrays.copyOfRange(data, pos, pos + n), Arrays.copyOf(b, n)), message);
+							pos += n;
+						}
+						break;
+					}
+					case 2: {
+						int n = random.nextInt(120);
+						long expected = Math.min(n, data.length - pos);
+						assertEquals(expected, in.skip(n), message);
+						pos += (int) expected;
+						break;
+					}
+					case 3:
+						in.mark(0); // readlimit 不受限制
+						mark = pos;
+						break;
+					default:
+						if (mark < 0) {
+							assertThrows(IOException.class, in::reset, message);
+						} else {
+							in.reset();
+							pos = mark;
+						}
+				}
+			}
+			for (ByteBuffer buffer : buffers) {
+				assertEquals(2, buffer.position()); // 不修改调用方缓冲区
+			}
+		}
+	}
+
+	@Test
+	public void assertThatTransferToWritesRemainingBytes() throws IOException {
+		byte[] a = {1, 2, 3, 4};
+		ByteBuffer direct = ByteBuffer.allocateDirect(20000); // 超过中转数组大小
+		for (int i = 0; i < direct.capacity(); i++) {
+			direct.put((byte) i);
+		}
+		direct.flip();
+		byte[] expected = new byte[3 + direct.capacity()];
+		System.arraycopy(a, 1, expected, 0, 3);
+		for (int i = 0; i < direct.capacity(); i++) {
+			expected[3 + i] = (byte) i;
+		}
+
+		ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(a), direct);
+		assertEquals(1, in.read());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(expected.length, in.transferTo(out));
+		assertTrue(Arrays.equals(expected, out.toByteArray()));
+		assertEquals(-1, in.read());
+
+		Path path = Files.createTempFile("byte-buffer-input", ".bin");
+		try {
+			in = new ByteBufferInputStream(ByteBuffer.wrap(a), direct);
+			assertEquals(1, in.skip(1));
+			FileOutputStream file = new FileOutputStream(path.toFile());
+			try {
+				assertEquals(expected.length, in.transferTo(file)); // 直接写入文件通道
+			} finally {
+				file.close();
+			}
+			assertTrue(Arrays.equals(expected, Files.readAllBytes(path)));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void assertThatMappedRegionOver2GbIsSplit() throws IOException {
+		Path path = Files.createTempFile("byte-buffer-input", ".bin");
+		try {
+			long size = TWO_GB + 4096;
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				channel.write(ByteBuffer.wrap(new byte[]{'e', 'n', 'd'}), size - 3); // 稀疏文件，不实际占用磁盘
+				long boundary = 5L + Integer.MAX_VALUE; // 从偏移 5 开始映射时第一段的末尾
+				channel.write(ByteBuffer.wrap(new byte[]{'a', 'b', 'c', 'd'}), boundary - 2);
+				channel.write(ByteBuffer.wrap(new byte[]{'s', 't'}), 5);
+
+				ByteBufferInputStream in = ByteBufferInputStream.map(channel, 5, size - 5);
+				assertEquals(size - 5, in.remaining());
+				assertEquals(Integer.MAX_VALUE, in.available());
+				assertEquals('s', in.read());
+				assertEquals('t', in.read());
+				assertEquals(Integer.MAX_VALUE - 4L, in.skip(Integer.MAX_VALUE - 4L));
+				in.mark(0);
+				byte[] b = new byte[4];
+				assertEquals(4, in.read(b, 0, 4)); // 跨过两段映射的边界
+				assertTrue(Arrays.equals(new byte[]{'a', 'b', 'c', 'd'}, b));
+				in.reset();
+				assertEquals('a', in.read());
+				in.reset();
+				assertEquals(size - 5 - (Integer.MAX_VALUE - 2L), in.remaining());
+
+				assertEquals(in.remaining() - 3, in.skip(in.remaining() - 3));
+				assertEquals('e', in.read());
+				assertEquals('n', in.read());
+				assertEquals('d', in.read());
+				assertEquals(-1, in.read());
+				assertEquals(0, in.skip(10));
+
+				in = ByteBufferInputStream.map(channel, 0, size);
+				assertEquals(size - 10, in.skip(size - 10)); // 单次跳过超过 int 范围
+				assertEquals(10, in.remaining());
+				assertEquals(0, ByteBufferInputStream.map(channel, 0, 0).remaining());
+			} finally {
+				channel.close();
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
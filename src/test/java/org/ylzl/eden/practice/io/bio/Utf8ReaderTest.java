@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.bio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * UTF-8 字符输入流测试，以 JDK 的解码和 {@link BufferedReader} 的分行为准
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class Utf8ReaderTest {
+
+	@Test
+	public void assertThatDecodingMatchesJdk() throws IOException {
+		Random random = new Random(20241019L);
+		for (int trial = 0; trial < 2000; trial++) {
+			byte[] data = randomBytes(random, random.nextInt(3000));
+			int size = 8 + random.nextInt(40); // 小缓冲区让多字节序列频繁跨过缓冲区边界
+			Utf8Reader reader = new Utf8Reader(new ChunkedInputStream(data, random.nextLong()), size);
+			String message = "trial " + trial + ", buffer size " + size;
+			assertEquals(new String(data, StandardCharsets.UTF_8), readFully(reader, 1 + random.nextInt(50)), message);
+		}
+	}
+
+	@Test
+	public void assertThatLinesMatchBufferedReader() throws IOException {
+		Random random = new Random(11L);
+		for (int trial = 0; trial < 2000; trial++) {
+			byte[] data = randomBytes(random, random.nextInt(3000));
+			BufferedReader expected = new BufferedReader(new StringReader(new String(data, StandardCharsets.UTF_8)));
+			Utf8Reader reader = new Utf8Reader(new ChunkedInputStream(data, random.nextLong()), 8 + random.nextInt(40));
+			for (int line = 0; ; line++) {
+				String message = "trial " + trial + ", line " + line;
+				if (random.nextInt(5) == 0) { // 混合 read() 与 readLine()，覆盖 '\r' 之后待跳过的 '\n'
+					int c = expected.read();
+					assertEquals(c, reader.read(), message);
+					if (c < 0) {
+						break;
+					}
+					continue;
+				}
+				String e = expected.readLine();
+				CharSequence l = reader.readLine();
+				assertEquals(e, l == null ? null : l.toString(), message);
+				if (e == null) {
+					break;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void assertThatMalformedSequencesAreReplacedLikeJdk() throws IOException {
+		byte[][] cases = {
+			{(byte) 0xED, (byte) 0xA0, (byte) 0x80}, // 代理区的三字节编码
+			{(byte) 0xED, (byte) 0xBF, (byte) 0xBF, 'a'},
+			{(byte) 0xED, (byte) 0xA4, (byte) 0xF4, (byte) 0xF1, (byte) 0xA8, (byte) 0x86, (byte) 0x8E, 'n'},
+			{(byte) 0xE0, (byte) 0x80, (byte) 0x80}, // 过长编码
+			{(byte) 0xF0, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+			{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // 超过 U+10FFFF
+			{(byte) 0xC0, (byte) 0xAF},
+			{(byte) 0xE2, (byte) 0x82}, // 末尾截断
+			{'a', (byte) 0xF0, (byte) 0x9F, (byte) 0x98},
+			{(byte) 0x80, (byte) 0xBF, 'z'},
+		};
+		for (byte[] data : cases) {
+			for (int chunk = 1; chunk <= data.length; chunk++) {
+				Utf8Reader reader = new Utf8Reader(new ChunkedInputStream(data, chunk), 8);
+				assertEquals(new String(data, StandardCharsets.UTF_8), readFully(reader, 64), "chunk " + chunk);
+			}
+		}
+	}
+
+	@Test
+	public void assertThatSequencesAtCharBufferEndAreKept() throws IOException {
+		String[] tails = {"\r\nnext", "\rnext", "😀\nnext", "é\r\n", "中\r\n\r\n"};
+		for (int prefix = 8185; prefix <= 8195; prefix++) { // 字符缓冲区为 8192，让 '\r' 和代理对落在缓冲区末尾
+			for (String tail : tails) {
+				String text = repeat('a', prefix) + tail + repeat('b', 100) + "\n";
+				byte[] data = text.getBytes(StandardCharsets.UTF_8);
+				String message = "prefix " + prefix + ", tail " + tail.length();
+				assertEquals(text, readFully(new Utf8Reader(new ChunkedInputStream(data, 8), 8), 8192), message);
+				BufferedReader expected = new BufferedReader(new StringReader(text));
+				Utf8Reader reader = new Utf8Reader(new ChunkedInputStream(data, 8), 8);
+				String e;
+				while ((e = expected.readLine()) != null) {
+					assertEquals(e, reader.readLine().toString(), message);
+				}
+				assertNull(reader.readLine(), message);
+			}
+		}
+	}
+
+	private static String readFully(Utf8Reader reader, int bufferSize) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buf = new char[bufferSize];
+		int n;
+		while ((n = reader.read(buf, 0, buf.length)) >= 0) {
+			sb.append(buf, 0, n);
+		}
+		return sb.toString();
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		java.util.Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	// 随机字节：ASCII 段、完整或截断的 UTF-8 序列、代理区编码、任意字节和换行符
+	private static byte[] randomBytes(Random random, int length) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		while (out.size() < length) {
+			switch (random.nextInt(9)) {
+				case 0:
+					out.write(random.nextInt(256));
+					break;
+				case 1: {
+					int cp = random.nextInt(0x110000);
+					if (cp >= 0xD800 && cp < 0xE000) {
+						cp = 'x';
+					}
+					byte[] b = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+					out.write(b, 0, random.nextInt(4) == 0 ? 1 + random.nextInt(b.length) : b.length);
+					break;
+				}
+				case 2:
+					out.write(0xED);
+					out.write(0xA0 + random.nextInt(0x20));
+					out.write(0x80 + random.nextInt(0x40));
+					break;
+				case 3:
+					out.write(random.nextBoolean() ? '\n' : '\r');
+					break;
+				default:
+					for (int i = 0, n = random.nextInt(30); i < n; i++) {
+						out.write('a' + random.nextInt(26));
+					}
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * 每次只返回少量字节，让多字节序列在任意位置被切开
+	 */
+	private static final class ChunkedInputStream extends java.io.InputStream {
+
+		private final byte[] data;
+
+		private final Random random;
+
+		private final int chunk; // 0 表示随机长度
+
+		private int pos;
+
+		ChunkedInputStream(byte[] data, long seed) {
+			this.data = data;
+			this.random = new Random(seed);
+			this.chunk = 0;
+		}
+
+		ChunkedInputStream(byte[] data, int chunk) {
+			this.data = data;
+			this.random = null;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() {
+			return pos < data.length ? data[pos++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (pos >= data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(len, chunk > 0 ? chunk : 1 + random.nextInt(17)), data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+}
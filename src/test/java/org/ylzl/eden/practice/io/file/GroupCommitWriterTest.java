@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.file;
+
+import org.junit.jupiter.api.Test;
+import org.ylzl.eden.practice.concurrent.future.CompletableFuture;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 组提交写入器测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class GroupCommitWriterTest {
+
+	@Test
+	public void assertThatConcurrentAppendsLandAtTheirOffsets() throws Exception {
+		Path path = Files.createTempFile("group-commit", ".log");
+		try {
+			Files.write(path, "header".getBytes(StandardCharsets.US_ASCII)); // 已有内容时从文件末尾追加
+			final GroupCommitWriter writer = GroupCommitWriter.open(path, new GroupCommitWriter.Options().fsync(false));
+			final int threads = 8;
+			final int perThread = 2000;
+			final byte[][][] records = new byte[threads][perThread][];
+			final List<List<CompletableFuture<Long>>> futures = new ArrayList<List<CompletableFuture<Long>>>();
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Thread> appenders = new ArrayList<Thread>();
+			for (int t = 0; t < threads; t++) {
+				final int id = t;
+				final List<CompletableFuture<Long>> mine = new ArrayList<CompletableFuture<Long>>();
+				futures.add(mine);
+				Random random = new Random(id);
+				for (int i = 0; i < perThread; i++) {
+					records[id][i] = record(id, i, random.nextInt(50) == 0 ? 9000 + random.nextInt(4000) : random.nextInt(200));
+				}
+				Thread appender = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < perThread; i++) {
+						mine.add(writer.append(records[id][i]));
+					}
+				});
+				appender.start();
+				appenders.add(appender);
+			}
+			start.countDown();
+			for (Thread appender : appenders) {
+				appender.join();
+			}
+			Map<Long, byte[]> byOffset = new TreeMap<Long, byte[]>();
+			long total = 0;
+			for (int t = 0; t < threads; t++) {
+				long previous = -1;
+				for (int i = 0; i < perThread; i++) {
+					long offset = futures.get(t).get(i).get(10, TimeUnit.SECONDS);
+					assertTrue(offset > previous, "offsets of one thread must increase");
+					previous = offset;
+					byOffset.put(offset, records[t][i]);
+					total += records[t][i].length;
+				}
+			}
+			writer.close();
+
+			byte[] file = Files.readAllBytes(path);
+			assertEquals(6 + total, file.length);
+			assertEquals(total, writer.getBytesWritten());
+			assertEquals(threads * perThread, writer.getRecordCount());
+			long expected = 6;
+			for (Map.Entry<Long, byte[]> e : byOffset.entrySet()) {
+				assertEquals(expected, e.getKey().longValue(), "records must be contiguous");
+				byte[] r = e.getValue();
+				assertTrue(Arrays.equals(r, Arrays.copyOfRange(file, (int) expected, (int) expected + r.length)),
+					() -> "content mismatch at " + e.getKey());
+				expected += r.length;
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void assertThatBatchCommitsWhenSyncBytesReached() throws Exception {
+		Path path = Files.createTempFile("group-commit", ".log");
+		try {
+			GroupCommitWriter writer = GroupCommitWriter.open(path, new GroupCommitWriter.Options()
+				.syncInterval(1, TimeUnit.HOURS)
+				.syncBytes(1000));
+			List<CompletableFuture<Long>> first = new ArrayList<CompletableFuture<Long>>();
+			for (int i = 0; i < 5; i++) {
+				first.add(writer.append(new byte[100]));
+			}
+			Thread.sleep(50);
+			for (CompletableFuture<Long> f : first) {
+				assertFalse(f.isDone()); // 未达到 syncBytes，等待 syncInterval
+			}
+			for (int i = 0; i < 5; i++) {
+				first.add(writer.append(new byte[100]));
+			}
+			for (int i = 0; i < first.size(); i++) {
+				assertEquals(100L * i, first.get(i).get(10, TimeUnit.SECONDS).longValue());
+			}
+			assertEquals(1, writer.getSyncCount());
+
+			List<CompletableFuture<Long>> rest = new ArrayList<CompletableFuture<Long>>();
+			for (int i = 0; i < 3; i++) {
+				rest.add(writer.append(new byte[100]));
+			}
+			assertFalse(rest.get(0).isDone());
+			writer.close(); // 关闭时提交剩余记录
+			for (int i = 0; i < rest.size(); i++) {
+				assertEquals(1000L + 100 * i, rest.get(i).get(0, TimeUnit.SECONDS).longValue());
+			}
+			assertEquals(2, writer.getSyncCount());
+			assertEquals(1300, Files.size(path));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void assertThatBatchesAreSwappedWhileCommitting() throws Exception {
+		Path path = Files.createTempFile("group-commit", ".log");
+		try {
+			GroupCommitWriter writer = GroupCommitWriter.open(path, new GroupCommitWriter.Options()
+				.syncInterval(20, TimeUnit.MILLISECONDS)
+				.maxPendingBytes(4096));
+			List<CompletableFuture<Long>> futures = new ArrayList<CompletableFuture<Long>>();
+			for (int i = 0; i < 2000; i++) { // 待写字节上限远小于总量，append 会阻塞等写线程换批
+				futures.add(writer.append(record(0, i, 64)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(64L * i, futures.get(i).get(10, TimeUnit.SECONDS).longValue());
+			}
+			long syncs = writer.getSyncCount();
+			assertTrue(syncs > 1 && syncs < 2000, () -> "sync count " + syncs);
+			writer.close();
+			assertEquals(64L * 2000, Files.size(path));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void assertThatWriteFailureFailsPendingAndLaterAppends() throws Exception {
+		Path full = Paths.get("/dev/full");
+		assumeTrue(Files.isWritable(full), "needs /dev/full");
+		GroupCommitWriter writer = GroupCommitWriter.open(full, new GroupCommitWriter.Options()
+			.syncInterval(10, TimeUnit.MILLISECONDS));
+		List<CompletableFuture<Long>> futures = new ArrayList<CompletableFuture<Long>>();
+		for (int i = 0; i < 100; i++) {
+			futures.add(writer.append(new byte[10]));
+		}
+		for (CompletableFuture<Long> f : futures) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(10, TimeUnit.SECONDS));
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		CompletableFuture<Long> after = writer.append(new byte[10]);
+		assertTrue(after.isCompletedExceptionally());
+		assertThrows(CompletionException.class, after::join);
+		assertThrows(IOException.class, writer::close);
+	}
+
+	@Test
+	public void assertThatAppendAfterCloseFails() throws IOException, InterruptedException, TimeoutException {
+		Path path = Files.createTempFile("group-commit", ".log");
+		try {
+			GroupCommitWriter writer = GroupCommitWriter.open(path);
+			writer.close();
+			ExecutionException e = assertThrows(ExecutionException.class,
+				() -> writer.append(new byte[1]).get(1, TimeUnit.SECONDS));
+			assertTrue(e.getCause() instanceof ClosedChannelException);
+			assertEquals(0, Files.size(path));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	// 以线程号和序号开头，便于定位错位的记录
+	private static byte[] record(int thread, int seq, int size) {
+		byte[] prefix = (thread + ":" + seq + ":").getBytes(StandardCharsets.US_ASCII);
+		byte[] r = new byte[Math.max(size, prefix.length)];
+		System.arraycopy(prefix, 0, r, 0, prefix.length);
+		for (int i = prefix.length; i < r.length; i++) {
+			r[i] = (byte) ('a' + (thread + seq + i) % 26);
+		}
+		return r;
+	}
+}
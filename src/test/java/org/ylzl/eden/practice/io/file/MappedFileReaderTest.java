@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.io.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 内存映射记录读取器测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class MappedFileReaderTest {
+
+	@Test
+	public void assertThatChunkBoundariesMatchReferenceSplitter() throws IOException {
+		Random random = new Random(20241019L);
+		for (int trial = 0; trial < 300; trial++) {
+			byte[] data = randomLines(random);
+			int chunkSize = 1 + random.nextInt(200);
+			MappedFileReader.Options options = new MappedFileReader.Options()
+				.chunkSize(chunkSize, 64)
+				.parallelism(1 + random.nextInt(4));
+			String message = "trial " + trial + ", chunk size " + chunkSize;
+			assertEquals(split(data, (byte) '\n', true), scan(data, options), message);
+		}
+	}
+
+	@Test
+	public void assertThatCustomDelimiterKeepsCarriageReturn() throws IOException {
+		Random random = new Random(7L);
+		for (int trial = 0; trial < 100; trial++) {
+			byte[] data = randomLines(random);
+			for (int i = 0; i < data.length; i++) {
+				if (data[i] == '\n') {
+					data[i] = '|';
+				}
+			}
+			MappedFileReader.Options options = new MappedFileReader.Options()
+				.chunkSize(1 + random.nextInt(50), 64)
+				.delimiter((byte) '|')
+				.stripCarriageReturn(false);
+			assertEquals(split(data, (byte) '|', false), scan(data, options), "trial " + trial);
+		}
+	}
+
+	@Test
+	public void assertThatOversizedRecordFails() throws IOException {
+		byte[] data = ("short\n" + new String(new char[200]).replace('\0', 'x') + "\nend").getBytes(StandardCharsets.US_ASCII);
+		assertThrows(IOException.class, () -> scan(data, new MappedFileReader.Options().chunkSize(16, 64)));
+	}
+
+	@Test
+	public void assertThatEmptyFileHasNoRecords() throws IOException {
+		assertEquals(new TreeMap<Long, String>(), scan(new byte[0], new MappedFileReader.Options().chunkSize(8, 8)));
+	}
+
+	// 随机的行：混合 LF 和 CRLF，含空行和超过块大小的行，末尾可能没有换行
+	private static byte[] randomLines(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int lines = random.nextInt(300);
+		for (int i = 0; i < lines; i++) {
+			int len = random.nextInt(10) == 0 ? 0 : random.nextInt(40);
+			for (int j = 0; j < len; j++) {
+				sb.append((char) ('a' + random.nextInt(26)));
+			}
+			sb.append(random.nextBoolean() ? "\r\n" : "\n");
+		}
+		if (random.nextBoolean()) {
+			sb.append("tail");
+			if (random.nextBoolean()) {
+				sb.append('\r');
+			}
+		}
+		return sb.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	// 参考实现：逐字节切分，末尾没有分隔符的内容也算一条记录
+	private static Map<Long, String> split(byte[] data, byte delimiter, boolean stripCarriageReturn) {
+		Map<Long, String> records = new TreeMap<Long, String>();
+		int start = 0;
+		for (int i = 0; i <= data.length; i++) {
+			if (i == data.length ? start < data.length : data[i] == delimiter) {
+				int end = i;
+				if (stripCarriageReturn && end > start && data[end - 1] == '\r') {
+					end--;
+				}
+				records.put((long) start, new String(data, start, end - start, StandardCharsets.US_ASCII));
+				start = i + 1;
+			}
+		}
+		return records;
+	}
+
+	private static Map<Long, String> scan(byte[] data, MappedFileReader.Options options) throws IOException {
+		Path path = Files.createTempFile("mapped-file-reader", ".txt");
+		try {
+			Files.write(path, data);
+			final Map<Long, String> records = new ConcurrentSkipListMap<Long, String>();
+			new MappedFileReader(path, options).forEachRecord(new MappedFileReader.RecordHandler() {
+
+				@Override
+				public void onRecord(ByteBuffer record, long offset) {
+					byte[] bytes = new byte[record.remaining()];
+					record.get(bytes);
+					if (records.put(offset, new String(bytes, StandardCharsets.US_ASCII)) != null) {
+						throw new IllegalStateException("Duplicate record at " + offset);
+					}
+				}
+			});
+			return new TreeMap<Long, String>(records);
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应线程池控制器测试，直接驱动 decide，不依赖真实负载和定时器
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class AdaptiveThreadPoolExecutorTest {
+
+	private static final double SERVICE_NANOS = 1_000_000; // 1ms
+
+	private static final double QUEUE_WAIT_LOW = 0;
+
+	private static final double QUEUE_WAIT_HIGH = TimeUnit.MILLISECONDS.toNanos(50);
+
+	@Test
+	public void assertThatNoisyLittleTargetDoesNotOscillate() {
+		AdaptiveThreadPoolExecutor executor = newExecutor();
+		try {
+			int size = 8;
+			int changes = 0;
+			for (int i = 0; i < 100; i++) {
+				double arrivalRate = i % 2 == 0 ? 6600 : 6000; // 基准线程数在 9 和 8 之间抖动
+				int next = executor.decide(arrivalRate, arrivalRate, SERVICE_NANOS, QUEUE_WAIT_LOW, 0.5, size)
+					.getNewSize();
+				if (next != size) {
+					changes++;
+				}
+				size = next;
+			}
+			assertEquals(9, size);
+			assertEquals(1, changes);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void assertThatFutileProbesBackOff() {
+		AdaptiveThreadPoolExecutor executor = newExecutor();
+		try {
+			int size = 8;
+			int changes = 0;
+			int maxSize = size;
+			for (int i = 0; i < 200; i++) { // 排队一直超限，但扩容不提升吞吐
+				int next = executor.decide(1000, 1000, SERVICE_NANOS, QUEUE_WAIT_HIGH, 0.5, size).getNewSize();
+				if (next != size) {
+					changes++;
+				}
+				size = next;
+				maxSize = Math.max(maxSize, size);
+			}
+			int observed = changes; // 不做冷却时每个周期都会调整一次
+			assertTrue(observed <= 16, () -> "too many changes: " + observed);
+			assertEquals(10, maxSize);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void assertThatEffectiveProbesKeepGrowing() {
+		AdaptiveThreadPoolExecutor executor = newExecutor();
+		try {
+			int size = 8;
+			for (int i = 0; i < 20 && size < 64; i++) { // 吞吐与线程数成正比
+				int next = executor.decide(100_000, size * 100, SERVICE_NANOS, QUEUE_WAIT_HIGH, 0.5, size)
+					.getNewSize();
+				assertTrue(next >= size);
+				assertTrue(next - size <= Math.max(1, size / 4));
+				size = next;
+			}
+			assertEquals(64, size);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void assertThatIdlePoolShrinksStepwise() {
+		AdaptiveThreadPoolExecutor executor = newExecutor();
+		try {
+			int size = 32;
+			for (int i = 0; i < 50; i++) {
+				int next = executor.decide(0, 0, 0, QUEUE_WAIT_LOW, 0.1, size).getNewSize();
+				assertTrue(next <= size);
+				assertTrue(size - next <= Math.max(1, size / 4));
+				size = next;
+			}
+			assertEquals(1, size);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void assertThatSaturatedCpuStopsGrowth() {
+		AdaptiveThreadPoolExecutor executor = newExecutor();
+		try {
+			AdaptiveThreadPoolExecutor.Decision decision =
+				executor.decide(8000, 8000, SERVICE_NANOS, QUEUE_WAIT_HIGH, 0.95, 8);
+			assertEquals(6, decision.getNewSize());
+			assertEquals("cpu saturated", decision.getReason());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static AdaptiveThreadPoolExecutor newExecutor() {
+		return new AdaptiveThreadPoolExecutor(1, 64, 1, TimeUnit.HOURS); // 控制器不会在测试期间触发
+	}
+}
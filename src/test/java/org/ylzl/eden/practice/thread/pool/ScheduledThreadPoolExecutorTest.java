@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间轮定时任务线程池测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class ScheduledThreadPoolExecutorTest {
+
+	@Test
+	public void assertThatTasksNeverRunEarly() throws InterruptedException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+		try {
+			int n = 200;
+			long[] due = new long[n];
+			long[] ran = new long[n];
+			CountDownLatch done = new CountDownLatch(n);
+			for (int i = 0; i < n; i++) {
+				final int k = i;
+				long delay = i * 37_000L; // 不对齐刻度的亚毫秒延迟
+				due[k] = System.nanoTime() + delay;
+				executor.schedule(() -> {
+					ran[k] = System.nanoTime();
+					done.countDown();
+				}, delay, TimeUnit.NANOSECONDS);
+			}
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			for (int i = 0; i < n; i++) {
+				int k = i;
+				assertTrue(ran[k] >= due[k], () -> "task " + k + " ran " + (due[k] - ran[k]) + "ns early");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void assertThatTasksAcrossWheelLevelsRunInDeadlineOrder() throws InterruptedException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		try {
+			long[] delays = {4200, 70, 5, 300, 64, 1, 130, 4097, 63, 65}; // 毫秒，覆盖第 0 到 2 层
+			List<Long> order = Collections.synchronizedList(new ArrayList<Long>());
+			CountDownLatch done = new CountDownLatch(delays.length);
+			for (long d : delays) {
+				executor.schedule(() -> {
+					order.add(d);
+					done.countDown();
+				}, d, TimeUnit.MILLISECONDS);
+			}
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			List<Long> expected = new ArrayList<Long>();
+			for (long d : delays) {
+				expected.add(d);
+			}
+			Collections.sort(expected);
+			assertEquals(expected, order);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void assertThatReadyTasksAreOrderedByDeadline() throws InterruptedException {
+		ScheduledThreadPoolExecutor.DelayedWorkQueue queue = new ScheduledThreadPoolExecutor.DelayedWorkQueue();
+		long now = System.nanoTime();
+		Deadline late = new Deadline(now - 100_000);
+		Deadline early = new Deadline(now - 300_000);
+		Deadline middle = new Deadline(now - 200_000);
+		queue.offer(late); // 都已到期，直接进入就绪链表
+		queue.offer(early);
+		queue.offer(middle);
+		assertSame(early, queue.poll());
+		assertSame(middle, queue.poll());
+		assertSame(late, queue.poll());
+		assertNull(queue.poll());
+
+		now = System.nanoTime();
+		Deadline c = new Deadline(now + 5_900_000);
+		Deadline a = new Deadline(now + 5_100_000);
+		Deadline b = new Deadline(now + 5_500_000);
+		queue.offer(c); // 还未到期，经过时间轮槽位后进入就绪链表
+		queue.offer(a);
+		queue.offer(b);
+		assertNull(queue.poll());
+		Thread.sleep(20);
+		assertSame(a, queue.poll());
+		assertSame(b, queue.poll());
+		assertSame(c, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void assertThatCancelRemovesTaskFromWheel() throws InterruptedException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		try {
+			AtomicInteger runs = new AtomicInteger();
+			ScheduledFuture<?> far = executor.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+			ScheduledFuture<?> near = executor.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+			assertEquals(2, executor.getQueue().size());
+			assertTrue(far.cancel(false));
+			assertTrue(near.cancel(false));
+			assertEquals(0, executor.getQueue().size());
+			assertFalse(far.cancel(false));
+			Thread.sleep(100);
+			assertEquals(0, runs.get());
+
+			executor.setRemoveOnCancelPolicy(false);
+			ScheduledFuture<?> kept = executor.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+			assertTrue(kept.cancel(false));
+			assertEquals(1, executor.getQueue().size()); // 关闭立即移除时保留在时间轮中
+			assertTrue(executor.getQueue().remove(kept));
+			assertEquals(0, executor.getQueue().size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void assertThatPeriodicTasksAreRescheduled() throws InterruptedException {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		try {
+			AtomicInteger runs = new AtomicInteger();
+			CountDownLatch tenRuns = new CountDownLatch(10);
+			ScheduledFuture<?> rate = executor.scheduleAtFixedRate(() -> {
+				runs.incrementAndGet();
+				tenRuns.countDown();
+			}, 0, 5, TimeUnit.MILLISECONDS);
+			assertTrue(tenRuns.await(5, TimeUnit.SECONDS));
+			assertTrue(executor.getQueue().size() <= 1); // 每次执行后复用同一个任务重新入队，不会重复
+			assertTrue(rate.cancel(false));
+			int stopped = runs.get();
+			Thread.sleep(30);
+			assertTrue(runs.get() <= stopped + 1);
+			assertEquals(0, executor.getQueue().size());
+
+			List<Long> starts = Collections.synchronizedList(new ArrayList<Long>());
+			CountDownLatch fiveRuns = new CountDownLatch(5);
+			ScheduledFuture<?> delay = executor.scheduleWithFixedDelay(() -> {
+				starts.add(System.nanoTime());
+				try {
+					Thread.sleep(3);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				fiveRuns.countDown();
+			}, 0, 10, TimeUnit.MILLISECONDS);
+			assertTrue(fiveRuns.await(5, TimeUnit.SECONDS));
+			delay.cancel(false);
+			for (int i = 1; i < 5; i++) {
+				long gap = starts.get(i) - starts.get(i - 1);
+				assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(13), () -> "gap " + gap + "ns"); // 执行时间加固定延迟
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 只有计划时间的任务，走时间轮中没有内置节点的路径
+	 */
+	private static final class Deadline implements RunnableScheduledFuture<Void> {
+
+		private final long time;
+
+		Deadline(long time) {
+			this.time = time;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return false;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		@Override
+		public void run() {
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			return false;
+		}
+
+		@Override
+		public Void get() {
+			return null;
+		}
+
+		@Override
+		public Void get(long timeout, TimeUnit unit) {
+			return null;
+		}
+	}
+}
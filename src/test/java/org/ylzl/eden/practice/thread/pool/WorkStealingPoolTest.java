@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ylzl.eden.practice.thread.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 工作窃取线程池测试
+ *
+ * @author gyl
+ * @since 2.0.0
+ */
+public class WorkStealingPoolTest {
+
+	@Test
+	public void assertThatOwnerPopsLifoAndThievesPollFifo() {
+		WorkStealingPool.WorkQueue queue = new WorkStealingPool.WorkQueue();
+		int n = 1000; // 超过初始容量，触发扩容
+		Runnable[] tasks = new Runnable[n];
+		for (int i = 0; i < n; i++) {
+			tasks[i] = new Indexed(i);
+			queue.push(tasks[i]);
+		}
+		assertEquals(n, queue.size());
+		assertSame(tasks[n - 1], queue.pop());
+		assertSame(tasks[0], queue.poll());
+		for (int i = 1; i < n - 1; i++) {
+			assertSame(tasks[i], queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.pop());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void assertThatConcurrentStealsTakeEachTaskOnce() throws InterruptedException {
+		final WorkStealingPool.WorkQueue queue = new WorkStealingPool.WorkQueue();
+		final int n = 200_000;
+		final AtomicIntegerArray taken = new AtomicIntegerArray(n);
+		final AtomicBoolean ownerDone = new AtomicBoolean();
+		List<Thread> thieves = new ArrayList<Thread>();
+		for (int t = 0; t < 3; t++) {
+			Thread thief = new Thread(() -> {
+				for (; ; ) {
+					Runnable r = queue.poll();
+					if (r != null) {
+						taken.incrementAndGet(((Indexed) r).index);
+					} else if (ownerDone.get() && queue.isEmpty()) {
+						return;
+					}
+				}
+			});
+			thief.start();
+			thieves.add(thief);
+		}
+		for (int i = 0; i < n; i++) { // 所有者交替压入和弹出，与窃取方争用队尾元素并经历多次扩容
+			queue.push(new Indexed(i));
+			if ((i & 3) == 0) {
+				Runnable r = queue.pop();
+				if (r != null) {
+					taken.incrementAndGet(((Indexed) r).index);
+				}
+			}
+		}
+		ownerDone.set(true);
+		for (Thread thief : thieves) {
+			thief.join();
+		}
+		for (int i = 0; i < n; i++) {
+			assertEquals(1, taken.get(i), "task " + i);
+		}
+	}
+
+	@Test
+	public void assertThatExternalSubmissionsRunExactlyOnce() throws InterruptedException {
+		final WorkStealingPool pool = new WorkStealingPool(4);
+		final int submitters = 8;
+		final int perSubmitter = 10_000;
+		final AtomicIntegerArray runs = new AtomicIntegerArray(submitters * perSubmitter);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int s = 0; s < submitters; s++) {
+			final int base = s * perSubmitter;
+			Thread submitter = new Thread(() -> { // 不同线程落到不同的提交队列
+				for (int i = 0; i < perSubmitter; i++) {
+					final int k = base + i;
+					pool.execute(() -> runs.incrementAndGet(k));
+				}
+			});
+			submitter.start();
+			threads.add(submitter);
+		}
+		for (Thread submitter : threads) {
+			submitter.join();
+		}
+		pool.shutdown(); // 关闭后仍执行完已提交的任务
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		for (int i = 0; i < runs.length(); i++) {
+			assertEquals(1, runs.get(i), "task " + i);
+		}
+		assertEquals(0, pool.getQueuedTaskCount());
+		assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+	}
+
+	@Test
+	public void assertThatForkedTasksAreStolenFromBlockedWorker() throws InterruptedException {
+		final WorkStealingPool pool = new WorkStealingPool(4);
+		final int forks = 200;
+		final CountDownLatch children = new CountDownLatch(forks);
+		final AtomicBoolean completed = new AtomicBoolean();
+		final CountDownLatch parent = new CountDownLatch(1);
+		pool.execute(() -> {
+			for (int i = 0; i < forks; i++) {
+				pool.execute(children::countDown); // 压入本线程的本地队列
+			}
+			try {
+				completed.set(children.await(10, TimeUnit.SECONDS)); // 本线程阻塞，子任务只能被其他线程窃取
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			parent.countDown();
+		});
+		assertTrue(parent.await(15, TimeUnit.SECONDS));
+		pool.shutdown(); // 关闭后工作线程内也不能再提交，等父任务结束再关闭
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(completed.get());
+		assertEquals(forks, pool.getStealCount());
+	}
+
+	@Test
+	public void assertThatShutdownNowReturnsQueuedTasks() throws InterruptedException {
+		final WorkStealingPool pool = new WorkStealingPool(2);
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 2; i++) {
+			pool.execute(() -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		final AtomicInteger ran = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			pool.execute(ran::incrementAndGet);
+		}
+		assertEquals(100, pool.getQueuedTaskCount());
+		List<Runnable> pending = pool.shutdownNow(); // 中断阻塞中的任务
+		assertEquals(100, pending.size());
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(0, ran.get());
+		assertTrue(pool.isTerminated());
+	}
+
+	private static final class Indexed implements Runnable {
+
+		final int index;
+
+		Indexed(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+		}
+	}
+}